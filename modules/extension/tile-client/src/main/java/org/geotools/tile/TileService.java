@@ -27,6 +27,7 @@ import java.util.logging.Logger;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
 import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.tile.cache.TileImageCache;
 import org.geotools.tile.impl.ScaleZoomLevelMatcher;
 import org.geotools.tile.impl.ZoomLevel;
 import org.geotools.util.ObjectCache;
@@ -59,6 +60,11 @@ public abstract class TileService {
      **/
     private ObjectCache tiles = ObjectCaches.create("soft", 50); //$NON-NLS-1$
 
+    /**
+     * The cache loading the images of the tiles, if any
+     */
+    private TileImageCache imageCache;
+
     private String baseURL;
 
     private String name;
@@ -94,6 +100,19 @@ public abstract class TileService {
         return name;
     }
 
+    /**
+     * Sets the cache used to load the images of the tiles of this service, from then on.
+     * 
+     * @param imageCache the cache, or null to have the tiles load their images directly
+     */
+    public void setImageCache(TileImageCache imageCache) {
+        this.imageCache = imageCache;
+    }
+
+    public TileImageCache getImageCache() {
+        return imageCache;
+    }
+
     public int getTileWidth() {
         return 256;
     }
@@ -265,7 +284,7 @@ public abstract class TileService {
         Tile firstTile = tileFactory.findTileAtCoordinate(extent.getMinX(), extent.getMaxY(),
                 zoomLevel, this);
 
-        addTileToCache(firstTile);
+        firstTile = addTileToCache(firstTile);
         tileList.add(firstTile);
 
         Tile firstTileOfRow = firstTile;
@@ -284,7 +303,7 @@ public abstract class TileService {
                 if (extent.intersects((Envelope) rightNeighbour.getExtent())
                         && !firstTileOfRow.equals(rightNeighbour)) {
 
-                    addTileToCache(rightNeighbour);
+                    rightNeighbour = addTileToCache(rightNeighbour);
                     tileList.add(rightNeighbour);
 
                     movingTile = rightNeighbour;
@@ -306,7 +325,7 @@ public abstract class TileService {
             if (extent.intersects((Envelope) lowerNeighbour.getExtent())
                     && !firstTile.equals(lowerNeighbour)) {
 
-                addTileToCache(lowerNeighbour);
+                lowerNeighbour = addTileToCache(lowerNeighbour);
                 tileList.add(lowerNeighbour);
 
                 firstTileOfRow = movingTile = lowerNeighbour;
@@ -326,23 +345,31 @@ public abstract class TileService {
      *
      * Subclasses services (such as WMTS) may have some more hints about the tile TTL, so a more
      * controllable cache should be implemented in these cases.
+     *
+     * The tile images are kept by the {@link #setImageCache(TileImageCache) image cache}, when
+     * set, which is made the image loader of the returned tile. Otherwise the tile loads its
+     * own image.
+     *
+     * @return the tile already in cache with the same id, or the given tile
      */
     protected Tile addTileToCache(Tile tile) {
         String id = tile.getId();
-        boolean isInCache = !(tiles.peek(id) == null || tiles.get(id) == null);
+        Tile cached = (Tile) tiles.get(id);
 
-        if (isInCache) {
+        if (cached != null) {
             if (LOGGER.isLoggable(Level.FINER)) {
                 LOGGER.fine("Tile already in cache: " + id);
             }
-            return (Tile) tiles.get(id);
+            tile = cached;
         } else {
             if (LOGGER.isLoggable(Level.FINER)) {
                 LOGGER.fine("Tile added to cache: " + id);
             }
             tiles.put(id, tile);
-            return tile;
         }
+        // tiles kept from before the cache was removed go back to loading their own images
+        tile.setImageLoader(imageCache != null ? imageCache : tile);
+        return tile;
     }
 
     /**
@@ -0,0 +1,152 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.tile.cache;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.imageio.ImageIO;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * The disk tier of a {@link TileImageCache}: tile images stored as PNG files in a directory,
+ * named after the tile ids, bounded by the total size of the files.
+ * <p>
+ * The least recently used files are deleted to make room for new ones. The access order is kept
+ * in memory, and persisted through the file modification times, so that a cache directory
+ * reopened later is evicted in the same order.
+ * </p>
+ *
+ * @since 20.0
+ */
+class DiskTileCache {
+
+    static final Logger LOGGER = Logging.getLogger(DiskTileCache.class);
+
+    static final String EXTENSION = ".png";
+
+    final File directory;
+
+    final long maxBytes;
+
+    long bytes;
+
+    long evictions;
+
+    /** File names to file sizes, in access order */
+    final LinkedHashMap<String, Long> files = new LinkedHashMap<>(256, 0.75f, true);
+
+    DiskTileCache(File directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create the tile cache directory " + directory);
+        }
+        File[] existing = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (existing != null) {
+            Arrays.sort(existing, Comparator.comparingLong(File::lastModified));
+            for (File file : existing) {
+                files.put(file.getName(), file.length());
+                bytes += file.length();
+            }
+            evict();
+        }
+    }
+
+    /**
+     * Reads the image of the tile, or returns null if it's not in the cache
+     */
+    BufferedImage get(String id) throws IOException {
+        String name = id + EXTENSION;
+        synchronized (this) {
+            if (files.get(name) == null) {
+                return null;
+            }
+        }
+        File file = new File(directory, name);
+        BufferedImage image = file.exists() ? ImageIO.read(file) : null;
+        if (image != null) {
+            file.setLastModified(System.currentTimeMillis());
+        }
+        return image;
+    }
+
+    /**
+     * Writes the image of the tile, then deletes the least recently used files if the cache
+     * grew over its size
+     */
+    void put(String id, BufferedImage image) throws IOException {
+        String name = id + EXTENSION;
+        File file = new File(directory, name);
+        // write aside and move, so that concurrent readers never see a partial file
+        File temp = File.createTempFile("tile", ".tmp", directory);
+        try {
+            if (!ImageIO.write(image, "png", temp)) {
+                return;
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            temp.delete();
+        }
+        long length = file.length();
+        synchronized (this) {
+            Long previous = files.put(name, length);
+            if (previous != null) {
+                bytes -= previous;
+            }
+            bytes += length;
+            evict();
+        }
+    }
+
+    synchronized void evict() {
+        Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            File file = new File(directory, eldest.getKey());
+            if (!file.delete() && file.exists()) {
+                LOGGER.log(Level.WARNING, "Could not delete the cached tile " + file);
+            }
+            bytes -= eldest.getValue();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized int size() {
+        return files.size();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.tile.cache;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geotools.tile.TileIdentifier;
+
+/**
+ * The memory tier of a {@link TileImageCache}: a least recently used map of tile images, bounded
+ * by the size of the image rasters rather than by the number of tiles.
+ *
+ * @since 20.0
+ */
+class MemoryTileCache {
+
+    final long maxBytes;
+
+    long bytes;
+
+    long evictions;
+
+    final LinkedHashMap<TileIdentifier, BufferedImage> images = new LinkedHashMap<>(64,
+            0.75f, true);
+
+    MemoryTileCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized BufferedImage get(TileIdentifier id) {
+        return images.get(id);
+    }
+
+    /**
+     * Adds the image, evicting the least recently used ones to make room for it. Images larger
+     * than the whole cache are not added.
+     */
+    synchronized void put(TileIdentifier id, BufferedImage image) {
+        long size = sizeOf(image);
+        if (size > maxBytes) {
+            return;
+        }
+        BufferedImage previous = images.put(id, image);
+        if (previous != null) {
+            bytes -= sizeOf(previous);
+        }
+        bytes += size;
+        Iterator<Map.Entry<TileIdentifier, BufferedImage>> it = images.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<TileIdentifier, BufferedImage> eldest = it.next();
+            if (eldest.getKey().equals(id)) {
+                continue;
+            }
+            bytes -= sizeOf(eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    synchronized void clear() {
+        images.clear();
+        bytes = 0;
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized int size() {
+        return images.size();
+    }
+
+    /**
+     * The size of the image raster data, in bytes
+     */
+    static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        return (long) buffer.getSize() * buffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+    }
+}
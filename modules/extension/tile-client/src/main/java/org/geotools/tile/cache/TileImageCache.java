@@ -0,0 +1,287 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.tile.cache;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.tile.ImageLoader;
+import org.geotools.tile.Tile;
+import org.geotools.tile.TileIdentifier;
+import org.geotools.util.logging.Logging;
+
+/**
+ * A two tier cache for tile images, which also fetches the missing images from the tile
+ * services.
+ * <p>
+ * Images are looked up first in memory, in a least recently used cache bounded by the size of
+ * the image rasters, then optionally on disk, in a directory bounded by the size of the files
+ * and evicted in least recently used order as well. Missing images are loaded by the tile itself
+ * (see {@link Tile#loadImageTileImage(Tile)}) on a bounded pool of fetch threads, so that the
+ * number of connections to the tile service stays bounded. Concurrent requests for the same tile
+ * share a single fetch. The fetch threads exit after a while without fetches, call
+ * {@link #dispose()} to stop them right away.
+ * </p>
+ * <p>
+ * The cache is plugged into the tiles of a service with
+ * {@link org.geotools.tile.TileService#setImageCache(TileImageCache)}. The images are shared
+ * among all the users of the cache and must not be modified.
+ * </p>
+ *
+ * @since 20.0
+ */
+public class TileImageCache implements ImageLoader {
+
+    static final Logger LOGGER = Logging.getLogger(TileImageCache.class);
+
+    /** The default size of the memory tier, 64MB, about 256 RGBA tiles of 256x256 pixels */
+    public static final long DEFAULT_MEMORY_SIZE = 64 * 1024 * 1024;
+
+    /** The default number of fetch threads, as many connections per host as browsers use */
+    public static final int DEFAULT_FETCH_THREADS = 6;
+
+    /** How long idle fetch threads wait for new fetches before exiting, in seconds */
+    static final long FETCH_THREAD_KEEP_ALIVE = 60;
+
+    static final AtomicInteger POOL_COUNTER = new AtomicInteger();
+
+    final MemoryTileCache memory;
+
+    final DiskTileCache disk;
+
+    final ExecutorService executor;
+
+    final ConcurrentHashMap<TileIdentifier, Future<BufferedImage>> fetches =
+            new ConcurrentHashMap<>();
+
+    final AtomicLong memoryHits = new AtomicLong();
+
+    final AtomicLong diskHits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+
+    final AtomicLong sharedFetches = new AtomicLong();
+
+    /**
+     * Creates a memory only cache
+     *
+     * @param memorySize The maximum size of the images kept in memory, in bytes
+     */
+    public TileImageCache(long memorySize) {
+        this.memory = new MemoryTileCache(memorySize);
+        this.disk = null;
+        this.executor = createExecutor(DEFAULT_FETCH_THREADS);
+    }
+
+    /**
+     * Creates a cache with both a memory and a disk tier
+     *
+     * @param memorySize The maximum size of the images kept in memory, in bytes
+     * @param directory The directory storing the images, created if missing. Images found in it
+     *        are reused.
+     * @param diskSize The maximum size of the image files, in bytes
+     * @param fetchThreads The number of threads fetching images from the tile services
+     */
+    public TileImageCache(long memorySize, File directory, long diskSize, int fetchThreads)
+            throws IOException {
+        this.memory = new MemoryTileCache(memorySize);
+        this.disk = directory != null ? new DiskTileCache(directory, diskSize) : null;
+        this.executor = createExecutor(fetchThreads);
+    }
+
+    static ExecutorService createExecutor(int threads) {
+        final int pool = POOL_COUNTER.incrementAndGet();
+        final AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                FETCH_THREAD_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r,
+                                "TileFetcher-" + pool + "-" + counter.incrementAndGet());
+                        // do not keep the application alive for tiles nobody waits for anymore
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        // caches that are never disposed do not hold on to their threads
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns the image of the tile, fetching it if it's not in the cache
+     */
+    @Override
+    public BufferedImage loadImageTileImage(Tile tile) throws IOException {
+        try {
+            return fetch(tile).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading tile " + tile.getId(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause
+                    : new IOException("Failed to load tile " + tile.getId(), cause);
+        }
+    }
+
+    /**
+     * Returns the image of the tile, as a completed future if the image is in memory, otherwise
+     * as the future of the fetch loading it. Concurrent calls for the same tile share the same
+     * fetch.
+     */
+    public Future<BufferedImage> fetch(final Tile tile) {
+        final TileIdentifier id = tile.getTileIdentifier();
+        BufferedImage image = memory.get(id);
+        if (image != null) {
+            memoryHits.incrementAndGet();
+            return CompletableFuture.completedFuture(image);
+        }
+
+        FutureTask<BufferedImage> task = new FutureTask<>(() -> {
+            try {
+                return load(tile);
+            } finally {
+                fetches.remove(id);
+            }
+        });
+        Future<BufferedImage> existing = fetches.putIfAbsent(id, task);
+        if (existing != null) {
+            sharedFetches.incrementAndGet();
+            return existing;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            fetches.remove(id, task);
+            throw e;
+        }
+        return task;
+    }
+
+    BufferedImage load(Tile tile) throws IOException {
+        TileIdentifier id = tile.getTileIdentifier();
+        // the image might have been loaded while this fetch was queued
+        BufferedImage image = memory.get(id);
+        if (image != null) {
+            memoryHits.incrementAndGet();
+            return image;
+        }
+        if (disk != null) {
+            image = disk.get(tile.getId());
+            if (image != null) {
+                diskHits.incrementAndGet();
+                memory.put(id, image);
+                return image;
+            }
+        }
+
+        misses.incrementAndGet();
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Fetching tile " + tile.getId() + " from " + tile.getUrl());
+        }
+        image = tile.loadImageTileImage(tile);
+        if (image == null) {
+            throw new IOException("Could not read the image of tile " + tile.getId());
+        }
+        memory.put(id, image);
+        if (disk != null) {
+            try {
+                disk.put(tile.getId(), image);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not store tile " + tile.getId() + " on disk", e);
+            }
+        }
+        return image;
+    }
+
+    /** Removes all the images from memory, the disk tier is left untouched */
+    public void clearMemory() {
+        memory.clear();
+    }
+
+    /** Stops the fetch threads, the pending fetches are cancelled */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    /** The number of images found in memory */
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    /** The number of images found on disk */
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /** The number of images fetched from the tile services */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /** The number of requests that joined a fetch already in progress for the same tile */
+    public long getSharedFetches() {
+        return sharedFetches.get();
+    }
+
+    /** The number of images evicted from memory */
+    public long getMemoryEvictions() {
+        return memory.getEvictions();
+    }
+
+    /** The number of image files evicted from disk */
+    public long getDiskEvictions() {
+        return disk != null ? disk.getEvictions() : 0;
+    }
+
+    /** The size of the images in memory, in bytes */
+    public long getMemorySize() {
+        return memory.getBytes();
+    }
+
+    /** The size of the image files on disk, in bytes */
+    public long getDiskSize() {
+        return disk != null ? disk.getBytes() : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TileImageCache[memoryHits=" + getMemoryHits() + ", diskHits=" + getDiskHits()
+                + ", misses=" + getMisses() + ", sharedFetches=" + getSharedFetches()
+                + ", memoryEvictions=" + getMemoryEvictions() + ", diskEvictions="
+                + getDiskEvictions() + "]";
+    }
+}
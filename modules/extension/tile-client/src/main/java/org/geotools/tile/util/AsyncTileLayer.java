@@ -17,95 +17,95 @@
 package org.geotools.tile.util;
 
 import java.awt.Graphics2D;
-import java.awt.RenderingHints;
 import java.awt.geom.AffineTransform;
-import java.awt.image.BufferedImage;
 import java.util.Collection;
-import java.util.concurrent.CountDownLatch;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.tile.Tile;
 import org.geotools.tile.TileService;
-import org.opengis.referencing.FactoryException;
-import org.opengis.referencing.operation.TransformException;
+import org.geotools.tile.cache.TileImageCache;
+import org.geotools.util.logging.Logging;
 
 /**
- * This Layer is an attempt to speed rendering by using a CountDownLatch and
- * threads to render each tile. The performance improvement is minimal, though.
+ * This Layer speeds up rendering by fetching the images of all the tiles in parallel, on the
+ * bounded pool of fetch threads of the service {@link TileImageCache}, before drawing them.
+ * <p>
+ * The tiles are drawn one after the other on the rendering thread, each as soon as its image is
+ * available, as the graphics cannot be shared among threads. A memory only cache is set on the
+ * service if it has none, shared by all the layers of the service, and disposed along with the
+ * last of them. A cache set by the caller is never disposed.
+ * </p>
  * 
  * @author Ugo Taddei
  * @since 12
  */
 public class AsyncTileLayer extends TileLayer {
 
-    private CountDownLatch countDownLatch;
+    private static final Logger LOGGER = Logging.getLogger(AsyncTileLayer.class);
+
+    /** The number of layers using each image cache created by a layer */
+    private static final Map<TileImageCache, Integer> LAYER_CACHES =
+            new IdentityHashMap<TileImageCache, Integer>();
+
+    private final TileService service;
+
+    private final TileImageCache imageCache;
 
     public AsyncTileLayer(TileService service) {
         super(service);
+        this.service = service;
+        synchronized (LAYER_CACHES) {
+            TileImageCache cache = service.getImageCache();
+            if (cache == null) {
+                cache = new TileImageCache(TileImageCache.DEFAULT_MEMORY_SIZE);
+                service.setImageCache(cache);
+                LAYER_CACHES.put(cache, 1);
+            } else if (LAYER_CACHES.containsKey(cache)) {
+                LAYER_CACHES.put(cache, LAYER_CACHES.get(cache) + 1);
+            }
+            this.imageCache = cache;
+        }
     }
 
     @Override
     protected void renderTiles(Collection<Tile> tiles, Graphics2D g2d,
             ReferencedEnvelope viewportExtent, AffineTransform worldToImageTransform) {
-
-        long t = System.currentTimeMillis();
-
-        this.countDownLatch = new CountDownLatch(tiles.size());
-
-        localRenderTiles(tiles, g2d, viewportExtent, worldToImageTransform);
+        // start all the fetches, drawing each tile then waits for its own (the image cache is
+        // the tile image loader, and joins the fetch in progress)
         try {
-            this.countDownLatch.await();
-        } catch (InterruptedException ie) {
-            ie.printStackTrace();
-        }
-        this.countDownLatch = null;
-    }
-
-    protected void renderTile(final Tile tile, final Graphics2D g2d, final double[] points) {
-
-        Runnable r = new Runnable() {
-
-            @Override
-            public void run() {
-                BufferedImage img = getTileImage(tile);
-
-                g2d.drawImage(img, (int) points[0], (int) points[1],
-                        (int) Math.ceil(points[2] - points[0]),
-                        (int) Math.ceil(points[3] - points[1]), null);
-
-                AsyncTileLayer.this.countDownLatch.countDown();
+            for (Tile tile : tiles) {
+                if (tile.getRenderState() != Tile.RenderState.RENDERED) {
+                    imageCache.fetch(tile);
+                }
             }
-        };
-        new Thread(r).start();
-
+        } catch (RejectedExecutionException e) {
+            // the cache has been disposed by its owner, the tiles load their images while drawn
+            LOGGER.log(Level.FINE, "Tile image cache disposed, loading the tiles sequentially", e);
+        }
+        super.renderTiles(tiles, g2d, viewportExtent, worldToImageTransform);
     }
 
-    protected void localRenderTiles(Collection<Tile> tiles, Graphics2D g2d,
-            ReferencedEnvelope viewportExtent, AffineTransform worldToImageTransform) {
-
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
-                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-
-        for (Tile tile : tiles) {
-            ReferencedEnvelope nativeTileEnvelope = tile.getExtent();
-
-            ReferencedEnvelope tileEnvViewport;
-            try {
-                tileEnvViewport = nativeTileEnvelope
-                        .transform(viewportExtent.getCoordinateReferenceSystem(), true);
-            } catch (TransformException | FactoryException e) {
-                throw new RuntimeException(e);
+    @Override
+    public void dispose() {
+        synchronized (LAYER_CACHES) {
+            Integer users = LAYER_CACHES.get(imageCache);
+            if (users != null) {
+                if (users > 1) {
+                    LAYER_CACHES.put(imageCache, users - 1);
+                } else {
+                    LAYER_CACHES.remove(imageCache);
+                    if (service.getImageCache() == imageCache) {
+                        service.setImageCache(null);
+                    }
+                    imageCache.dispose();
+                }
             }
-            double[] points = new double[4];
-            points[0] = tileEnvViewport.getMinX();
-            points[3] = tileEnvViewport.getMinY();
-            points[2] = tileEnvViewport.getMaxX();
-            points[1] = tileEnvViewport.getMaxY();
-
-            worldToImageTransform.transform(points, 0, points, 0, 2);
-
-            renderTile(tile, g2d, points);
         }
-
+        super.dispose();
     }
 }
@@ -0,0 +1,280 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.tile.cache;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.tile.Tile;
+import org.geotools.tile.impl.WebMercatorZoomLevel;
+import org.geotools.tile.impl.osm.OSMService;
+import org.geotools.tile.impl.osm.OSMTileIdentifier;
+import org.geotools.tile.util.AsyncTileLayer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TileImageCacheTest {
+
+    /** The size of the test tile images, in bytes */
+    static final long TILE_SIZE = 256 * 256 * 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    AtomicInteger loads = new AtomicInteger();
+
+    List<TileImageCache> caches = new ArrayList<>();
+
+    @After
+    public void afterTest() {
+        for (TileImageCache cache : caches) {
+            cache.dispose();
+        }
+    }
+
+    TileImageCache cache(long memorySize, File directory, long diskSize) throws IOException {
+        TileImageCache cache = new TileImageCache(memorySize, directory, diskSize, 2);
+        caches.add(cache);
+        return cache;
+    }
+
+    Tile tile(int x) {
+        return tile(x, null);
+    }
+
+    /**
+     * A tile counting the loads of its image, which waits for the latch, if any, before loading
+     */
+    Tile tile(int x, final CountDownLatch latch) {
+        ReferencedEnvelope env = new ReferencedEnvelope(0, 1, 0, 1, DefaultGeographicCRS.WGS84);
+        return new Tile(new OSMTileIdentifier(x, 0, new WebMercatorZoomLevel(5), "Test"), env,
+                256) {
+
+            @Override
+            public BufferedImage loadImageTileImage(Tile tile) throws IOException {
+                if (latch != null) {
+                    try {
+                        latch.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                }
+                loads.incrementAndGet();
+                return new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+            }
+
+            @Override
+            public URL getUrl() {
+                try {
+                    return new URL("http://localhost/tiles/" + getId());
+                } catch (MalformedURLException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+
+    @Test
+    public void testMemoryHit() throws Exception {
+        TileImageCache cache = cache(TILE_SIZE * 10, null, 0);
+        BufferedImage image = cache.loadImageTileImage(tile(0));
+        Assert.assertSame(image, cache.loadImageTileImage(tile(0)));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(1, cache.getMemoryHits());
+        Assert.assertEquals(TILE_SIZE, cache.getMemorySize());
+    }
+
+    @Test
+    public void testMemoryBound() throws Exception {
+        TileImageCache cache = cache(TILE_SIZE * 3, null, 0);
+        for (int i = 0; i < 4; i++) {
+            cache.loadImageTileImage(tile(i));
+        }
+        Assert.assertEquals(1, cache.getMemoryEvictions());
+        Assert.assertEquals(TILE_SIZE * 3, cache.getMemorySize());
+
+        // the least recently used tile is gone, the others are still there
+        cache.loadImageTileImage(tile(3));
+        Assert.assertEquals(4, loads.get());
+        cache.loadImageTileImage(tile(0));
+        Assert.assertEquals(5, loads.get());
+        Assert.assertEquals(2, cache.getMemoryEvictions());
+    }
+
+    @Test
+    public void testDiskTier() throws Exception {
+        File directory = folder.newFolder("tiles");
+        TileImageCache cache = cache(TILE_SIZE, directory, Long.MAX_VALUE);
+        cache.loadImageTileImage(tile(0));
+        cache.loadImageTileImage(tile(1));
+        Assert.assertTrue(new File(directory, tile(0).getId() + ".png").exists());
+
+        // evicted from memory, still on disk
+        cache.loadImageTileImage(tile(0));
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(1, cache.getDiskHits());
+
+        // the directory is reused
+        TileImageCache reopened = cache(TILE_SIZE, directory, Long.MAX_VALUE);
+        Assert.assertEquals(cache.getDiskSize(), reopened.getDiskSize());
+        reopened.loadImageTileImage(tile(1));
+        Assert.assertEquals(2, loads.get());
+        Assert.assertEquals(1, reopened.getDiskHits());
+    }
+
+    @Test
+    public void testDiskBound() throws Exception {
+        TileImageCache cache = cache(0, folder.newFolder("measure"), Long.MAX_VALUE);
+        cache.loadImageTileImage(tile(0));
+        long fileSize = cache.getDiskSize();
+
+        // room for two files only, nothing kept in memory
+        File directory = folder.newFolder("tiles");
+        cache = cache(0, directory, fileSize * 2 + fileSize / 2);
+        loads.set(0);
+        cache.loadImageTileImage(tile(0));
+        cache.loadImageTileImage(tile(1));
+        cache.loadImageTileImage(tile(0));
+        cache.loadImageTileImage(tile(2));
+        Assert.assertEquals(3, loads.get());
+        Assert.assertEquals(1, cache.getDiskEvictions());
+        Assert.assertEquals(fileSize * 2, cache.getDiskSize());
+        Assert.assertFalse(new File(directory, tile(1).getId() + ".png").exists());
+
+        cache.loadImageTileImage(tile(0));
+        Assert.assertEquals(3, loads.get());
+        Assert.assertEquals(2, cache.getDiskHits());
+    }
+
+    @Test
+    public void testSharedFetch() throws Exception {
+        TileImageCache cache = cache(TILE_SIZE * 10, null, 0);
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Future<BufferedImage>> fetches = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            fetches.add(cache.fetch(tile(0, latch)));
+        }
+        latch.countDown();
+
+        BufferedImage image = fetches.get(0).get();
+        for (Future<BufferedImage> fetch : fetches) {
+            Assert.assertSame(image, fetch.get());
+        }
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, cache.getMisses());
+        Assert.assertEquals(7, cache.getSharedFetches());
+    }
+
+    @Test
+    public void testFailedFetch() throws Exception {
+        TileImageCache cache = cache(TILE_SIZE * 10, null, 0);
+        final AtomicInteger attempts = new AtomicInteger();
+        Tile failing = new Tile(new OSMTileIdentifier(0, 0, new WebMercatorZoomLevel(5), "Test"),
+                new ReferencedEnvelope(0, 1, 0, 1, DefaultGeographicCRS.WGS84), 256) {
+
+            @Override
+            public BufferedImage loadImageTileImage(Tile tile) throws IOException {
+                if (attempts.incrementAndGet() == 1) {
+                    throw new IOException("Service unavailable");
+                }
+                return new BufferedImage(256, 256, BufferedImage.TYPE_INT_ARGB);
+            }
+
+            @Override
+            public URL getUrl() {
+                return null;
+            }
+        };
+        try {
+            cache.loadImageTileImage(failing);
+            Assert.fail("The fetch should have failed");
+        } catch (IOException e) {
+            Assert.assertEquals("Service unavailable", e.getMessage());
+        }
+
+        // failures are not cached
+        Assert.assertNotNull(cache.loadImageTileImage(failing));
+        Assert.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testIdleFetchThreads() throws Exception {
+        // caches that are never disposed must not leak their threads
+        TileImageCache cache = cache(TILE_SIZE, null, 0);
+        Assert.assertTrue(((ThreadPoolExecutor) cache.executor).allowsCoreThreadTimeOut());
+    }
+
+    @Test
+    public void testAsyncLayerDispose() throws Exception {
+        // the layer disposes the cache it created
+        OSMService service = new OSMService("OSM", "http://localhost/tiles/");
+        AsyncTileLayer layer = new AsyncTileLayer(service);
+        TileImageCache cache = service.getImageCache();
+        Assert.assertNotNull(cache);
+        layer.preDispose();
+        layer.dispose();
+        Assert.assertTrue(cache.executor.isShutdown());
+        Assert.assertNull(service.getImageCache());
+
+        // but not the one set on the service by someone else
+        cache = cache(TILE_SIZE, null, 0);
+        service.setImageCache(cache);
+        layer = new AsyncTileLayer(service);
+        layer.preDispose();
+        layer.dispose();
+        Assert.assertFalse(cache.executor.isShutdown());
+        Assert.assertSame(cache, service.getImageCache());
+    }
+
+    @Test
+    public void testTwoAsyncLayers() throws Exception {
+        // the layers of a service share the cache, disposed with the last of them
+        OSMService service = new OSMService("OSM", "http://localhost/tiles/");
+        AsyncTileLayer first = new AsyncTileLayer(service);
+        AsyncTileLayer second = new AsyncTileLayer(service);
+        TileImageCache cache = service.getImageCache();
+        first.preDispose();
+        first.dispose();
+        Assert.assertFalse(cache.executor.isShutdown());
+        Assert.assertSame(cache, service.getImageCache());
+
+        // still usable by the remaining layer
+        Tile tile = tile(0);
+        Assert.assertNotNull(cache.fetch(tile).get(5, TimeUnit.SECONDS));
+
+        second.preDispose();
+        second.dispose();
+        Assert.assertTrue(cache.executor.isShutdown());
+        Assert.assertNull(service.getImageCache());
+    }
+}
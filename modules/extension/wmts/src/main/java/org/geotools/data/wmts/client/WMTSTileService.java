@@ -319,7 +319,7 @@ public class WMTSTileService extends TileService {
                             + firstTile.getExtent().getCoordinateReferenceSystem().getName() + ")");
         }
 
-        addTileToCache(firstTile);
+        firstTile = addTileToCache(firstTile);
         tileList.add(firstTile);
 
         Tile firstTileOfRow = firstTile;
@@ -347,7 +347,7 @@ public class WMTSTileService extends TileService {
                         LOGGER.log(Level.FINE, "Adding right neighbour " + rightNeighbour.getId());
                     }
 
-                    addTileToCache(rightNeighbour);
+                    rightNeighbour = addTileToCache(rightNeighbour);
                     tileList.add(rightNeighbour);
 
                     movingTile = rightNeighbour;
@@ -386,7 +386,7 @@ public class WMTSTileService extends TileService {
                     LOGGER.log(Level.FINE, "Adding lower neighbour " + lowerNeighbour.getId());
                 }
 
-                addTileToCache(lowerNeighbour);
+                lowerNeighbour = addTileToCache(lowerNeighbour);
                 tileList.add(lowerNeighbour);
 
                 firstTileOfRow = movingTile = lowerNeighbour;
@@ -0,0 +1,142 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Usage counters of a {@link SpatialCachingDataStore}. Hits and misses are counted per tile, a
+ * query covering four tiles, three of which are cached, counts as three hits and one miss.
+ *
+ * @since 20.0
+ */
+public class CacheStatistics {
+
+    final AtomicLong hits = new AtomicLong();
+
+    final AtomicLong misses = new AtomicLong();
+
+    final AtomicLong loads = new AtomicLong();
+
+    final AtomicLong loadedFeatures = new AtomicLong();
+
+    final AtomicLong bypasses = new AtomicLong();
+
+    final AtomicLong evictions = new AtomicLong();
+
+    final AtomicLong invalidations = new AtomicLong();
+
+    final FeatureTileCache cache;
+
+    CacheStatistics(FeatureTileCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * The number of tiles found in the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * The number of tiles that were not in the cache, and had to be loaded from the wrapped store
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * The ratio between hits and tile requests, or 0 if no tile was requested yet
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * The number of queries run against the wrapped store to fill the cache
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+
+    /**
+     * The number of features read from the wrapped store to fill the cache
+     */
+    public long getLoadedFeatures() {
+        return loadedFeatures.get();
+    }
+
+    /**
+     * The number of queries that could not be answered by the cache, and were delegated to the
+     * wrapped store as is
+     */
+    public long getBypasses() {
+        return bypasses.get();
+    }
+
+    /**
+     * The number of tiles removed from the cache to make room for new ones
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * The number of tiles removed from the cache because the features they contain changed
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    /**
+     * The number of tiles currently in the cache
+     */
+    public int getTileCount() {
+        return cache.getTileCount();
+    }
+
+    /**
+     * The current size of the cache, in bytes. For heap storage this is an estimate.
+     */
+    public long getSize() {
+        return cache.getSize();
+    }
+
+    /**
+     * Resets all counters to zero
+     */
+    public void reset() {
+        hits.set(0);
+        misses.set(0);
+        loads.set(0);
+        loadedFeatures.set(0);
+        bypasses.set(0);
+        evictions.set(0);
+        invalidations.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics [hits=" + getHits() + ", misses=" + getMisses() + ", loads="
+                + getLoads() + ", loadedFeatures=" + getLoadedFeatures() + ", bypasses="
+                + getBypasses() + ", evictions=" + getEvictions() + ", invalidations="
+                + getInvalidations() + ", tiles=" + getTileCount() + ", size=" + getSize() + "]";
+    }
+}
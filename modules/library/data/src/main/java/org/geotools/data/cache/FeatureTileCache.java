@@ -0,0 +1,505 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.geotools.data.cache.SpatialCachingDataStore.Eviction;
+import org.geotools.data.cache.SpatialCachingDataStore.Storage;
+import org.geotools.data.sort.SimpleFeatureIO;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * The size bounded tile storage shared by all the feature sources of a
+ * {@link SpatialCachingDataStore}. Each tile holds the features of a feature type intersecting a
+ * cell of the type grid, either as plain feature objects on the heap, or in a compact binary
+ * form in a direct buffer, outside of the heap.
+ * <p>
+ * Each feature type has a generation number, incremented every time its tiles are invalidated,
+ * so that tiles loaded while the data was being modified are not stored.
+ *
+ * @since 20.0
+ */
+class FeatureTileCache {
+
+    /**
+     * Identifies a tile: the feature type, and the tile position in the grid
+     */
+    static final class TileKey {
+        final String typeName;
+
+        final int col;
+
+        final int row;
+
+        TileKey(String typeName, int col, int row) {
+            this.typeName = typeName;
+            this.col = col;
+            this.row = row;
+        }
+
+        @Override
+        public int hashCode() {
+            return (typeName.hashCode() * 31 + col) * 31 + row;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof TileKey)) {
+                return false;
+            }
+            TileKey other = (TileKey) obj;
+            return col == other.col && row == other.row && typeName.equals(other.typeName);
+        }
+
+        @Override
+        public String toString() {
+            return typeName + "[" + col + "," + row + "]";
+        }
+    }
+
+    /**
+     * The features of a tile
+     */
+    static abstract class Tile {
+        final Envelope envelope;
+
+        final int count;
+
+        Tile(Envelope envelope, int count) {
+            this.envelope = envelope;
+            this.count = count;
+        }
+
+        /**
+         * Adds the tile features to the target map, keyed by feature id, so that features
+         * belonging to more than one tile are returned once
+         */
+        abstract void collect(Map<String, SimpleFeature> target) throws IOException;
+
+        /**
+         * The size of the tile in bytes
+         */
+        abstract long getSize();
+    }
+
+    static class HeapTile extends Tile {
+        final SimpleFeature[] features;
+
+        final long size;
+
+        HeapTile(Envelope envelope, List<SimpleFeature> features) {
+            super(envelope, features.size());
+            this.features = features.toArray(new SimpleFeature[features.size()]);
+            long size = 64 + this.features.length * 8;
+            for (SimpleFeature feature : this.features) {
+                size += estimateSize(feature);
+            }
+            this.size = size;
+        }
+
+        @Override
+        void collect(Map<String, SimpleFeature> target) {
+            for (SimpleFeature feature : features) {
+                target.put(feature.getID(), feature);
+            }
+        }
+
+        @Override
+        long getSize() {
+            return size;
+        }
+    }
+
+    static class OffHeapTile extends Tile {
+        final SimpleFeatureType schema;
+
+        final ByteBuffer buffer;
+
+        OffHeapTile(Envelope envelope, SimpleFeatureType schema, List<SimpleFeature> features)
+                throws IOException {
+            super(envelope, features.size());
+            this.schema = schema;
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bos);
+            WKBWriter wkbWriter = new WKBWriter();
+            List<AttributeDescriptor> attributes = schema.getAttributeDescriptors();
+            for (SimpleFeature feature : features) {
+                out.writeUTF(feature.getID());
+                for (AttributeDescriptor ad : attributes) {
+                    SimpleFeatureIO.writeAttribute(out, ad, feature.getAttribute(ad.getLocalName()),
+                            wkbWriter);
+                }
+            }
+            out.flush();
+            byte[] bytes = bos.toByteArray();
+            this.buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+        }
+
+        @Override
+        void collect(Map<String, SimpleFeature> target) throws IOException {
+            DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer.duplicate()));
+            SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+            WKBReader wkbReader = new WKBReader();
+            List<AttributeDescriptor> attributes = schema.getAttributeDescriptors();
+            for (int i = 0; i < count; i++) {
+                String fid = in.readUTF();
+                if (target.containsKey(fid)) {
+                    // skip it, it's been already read from another tile
+                    for (AttributeDescriptor ad : attributes) {
+                        SimpleFeatureIO.readAttribute(in, ad, wkbReader);
+                    }
+                    continue;
+                }
+                for (AttributeDescriptor ad : attributes) {
+                    builder.add(SimpleFeatureIO.readAttribute(in, ad, wkbReader));
+                }
+                target.put(fid, builder.buildFeature(fid));
+            }
+        }
+
+        @Override
+        long getSize() {
+            return 64 + buffer.capacity();
+        }
+    }
+
+    static class ByteBufferInputStream extends InputStream {
+        final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+    }
+
+    /**
+     * Keeps track of the tiles usage and picks the next tile to evict
+     */
+    static abstract class EvictionQueue {
+        abstract void added(TileKey key);
+
+        abstract void accessed(TileKey key);
+
+        abstract void removed(TileKey key);
+
+        /**
+         * The next tile to evict, or null if the queue is empty
+         */
+        abstract TileKey next();
+    }
+
+    /**
+     * Evicts the least recently used tile first
+     */
+    static class LRUQueue extends EvictionQueue {
+        final LinkedHashSet<TileKey> keys = new LinkedHashSet<TileKey>();
+
+        @Override
+        void added(TileKey key) {
+            keys.add(key);
+        }
+
+        @Override
+        void accessed(TileKey key) {
+            if (keys.remove(key)) {
+                keys.add(key);
+            }
+        }
+
+        @Override
+        void removed(TileKey key) {
+            keys.remove(key);
+        }
+
+        @Override
+        TileKey next() {
+            Iterator<TileKey> it = keys.iterator();
+            return it.hasNext() ? it.next() : null;
+        }
+    }
+
+    /**
+     * Evicts the least frequently used tile first, and among the tiles with the same number of
+     * accesses, the least recently used one
+     */
+    static class LFUQueue extends EvictionQueue {
+        final Map<TileKey, Long> frequencies = new HashMap<TileKey, Long>();
+
+        final TreeMap<Long, LinkedHashSet<TileKey>> buckets = new TreeMap<Long, LinkedHashSet<TileKey>>();
+
+        @Override
+        void added(TileKey key) {
+            removed(key);
+            frequencies.put(key, 1L);
+            bucket(1L).add(key);
+        }
+
+        @Override
+        void accessed(TileKey key) {
+            Long frequency = frequencies.get(key);
+            if (frequency != null) {
+                removeFromBucket(frequency, key);
+                frequencies.put(key, frequency + 1);
+                bucket(frequency + 1).add(key);
+            }
+        }
+
+        @Override
+        void removed(TileKey key) {
+            Long frequency = frequencies.remove(key);
+            if (frequency != null) {
+                removeFromBucket(frequency, key);
+            }
+        }
+
+        @Override
+        TileKey next() {
+            if (buckets.isEmpty()) {
+                return null;
+            }
+            return buckets.firstEntry().getValue().iterator().next();
+        }
+
+        LinkedHashSet<TileKey> bucket(long frequency) {
+            LinkedHashSet<TileKey> bucket = buckets.get(frequency);
+            if (bucket == null) {
+                bucket = new LinkedHashSet<TileKey>();
+                buckets.put(frequency, bucket);
+            }
+            return bucket;
+        }
+
+        void removeFromBucket(long frequency, TileKey key) {
+            LinkedHashSet<TileKey> bucket = buckets.get(frequency);
+            if (bucket != null) {
+                bucket.remove(key);
+                if (bucket.isEmpty()) {
+                    buckets.remove(frequency);
+                }
+            }
+        }
+    }
+
+    final long maxSize;
+
+    final Storage storage;
+
+    final EvictionQueue queue;
+
+    final Map<TileKey, Tile> tiles = new HashMap<TileKey, Tile>();
+
+    final Map<String, Long> generations = new HashMap<String, Long>();
+
+    final CacheStatistics statistics = new CacheStatistics(this);
+
+    long size;
+
+    FeatureTileCache(long maxSize, Storage storage, Eviction eviction) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("The cache size must be positive, was " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.storage = storage;
+        this.queue = eviction == Eviction.LFU ? new LFUQueue() : new LRUQueue();
+    }
+
+    /**
+     * Returns the tile, or null if not found, updating the hit and miss counters
+     */
+    synchronized Tile get(TileKey key) {
+        Tile tile = tiles.get(key);
+        if (tile != null) {
+            statistics.hits.incrementAndGet();
+            queue.accessed(key);
+        } else {
+            statistics.misses.incrementAndGet();
+        }
+        return tile;
+    }
+
+    /**
+     * Returns the tile, or null if not found, without touching the counters and eviction queue
+     */
+    synchronized Tile peek(TileKey key) {
+        return tiles.get(key);
+    }
+
+    /**
+     * The current generation of the feature type, to be passed to
+     * {@link #put(TileKey, Tile, long)}
+     */
+    synchronized long getGeneration(String typeName) {
+        Long generation = generations.get(typeName);
+        return generation == null ? 0 : generation;
+    }
+
+    /**
+     * Builds a tile for the specified features, using the configured storage
+     */
+    Tile createTile(Envelope envelope, SimpleFeatureType schema, List<SimpleFeature> features)
+            throws IOException {
+        if (storage == Storage.OFF_HEAP) {
+            return new OffHeapTile(envelope, schema, features);
+        } else {
+            return new HeapTile(envelope, features);
+        }
+    }
+
+    /**
+     * Stores the tile, evicting others if needed to stay within the size limits
+     *
+     * @param generation The generation of the feature type when the tile contents have been read
+     * @return True if the tile got stored, false if it's too big, or its contents are stale
+     */
+    synchronized boolean put(TileKey key, Tile tile, long generation) {
+        long tileSize = tile.getSize();
+        if (tileSize > maxSize || generation != getGeneration(key.typeName)) {
+            return false;
+        }
+        remove(key);
+        while (size + tileSize > maxSize) {
+            TileKey victim = queue.next();
+            if (victim == null) {
+                break;
+            }
+            remove(victim);
+            statistics.evictions.incrementAndGet();
+        }
+        tiles.put(key, tile);
+        queue.added(key);
+        size += tileSize;
+        return true;
+    }
+
+    /**
+     * Removes all the tiles of the feature type intersecting the specified envelope, or all the
+     * tiles of the type if the envelope is null
+     */
+    synchronized void invalidate(String typeName, Envelope envelope) {
+        generations.put(typeName, getGeneration(typeName) + 1);
+        Collection<TileKey> removed = new ArrayList<TileKey>();
+        for (Map.Entry<TileKey, Tile> entry : tiles.entrySet()) {
+            TileKey key = entry.getKey();
+            if (key.typeName.equals(typeName)
+                    && (envelope == null || envelope.intersects(entry.getValue().envelope))) {
+                removed.add(key);
+            }
+        }
+        for (TileKey key : removed) {
+            remove(key);
+        }
+        statistics.invalidations.addAndGet(removed.size());
+    }
+
+    /**
+     * Removes all the tiles
+     */
+    synchronized void clear() {
+        Set<String> typeNames = new HashSet<String>(generations.keySet());
+        for (TileKey key : tiles.keySet()) {
+            typeNames.add(key.typeName);
+        }
+        for (String typeName : typeNames) {
+            generations.put(typeName, getGeneration(typeName) + 1);
+        }
+        for (TileKey key : new ArrayList<TileKey>(tiles.keySet())) {
+            remove(key);
+        }
+    }
+
+    synchronized int getTileCount() {
+        return tiles.size();
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    void remove(TileKey key) {
+        Tile tile = tiles.remove(key);
+        if (tile != null) {
+            queue.removed(key);
+            size -= tile.getSize();
+        }
+    }
+
+    /**
+     * A rough estimate of the memory used by a feature, in bytes
+     */
+    static long estimateSize(SimpleFeature feature) {
+        long size = 64 + feature.getID().length() * 2;
+        for (Object value : feature.getAttributes()) {
+            size += 8;
+            if (value instanceof Geometry) {
+                // a Coordinate object is 40 bytes, plus the reference in the array
+                Geometry g = (Geometry) value;
+                size += 48 * g.getNumGeometries() + 48L * g.getNumPoints();
+            } else if (value instanceof String) {
+                size += 40 + ((String) value).length() * 2;
+            } else if (value instanceof Date) {
+                size += 24;
+            } else if (value != null) {
+                size += 16;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.cache;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.DataStore;
+import org.geotools.data.FeatureEvent;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.FeatureWriter;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.data.store.DecoratingDataStore;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A {@link DataStore} decorator caching the features read by spatial queries, meant to speed up
+ * access to slow remote stores that keep on receiving the same, or very similar, bounding box
+ * queries (e.g., tiled map requests).
+ * <p>
+ * The data of each feature type is split in tiles along a regular grid, covering the type bounds
+ * with {@link #getGridSize()} x {@link #getGridSize()} tiles. Queries whose filter can be
+ * reduced to a bounding box are answered by loading the tiles covering it, reading only the
+ * missing ones from the wrapped store, and then applying the full query in memory. Queries that
+ * cannot be reduced to a bounding box, that cover more than {@link #getMaxTilesPerQuery()} tiles,
+ * or that run in a transaction other than {@link Transaction#AUTO_COMMIT}, are delegated to the
+ * wrapped store as is.
+ * <p>
+ * All the feature types share a single cache, bounded in size, that can store the features
+ * either on the heap, or in a compact binary form outside of the heap, see {@link Storage}. When
+ * the cache is full, tiles are evicted according to the chosen {@link Eviction} policy.
+ * <p>
+ * Tiles are invalidated when the feature sources of the wrapped store notify changes, when
+ * modifications are made through the feature stores and writers of this data store, and, for
+ * modifications made in a transaction, when the transaction is committed.
+ * <p>
+ * Features read from the wrapped store via {@link #getFeatureReader} are not cached.
+ *
+ * @since 20.0
+ */
+public class SpatialCachingDataStore extends DecoratingDataStore {
+
+    static final Logger LOGGER = Logging.getLogger(SpatialCachingDataStore.class);
+
+    /**
+     * Where the cached features are stored
+     */
+    public enum Storage {
+        /**
+         * Features are kept on the heap as they are, their size in memory is estimated
+         */
+        HEAP,
+        /**
+         * Features are encoded in a compact binary form and stored in direct buffers, outside of
+         * the heap. Reading them back requires decoding them, but the cache does not put
+         * pressure on the garbage collector, and its size is exact.
+         */
+        OFF_HEAP
+    }
+
+    /**
+     * The policy used to choose which tiles to remove when the cache is full
+     */
+    public enum Eviction {
+        /**
+         * Least recently used tiles are removed first
+         */
+        LRU,
+        /**
+         * Least frequently used tiles are removed first
+         */
+        LFU
+    }
+
+    /**
+     * The default number of tiles along each side of the grid
+     */
+    public static final int DEFAULT_GRID_SIZE = 32;
+
+    /**
+     * The default maximum number of tiles a query can cover in order to be cached
+     */
+    public static final int DEFAULT_MAX_TILES_PER_QUERY = 256;
+
+    final FeatureTileCache cache;
+
+    final Map<String, CachedType> types = new ConcurrentHashMap<String, CachedType>();
+
+    volatile int gridSize = DEFAULT_GRID_SIZE;
+
+    volatile int maxTilesPerQuery = DEFAULT_MAX_TILES_PER_QUERY;
+
+    /**
+     * Caches the features of the specified store on the heap, using a LRU eviction policy
+     *
+     * @param delegate The store to be cached
+     * @param maxSize The maximum size of the cache, in bytes
+     */
+    public SpatialCachingDataStore(DataStore delegate, long maxSize) {
+        this(delegate, maxSize, Storage.HEAP, Eviction.LRU);
+    }
+
+    /**
+     * Caches the features of the specified store
+     *
+     * @param delegate The store to be cached
+     * @param maxSize The maximum size of the cache, in bytes
+     * @param storage Where to store the cached features
+     * @param eviction The eviction policy
+     */
+    public SpatialCachingDataStore(DataStore delegate, long maxSize, Storage storage,
+            Eviction eviction) {
+        super(delegate);
+        this.cache = new FeatureTileCache(maxSize, storage, eviction);
+    }
+
+    /**
+     * The number of tiles along each side of the grid covering the bounds of a feature type
+     */
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * Sets the number of tiles along each side of the grid covering the bounds of a feature
+     * type. Only affects the feature types that have not been accessed yet.
+     */
+    public void setGridSize(int gridSize) {
+        if (gridSize < 1) {
+            throw new IllegalArgumentException("The grid size must be positive, was " + gridSize);
+        }
+        this.gridSize = gridSize;
+    }
+
+    /**
+     * The maximum number of tiles a query can cover in order to be answered by the cache
+     */
+    public int getMaxTilesPerQuery() {
+        return maxTilesPerQuery;
+    }
+
+    /**
+     * Sets the maximum number of tiles a query can cover in order to be answered by the cache.
+     * Bigger queries are delegated to the wrapped store.
+     */
+    public void setMaxTilesPerQuery(int maxTilesPerQuery) {
+        this.maxTilesPerQuery = maxTilesPerQuery;
+    }
+
+    /**
+     * The cache usage statistics
+     */
+    public CacheStatistics getStatistics() {
+        return cache.statistics;
+    }
+
+    /**
+     * Removes all the cached features
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public SimpleFeatureSource getFeatureSource(Name typeName) throws IOException {
+        return wrap(delegate.getFeatureSource(typeName));
+    }
+
+    @Override
+    public SimpleFeatureSource getFeatureSource(String typeName) throws IOException {
+        return wrap(delegate.getFeatureSource(typeName));
+    }
+
+    SimpleFeatureSource wrap(SimpleFeatureSource source) throws IOException {
+        CachedType type = getCachedType(source.getSchema().getTypeName());
+        if (source instanceof SimpleFeatureStore) {
+            return new SpatialCachingFeatureStore(this, type, (SimpleFeatureStore) source);
+        } else {
+            return new SpatialCachingFeatureSource(this, type, source);
+        }
+    }
+
+    /**
+     * Returns the shared state of a feature type, creating it on first access
+     */
+    CachedType getCachedType(String typeName) throws IOException {
+        CachedType type = types.get(typeName);
+        if (type == null) {
+            synchronized (types) {
+                type = types.get(typeName);
+                if (type == null) {
+                    type = new CachedType(typeName, delegate.getFeatureSource(typeName));
+                    types.put(typeName, type);
+                }
+            }
+        }
+        return type;
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(String typeName,
+            Filter filter, Transaction transaction) throws IOException {
+        return new InvalidatingFeatureWriter(delegate.getFeatureWriter(typeName, filter,
+                transaction), typeName, transaction);
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriter(String typeName,
+            Transaction transaction) throws IOException {
+        return new InvalidatingFeatureWriter(delegate.getFeatureWriter(typeName, transaction),
+                typeName, transaction);
+    }
+
+    @Override
+    public FeatureWriter<SimpleFeatureType, SimpleFeature> getFeatureWriterAppend(
+            String typeName, Transaction transaction) throws IOException {
+        return new InvalidatingFeatureWriter(delegate.getFeatureWriterAppend(typeName,
+                transaction), typeName, transaction);
+    }
+
+    @Override
+    public void updateSchema(Name typeName, SimpleFeatureType featureType) throws IOException {
+        delegate.updateSchema(typeName, featureType);
+        forget(typeName.getLocalPart());
+    }
+
+    @Override
+    public void updateSchema(String typeName, SimpleFeatureType featureType) throws IOException {
+        delegate.updateSchema(typeName, featureType);
+        forget(typeName);
+    }
+
+    @Override
+    public void removeSchema(Name typeName) throws IOException {
+        delegate.removeSchema(typeName);
+        forget(typeName.getLocalPart());
+    }
+
+    @Override
+    public void removeSchema(String typeName) throws IOException {
+        delegate.removeSchema(typeName);
+        forget(typeName);
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (types) {
+            for (CachedType type : types.values()) {
+                type.dispose();
+            }
+            types.clear();
+        }
+        cache.clear();
+        delegate.dispose();
+    }
+
+    void forget(String typeName) {
+        synchronized (types) {
+            CachedType type = types.remove(typeName);
+            if (type != null) {
+                type.dispose();
+            }
+        }
+        cache.invalidate(typeName, null);
+    }
+
+    /**
+     * Invalidates the tiles touched by a modification. Modifications made in a transaction are
+     * accumulated and applied on commit.
+     *
+     * @param typeName The modified feature type
+     * @param bounds The modified area, or null if unknown
+     * @param transaction The transaction the modification is part of
+     */
+    void invalidate(String typeName, Envelope bounds, Transaction transaction) {
+        if (transaction == null || transaction == Transaction.AUTO_COMMIT) {
+            cache.invalidate(typeName, bounds);
+        } else {
+            CacheInvalidator invalidator;
+            synchronized (transaction) {
+                invalidator = (CacheInvalidator) transaction.getState(this);
+                if (invalidator == null) {
+                    invalidator = new CacheInvalidator(cache);
+                    transaction.putState(this, invalidator);
+                }
+            }
+            invalidator.add(typeName, bounds);
+        }
+    }
+
+    /**
+     * The state shared by all the feature sources of a given type: the tile grid, the lock used
+     * to avoid loading the same tiles many times when many requests hit the same area at the
+     * same time, and the listener invalidating the tiles when the wrapped store reports
+     * changes.
+     */
+    class CachedType implements FeatureListener {
+        final String typeName;
+
+        final SimpleFeatureSource source;
+
+        final ReentrantLock loadLock = new ReentrantLock();
+
+        /**
+         * The tile grid, or null if the type bounds are unknown, in which case the type cannot
+         * be cached
+         */
+        final TileGrid grid;
+
+        CachedType(String typeName, SimpleFeatureSource source) {
+            this.typeName = typeName;
+            this.source = source;
+            this.grid = buildGrid();
+            source.addFeatureListener(this);
+        }
+
+        TileGrid buildGrid() {
+            if (source.getSchema().getGeometryDescriptor() == null) {
+                return null;
+            }
+            try {
+                ReferencedEnvelope bounds = source.getBounds();
+                if (bounds == null || bounds.isNull() || Double.isInfinite(bounds.getWidth())
+                        || Double.isInfinite(bounds.getHeight())) {
+                    return null;
+                }
+                return new TileGrid(bounds, gridSize);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not compute the bounds of " + typeName
+                        + ", its features won't be cached", e);
+                return null;
+            }
+        }
+
+        @Override
+        public void changed(FeatureEvent event) {
+            if (event.getType() == FeatureEvent.Type.ROLLBACK) {
+                return;
+            }
+            ReferencedEnvelope bounds = event.getBounds();
+            cache.invalidate(typeName, bounds == null || bounds.isNull() ? null : bounds);
+        }
+
+        void dispose() {
+            source.removeFeatureListener(this);
+        }
+    }
+
+    /**
+     * Collects the areas modified in a transaction, and invalidates them on commit
+     */
+    static class CacheInvalidator implements Transaction.State {
+        final FeatureTileCache cache;
+
+        /**
+         * The modified area of each type, a null envelope stands for the whole type
+         */
+        final Map<String, Envelope> changes = new HashMap<String, Envelope>();
+
+        CacheInvalidator(FeatureTileCache cache) {
+            this.cache = cache;
+        }
+
+        synchronized void add(String typeName, Envelope bounds) {
+            if (!changes.containsKey(typeName)) {
+                changes.put(typeName, bounds == null ? null : new Envelope(bounds));
+            } else {
+                Envelope current = changes.get(typeName);
+                if (current != null) {
+                    if (bounds == null) {
+                        changes.put(typeName, null);
+                    } else {
+                        current.expandToInclude(bounds);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public synchronized void setTransaction(Transaction transaction) {
+            if (transaction == null) {
+                changes.clear();
+            }
+        }
+
+        @Override
+        public void addAuthorization(String AuthID) throws IOException {
+            // nothing to do
+        }
+
+        @Override
+        public synchronized void commit() throws IOException {
+            for (Map.Entry<String, Envelope> entry : changes.entrySet()) {
+                cache.invalidate(entry.getKey(), entry.getValue());
+            }
+            changes.clear();
+        }
+
+        @Override
+        public synchronized void rollback() throws IOException {
+            changes.clear();
+        }
+    }
+
+    /**
+     * Invalidates the tiles of a feature type once the changes made by a writer are done
+     */
+    class InvalidatingFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleFeature> {
+        final FeatureWriter<SimpleFeatureType, SimpleFeature> writer;
+
+        final String typeName;
+
+        final Transaction transaction;
+
+        boolean modified;
+
+        InvalidatingFeatureWriter(FeatureWriter<SimpleFeatureType, SimpleFeature> writer,
+                String typeName, Transaction transaction) {
+            this.writer = writer;
+            this.typeName = typeName;
+            this.transaction = transaction;
+        }
+
+        @Override
+        public SimpleFeatureType getFeatureType() {
+            return writer.getFeatureType();
+        }
+
+        @Override
+        public SimpleFeature next() throws IOException {
+            return writer.next();
+        }
+
+        @Override
+        public void remove() throws IOException {
+            writer.remove();
+            modified = true;
+        }
+
+        @Override
+        public void write() throws IOException {
+            writer.write();
+            modified = true;
+        }
+
+        @Override
+        public boolean hasNext() throws IOException {
+            return writer.hasNext();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                writer.close();
+            } finally {
+                if (modified) {
+                    invalidate(typeName, null, transaction);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.geotools.data.DataAccess;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.data.ResourceInfo;
+import org.geotools.data.Transaction;
+import org.geotools.data.cache.FeatureTileCache.Tile;
+import org.geotools.data.cache.FeatureTileCache.TileKey;
+import org.geotools.data.cache.SpatialCachingDataStore.CachedType;
+import org.geotools.data.cache.SpatialCachingDataStore.Storage;
+import org.geotools.data.collection.CollectionFeatureSource;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.factory.Hints;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.referencing.CRS;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * A feature source answering bounding box queries from the tiles of a
+ * {@link SpatialCachingDataStore}, loading the missing ones from the wrapped feature source.
+ *
+ * @since 20.0
+ */
+class SpatialCachingFeatureSource implements SimpleFeatureSource {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    /**
+     * How much the area read from the wrapped source is expanded, relative to the tile size, to
+     * make sure floating point rounding does not leave out features sitting on the tile borders
+     */
+    static final double LOAD_MARGIN = 1e-6;
+
+    final SpatialCachingDataStore store;
+
+    final CachedType type;
+
+    final SimpleFeatureSource delegate;
+
+    SpatialCachingFeatureSource(SpatialCachingDataStore store, CachedType type,
+            SimpleFeatureSource delegate) {
+        this.store = store;
+        this.type = type;
+        this.delegate = delegate;
+    }
+
+    /**
+     * The transaction used by this source
+     */
+    Transaction getTransaction() {
+        return Transaction.AUTO_COMMIT;
+    }
+
+    @Override
+    public Name getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public ResourceInfo getInfo() {
+        return delegate.getInfo();
+    }
+
+    @Override
+    public DataAccess<SimpleFeatureType, SimpleFeature> getDataStore() {
+        return store;
+    }
+
+    @Override
+    public QueryCapabilities getQueryCapabilities() {
+        return delegate.getQueryCapabilities();
+    }
+
+    @Override
+    public void addFeatureListener(FeatureListener listener) {
+        delegate.addFeatureListener(listener);
+    }
+
+    @Override
+    public void removeFeatureListener(FeatureListener listener) {
+        delegate.removeFeatureListener(listener);
+    }
+
+    @Override
+    public SimpleFeatureType getSchema() {
+        return delegate.getSchema();
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds() throws IOException {
+        return delegate.getBounds();
+    }
+
+    @Override
+    public ReferencedEnvelope getBounds(Query query) throws IOException {
+        return delegate.getBounds(query);
+    }
+
+    @Override
+    public int getCount(Query query) throws IOException {
+        return delegate.getCount(query);
+    }
+
+    @Override
+    public Set<Hints.Key> getSupportedHints() {
+        Set<Hints.Key> hints = new HashSet<Hints.Key>(delegate.getSupportedHints());
+        if (store.cache.storage == Storage.HEAP) {
+            // the same feature objects are returned to all callers
+            hints.remove(Hints.FEATURE_DETACHED);
+        }
+        return hints;
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures() throws IOException {
+        return getFeatures(Query.ALL);
+    }
+
+    @Override
+    public SimpleFeatureCollection getFeatures(Filter filter) throws IOException {
+        return getFeatures(new Query(type.typeName, filter));
+    }
+
+    /**
+     * Answers the query from the cache when possible. The tiles are read, or loaded, when this
+     * method is called, the returned collection is in memory.
+     */
+    @Override
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        Envelope bounds = getCacheableBounds(query);
+        List<SimpleFeature> features = bounds == null ? null : read(bounds);
+        if (features == null) {
+            store.cache.statistics.bypasses.incrementAndGet();
+            return delegate.getFeatures(query);
+        }
+
+        ListFeatureCollection collection = new ListFeatureCollection(getSchema(), features);
+        Query local = new Query(query);
+        local.setTypeName(type.typeName);
+        if (local.getFilter() == null) {
+            local.setFilter(Filter.INCLUDE);
+        }
+        return new CollectionFeatureSource(collection).getFeatures(local);
+    }
+
+    /**
+     * Returns the area the query is restricted to, or null if the query cannot be answered by
+     * the cache
+     */
+    Envelope getCacheableBounds(Query query) {
+        if (type.grid == null || getTransaction() != Transaction.AUTO_COMMIT) {
+            return null;
+        }
+        if (query.getTypeName() != null && !query.getTypeName().equals(type.typeName)) {
+            return null;
+        }
+        if (query.getCoordinateSystem() != null || query.getVersion() != null
+                || !query.getJoins().isEmpty()
+                || query.getHints().containsKey(Hints.VIRTUAL_TABLE_PARAMETERS)) {
+            return null;
+        }
+        // the tiles are built on the default geometry, a filter on another geometry could
+        // select features outside of them
+        SimpleFeatureType schema = getSchema();
+        int geometries = 0;
+        for (AttributeDescriptor ad : schema.getAttributeDescriptors()) {
+            if (ad instanceof GeometryDescriptor) {
+                geometries++;
+            }
+        }
+        if (geometries != 1) {
+            return null;
+        }
+
+        Filter filter = query.getFilter() == null ? Filter.INCLUDE : query.getFilter();
+        Envelope bounds = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR,
+                null);
+        if (bounds == null || bounds.isNull() || Double.isInfinite(bounds.getWidth())
+                || Double.isInfinite(bounds.getHeight())) {
+            return null;
+        }
+        if (bounds instanceof ReferencedEnvelope) {
+            CoordinateReferenceSystem crs = ((ReferencedEnvelope) bounds)
+                    .getCoordinateReferenceSystem();
+            CoordinateReferenceSystem nativeCRS = schema.getCoordinateReferenceSystem();
+            if (crs != null && nativeCRS != null && !CRS.equalsIgnoreMetadata(crs, nativeCRS)) {
+                return null;
+            }
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns the features in the tiles covering the specified area, loading the missing tiles,
+     * or null if the area covers too many tiles
+     */
+    List<SimpleFeature> read(Envelope bounds) throws IOException {
+        final TileGrid grid = type.grid;
+        final long minCol = grid.minCol(bounds.getMinX());
+        final long maxCol = grid.maxCol(bounds.getMaxX());
+        final long minRow = grid.minRow(bounds.getMinY());
+        final long maxRow = grid.maxRow(bounds.getMaxY());
+        final long tiles = (maxCol - minCol + 1) * (maxRow - minRow + 1);
+        if (tiles > store.getMaxTilesPerQuery() || minCol < Integer.MIN_VALUE
+                || maxCol > Integer.MAX_VALUE || minRow < Integer.MIN_VALUE
+                || maxRow > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        final FeatureTileCache cache = store.cache;
+        Map<String, SimpleFeature> result = new LinkedHashMap<String, SimpleFeature>();
+        List<TileKey> missing = new ArrayList<TileKey>();
+        for (int row = (int) minRow; row <= maxRow; row++) {
+            for (int col = (int) minCol; col <= maxCol; col++) {
+                TileKey key = new TileKey(type.typeName, col, row);
+                Tile tile = cache.get(key);
+                if (tile != null) {
+                    tile.collect(result);
+                } else {
+                    missing.add(key);
+                }
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            type.loadLock.lock();
+            try {
+                // check again, another thread might have loaded them while we were waiting
+                List<TileKey> stillMissing = new ArrayList<TileKey>();
+                for (TileKey key : missing) {
+                    Tile tile = cache.peek(key);
+                    if (tile != null) {
+                        tile.collect(result);
+                    } else {
+                        stillMissing.add(key);
+                    }
+                }
+                if (!stillMissing.isEmpty()) {
+                    load(stillMissing, result);
+                }
+            } finally {
+                type.loadLock.unlock();
+            }
+        }
+
+        return new ArrayList<SimpleFeature>(result.values());
+    }
+
+    /**
+     * Reads the features of the specified tiles from the wrapped source with a single query,
+     * stores the tiles in the cache, and adds the features to the result
+     */
+    void load(List<TileKey> keys, Map<String, SimpleFeature> result) throws IOException {
+        final TileGrid grid = type.grid;
+        final FeatureTileCache cache = store.cache;
+        final long generation = cache.getGeneration(type.typeName);
+
+        Map<TileKey, List<SimpleFeature>> contents = new HashMap<TileKey, List<SimpleFeature>>();
+        Envelope area = new Envelope();
+        int minCol = Integer.MAX_VALUE, maxCol = Integer.MIN_VALUE;
+        int minRow = Integer.MAX_VALUE, maxRow = Integer.MIN_VALUE;
+        for (TileKey key : keys) {
+            contents.put(key, new ArrayList<SimpleFeature>());
+            area.expandToInclude(grid.getTileEnvelope(key.col, key.row));
+            minCol = Math.min(minCol, key.col);
+            maxCol = Math.max(maxCol, key.col);
+            minRow = Math.min(minRow, key.row);
+            maxRow = Math.max(maxRow, key.row);
+        }
+        area.expandBy(grid.tileWidth * LOAD_MARGIN, grid.tileHeight * LOAD_MARGIN);
+
+        SimpleFeatureType schema = getSchema();
+        String geometryName = schema.getGeometryDescriptor().getLocalName();
+        Filter filter = FF.bbox(FF.property(geometryName), new ReferencedEnvelope(area,
+                schema.getCoordinateReferenceSystem()));
+        Query query = new Query(type.typeName, filter);
+
+        long count = 0;
+        SimpleFeatureIterator it = delegate.getFeatures(query).features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                count++;
+                Geometry geometry = (Geometry) feature.getDefaultGeometry();
+                if (geometry == null) {
+                    continue;
+                }
+                Envelope envelope = geometry.getEnvelopeInternal();
+                long fromCol = Math.max(minCol, grid.minCol(envelope.getMinX()));
+                long toCol = Math.min(maxCol, grid.maxCol(envelope.getMaxX()));
+                long fromRow = Math.max(minRow, grid.minRow(envelope.getMinY()));
+                long toRow = Math.min(maxRow, grid.maxRow(envelope.getMaxY()));
+                boolean added = false;
+                for (long row = fromRow; row <= toRow; row++) {
+                    for (long col = fromCol; col <= toCol; col++) {
+                        List<SimpleFeature> tile = contents.get(new TileKey(type.typeName,
+                                (int) col, (int) row));
+                        if (tile != null) {
+                            tile.add(feature);
+                            added = true;
+                        }
+                    }
+                }
+                if (added && !result.containsKey(feature.getID())) {
+                    result.put(feature.getID(), feature);
+                }
+            }
+        } finally {
+            it.close();
+        }
+        cache.statistics.loads.incrementAndGet();
+        cache.statistics.loadedFeatures.addAndGet(count);
+
+        for (Map.Entry<TileKey, List<SimpleFeature>> entry : contents.entrySet()) {
+            TileKey key = entry.getKey();
+            Tile tile = cache.createTile(grid.getTileEnvelope(key.col, key.row), schema,
+                    entry.getValue());
+            cache.put(key, tile, generation);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.cache;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.Transaction;
+import org.geotools.data.cache.SpatialCachingDataStore.CachedType;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+import org.opengis.filter.identity.FeatureId;
+
+/**
+ * A {@link SpatialCachingFeatureSource} that can also modify the wrapped store, invalidating
+ * the modified tiles, right away in auto commit mode, or when the transaction is committed
+ * otherwise. While a transaction other than {@link Transaction#AUTO_COMMIT} is set, reads
+ * bypass the cache, so that the uncommitted changes are visible.
+ *
+ * @since 20.0
+ */
+class SpatialCachingFeatureStore extends SpatialCachingFeatureSource implements
+        SimpleFeatureStore {
+
+    final SimpleFeatureStore featureStore;
+
+    SpatialCachingFeatureStore(SpatialCachingDataStore dataStore, CachedType type,
+            SimpleFeatureStore delegate) {
+        super(dataStore, type, delegate);
+        this.featureStore = delegate;
+    }
+
+    @Override
+    public Transaction getTransaction() {
+        return featureStore.getTransaction();
+    }
+
+    @Override
+    public void setTransaction(Transaction transaction) {
+        featureStore.setTransaction(transaction);
+    }
+
+    @Override
+    public List<FeatureId> addFeatures(
+            FeatureCollection<SimpleFeatureType, SimpleFeature> featureCollection)
+            throws IOException {
+        try {
+            return featureStore.addFeatures(featureCollection);
+        } finally {
+            ReferencedEnvelope bounds = featureCollection.getBounds();
+            invalidate(bounds == null || bounds.isNull() ? null : bounds);
+        }
+    }
+
+    @Override
+    public void removeFeatures(Filter filter) throws IOException {
+        try {
+            featureStore.removeFeatures(filter);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    @Override
+    public void modifyFeatures(Name[] attributeNames, Object[] attributeValues, Filter filter)
+            throws IOException {
+        try {
+            featureStore.modifyFeatures(attributeNames, attributeValues, filter);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    @Override
+    public void modifyFeatures(AttributeDescriptor[] type, Object[] value, Filter filter)
+            throws IOException {
+        try {
+            featureStore.modifyFeatures(type, value, filter);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    @Override
+    public void modifyFeatures(Name attributeName, Object attributeValue, Filter filter)
+            throws IOException {
+        try {
+            featureStore.modifyFeatures(attributeName, attributeValue, filter);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    @Override
+    public void modifyFeatures(AttributeDescriptor type, Object value, Filter filter)
+            throws IOException {
+        try {
+            featureStore.modifyFeatures(type, value, filter);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    @Override
+    public void modifyFeatures(String name, Object attributeValue, Filter filter)
+            throws IOException {
+        try {
+            featureStore.modifyFeatures(name, attributeValue, filter);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    @Override
+    public void modifyFeatures(String[] names, Object[] attributeValues, Filter filter)
+            throws IOException {
+        try {
+            featureStore.modifyFeatures(names, attributeValues, filter);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    @Override
+    public void setFeatures(FeatureReader<SimpleFeatureType, SimpleFeature> reader)
+            throws IOException {
+        try {
+            featureStore.setFeatures(reader);
+        } finally {
+            invalidate(null);
+        }
+    }
+
+    /**
+     * Invalidates the modified area, or the whole type if null
+     */
+    void invalidate(ReferencedEnvelope bounds) {
+        store.invalidate(type.typeName, bounds, getTransaction());
+    }
+}
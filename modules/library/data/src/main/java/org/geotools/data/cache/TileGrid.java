@@ -0,0 +1,97 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.cache;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A regular grid of tiles, anchored at the lower left corner of the data bounds, and extending
+ * indefinitely in all directions, so that features added outside of the original bounds are
+ * still cached.
+ * <p>
+ * Tiles are closed rectangles, a point laying on the border between two tiles belongs to both,
+ * so that the tiles covering a search area always contain all the features touching it.
+ *
+ * @since 20.0
+ */
+class TileGrid {
+
+    final double originX;
+
+    final double originY;
+
+    final double tileWidth;
+
+    final double tileHeight;
+
+    /**
+     * Splits the specified bounds in {@code tiles x tiles} cells. If the bounds are degenerate
+     * in one direction, the tiles will be square.
+     */
+    TileGrid(Envelope bounds, int tiles) {
+        this.originX = bounds.getMinX();
+        this.originY = bounds.getMinY();
+        double width = bounds.getWidth() / tiles;
+        double height = bounds.getHeight() / tiles;
+        if (width <= 0 && height <= 0) {
+            width = height = 1;
+        } else if (width <= 0) {
+            width = height;
+        } else if (height <= 0) {
+            height = width;
+        }
+        this.tileWidth = width;
+        this.tileHeight = height;
+    }
+
+    /**
+     * The first column whose tiles touch the specified ordinate
+     */
+    long minCol(double x) {
+        return (long) Math.ceil((x - originX) / tileWidth) - 1;
+    }
+
+    /**
+     * The last column whose tiles touch the specified ordinate
+     */
+    long maxCol(double x) {
+        return (long) Math.floor((x - originX) / tileWidth);
+    }
+
+    /**
+     * The first row whose tiles touch the specified ordinate
+     */
+    long minRow(double y) {
+        return (long) Math.ceil((y - originY) / tileHeight) - 1;
+    }
+
+    /**
+     * The last row whose tiles touch the specified ordinate
+     */
+    long maxRow(double y) {
+        return (long) Math.floor((y - originY) / tileHeight);
+    }
+
+    /**
+     * The area covered by a tile
+     */
+    Envelope getTileEnvelope(int col, int row) {
+        double minX = originX + col * tileWidth;
+        double minY = originY + row * tileHeight;
+        return new Envelope(minX, minX + tileWidth, minY, minY + tileHeight);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.DefaultTransaction;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.cache.FeatureTileCache.HeapTile;
+import org.geotools.data.cache.FeatureTileCache.Tile;
+import org.geotools.data.cache.FeatureTileCache.TileKey;
+import org.geotools.data.cache.SpatialCachingDataStore.Eviction;
+import org.geotools.data.cache.SpatialCachingDataStore.Storage;
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class SpatialCachingDataStoreTest {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    static final GeometryFactory GF = new GeometryFactory();
+
+    SimpleFeatureType type;
+
+    MemoryDataStore data;
+
+    SpatialCachingDataStore cached;
+
+    @Before
+    public void setUp() throws Exception {
+        type = DataUtilities.createType("points", "geom:Point,id:Integer");
+        data = new MemoryDataStore(type);
+        // a 20x20 grid of points, some of them on the tile borders
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 20; y++) {
+                fb.add(GF.createPoint(new Coordinate(x, y)));
+                fb.add(x * 20 + y);
+                data.addFeature(fb.buildFeature("points." + (x * 20 + y)));
+            }
+        }
+        cached = new SpatialCachingDataStore(data, 1024 * 1024);
+        cached.setGridSize(4);
+    }
+
+    @After
+    public void tearDown() {
+        cached.dispose();
+    }
+
+    Filter bbox(double minX, double minY, double maxX, double maxY) {
+        return FF.bbox(FF.property("geom"), minX, minY, maxX, maxY, null);
+    }
+
+    Set<String> ids(SimpleFeatureCollection fc) {
+        Set<String> ids = new HashSet<String>();
+        SimpleFeatureIterator it = fc.features();
+        try {
+            while (it.hasNext()) {
+                assertTrue(ids.add(it.next().getID()));
+            }
+        } finally {
+            it.close();
+        }
+        return ids;
+    }
+
+    void assertSameResults(Query query) throws IOException {
+        Set<String> expected = ids(data.getFeatureSource("points").getFeatures(query));
+        Set<String> actual = ids(cached.getFeatureSource("points").getFeatures(query));
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testCachedBBOX() throws Exception {
+        Query query = new Query("points", bbox(2, 2, 9.5, 7));
+        assertSameResults(query);
+        CacheStatistics stats = cached.getStatistics();
+        assertEquals(1, stats.getLoads());
+        assertEquals(0, stats.getHits());
+        assertTrue(stats.getMisses() > 0);
+        assertTrue(stats.getTileCount() > 0);
+
+        // same query again, all from the cache
+        long misses = stats.getMisses();
+        assertSameResults(query);
+        assertEquals(1, stats.getLoads());
+        assertEquals(misses, stats.getMisses());
+        assertEquals(misses, stats.getHits());
+
+        // a smaller query inside the cached area, and one on the tile borders
+        assertSameResults(new Query("points", bbox(3, 3, 4, 4)));
+        assertSameResults(new Query("points", bbox(4.75, 4.75, 4.75, 4.75)));
+        assertEquals(1, stats.getLoads());
+    }
+
+    @Test
+    public void testPartialHit() throws Exception {
+        assertSameResults(new Query("points", bbox(0, 0, 4, 4)));
+        CacheStatistics stats = cached.getStatistics();
+        assertEquals(1, stats.getLoads());
+        // overlapping query, only the missing tiles are loaded
+        assertSameResults(new Query("points", bbox(0, 0, 9, 4)));
+        assertEquals(2, stats.getLoads());
+        assertTrue(stats.getHits() > 0);
+    }
+
+    @Test
+    public void testQueryAppliedInMemory() throws Exception {
+        Filter filter = FF.and(bbox(0, 0, 10, 10), FF.greater(FF.property("id"), FF.literal(100)));
+        Query query = new Query("points", filter, new String[] { "id" });
+        query.setMaxFeatures(5);
+        SimpleFeatureCollection fc = cached.getFeatureSource("points").getFeatures(query);
+        assertEquals(1, fc.getSchema().getAttributeCount());
+        SimpleFeatureIterator it = fc.features();
+        int count = 0;
+        try {
+            while (it.hasNext()) {
+                SimpleFeature f = it.next();
+                assertTrue((Integer) f.getAttribute("id") > 100);
+                count++;
+            }
+        } finally {
+            it.close();
+        }
+        assertEquals(5, count);
+    }
+
+    @Test
+    public void testBypass() throws Exception {
+        CacheStatistics stats = cached.getStatistics();
+        // no spatial restriction
+        assertSameResults(new Query("points", FF.less(FF.property("id"), FF.literal(10))));
+        assertEquals(1, stats.getBypasses());
+        // too many tiles
+        cached.setMaxTilesPerQuery(2);
+        assertSameResults(new Query("points", bbox(0, 0, 19, 19)));
+        assertEquals(2, stats.getBypasses());
+        assertEquals(0, stats.getLoads());
+        assertEquals(0, stats.getTileCount());
+    }
+
+    @Test
+    public void testOffHeap() throws Exception {
+        cached = new SpatialCachingDataStore(data, 1024 * 1024, Storage.OFF_HEAP, Eviction.LFU);
+        cached.setGridSize(4);
+        Query query = new Query("points", bbox(2, 2, 12, 7));
+        assertSameResults(query);
+        assertSameResults(query);
+        assertEquals(1, cached.getStatistics().getLoads());
+
+        SimpleFeatureSource source = cached.getFeatureSource("points");
+        SimpleFeature f = DataUtilities.first(source.getFeatures(new Query("points", FF.and(
+                bbox(2, 2, 12, 7), FF.id(FF.featureId("points.65"))))));
+        assertEquals(65, f.getAttribute("id"));
+        assertTrue(((Point) f.getDefaultGeometry()).equalsExact(GF.createPoint(new Coordinate(3,
+                5))));
+    }
+
+    @Test
+    public void testInvalidateOnCommit() throws Exception {
+        Query query = new Query("points", bbox(0, 0, 4, 4));
+        SimpleFeatureStore store = (SimpleFeatureStore) cached.getFeatureSource("points");
+        assertEquals(25, store.getFeatures(query).size());
+
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        fb.add(GF.createPoint(new Coordinate(1.5, 1.5)));
+        fb.add(1000);
+        SimpleFeature added = fb.buildFeature("points.1000");
+
+        Transaction tx = new DefaultTransaction();
+        try {
+            store.setTransaction(tx);
+            store.addFeatures(DataUtilities.collection(added));
+            // visible in the transaction, not outside of it
+            assertEquals(26, store.getFeatures(query).size());
+            SimpleFeatureSource other = cached.getFeatureSource("points");
+            assertEquals(25, other.getFeatures(query).size());
+
+            tx.commit();
+            assertEquals(26, other.getFeatures(query).size());
+            assertTrue(cached.getStatistics().getInvalidations() > 0);
+        } finally {
+            tx.close();
+        }
+    }
+
+    @Test
+    public void testInvalidateOnAutoCommit() throws Exception {
+        Query query = new Query("points", bbox(0, 0, 4, 4));
+        SimpleFeatureStore store = (SimpleFeatureStore) cached.getFeatureSource("points");
+        assertEquals(25, store.getFeatures(query).size());
+        store.removeFeatures(FF.id(FF.featureId("points.0")));
+        assertEquals(24, store.getFeatures(query).size());
+        assertEquals(24, cached.getFeatureSource("points").getFeatures(query).size());
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        // room for a couple of tiles only
+        cached = new SpatialCachingDataStore(data, 20000);
+        cached.setGridSize(4);
+        assertSameResults(new Query("points", bbox(0, 0, 19, 19)));
+        CacheStatistics stats = cached.getStatistics();
+        assertTrue(stats.getEvictions() > 0);
+        assertTrue(stats.getSize() <= 20000);
+    }
+
+    @Test
+    public void testLRU() throws Exception {
+        FeatureTileCache cache = new FeatureTileCache(250, Storage.HEAP, Eviction.LRU);
+        TileKey k1 = new TileKey("t", 0, 0);
+        TileKey k2 = new TileKey("t", 1, 0);
+        TileKey k3 = new TileKey("t", 2, 0);
+        cache.put(k1, emptyTile(), 0);
+        cache.put(k2, emptyTile(), 0);
+        // k1 becomes the most recently used
+        cache.get(k1);
+        cache.put(k3, emptyTile(), 0);
+        assertEquals(2, cache.getTileCount());
+        assertNull(cache.peek(k2));
+        assertTrue(cache.peek(k1) != null);
+    }
+
+    @Test
+    public void testLFU() throws Exception {
+        FeatureTileCache cache = new FeatureTileCache(250, Storage.HEAP, Eviction.LFU);
+        TileKey k1 = new TileKey("t", 0, 0);
+        TileKey k2 = new TileKey("t", 1, 0);
+        TileKey k3 = new TileKey("t", 2, 0);
+        cache.put(k1, emptyTile(), 0);
+        cache.put(k2, emptyTile(), 0);
+        cache.get(k2);
+        cache.get(k2);
+        cache.get(k1);
+        // k1 is used less, even if more recently
+        cache.put(k3, emptyTile(), 0);
+        assertNull(cache.peek(k1));
+        assertTrue(cache.peek(k2) != null);
+        assertTrue(cache.peek(k3) != null);
+    }
+
+    @Test
+    public void testStaleGeneration() throws Exception {
+        FeatureTileCache cache = new FeatureTileCache(1000, Storage.HEAP, Eviction.LRU);
+        long generation = cache.getGeneration("t");
+        cache.invalidate("t", new Envelope(0, 1, 0, 1));
+        assertFalse(cache.put(new TileKey("t", 0, 0), emptyTile(), generation));
+        assertTrue(cache.put(new TileKey("t", 0, 0), emptyTile(), cache.getGeneration("t")));
+    }
+
+    @Test
+    public void testGridBorders() {
+        TileGrid grid = new TileGrid(new Envelope(0, 10, 0, 10), 10);
+        assertEquals(0, grid.minCol(0.5));
+        assertEquals(0, grid.maxCol(0.5));
+        // on the border, belongs to both tiles
+        assertEquals(0, grid.minCol(1));
+        assertEquals(1, grid.maxCol(1));
+        assertEquals(-1, grid.minCol(0));
+        // degenerate bounds
+        grid = new TileGrid(new Envelope(0, 10, 5, 5), 10);
+        assertEquals(1, grid.tileHeight, 0d);
+    }
+
+    @Test
+    public void testStoreIdentity() throws Exception {
+        SimpleFeatureSource source = cached.getFeatureSource("points");
+        assertSame(cached, source.getDataStore());
+        assertEquals(Arrays.asList(data.getTypeNames()), Arrays.asList(cached.getTypeNames()));
+        assertEquals(Collections.singleton("points"), cached.types.keySet());
+    }
+
+    Tile emptyTile() {
+        return new HeapTile(new Envelope(0, 1, 0, 1), Collections.<SimpleFeature> emptyList()) {
+            @Override
+            long getSize() {
+                return 100;
+            }
+        };
+    }
+}
@@ -145,6 +145,20 @@ public abstract class BasicSQLDialect extends SQLDialect {
     public void onDelete(Statement delete, Connection cx, SimpleFeatureType featureType) throws SQLException {
     }
 
+    /**
+     * Returns true if the database accepts many rows in a single INSERT statement, as in
+     * <code>INSERT INTO table (columns) VALUES (...), (...)</code>.
+     * <p>
+     * When the primary key values are generated by the database, subclasses returning true must
+     * return the keys of all the inserted rows, in insertion order, from
+     * {@link Statement#getGeneratedKeys()} when the statement is executed with
+     * {@link Statement#executeUpdate(String, String[])}. Default implementation returns false.
+     * </p>
+     */
+    public boolean isMultiRowInsertSupported() {
+        return false;
+    }
+
     /**
      * Callback invoked before an INSERT statement is executed against the database.
      * <p>
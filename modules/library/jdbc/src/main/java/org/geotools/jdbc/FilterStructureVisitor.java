@@ -0,0 +1,417 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.opengis.filter.And;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.BinaryLogicOperator;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterVisitor;
+import org.opengis.filter.Id;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.Or;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.PropertyIsNil;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.Add;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Divide;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.ExpressionVisitor;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.Multiply;
+import org.opengis.filter.expression.NilExpression;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.expression.Subtract;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BBOX3D;
+import org.opengis.filter.spatial.Beyond;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.Contains;
+import org.opengis.filter.spatial.Crosses;
+import org.opengis.filter.spatial.DWithin;
+import org.opengis.filter.spatial.Disjoint;
+import org.opengis.filter.spatial.Equals;
+import org.opengis.filter.spatial.Intersects;
+import org.opengis.filter.spatial.Overlaps;
+import org.opengis.filter.spatial.Touches;
+import org.opengis.filter.spatial.Within;
+import org.opengis.filter.temporal.After;
+import org.opengis.filter.temporal.AnyInteracts;
+import org.opengis.filter.temporal.Before;
+import org.opengis.filter.temporal.Begins;
+import org.opengis.filter.temporal.BegunBy;
+import org.opengis.filter.temporal.During;
+import org.opengis.filter.temporal.EndedBy;
+import org.opengis.filter.temporal.Ends;
+import org.opengis.filter.temporal.Meets;
+import org.opengis.filter.temporal.MetBy;
+import org.opengis.filter.temporal.OverlappedBy;
+import org.opengis.filter.temporal.TContains;
+import org.opengis.filter.temporal.TEquals;
+import org.opengis.filter.temporal.TOverlaps;
+
+/**
+ * Describes the structure of a filter, that is, the filter with the literal values replaced by
+ * their types, and collects its literals in traversal order. Two filters with the same structure
+ * are encoded into the same prepared statement SQL, only the parameter values change.
+ * <p>
+ * Only the filters whose encoding is known not to depend on the literal values are supported,
+ * functions, distance and temporal operators, and ids, are not, as their encoding might look into
+ * the values, in which case {@link #visit(Filter)} returns null.
+ *
+ * @since 20.0
+ */
+class FilterStructureVisitor implements FilterVisitor, ExpressionVisitor {
+
+    StringBuilder structure = new StringBuilder();
+
+    List<Literal> literals = new ArrayList<Literal>();
+
+    boolean supported = true;
+
+    /**
+     * Returns the filter structure, or null if the filter contains unsupported elements
+     */
+    public static FilterStructureVisitor visit(Filter filter) {
+        FilterStructureVisitor visitor = new FilterStructureVisitor();
+        filter.accept(visitor, null);
+        return visitor.supported ? visitor : null;
+    }
+
+    /**
+     * The filter structure, as a string
+     */
+    public String getStructure() {
+        return structure.toString();
+    }
+
+    /**
+     * The literals found in the filter, in traversal order
+     */
+    public List<Literal> getLiterals() {
+        return literals;
+    }
+
+    Object unsupported() {
+        supported = false;
+        return null;
+    }
+
+    void open(Object node) {
+        structure.append(node.getClass().getName()).append('(');
+    }
+
+    void close() {
+        structure.append(')');
+    }
+
+    Object visitLogic(BinaryLogicOperator filter) {
+        open(filter);
+        for (Filter child : filter.getChildren()) {
+            child.accept(this, null);
+            structure.append(',');
+        }
+        close();
+        return null;
+    }
+
+    Object visitComparison(BinaryComparisonOperator filter) {
+        open(filter);
+        structure.append(filter.isMatchingCase()).append(',').append(filter.getMatchAction())
+                .append(',');
+        filter.getExpression1().accept(this, null);
+        structure.append(',');
+        filter.getExpression2().accept(this, null);
+        close();
+        return null;
+    }
+
+    Object visitSpatial(BinarySpatialOperator filter) {
+        open(filter);
+        structure.append(filter.getMatchAction()).append(',');
+        filter.getExpression1().accept(this, null);
+        structure.append(',');
+        filter.getExpression2().accept(this, null);
+        close();
+        return null;
+    }
+
+    Object visitMath(BinaryExpression expression) {
+        open(expression);
+        expression.getExpression1().accept(this, null);
+        structure.append(',');
+        expression.getExpression2().accept(this, null);
+        close();
+        return null;
+    }
+
+    void visitExpression(Expression expression) {
+        if (expression == null) {
+            structure.append("null");
+        } else {
+            expression.accept(this, null);
+        }
+    }
+
+    public Object visitNullFilter(Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(ExcludeFilter filter, Object extraData) {
+        structure.append("EXCLUDE");
+        return null;
+    }
+
+    public Object visit(IncludeFilter filter, Object extraData) {
+        structure.append("INCLUDE");
+        return null;
+    }
+
+    public Object visit(And filter, Object extraData) {
+        return visitLogic(filter);
+    }
+
+    public Object visit(Id filter, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(Not filter, Object extraData) {
+        open(filter);
+        filter.getFilter().accept(this, null);
+        close();
+        return null;
+    }
+
+    public Object visit(Or filter, Object extraData) {
+        return visitLogic(filter);
+    }
+
+    public Object visit(PropertyIsBetween filter, Object extraData) {
+        open(filter);
+        structure.append(filter.getMatchAction()).append(',');
+        visitExpression(filter.getExpression());
+        structure.append(',');
+        visitExpression(filter.getLowerBoundary());
+        structure.append(',');
+        visitExpression(filter.getUpperBoundary());
+        close();
+        return null;
+    }
+
+    public Object visit(PropertyIsEqualTo filter, Object extraData) {
+        return visitComparison(filter);
+    }
+
+    public Object visit(PropertyIsNotEqualTo filter, Object extraData) {
+        return visitComparison(filter);
+    }
+
+    public Object visit(PropertyIsGreaterThan filter, Object extraData) {
+        return visitComparison(filter);
+    }
+
+    public Object visit(PropertyIsGreaterThanOrEqualTo filter, Object extraData) {
+        return visitComparison(filter);
+    }
+
+    public Object visit(PropertyIsLessThan filter, Object extraData) {
+        return visitComparison(filter);
+    }
+
+    public Object visit(PropertyIsLessThanOrEqualTo filter, Object extraData) {
+        return visitComparison(filter);
+    }
+
+    public Object visit(PropertyIsLike filter, Object extraData) {
+        // the pattern is encoded inline, so it is part of the structure
+        open(filter);
+        structure.append(filter.getLiteral()).append(',').append(filter.getWildCard())
+                .append(',').append(filter.getSingleChar()).append(',')
+                .append(filter.getEscape()).append(',').append(filter.isMatchingCase())
+                .append(',').append(filter.getMatchAction()).append(',');
+        visitExpression(filter.getExpression());
+        close();
+        return null;
+    }
+
+    public Object visit(PropertyIsNull filter, Object extraData) {
+        open(filter);
+        visitExpression(filter.getExpression());
+        close();
+        return null;
+    }
+
+    public Object visit(PropertyIsNil filter, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(BBOX filter, Object extraData) {
+        if (filter instanceof BBOX3D) {
+            // the 3D bounds are encoded inline
+            return unsupported();
+        }
+        return visitSpatial(filter);
+    }
+
+    public Object visit(Beyond filter, Object extraData) {
+        // the distance might be converted based on the geometry location
+        return unsupported();
+    }
+
+    public Object visit(Contains filter, Object extraData) {
+        return visitSpatial(filter);
+    }
+
+    public Object visit(Crosses filter, Object extraData) {
+        return visitSpatial(filter);
+    }
+
+    public Object visit(Disjoint filter, Object extraData) {
+        return visitSpatial(filter);
+    }
+
+    public Object visit(DWithin filter, Object extraData) {
+        // the distance might be converted based on the geometry location
+        return unsupported();
+    }
+
+    public Object visit(Equals filter, Object extraData) {
+        return visitSpatial(filter);
+    }
+
+    public Object visit(Intersects filter, Object extraData) {
+        return visitSpatial(filter);
+    }
+
+    public Object visit(Overlaps filter, Object extraData) {
+        return visitSpatial(filter);
+    }
+
+    public Object visit(Touches filter, Object extraData) {
+        return visitSpatial(filter);
+    }
+
+    public Object visit(Within filter, Object extraData) {
+        return visitSpatial(filter);
+    }
+
+    public Object visit(After after, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(AnyInteracts anyInteracts, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(Before before, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(Begins begins, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(BegunBy begunBy, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(During during, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(EndedBy endedBy, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(Ends ends, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(Meets meets, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(MetBy metBy, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(OverlappedBy overlappedBy, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(TContains contains, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(TEquals equals, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(TOverlaps contains, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(NilExpression expression, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(Add expression, Object extraData) {
+        return visitMath(expression);
+    }
+
+    public Object visit(Divide expression, Object extraData) {
+        return visitMath(expression);
+    }
+
+    public Object visit(Function expression, Object extraData) {
+        return unsupported();
+    }
+
+    public Object visit(Literal expression, Object extraData) {
+        Object value = expression.getValue();
+        structure.append('?').append(value == null ? "null" : value.getClass().getName());
+        literals.add(expression);
+        return null;
+    }
+
+    public Object visit(Multiply expression, Object extraData) {
+        return visitMath(expression);
+    }
+
+    public Object visit(PropertyName expression, Object extraData) {
+        structure.append('[').append(expression.getPropertyName()).append(']');
+        return null;
+    }
+
+    public Object visit(Subtract expression, Object extraData) {
+        return visitMath(expression);
+    }
+}
@@ -45,6 +45,8 @@ import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.feature.visitor.CountVisitor;
 import org.geotools.feature.visitor.GroupByVisitor;
 import org.geotools.feature.visitor.LimitingVisitor;
+import org.geotools.feature.visitor.MedianVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.filter.FilterCapabilities;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.JoinInfo.JoinPart;
@@ -61,6 +63,7 @@ import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory2;
 import org.opengis.filter.Id;
 import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.capability.FunctionName;
 import org.opengis.filter.expression.BinaryExpression;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.expression.Function;
@@ -158,6 +161,14 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected static final Boolean TRACE_ENABLED = "true".equalsIgnoreCase(System.getProperty("gt2.jdbc.trace"));
 
+    /**
+     * The number of encoded filters each store keeps around for reuse in prepared statements,
+     * see {@link PreparedStatementSQLDialect#isFilterTemplateCacheSupported()}. Set to 0 to
+     * disable the cache.
+     */
+    static final int FILTER_TEMPLATE_CACHE_SIZE = Integer.getInteger(
+            "org.geotools.jdbc.filterTemplateCacheSize", 100);
+
     /**
      * The native SRID associated to a certain descriptor
      * TODO: qualify this key with 'org.geotools.jdbc'
@@ -323,6 +334,9 @@ public final class JDBCDataStore extends ContentDataStore
 
     private volatile NamePatternEscaping namePatternEscaping;
 
+    private final PreparedFilterTemplate.Cache filterTemplates = FILTER_TEMPLATE_CACHE_SIZE > 0
+            ? new PreparedFilterTemplate.Cache(FILTER_TEMPLATE_CACHE_SIZE) : null;
+
     public JDBCDataStore() {
         super();
     }
@@ -1481,6 +1495,12 @@ public final class JDBCDataStore extends ContentDataStore
             if (aggregateExpression != null && !fullySupports(aggregateExpression)) {
                 return null;
             }
+            // statistical functions only work against numbers in SQL, while the visitors
+            // might be able to handle other comparables
+            if (aggregateExpression != null && isStatisticalVisitor(visitor)
+                    && !isNumeric(aggregateExpression, featureType)) {
+                return null;
+            }
         }
         
         // if the visitor is limiting the result to a given start - max, we will
@@ -1601,6 +1621,39 @@ public final class JDBCDataStore extends ContentDataStore
         return isGroupByVisitor(visitor) && ((GroupByVisitor) visitor).getAggregateVisitor() instanceof CountVisitor;
     }
 
+    /**
+     * Checks if the visitor, or the aggregate visitor of a group by, computes a statistic that
+     * SQL can only compute on numbers
+     */
+    boolean isStatisticalVisitor(FeatureVisitor visitor) {
+        FeatureVisitor aggregateVisitor = isGroupByVisitor(visitor)
+                ? ((GroupByVisitor) visitor).getAggregateVisitor() : visitor;
+        return aggregateVisitor instanceof MedianVisitor
+                || aggregateVisitor instanceof StandardDeviationVisitor;
+    }
+
+    /**
+     * Checks if the expression is known to return numbers when evaluated against the feature type
+     */
+    private boolean isNumeric(Expression expression, SimpleFeatureType featureType) {
+        Class<?> binding = null;
+        if (expression instanceof PropertyName) {
+            AttributeDescriptor descriptor = expression.evaluate(featureType,
+                    AttributeDescriptor.class);
+            if (descriptor != null) {
+                binding = descriptor.getType().getBinding();
+            }
+        } else if (expression instanceof BinaryExpression) {
+            return true;
+        } else if (expression instanceof Function) {
+            FunctionName name = ((Function) expression).getFunctionName();
+            if (name != null && name.getReturn() != null) {
+                binding = name.getReturn().getType();
+            }
+        }
+        return binding != null && Number.class.isAssignableFrom(binding);
+    }
+
     /**
      * Helper method the checks if a feature visitor is a group by visitor,
      *
@@ -1714,6 +1767,16 @@ public final class JDBCDataStore extends ContentDataStore
                 } catch (Exception e) {
                 }
 
+                if (s == null) {
+                    // prefer a single argument setter that can take the result as is
+                    for (Method m : visitor.getClass().getMethods()) {
+                        if ("setValue".equals(m.getName()) && m.getParameterTypes().length == 1
+                                && m.getParameterTypes()[0].isInstance(result)) {
+                            s = m;
+                            break;
+                        }
+                    }
+                }
                 if (s == null) {
                     for (Method m : visitor.getClass().getMethods()) {
                         if ("setValue".equals(m.getName())) {
@@ -1800,6 +1863,9 @@ public final class JDBCDataStore extends ContentDataStore
         final PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) getSQLDialect();
 
         final KeysFetcher keysFetcher = KeysFetcher.create(this, cx,kind.useExisting, key);
+        if (insertBulk(features, featureType, cx, key, keysFetcher)) {
+            return;
+        }
 
         final String sql = buildInsertPS(kind, featureType, keysFetcher, dialect);
         LOGGER.log(Level.FINE, "Inserting new features with ps: {0}", sql);
@@ -1930,8 +1996,36 @@ public final class JDBCDataStore extends ContentDataStore
         return sql.toString();
     }
 
+    /**
+     * Loads the features with the bulk loading mechanism of the dialect, if it has one and the
+     * key values are known before the insertion.
+     *
+     * @return true if the features have been inserted
+     */
+    private boolean insertBulk(Collection<? extends SimpleFeature> features,
+                               SimpleFeatureType featureType, Connection cx, PrimaryKey key,
+                               KeysFetcher keysFetcher) throws IOException, SQLException {
+        if (features.size() < 2 || keysFetcher.isPostInsert()
+                || !dialect.isBulkInsertSupported(featureType)) {
+            return false;
+        }
+        final List<SimpleFeature> batch = new ArrayList<>(features);
+        final List<List<Object>> keyValues = new ArrayList<>(batch.size());
+        for (SimpleFeature feature : batch) {
+            keyValues.add(keysFetcher.nextKeyValues(cx, featureType, feature));
+        }
+        LOGGER.log(Level.FINE, "Bulk loading {0} features", batch.size());
+        dialect.insertBulk(featureType, batch, keyValues, key, cx);
+        return true;
+    }
+
     /**
      * Specialized insertion for dialects that are not using prepared statements.
+     * <p>
+     * Several features are inserted with a single multi-row INSERT if the dialect supports it,
+     * or with a JDBC batch of INSERT statements if the key values are known before the insertion,
+     * and with one INSERT per feature otherwise.
+     * </p>
      */
     private void insertNonPS(Collection<? extends SimpleFeature> features,
                              SimpleFeatureType featureType, Connection cx, PrimaryKey key,
@@ -1939,22 +2033,59 @@ public final class JDBCDataStore extends ContentDataStore
         if (features.isEmpty()) {
             return;
         }
-        final Statement st = cx.createStatement();
         final KeysFetcher keysFetcher = KeysFetcher.create(this, cx, useExisting, key);
+        if (insertBulk(features, featureType, cx, key, keysFetcher)) {
+            return;
+        }
+        final BasicSQLDialect dialect = (BasicSQLDialect) getSQLDialect();
+        final Statement st = cx.createStatement();
         try {
-            for (SimpleFeature feature : features) {
-                String sql = insertSQL(featureType, feature, keysFetcher, cx);
+            if (features.size() > 1 && dialect.isMultiRowInsertSupported()) {
+                StringBuffer sql = new StringBuffer();
+                encodeInsertColumns(featureType, keysFetcher, sql);
+                for (SimpleFeature feature : features) {
+                    List<Object> keyValues = keysFetcher.nextKeyValues(cx, featureType, feature);
+                    encodeInsertValues(featureType, feature, keysFetcher, keyValues, sql);
+                    sql.append(",");
+                }
+                sql.setLength(sql.length() - 1);
 
-                ((BasicSQLDialect) dialect).onInsert(st, cx, featureType);
+                dialect.onInsert(st, cx, featureType);
 
-                LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
-                if(keysFetcher.hasAutoGeneratedKeys()) {
-                    st.executeUpdate(sql, Statement.RETURN_GENERATED_KEYS);
+                LOGGER.log(Level.FINE, "Inserting {0} new features with a multi-row insert",
+                        features.size());
+                final int inserted;
+                if (keysFetcher.isPostInsert()) {
+                    inserted = st.executeUpdate(sql.toString(), keysFetcher.getColumnNames());
                 } else {
-                    st.executeUpdate(sql);
+                    inserted = st.executeUpdate(sql.toString());
+                }
+                checkAllInserted(new int[] {inserted}, features.size());
+                keysFetcher.postInsert(featureType, features, st);
+            } else if (features.size() > 1 && !keysFetcher.isPostInsert()
+                    && cx.getMetaData().supportsBatchUpdates()) {
+                for (SimpleFeature feature : features) {
+                    String sql = insertSQL(featureType, feature, keysFetcher, cx);
+                    LOGGER.log(Level.FINE, "Adding new feature to the batch: {0}", sql);
+                    st.addBatch(sql);
                 }
+                dialect.onInsert(st, cx, featureType);
+                checkAllInserted(st.executeBatch(), features.size());
+            } else {
+                for (SimpleFeature feature : features) {
+                    String sql = insertSQL(featureType, feature, keysFetcher, cx);
 
-                keysFetcher.postInsert(featureType, feature, cx, st);
+                    dialect.onInsert(st, cx, featureType);
+
+                    LOGGER.log(Level.FINE, "Inserting new feature: {0}", sql);
+                    if(keysFetcher.hasAutoGeneratedKeys()) {
+                        st.executeUpdate(sql, Statement.RETURN_GENERATED_KEYS);
+                    } else {
+                        st.executeUpdate(sql);
+                    }
+
+                    keysFetcher.postInsert(featureType, feature, cx, st);
+                }
             }
         } finally {
             closeSafe(st);
@@ -3490,6 +3621,42 @@ public final class JDBCDataStore extends ContentDataStore
         }
     }
 
+    /**
+     * Encodes the filter for a prepared statement, reusing the SQL generated for a previous filter
+     * with the same structure, if the dialect allows it
+     */
+    PreparedFilterToSQL preparedFilter(SimpleFeatureType featureType, Filter filter,
+            StringBuffer sql) throws IOException {
+        if (filterTemplates == null
+                || !((PreparedStatementSQLDialect) dialect).isFilterTemplateCacheSupported()) {
+            return (PreparedFilterToSQL) filter(featureType, filter, sql);
+        }
+        FilterStructureVisitor structure = FilterStructureVisitor.visit(filter);
+        if (structure == null) {
+            return (PreparedFilterToSQL) filter(featureType, filter, sql);
+        }
+
+        SimpleFeatureType fullSchema = getSchema(featureType.getTypeName());
+        String key = featureType.getTypeName() + ":" + structure.getStructure();
+        PreparedFilterTemplate template = filterTemplates.get(key);
+        if (template != null && template.schema == fullSchema) {
+            PreparedFilterToSQL toSQL = createPreparedFilterToSQL(fullSchema);
+            if (toSQL.bind(template, structure.getLiterals())) {
+                sql.append(template.sql);
+                return toSQL;
+            }
+        }
+
+        int start = sql.length();
+        PreparedFilterToSQL toSQL = (PreparedFilterToSQL) filter(featureType, filter, sql);
+        template = PreparedFilterTemplate.build(fullSchema, sql.substring(start), toSQL,
+                structure.getLiterals());
+        if (template != null) {
+            filterTemplates.put(key, template);
+        }
+        return toSQL;
+    }
+
     private FilterToSQL getFilterToSQL(SimpleFeatureType fullSchema) {
         return dialect instanceof PreparedStatementSQLDialect ? 
                     createPreparedFilterToSQL(fullSchema) : createFilterToSQL(fullSchema);
@@ -3576,7 +3743,7 @@ public final class JDBCDataStore extends ContentDataStore
             sql.append(" WHERE ");
             
             //encode filter
-            toSQL = (PreparedFilterToSQL) filter(featureType, filter, sql);
+            toSQL = preparedFilter(featureType, filter, sql);
         }
 
         //sorting
@@ -3986,7 +4153,7 @@ public final class JDBCDataStore extends ContentDataStore
                 if ("count".equals(function)) {
                     sql2.append("count(*)");
                 } else {
-                    sql2.append(function).append("(").append("gt_agg_src").append(")");
+                    dialect.encodeAggregateFunction(function, "gt_agg_src", sql2);
                 }
             } else {
                 encodeFunction(function, expr, sql2, filterToSQL);
@@ -4055,17 +4222,17 @@ public final class JDBCDataStore extends ContentDataStore
 
     
     protected void encodeFunction(String function,  Expression expression, StringBuffer sql, FilterToSQL filterToSQL) {
-        sql.append(function).append("(");
+        String column;
         if (expression == null) {
-            sql.append("*");
+            column = "*";
         } else {
             try {
-                sql.append(filterToSQL.encodeToString(expression));
+                column = filterToSQL.encodeToString(expression);
             } catch (FilterToSQLException e) {
                 throw new RuntimeException(e);
             }
         }
-        sql.append(")");
+        dialect.encodeAggregateFunction(function, column, sql);
     }
 
     /**
@@ -4127,10 +4294,18 @@ public final class JDBCDataStore extends ContentDataStore
      */
     protected String insertSQL(SimpleFeatureType featureType, SimpleFeature feature, 
             KeysFetcher keysFetcher, Connection cx) throws SQLException, IOException {
-        BasicSQLDialect dialect = (BasicSQLDialect) getSQLDialect();
-        
-
         StringBuffer sql = new StringBuffer();
+        encodeInsertColumns(featureType, keysFetcher, sql);
+        List<Object> keyValues = keysFetcher.nextKeyValues(cx, featureType, feature);
+        encodeInsertValues(featureType, feature, keysFetcher, keyValues, sql);
+        return sql.toString();
+    }
+
+    /**
+     * Encodes the 'INSERT INTO table ( columns ) VALUES ' part of an insert statement.
+     */
+    void encodeInsertColumns(SimpleFeatureType featureType, KeysFetcher keysFetcher,
+            StringBuffer sql) throws SQLException {
         sql.append("INSERT INTO ");
         encodeTableName(featureType.getTypeName(), sql, null);
 
@@ -4151,8 +4326,18 @@ public final class JDBCDataStore extends ContentDataStore
         keysFetcher.addKeyColumns(sql);
         sql.setLength(sql.length() - 1);
 
-        //values
-        sql.append(" ) VALUES ( ");
+        sql.append(" ) VALUES ");
+    }
+
+    /**
+     * Encodes the '( values )' part of an insert statement for a single feature.
+     */
+    void encodeInsertValues(SimpleFeatureType featureType, SimpleFeature feature,
+            KeysFetcher keysFetcher, List<Object> keyValues, StringBuffer sql)
+            throws IOException {
+        BasicSQLDialect dialect = (BasicSQLDialect) getSQLDialect();
+
+        sql.append("( ");
 
         for (int i = 0; i < featureType.getAttributeCount(); i++) {
             AttributeDescriptor att = featureType.getDescriptor(i);
@@ -4192,12 +4377,10 @@ public final class JDBCDataStore extends ContentDataStore
             sql.append(",");
         }
         // handle the primary key
-        keysFetcher.setKeyValues(this, cx, featureType, feature, sql);
+        keysFetcher.encodeKeyValues(dialect, keyValues, sql);
         sql.setLength(sql.length() - 1);  //remove last comma
 
         sql.append(")");
-
-        return sql.toString();
     }
 
     /**
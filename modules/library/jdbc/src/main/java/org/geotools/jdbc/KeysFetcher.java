@@ -74,7 +74,7 @@ abstract class KeysFetcher {
                             Connection cx, SimpleFeatureType featureType, SimpleFeature feature,
                             int curFieldPos)
             throws IOException, SQLException {
-        final List<Object> keyValues = getNextValues(cx, feature);
+        final List<Object> keyValues = nextKeyValues(cx, featureType, feature);
         for (int i = 0; i < key.getColumns().size(); i++) {
             final PrimaryKeyColumn col = key.getColumns().get(i);
             final Object value = keyValues.get(i);
@@ -83,12 +83,6 @@ abstract class KeysFetcher {
             }
         }
 
-        if (!isPostInsert()) {
-            //report the feature id as user data since we cant set the fid.
-            String fid = featureType.getTypeName() + "." + JDBCDataStore.encodeFID(keyValues);
-            feature.getUserData().put("fid", fid);
-        }
-
         return curFieldPos;
     }
 
@@ -98,8 +92,30 @@ abstract class KeysFetcher {
     public void setKeyValues(JDBCDataStore ds, Connection cx, SimpleFeatureType featureType,
                              SimpleFeature feature, StringBuffer sql)
             throws IOException, SQLException {
-        BasicSQLDialect dialect = (BasicSQLDialect) ds.getSQLDialect();
+        List<Object> keyValues = nextKeyValues(cx, featureType, feature);
+        encodeKeyValues((BasicSQLDialect) ds.getSQLDialect(), keyValues, sql);
+    }
+
+    /**
+     * Computes the key values of a feature about to be inserted. The values that will be known
+     * only after insert are returned as {@link #NOT_SET_BEFORE_INSERT}.
+     */
+    public List<Object> nextKeyValues(Connection cx, SimpleFeatureType featureType,
+                                      SimpleFeature feature) throws IOException, SQLException {
         List<Object> keyValues = getNextValues(cx, feature);
+        if (!isPostInsert()) {
+            //report the feature id as user data since we cant set the fid. postInsert may overwrite it.
+            String fid = featureType.getTypeName() + "." + JDBCDataStore.encodeFID(keyValues);
+            feature.getUserData().put("fid", fid);
+        }
+        return keyValues;
+    }
+
+    /**
+     * Encodes the key values (the ones that are known before insert) for a non-prepared statement.
+     */
+    public void encodeKeyValues(BasicSQLDialect dialect, List<Object> keyValues,
+                                StringBuffer sql) {
         for (int i = 0; i < key.getColumns().size(); i++) {
             PrimaryKeyColumn col = key.getColumns().get(i);
             Object value = keyValues.get(i);
@@ -112,12 +128,6 @@ abstract class KeysFetcher {
                 }
             }
         }
-
-        if (!isPostInsert()) {
-            //report the feature id as user data since we cant set the fid. postInsert may overwrite it.
-            String fid = featureType.getTypeName() + "." + JDBCDataStore.encodeFID(keyValues);
-            feature.getUserData().put("fid", fid);
-        }
     }
 
     public abstract void addKeyColumns(StringBuffer sql);
@@ -125,11 +135,12 @@ abstract class KeysFetcher {
     public abstract void addKeyBindings(StringBuffer sql);
 
     /**
-     * Called after a batch prepared statement insert to get back the keys that were inserted.
+     * Called after a batch prepared statement insert, or a multi-row insert, to get back the keys
+     * that were inserted.
      */
     public abstract void postInsert(SimpleFeatureType featureType,
-                                    Collection<SimpleFeature> features,
-                                    PreparedStatement ps) throws SQLException;
+                                    Collection<? extends SimpleFeature> features,
+                                    Statement st) throws SQLException;
 
     /**
      * Called after each non-prepared statement inserts to get back the key that were inserted.
@@ -213,8 +224,8 @@ abstract class KeysFetcher {
         }
 
         @Override
-        public void postInsert(SimpleFeatureType featureType, Collection<SimpleFeature> features,
-                               PreparedStatement ps) {
+        public void postInsert(SimpleFeatureType featureType,
+                               Collection<? extends SimpleFeature> features, Statement st) {
         }
 
         @Override
@@ -290,21 +301,22 @@ abstract class KeysFetcher {
         }
 
         @Override
-        public void postInsert(SimpleFeatureType featureType, Collection<SimpleFeature> features,
-                               PreparedStatement ps) throws SQLException {
+        public void postInsert(SimpleFeatureType featureType,
+                               Collection<? extends SimpleFeature> features, Statement st)
+                throws SQLException {
             if (!isPostInsert()) {
                 return;
             }
-            final ResultSet rs = ps.getGeneratedKeys();
+            final ResultSet rs = st.getGeneratedKeys();
             try {
-                final Iterator<SimpleFeature> it = features.iterator();
+                final Iterator<? extends SimpleFeature> it = features.iterator();
                 final List<Object> keyValues = new ArrayList<>(key.getColumns().size());
                 while (rs.next()) {
                     final SimpleFeature feature = it.next();
                     // Need to access the values by index instead of name because of a limitation in
                     // Oracle. It is assumed the result set contains only the keys and in the
-                    // correct order since they where declared like that when the PreparedStatement
-                    // was created.
+                    // correct order since they where declared like that when the statement
+                    // was created or executed.
                     for (int index = 1; index <= key.getColumns().size(); ++index) {
                         keyValues.add(rs.getObject(index));
                     }
@@ -0,0 +1,155 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.expression.Literal;
+
+/**
+ * The SQL encoding of a filter as a prepared statement, along with what is needed to bind the
+ * literals of another filter with the same structure to it, without encoding it again.
+ *
+ * @since 20.0
+ */
+class PreparedFilterTemplate {
+
+    /**
+     * A bounded cache of templates, keyed by type name and filter structure, evicting the least
+     * recently used ones
+     */
+    static class Cache {
+
+        final Map<String, PreparedFilterTemplate> templates;
+
+        Cache(final int size) {
+            templates = new LinkedHashMap<String, PreparedFilterTemplate>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<String, PreparedFilterTemplate> eldest) {
+                    return size() > size;
+                }
+            };
+        }
+
+        synchronized PreparedFilterTemplate get(String key) {
+            return templates.get(key);
+        }
+
+        synchronized void put(String key, PreparedFilterTemplate template) {
+            templates.put(key, template);
+        }
+    }
+
+    /**
+     * The schema the filter was encoded against, the template is not valid anymore if the schema
+     * gets reloaded
+     */
+    final SimpleFeatureType schema;
+
+    final String sql;
+
+    /**
+     * For each parameter, the position of the literal it comes from in the filter structure
+     */
+    final int[] sources;
+
+    final Class[] targets;
+
+    final Class[] valueClasses;
+
+    final List<Class> types;
+
+    final List<Integer> srids;
+
+    final List<Integer> dimensions;
+
+    PreparedFilterTemplate(SimpleFeatureType schema, String sql, int[] sources, Class[] targets,
+            Class[] valueClasses, PreparedFilterToSQL toSQL) {
+        this.schema = schema;
+        this.sql = sql;
+        this.sources = sources;
+        this.targets = targets;
+        this.valueClasses = valueClasses;
+        this.types = new ArrayList<Class>(toSQL.getLiteralTypes());
+        this.srids = new ArrayList<Integer>(toSQL.getSRIDs());
+        this.dimensions = new ArrayList<Integer>(toSQL.getDimensions());
+    }
+
+    /**
+     * Builds a template out of an encoder that has just encoded a filter, or returns null unless
+     * each filter literal became at least one parameter. The encoder might have replaced some
+     * literals, added values of its own, or written some literals as constants in the SQL (e.g.,
+     * a geography bbox covering the whole world is encoded as TRUE), none of which can be reused
+     * for a filter with different literals. A literal bound to several parameters is fine, every
+     * one of them gets the value of the new literal (e.g., a bbox encoded as both an index
+     * lookup and an exact intersection test).
+     *
+     * @param schema The schema the filter has been encoded against
+     * @param sql The encoded filter
+     * @param toSQL The encoder
+     * @param literals The literals of the filter, in traversal order
+     */
+    static PreparedFilterTemplate build(SimpleFeatureType schema, String sql,
+            PreparedFilterToSQL toSQL, List<Literal> literals) {
+        if (!toSQL.isPrepareEnabled()) {
+            return null;
+        }
+        List<Object> values = toSQL.getLiteralValues();
+        int count = values.size();
+        if (toSQL.literalSources.size() != count || toSQL.literalTargets.size() != count
+                || toSQL.getLiteralTypes().size() != count || toSQL.getSRIDs().size() != count
+                || toSQL.getDimensions().size() != count) {
+            return null;
+        }
+
+        int[] sources = new int[count];
+        boolean[] bound = new boolean[literals.size()];
+        Class[] valueClasses = new Class[count];
+        for (int i = 0; i < count; i++) {
+            Literal source = toSQL.literalSources.get(i);
+            int position = -1;
+            if (source != null) {
+                for (int j = 0; j < literals.size(); j++) {
+                    if (literals.get(j) == source) {
+                        position = j;
+                        break;
+                    }
+                }
+            }
+            if (position < 0) {
+                return null;
+            }
+            sources[i] = position;
+            bound[position] = true;
+            Object value = values.get(i);
+            valueClasses[i] = value != null ? value.getClass() : null;
+        }
+        for (boolean b : bound) {
+            if (!b) {
+                return null;
+            }
+        }
+        Class[] targets = toSQL.literalTargets.toArray(new Class[count]);
+
+        return new PreparedFilterTemplate(schema, sql, sources, targets, valueClasses, toSQL);
+    }
+}
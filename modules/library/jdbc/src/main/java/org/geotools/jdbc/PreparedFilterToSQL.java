@@ -54,6 +54,12 @@ public class PreparedFilterToSQL extends FilterToSQL {
     protected List<Class> literalTypes = new ArrayList<Class>();
     protected List<Integer> SRIDs = new ArrayList<Integer>();
     protected List<Integer> dimensions = new ArrayList<Integer>();
+    /**
+     * The literal each value has been extracted from, along with the type it has been evaluated
+     * against, or null for values that did not come from a literal
+     */
+    protected List<Literal> literalSources = new ArrayList<Literal>();
+    protected List<Class> literalTargets = new ArrayList<Class>();
     protected PreparedStatementSQLDialect dialect;
     boolean prepareEnabled = true;
     
@@ -97,8 +103,11 @@ public class PreparedFilterToSQL extends FilterToSQL {
             return super.visit(expression, context);
         
         // evaluate the literal and store it for later
-        Object literalValue = evaluateLiteral( expression, (context instanceof Class ? (Class) context : null) );
+        Class target = context instanceof Class ? (Class) context : null;
+        Object literalValue = evaluateLiteral( expression, target );
         literalValues.add(literalValue);
+        literalSources.add(expression);
+        literalTargets.add(target);
         SRIDs.add(currentSRID);
         dimensions.add(currentDimension);
         
@@ -173,6 +182,8 @@ public class PreparedFilterToSQL extends FilterToSQL {
                     
                     // store the value for later usage
                     literalValues.add(attValues[j]);
+                    literalSources.add(null);
+                    literalTargets.add(null);
                     // no srid, pk are not formed with geometry values
                     SRIDs.add(-1);
                     dimensions.add(-1);
@@ -197,6 +208,32 @@ public class PreparedFilterToSQL extends FilterToSQL {
         return extraData;
     }
     
+    /**
+     * Fills the values of this encoder out of a template encoded by a previous one against a
+     * filter with the same structure, evaluating the new filter literals in the same way
+     * 
+     * @param template The template built by the previous encoder
+     * @param literals The literals of the new filter, in traversal order
+     * @return false if the new values cannot be bound to the template, e.g. because they
+     *         evaluate to a different type
+     */
+    boolean bind(PreparedFilterTemplate template, List<Literal> literals) {
+        literalValues.clear();
+        for (int i = 0; i < template.sources.length; i++) {
+            Object value = evaluateLiteral(literals.get(template.sources[i]), template.targets[i]);
+            Class valueClass = value != null ? value.getClass() : null;
+            if (valueClass != template.valueClasses[i]) {
+                literalValues.clear();
+                return false;
+            }
+            literalValues.add(value);
+        }
+        literalTypes = new ArrayList<Class>(template.types);
+        SRIDs = new ArrayList<Integer>(template.srids);
+        dimensions = new ArrayList<Integer>(template.dimensions);
+        return true;
+    }
+
     public List<Object> getLiteralValues() {
         return literalValues;
     }
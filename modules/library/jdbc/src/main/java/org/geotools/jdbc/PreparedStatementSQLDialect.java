@@ -204,6 +204,20 @@ public abstract class PreparedStatementSQLDialect extends SQLDialect {
         f2s.setCapabilities(BASE_DBMS_CAPABILITIES);
         return f2s;
     }
+
+    /**
+     * Returns true if the SQL generated by {@link #createPreparedFilterToSQL()} for comparison,
+     * logic and non distance based spatial filters depends only on the filter structure, that is,
+     * if the literal values are only ever turned into statement parameters and never looked at
+     * while encoding. When true the store caches the encoded filters and reuses them for filters
+     * differing only in their literal values, e.g., bounding box queries on the same layer.
+     * <p>
+     * Defaults to false, override to enable the cache.
+     * </p>
+     */
+    public boolean isFilterTemplateCacheSupported() {
+        return false;
+    }
     
     //callback methods
     /**
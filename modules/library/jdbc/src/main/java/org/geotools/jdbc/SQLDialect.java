@@ -50,6 +50,7 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -379,7 +380,9 @@ public abstract class SQLDialect {
      * <li>{@link MinVisitor} -> "min" <li>
      * <li>{@link SumVisitor} -> "sum" <li>
      *  </ul>
-     *  Subclasses should extend (not override) to provide additional functions.
+     *  Subclasses should extend (not override) to provide additional functions. Functions whose
+     *  syntax is not <code>function(expression)</code> can be supported by overriding
+     *  {@link #encodeAggregateFunction(String, String, StringBuffer)} as well.
      * </p>
      */
     public void registerAggregateFunctions(Map<Class<? extends FeatureVisitor>,String> aggregates) {
@@ -1085,6 +1088,40 @@ public abstract class SQLDialect {
     public boolean lookupGeneratedValuesPostInsert() {
         return false;
     }
+
+    /**
+     * Returns true if the dialect can load many features of the specified type at once with a
+     * database specific bulk loading mechanism, see
+     * {@link #insertBulk(SimpleFeatureType, List, List, PrimaryKey, Connection)}.
+     * <p>
+     * Bulk loading is only attempted when the values of the primary key are known before the
+     * insertion. Default implementation returns false.
+     * </p>
+     */
+    public boolean isBulkInsertSupported(SimpleFeatureType featureType) {
+        return false;
+    }
+
+    /**
+     * Loads the specified features with a database specific bulk loading mechanism (e.g. the
+     * PostgreSQL COPY command). Called only when
+     * {@link #isBulkInsertSupported(SimpleFeatureType)} returns true for the feature type.
+     * <p>
+     * The primary key columns exposed as attributes are not part of the insertion, their values
+     * are provided in <tt>keyValues</tt>, in the same order as the primary key columns. The
+     * connection should not be closed.
+     * </p>
+     * @param featureType The feature type of the features
+     * @param features The features to insert
+     * @param keyValues The primary key values of each feature
+     * @param key The primary key of the table
+     * @param cx The database connection
+     */
+    public void insertBulk(SimpleFeatureType featureType, List<SimpleFeature> features,
+            List<List<Object>> keyValues, PrimaryKey key, Connection cx)
+            throws IOException, SQLException {
+        throw new UnsupportedOperationException("Bulk insertion is not supported");
+    }
     
     /**
      * Obtains the next value of an auto generated column.
@@ -1483,7 +1520,17 @@ public abstract class SQLDialect {
         return dataStore.getPrimaryKey(featureType);
     }
     
-    @Deprecated
+    /**
+     * Encodes an aggregate function call over an already encoded expression, or <code>*</code>
+     * for counts. The default implementation writes <code>function(column)</code>, dialects can
+     * override to handle functions with a different syntax, such as the ordered set ones (e.g.,
+     * <code>percentile_cont(0.5) WITHIN GROUP (ORDER BY column)</code>).
+     * 
+     * @param function The function name, as registered in
+     *        {@link #registerAggregateFunctions(Map)}
+     * @param column The encoded expression the function is applied to
+     * @param sql The buffer to write into
+     */
     protected void encodeAggregateFunction( String function, String column, StringBuffer sql ) {
         encodeAggregateFunctionPrefix(function, sql);
         sql.append(column);
@@ -28,8 +28,10 @@ import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.feature.visitor.GroupByVisitor;
 import org.geotools.feature.visitor.GroupByVisitorBuilder;
 import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MedianVisitor;
 import org.geotools.feature.visitor.MinVisitor;
 import org.geotools.feature.visitor.NearestVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.feature.visitor.SumAreaVisitor;
 import org.geotools.feature.visitor.SumVisitor;
 import org.geotools.feature.visitor.UniqueVisitor;
@@ -426,6 +428,98 @@ public abstract class JDBCAggregateFunctionOnlineTest extends JDBCTestSupport {
         assertEquals("two", result.iterator().next());
     }
     
+    class MyStandardDeviationVisitor extends StandardDeviationVisitor {
+
+        public MyStandardDeviationVisitor(Expression expr) {
+            super(expr);
+        }
+
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+
+    }
+
+    public void testStandardDeviation() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property(aname("doubleProperty"));
+
+        StandardDeviationVisitor v = new MyStandardDeviationVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        if (dataStore.getAggregateFunctions().containsKey(StandardDeviationVisitor.class)) {
+            assertFalse(visited);
+        }
+        // population deviation of 0, 1.1 and 2.2
+        assertEquals(Math.sqrt(2.42 / 3), v.getResult().toDouble(), 0.01);
+    }
+
+    class MyMedianVisitor extends MedianVisitor {
+
+        public MyMedianVisitor(Expression expr) {
+            super(expr);
+        }
+
+        public void visit(Feature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+
+        public void visit(SimpleFeature feature) {
+            super.visit(feature);
+            visited = true;
+        }
+
+    }
+
+    public void testMedian() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property(aname("doubleProperty"));
+
+        MedianVisitor v = new MyMedianVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        if (dataStore.getAggregateFunctions().containsKey(MedianVisitor.class)) {
+            assertFalse(visited);
+        }
+        assertEquals(1.1, v.getResult().toDouble(), 0.01);
+    }
+
+    public void testMedianOnStrings() throws Exception {
+        // databases cannot compute a median out of strings, the visitor can
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property(aname("stringProperty"));
+
+        MedianVisitor v = new MyMedianVisitor(p);
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        assertTrue(visited);
+        assertEquals("two", v.getResult().getValue());
+    }
+
+    public void testMedianWithGroupBy() throws Exception {
+        FilterFactory ff = dataStore.getFilterFactory();
+        PropertyName p = ff.property(aname("doubleProperty"));
+
+        GroupByVisitor v = new GroupByVisitorBuilder()
+            .withAggregateAttribute(p)
+            .withAggregateVisitor("Median")
+            .withGroupByAttributes(Collections.singleton(aname("stringProperty")),
+                    dataStore.getSchema(tname("ft1")))
+            .build();
+        dataStore.getFeatureSource(tname("ft1")).accepts(Query.ALL, v, null);
+        Map<Object, Object> results = v.getResult().toMap();
+        assertEquals(3, results.size());
+        for (Map.Entry<Object, Object> entry : results.entrySet()) {
+            Object key = ((List) entry.getKey()).get(0);
+            double expected = "zero".equals(key) ? 0 : "one".equals(key) ? 1.1 : 2.2;
+            assertEquals(expected, ((Number) entry.getValue()).doubleValue(), 0.01);
+        }
+    }
+
     class MyNearestVisitor extends NearestVisitor {
 
         public MyNearestVisitor(Expression expr, Object valueToMatch) {
@@ -191,6 +191,60 @@ public abstract class JDBCFeatureStoreOnlineTest extends JDBCTestSupport {
         }
     }
     
+    public void testAddFeaturesBatched() throws IOException {
+        dataStore.setBatchInsertSize(10);
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
+                featureStore.getSchema());
+        for (int i = 3; i < 28; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            collection.add(b.buildFeature(null));
+        }
+        List<FeatureId> fids = featureStore.addFeatures((SimpleFeatureCollection) collection);
+        assertEquals(25, fids.size());
+        assertEquals(28, featureStore.getFeatures().size());
+
+        // the keys must have been fetched back in insertion order
+        FilterFactory ff = dataStore.getFilterFactory();
+        for (int i = 0; i < fids.size(); i++) {
+            Id filter = ff.id(Collections.singleton(fids.get(i)));
+            SimpleFeature found = DataUtilities.first(featureStore.getFeatures(filter));
+            assertNotNull(found);
+            assertEquals(fids.get(i).getID(), found.getID());
+            assertEquals(i + 3, ((Number) found.getAttribute(aname("intProperty"))).intValue());
+        }
+    }
+
+    public void testAddFeaturesUseProvidedFidBatched() throws IOException {
+        dataStore.setBatchInsertSize(10);
+        SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
+        DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
+                featureStore.getSchema());
+        String typeName = b.getFeatureType().getTypeName();
+        for (int i = 3; i < 28; i++) {
+            b.set(aname("intProperty"), new Integer(i));
+            b.set(aname("geometry"), new GeometryFactory().createPoint(new Coordinate(i, i)));
+            b.featureUserData(Hints.USE_PROVIDED_FID, Boolean.TRUE);
+            collection.add(b.buildFeature(typeName + "." + (i * 10)));
+        }
+        List<FeatureId> fids = featureStore.addFeatures((SimpleFeatureCollection) collection);
+        assertEquals(25, fids.size());
+        assertEquals(28, featureStore.getFeatures().size());
+
+        FilterFactory ff = dataStore.getFilterFactory();
+        for (int i = 3; i < 28; i++) {
+            FeatureId id = SimpleFeatureBuilder.createDefaultFeatureIdentifier(typeName + "."
+                    + (i * 10));
+            assertTrue(fids.contains(id));
+            SimpleFeature found = DataUtilities.first(featureStore.getFeatures(ff.id(Collections
+                    .singleton(id))));
+            assertNotNull(found);
+            assertEquals(i, ((Number) found.getAttribute(aname("intProperty"))).intValue());
+            assertEquals(i, ((Point) found.getDefaultGeometry()).getX(), 0d);
+        }
+    }
+
     public void testAddInTransaction() throws IOException {
         SimpleFeatureBuilder b = new SimpleFeatureBuilder(featureStore.getSchema());
         DefaultFeatureCollection collection = new DefaultFeatureCollection(null,
@@ -0,0 +1,208 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.jdbc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.filter.FilterCapabilities;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+
+public class PreparedFilterTemplateTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    Filter rangeFilter(Object min, Object max, String name) {
+        return ff.and(ff.and(ff.greaterOrEqual(ff.property("a"), ff.literal(min)),
+                ff.less(ff.property("a"), ff.literal(max))), ff.equals(ff.property("name"),
+                ff.literal(name)));
+    }
+
+    @Test
+    public void testStructure() {
+        FilterStructureVisitor s1 = FilterStructureVisitor.visit(rangeFilter(1, 10, "abc"));
+        FilterStructureVisitor s2 = FilterStructureVisitor.visit(rangeFilter(5, 20, "def"));
+        assertNotNull(s1);
+        assertNotNull(s2);
+        assertEquals(s1.getStructure(), s2.getStructure());
+        assertEquals(3, s2.getLiterals().size());
+        assertEquals(20, s2.getLiterals().get(1).getValue());
+
+        // value types, property names and like patterns are part of the structure
+        assertNotEquals(s1.getStructure(),
+                FilterStructureVisitor.visit(rangeFilter(1d, 10, "abc")).getStructure());
+        assertNotEquals(s1.getStructure(), FilterStructureVisitor.visit(
+                ff.greaterOrEqual(ff.property("b"), ff.literal(1))).getStructure());
+        assertNotEquals(FilterStructureVisitor.visit(ff.like(ff.property("name"), "a*"))
+                .getStructure(), FilterStructureVisitor.visit(ff.like(ff.property("name"), "b*"))
+                .getStructure());
+        assertNotEquals(FilterStructureVisitor.visit(
+                ff.equal(ff.property("name"), ff.literal("a"), true)).getStructure(),
+                FilterStructureVisitor.visit(ff.equal(ff.property("name"), ff.literal("a"), false))
+                        .getStructure());
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertNull(FilterStructureVisitor.visit(ff.equals(ff.function("strToUpperCase",
+                ff.property("name")), ff.literal("ABC"))));
+        assertNull(FilterStructureVisitor.visit(ff.dwithin(ff.property("geom"),
+                ff.literal(null), 10, "m")));
+        assertNull(FilterStructureVisitor.visit(ff.id(Collections.singleton(ff
+                .featureId("t.1")))));
+    }
+
+    @Test
+    public void testBind() throws Exception {
+        Filter f1 = rangeFilter(1, 10, "abc");
+        FilterStructureVisitor s1 = FilterStructureVisitor.visit(f1);
+        PreparedFilterToSQL toSQL = new PreparedFilterToSQL();
+        String sql = toSQL.encodeToString(f1);
+        PreparedFilterTemplate template = PreparedFilterTemplate.build(null, sql, toSQL,
+                s1.getLiterals());
+        assertNotNull(template);
+
+        // bind a filter with the same structure, should get the same values as a full encoding
+        Filter f2 = rangeFilter(5, 20, "def");
+        FilterStructureVisitor s2 = FilterStructureVisitor.visit(f2);
+        PreparedFilterToSQL bound = new PreparedFilterToSQL();
+        assertTrue(bound.bind(template, s2.getLiterals()));
+        PreparedFilterToSQL expected = new PreparedFilterToSQL();
+        assertEquals(expected.encodeToString(f2), template.sql);
+        assertEquals(expected.getLiteralValues(), bound.getLiteralValues());
+        assertEquals(expected.getLiteralTypes(), bound.getLiteralTypes());
+        assertEquals(expected.getSRIDs(), bound.getSRIDs());
+        assertEquals(expected.getDimensions(), bound.getDimensions());
+    }
+
+    @Test
+    public void testBindDifferentValueType() throws Exception {
+        // "10" is turned into a number, "abc" is not, the structure is the same though
+        Filter f1 = ff.equals(ff.property("a"), ff.literal("10"));
+        PreparedFilterToSQL toSQL = new PreparedFilterToSQL();
+        String sql = toSQL.encodeToString(f1);
+        PreparedFilterTemplate template = PreparedFilterTemplate.build(null, sql, toSQL,
+                FilterStructureVisitor.visit(f1).getLiterals());
+
+        Filter f2 = ff.equals(ff.property("a"), ff.literal("abc"));
+        PreparedFilterToSQL bound = new PreparedFilterToSQL();
+        assertFalse(bound.bind(template, FilterStructureVisitor.visit(f2).getLiterals()));
+    }
+
+    @Test
+    public void testReplacedLiteral() throws Exception {
+        // an encoder visiting literals that are not part of the filter cannot be templated
+        Filter filter = ff.equals(ff.property("a"), ff.literal(10));
+        PreparedFilterToSQL toSQL = new PreparedFilterToSQL();
+        String sql = toSQL.encodeToString(filter);
+        Literal other = ff.literal(10);
+        assertNull(PreparedFilterTemplate.build(null, sql, toSQL,
+                Collections.singletonList(other)));
+
+        // same if prepared statements are disabled
+        toSQL = new PreparedFilterToSQL();
+        toSQL.setPrepareEnabled(false);
+        sql = toSQL.encodeToString(filter);
+        assertNull(PreparedFilterTemplate.build(null, sql, toSQL,
+                FilterStructureVisitor.visit(filter).getLiterals()));
+    }
+
+    /**
+     * An encoder for bbox filters, writing a constant like the PostGIS one does for a geography
+     * bbox covering the whole world, or using the literal twice like the PostGIS one does for a
+     * bbox that is not loose
+     */
+    PreparedFilterToSQL bboxEncoder(final boolean constant) {
+        return new PreparedFilterToSQL() {
+            @Override
+            protected FilterCapabilities createFilterCapabilities() {
+                FilterCapabilities capabilities = super.createFilterCapabilities();
+                capabilities.addType(BBOX.class);
+                return capabilities;
+            }
+
+            @Override
+            protected Object visitBinarySpatialOperator(BinarySpatialOperator filter,
+                    PropertyName property, Literal geometry, boolean swapped, Object extraData) {
+                try {
+                    if (constant) {
+                        out.write(" TRUE ");
+                    } else {
+                        out.write("geom && ");
+                        geometry.accept(this, null);
+                        out.write(" AND ST_Intersects(geom, ");
+                        geometry.accept(this, null);
+                        out.write(")");
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                return extraData;
+            }
+        };
+    }
+
+    Filter bboxFilter(double minx, double miny, double maxx, double maxy, String name) {
+        return ff.and(ff.bbox("geom", minx, miny, maxx, maxy, "EPSG:4326"),
+                ff.equals(ff.property("name"), ff.literal(name)));
+    }
+
+    @Test
+    public void testConstantLiteral() throws Exception {
+        // a literal written as a constant cannot be templated, the constant would be reused for
+        // every other bbox
+        PreparedFilterToSQL toSQL = bboxEncoder(true);
+        Filter filter = bboxFilter(-180, -90, 180, 90, "abc");
+        String sql = toSQL.encodeToString(filter);
+        assertEquals(1, toSQL.getLiteralValues().size());
+        assertNull(PreparedFilterTemplate.build(null, sql, toSQL,
+                FilterStructureVisitor.visit(filter).getLiterals()));
+    }
+
+    @Test
+    public void testRepeatedLiteral() throws Exception {
+        // a literal used for several parameters can be templated, each gets the new value
+        PreparedFilterToSQL toSQL = bboxEncoder(false);
+        Filter f1 = bboxFilter(0, 0, 10, 10, "abc");
+        String sql = toSQL.encodeToString(f1);
+        assertEquals(3, toSQL.getLiteralValues().size());
+        PreparedFilterTemplate template = PreparedFilterTemplate.build(null, sql, toSQL,
+                FilterStructureVisitor.visit(f1).getLiterals());
+        assertNotNull(template);
+
+        Filter f2 = bboxFilter(5, 5, 20, 20, "def");
+        PreparedFilterToSQL bound = bboxEncoder(false);
+        assertTrue(bound.bind(template, FilterStructureVisitor.visit(f2).getLiterals()));
+        PreparedFilterToSQL expected = bboxEncoder(false);
+        assertEquals(expected.encodeToString(f2), template.sql);
+        assertEquals(expected.getLiteralValues(), bound.getLiteralValues());
+    }
+}
@@ -20,7 +20,7 @@ import java.io.IOException;
 import java.util.NoSuchElementException;
 
 import org.geotools.feature.IllegalAttributeException;
-import org.geotools.filter.visitor.BindingFilterVisitor;
+import org.geotools.filter.visitor.CompilingFilterVisitor;
 import org.opengis.feature.Feature;
 import org.opengis.feature.type.FeatureType;
 import org.opengis.filter.Filter;
@@ -64,9 +64,7 @@ public class FilteringFeatureReader<T extends FeatureType, F extends Feature> im
      */
     public FilteringFeatureReader(FeatureReader<T, F> featureReader, Filter filter) {
         this.featureReader = featureReader;
-        this.filter = (Filter) filter
-                .accept(new BindingFilterVisitor(featureReader.getFeatureType()),
-                null);
+        this.filter = CompilingFilterVisitor.compile(filter, featureReader.getFeatureType());
         next = null;
     }
 
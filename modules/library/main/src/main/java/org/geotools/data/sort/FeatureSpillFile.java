@@ -0,0 +1,286 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.sort;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * A temporary file holding the sorted runs of an external merge sort. Each run is written as a
+ * sequential, buffered and optionally deflate compressed stream of features, appended at the end
+ * of the file, and read back with positional reads, so that all the runs can be read at the same
+ * time while being merged.
+ *
+ * @since 20.0
+ */
+class FeatureSpillFile {
+
+    static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The location of a run in the file
+     */
+    static class Run {
+        /**
+         * The position of the run in the file, runs are numbered in the order they are written
+         */
+        final int index;
+
+        final long offset;
+
+        final long length;
+
+        final int count;
+
+        Run(int index, long offset, long length, int count) {
+            this.index = index;
+            this.offset = offset;
+            this.length = length;
+            this.count = count;
+        }
+    }
+
+    final SimpleFeatureType schema;
+
+    final List<AttributeDescriptor> attributes;
+
+    final boolean compressed;
+
+    final File file;
+
+    final FileChannel channel;
+
+    int runs;
+
+    public FeatureSpillFile(SimpleFeatureType schema, boolean compressed) throws IOException {
+        this.schema = schema;
+        this.attributes = schema.getAttributeDescriptors();
+        this.compressed = compressed;
+        this.file = File.createTempFile("sorted", ".features");
+        this.channel = new RandomAccessFile(file, "rw").getChannel();
+    }
+
+    /**
+     * Appends a run to the file
+     *
+     * @param features The features, already sorted
+     * @param count The number of features to write
+     * @return The location of the run
+     * @throws IOException
+     */
+    public synchronized Run write(SimpleFeature[] features, int count) throws IOException {
+        final long start = channel.size();
+        channel.position(start);
+        OutputStream os = new ChannelOutputStream(channel);
+        Deflater deflater = null;
+        DeflaterOutputStream dos = null;
+        if (compressed) {
+            deflater = new Deflater(Deflater.BEST_SPEED);
+            dos = new DeflaterOutputStream(os, deflater, WRITE_BUFFER_SIZE);
+            os = dos;
+        }
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os,
+                    WRITE_BUFFER_SIZE));
+            WKBWriter wkbWriter = new WKBWriter();
+            for (int i = 0; i < count; i++) {
+                SimpleFeature sf = features[i];
+                out.writeUTF(sf.getID());
+                for (AttributeDescriptor ad : attributes) {
+                    SimpleFeatureIO.writeAttribute(out, ad, sf.getAttribute(ad.getLocalName()),
+                            wkbWriter);
+                }
+            }
+            out.flush();
+            if (dos != null) {
+                dos.finish();
+            }
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+        return new Run(runs++, start, channel.position() - start, count);
+    }
+
+    /**
+     * Opens a reader on the specified run
+     *
+     * @param run The run
+     * @param bufferSize The read buffer size, this much memory is used by each open reader
+     */
+    public RunReader open(Run run, int bufferSize) {
+        return new RunReader(run, bufferSize);
+    }
+
+    /**
+     * Closes and deletes the file
+     */
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Reads back the features of a run, one at a time
+     */
+    class RunReader {
+
+        final int index;
+
+        int remaining;
+
+        DataInputStream in;
+
+        Inflater inflater;
+
+        SimpleFeatureBuilder builder = new SimpleFeatureBuilder(schema);
+
+        WKBReader wkbReader = new WKBReader();
+
+        /**
+         * The last feature read
+         */
+        SimpleFeature current;
+
+        RunReader(Run run, int bufferSize) {
+            this.index = run.index;
+            this.remaining = run.count;
+            InputStream is = new BufferedInputStream(new ChannelInputStream(channel, run.offset,
+                    run.offset + run.length), bufferSize);
+            if (compressed) {
+                inflater = new Inflater();
+                is = new BufferedInputStream(new InflaterInputStream(is, inflater, 512), 1024);
+            }
+            this.in = new DataInputStream(is);
+        }
+
+        /**
+         * Reads the next feature, or returns null if the run is over
+         */
+        SimpleFeature next() throws IOException {
+            if (remaining <= 0) {
+                current = null;
+                return null;
+            }
+            String fid = in.readUTF();
+            for (AttributeDescriptor ad : attributes) {
+                builder.add(SimpleFeatureIO.readAttribute(in, ad, wkbReader));
+            }
+            remaining--;
+            current = builder.buildFeature(fid);
+            return current;
+        }
+
+        void close() {
+            remaining = 0;
+            current = null;
+            if (inflater != null) {
+                inflater.end();
+                inflater = null;
+            }
+        }
+    }
+
+    /**
+     * Writes at the current channel position, without closing the channel when closed
+     */
+    static class ChannelOutputStream extends OutputStream {
+
+        final FileChannel channel;
+
+        ChannelOutputStream(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads a section of the channel with positional reads, which do not interfere with each
+     * other
+     */
+    static class ChannelInputStream extends InputStream {
+
+        final FileChannel channel;
+
+        long position;
+
+        final long end;
+
+        ChannelInputStream(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            len = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(b, off, len), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+    }
+}
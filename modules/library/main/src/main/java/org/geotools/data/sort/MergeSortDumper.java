@@ -16,13 +16,18 @@
  */
 package org.geotools.data.sort;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.geotools.data.Query;
 import org.geotools.data.collection.ListFeatureCollection;
@@ -71,11 +76,37 @@ class MergeSortDumper {
         return true;
     }
 
+    /**
+     * Whether the sorted runs spilled to disk are deflate compressed, trading CPU for less disk
+     * I/O, controlled by the "org.geotools.sort.compressSpill" system property
+     */
+    static final boolean COMPRESS_SPILL = Boolean.getBoolean("org.geotools.sort.compressSpill");
+
+    /**
+     * The memory used by the read buffers of all the runs while merging them
+     */
+    static final int MERGE_BUFFERS_SIZE = 16 * 1024 * 1024;
+
     static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, Query query)
             throws IOException {
         int maxFeatures = getMaxFeatures(query);
 
-        return getDelegateReader(reader, query.getSortBy(), maxFeatures);
+        return getDelegateReader(reader, query.getSortBy(), maxFeatures, getLimit(query));
+    }
+
+    /**
+     * Returns the number of sorted features that will actually be used, that is, the offset plus
+     * the max features of the query, or -1 if all of them are needed
+     */
+    static int getLimit(Query query) {
+        if (query == null || query.isMaxFeaturesUnlimited() || query.getMaxFeatures() < 0) {
+            return -1;
+        }
+        long limit = query.getMaxFeatures();
+        if (query.getStartIndex() != null) {
+            limit += query.getStartIndex();
+        }
+        return limit < Integer.MAX_VALUE ? (int) limit : -1;
     }
 
     /**
@@ -100,6 +131,21 @@ class MergeSortDumper {
 
     static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, SortBy[] sortBy,
             int maxFeatures) throws IOException {
+        return getDelegateReader(reader, sortBy, maxFeatures, -1);
+    }
+
+    /**
+     * Sorts the reader contents
+     * 
+     * @param reader The reader to be sorted
+     * @param sortBy The sorting directives
+     * @param maxFeatures The max number of features to keep in memory
+     * @param limit The number of sorted features that will be read, or -1 if all of them will
+     * @return
+     * @throws IOException
+     */
+    static SimpleFeatureReader getDelegateReader(SimpleFeatureReader reader, SortBy[] sortBy,
+            int maxFeatures, int limit) throws IOException {
         if (maxFeatures < 0) {
             maxFeatures = getMaxFeatures(Query.ALL);
         }
@@ -118,51 +164,89 @@ class MergeSortDumper {
                             + "sorting properties are not comparable or the attributes are not serializable");
         }
 
+        // only the first features are needed, and they fit in memory
+        if (limit >= 0 && limit <= maxFeatures) {
+            try {
+                return getTopReader(reader, schema, comparator, limit);
+            } finally {
+                reader.close();
+            }
+        }
+
+        // blocks are spilled when they grow past maxFeatures
+        final int blockSize = (int) Math.min(maxFeatures + 1L, Integer.MAX_VALUE - 8);
         int count = 0;
-        File file = null;
-        SimpleFeatureIO io = null;
-        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
-        List<FeatureBlockReader> readers = new ArrayList<FeatureBlockReader>();
+        FeatureSpillFile spill = null;
+        SimpleFeature[] features = new SimpleFeature[Math.min(blockSize, 1024)];
+        List<FeatureSpillFile.Run> runs = new ArrayList<FeatureSpillFile.Run>();
+        Future<FeatureSpillFile.Run> pending = null;
         boolean cleanFile = true;
         try {
             // read and store into files as necessary
             while (reader.hasNext()) {
                 SimpleFeature f = reader.next();
-                features.add(f);
-                count++;
+                if (count == features.length) {
+                    features = Arrays.copyOf(features, (int) Math.min(count * 2L, blockSize));
+                }
+                features[count++] = f;
 
                 if (count > maxFeatures) {
-                    Collections.sort(features, comparator);
-                    if (io == null) {
-                        file = File.createTempFile("sorted", ".features");
-                        file.delete();
-                        io = new SimpleFeatureIO(file, schema);
+                    if (spill == null) {
+                        spill = new FeatureSpillFile(schema, COMPRESS_SPILL);
+                    }
+                    // sort and store the block in background while reading the next one,
+                    // keeping at most two blocks in memory
+                    if (pending != null) {
+                        runs.add(getRun(pending));
                     }
-                    FeatureBlockReader fbr = storeToFile(io, features);
-                    readers.add(fbr);
+                    pending = sortAndStore(spill, features, count, comparator);
                     count = 0;
-                    features.clear();
+                    features = new SimpleFeature[features.length];
                 }
             }
 
             // return the appropriate reader
-            if (io == null) {
+            if (spill == null) {
                 // simple case, we managed to keep everything in memory, sort and return a
                 // reader based on the collection contents
-                Collections.sort(features, comparator);
+                Arrays.parallelSort(features, 0, count, comparator);
 
-                SimpleFeatureIterator fi = new ListFeatureCollection(schema, features).features();
+                List<SimpleFeature> sorted = Arrays.asList(features).subList(0, count);
+                SimpleFeatureIterator fi = new ListFeatureCollection(schema, sorted).features();
                 return new DelegateSimpleFeatureReader(schema, fi);
             } else {
+                if (pending != null) {
+                    runs.add(getRun(pending));
+                    pending = null;
+                }
+                if (count > 0) {
+                    Arrays.parallelSort(features, 0, count, comparator);
+                    runs.add(spill.write(features, count));
+                }
+
                 // go merge-sort
+                int bufferSize = Math.max(1024, Math.min(64 * 1024, MERGE_BUFFERS_SIZE
+                        / runs.size()));
+                List<FeatureSpillFile.RunReader> readers = new ArrayList<FeatureSpillFile.RunReader>();
+                for (FeatureSpillFile.Run run : runs) {
+                    readers.add(spill.open(run, bufferSize));
+                }
+                MergeSortReader merger = new MergeSortReader(schema, spill, readers, comparator);
                 cleanFile = false;
-                return new MergeSortReader(schema, io, readers, comparator);
+                return merger;
             }
 
         } finally {
-            if (cleanFile && io != null) {
-                io.close(true);
-                file.delete();
+            if (pending != null) {
+                // something went wrong, wait for the background write before cleaning up
+                try {
+                    getRun(pending);
+                } catch (Exception e) {
+                    // we are already failing
+                }
+            }
+            if (cleanFile && spill != null) {
+                spill.close();
             }
 
             reader.close();
@@ -170,22 +254,98 @@ class MergeSortDumper {
     }
 
     /**
-     * Writes the feature attributes to a binary file
-     * 
-     * @param features
-     * @return
-     * @throws IOException
+     * Sorts the features and writes them as a new run in the spill file, in a background task
+     */
+    static Future<FeatureSpillFile.Run> sortAndStore(final FeatureSpillFile spill,
+            final SimpleFeature[] features, final int count,
+            final Comparator<SimpleFeature> comparator) {
+        return ForkJoinPool.commonPool().submit(new Callable<FeatureSpillFile.Run>() {
+
+            @Override
+            public FeatureSpillFile.Run call() throws Exception {
+                Arrays.parallelSort(features, 0, count, comparator);
+                return spill.write(features, count);
+            }
+        });
+    }
+
+    static FeatureSpillFile.Run getRun(Future<FeatureSpillFile.Run> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sorting features", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to sort features", cause);
+        }
+    }
+
+    /**
+     * Returns the first features in sort order, using a bounded heap. Features comparing as
+     * equal keep their original order, like with a full (stable) sort.
      */
-    static FeatureBlockReader storeToFile(SimpleFeatureIO io, List<SimpleFeature> features)
+    static SimpleFeatureReader getTopReader(SimpleFeatureReader reader,
+            SimpleFeatureType schema, Comparator<SimpleFeature> comparator, int limit)
             throws IOException {
-        long start = io.getOffset();
+        final Comparator<RankedFeature> ranked = new RankedComparator(comparator);
+        List<SimpleFeature> sorted = new ArrayList<SimpleFeature>(limit);
+        if (limit > 0) {
+            // the heap head is the greatest feature, the first to be evicted
+            PriorityQueue<RankedFeature> heap = new PriorityQueue<RankedFeature>(limit,
+                    Collections.reverseOrder(ranked));
+            long rank = 0;
+            while (reader.hasNext()) {
+                SimpleFeature f = reader.next();
+                if (heap.size() < limit) {
+                    heap.add(new RankedFeature(f, rank));
+                } else if (comparator.compare(f, heap.peek().feature) < 0) {
+                    heap.poll();
+                    heap.add(new RankedFeature(f, rank));
+                }
+                rank++;
+            }
+            RankedFeature[] top = heap.toArray(new RankedFeature[heap.size()]);
+            Arrays.sort(top, ranked);
+            for (RankedFeature rf : top) {
+                sorted.add(rf.feature);
+            }
+        }
+        SimpleFeatureIterator fi = new ListFeatureCollection(schema, sorted).features();
+        return new DelegateSimpleFeatureReader(schema, fi);
+    }
+
+    static class RankedFeature {
+        final SimpleFeature feature;
 
-        // write each attribute in the random access file
-        for (SimpleFeature sf : features) {
-            io.write(sf);
+        final long rank;
+
+        RankedFeature(SimpleFeature feature, long rank) {
+            this.feature = feature;
+            this.rank = rank;
         }
+    }
 
-        return new FeatureBlockReader(io, start, features.size());
+    static class RankedComparator implements Comparator<RankedFeature> {
+        final Comparator<SimpleFeature> comparator;
+
+        RankedComparator(Comparator<SimpleFeature> comparator) {
+            this.comparator = comparator;
+        }
+
+        @Override
+        public int compare(RankedFeature o1, RankedFeature o2) {
+            int result = comparator.compare(o1.feature, o2.feature);
+            if (result == 0) {
+                result = Long.compare(o1.rank, o2.rank);
+            }
+            return result;
+        }
     }
 
 }
@@ -17,38 +17,58 @@
 package org.geotools.data.sort;
 
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import org.geotools.data.simple.SimpleFeatureReader;
+import org.geotools.data.sort.FeatureSpillFile.RunReader;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 
 /**
- * Reads from a list of {@link FeatureBlockReader} backed by a {@link RandomAccessFile} and performs
- * the classic merge-sort algorithm
+ * Reads from a list of sorted runs stored in a {@link FeatureSpillFile} and performs a k-way
+ * merge of them, keeping the runs in a heap ordered by their current feature. Features comparing
+ * as equal are returned in the order of their runs, so the sort stays stable.
  * 
  * @author Andrea Aime - GeoSolutions
  * 
  */
 class MergeSortReader implements SimpleFeatureReader {
 
-    List<FeatureBlockReader> readers;
+    PriorityQueue<RunReader> queue;
 
-    SimpleFeatureIO io;
+    List<RunReader> readers;
 
-    SimpleFeatureType schema;
+    FeatureSpillFile spill;
 
-    Comparator<SimpleFeature> comparator;
+    SimpleFeatureType schema;
 
-    public MergeSortReader(SimpleFeatureType schema, SimpleFeatureIO io,
-            List<FeatureBlockReader> readers, Comparator<SimpleFeature> comparator) {
+    public MergeSortReader(SimpleFeatureType schema, FeatureSpillFile spill,
+            final List<RunReader> readers, final Comparator<SimpleFeature> comparator)
+            throws IOException {
         this.schema = schema;
-        this.comparator = comparator;
+        this.spill = spill;
         this.readers = readers;
-        this.io = io;
+        this.queue = new PriorityQueue<RunReader>(Math.max(1, readers.size()),
+                new Comparator<RunReader>() {
+
+                    @Override
+                    public int compare(RunReader r1, RunReader r2) {
+                        int result = comparator.compare(r1.current, r2.current);
+                        if (result == 0) {
+                            // the runs are numbered in the order of the original data
+                            result = r1.index - r2.index;
+                        }
+                        return result;
+                    }
+                });
+        for (RunReader reader : readers) {
+            if (reader.next() != null) {
+                queue.add(reader);
+            }
+        }
     }
 
     public SimpleFeatureType getFeatureType() {
@@ -57,25 +77,17 @@ class MergeSortReader implements SimpleFeatureReader {
 
     public SimpleFeature next() throws IOException, IllegalArgumentException,
             NoSuchElementException {
-        if (readers.size() == 0) {
+        RunReader reader = queue.poll();
+        if (reader == null) {
             throw new NoSuchElementException();
         }
 
-        // find the smallest feature
-        int selected = 0;
-        for (int i = 1; i < readers.size(); i++) {
-            SimpleFeature sf = readers.get(selected).feature();
-            SimpleFeature cf = readers.get(i).feature();
-            if (comparator.compare(sf, cf) > 0) {
-                selected = i;
-            }
-        }
-
         // move on the reader of the selected feature
-        FeatureBlockReader reader = readers.get(selected);
-        SimpleFeature sf = reader.feature();
-        if (reader.next() == null) {
-            readers.remove(selected);
+        SimpleFeature sf = reader.current;
+        if (reader.next() != null) {
+            queue.add(reader);
+        } else {
+            reader.close();
         }
 
         // return the selected feature
@@ -83,11 +95,15 @@ class MergeSortReader implements SimpleFeatureReader {
     }
 
     public boolean hasNext() throws IOException {
-        return readers.size() > 0;
+        return !queue.isEmpty();
     }
 
     public void close() throws IOException {
-        io.close(true);
+        queue.clear();
+        for (RunReader reader : readers) {
+            reader.close();
+        }
+        spill.close();
     }
 
 }
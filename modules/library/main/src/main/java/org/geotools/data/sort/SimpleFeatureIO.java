@@ -18,6 +18,8 @@ package org.geotools.data.sort;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -78,9 +80,25 @@ public class SimpleFeatureIO {
     }
 
     void writeAttribute(AttributeDescriptor ad, Object value) throws IOException {
+        writeAttribute(raf, ad, value, null);
+    }
+
+    /**
+     * Writes an attribute value. The same encoding is used for the sorted runs of
+     * {@link FeatureSpillFile}, and can be used by other code needing a compact binary encoding
+     * of feature attributes
+     * 
+     * @param out The output
+     * @param ad The attribute descriptor
+     * @param value The value
+     * @param wkbWriter A WKB writer to be reused, or null to create one on demand
+     * @throws IOException
+     */
+    public static void writeAttribute(DataOutput out, AttributeDescriptor ad, Object value,
+            WKBWriter wkbWriter) throws IOException {
         if (value == null) {
             // null marker
-            raf.writeBoolean(true);
+            out.writeBoolean(true);
         } else {
             // not null, write the contents. This one requires some explanation. We are not
             // writing any type metadata in the stream for the types we can optimize (primitives,
@@ -89,33 +107,33 @@ public class SimpleFeatureIO {
             // actually the one we can optimize for, and not some subclass. Thus, we are authorized
             // to use identity comparison instead of isAssignableFrom or equality, when we read back
             // it must be as if we did not serialize stuff at all
-            raf.writeBoolean(false);
+            out.writeBoolean(false);
             Class<?> binding = ad.getType().getBinding();
             if (binding == Boolean.class) {
-                raf.writeBoolean((Boolean) value);
+                out.writeBoolean((Boolean) value);
             } else if (binding == Byte.class || binding == byte.class) {
-                raf.writeByte((Byte) value);
+                out.writeByte((Byte) value);
             } else if (binding == Short.class || binding == short.class) {
-                raf.writeShort((Short) value);
+                out.writeShort((Short) value);
             } else if (binding == Integer.class || binding == int.class) {
-                raf.writeInt((Integer) value);
+                out.writeInt((Integer) value);
             } else if (binding == Long.class || binding == long.class) {
-                raf.writeLong((Long) value);
+                out.writeLong((Long) value);
             } else if (binding == Float.class || binding == float.class) {
-                raf.writeFloat((Float) value);
+                out.writeFloat((Float) value);
             } else if (binding == Double.class || binding == double.class) {
-                raf.writeDouble((Double) value);
+                out.writeDouble((Double) value);
             } else if (binding == String.class) {
-                raf.writeUTF((String) value);
+                out.writeUTF((String) value);
             } else if (binding == java.sql.Date.class || binding == java.sql.Time.class
                     || binding == java.sql.Timestamp.class || binding == java.util.Date.class) {
-                raf.writeLong(((Date) value).getTime());
+                out.writeLong(((Date) value).getTime());
             } else if (Geometry.class.isAssignableFrom(binding)) {
-                WKBWriter writer = new WKBWriter();
+                WKBWriter writer = wkbWriter != null ? wkbWriter : new WKBWriter();
                 byte[] buffer = writer.write((Geometry) value);
                 int length = buffer.length;
-                raf.writeInt(length);
-                raf.write(buffer);
+                out.writeInt(length);
+                out.write(buffer);
             } else {
                 // can't optimize, in this case we use an ObjectOutputStream to write out
                 // full metadata
@@ -124,8 +142,8 @@ public class SimpleFeatureIO {
                 oos.writeObject(value);
                 oos.flush();
                 byte[] bytes = bos.toByteArray();
-                raf.writeInt(bytes.length);
-                raf.write(bytes);
+                out.writeInt(bytes.length);
+                out.write(bytes);
             }
         }
     }
@@ -157,51 +175,66 @@ public class SimpleFeatureIO {
      * @throws IOException
      */
     Object readAttribute(AttributeDescriptor ad) throws IOException {
+        return readAttribute(raf, ad, null);
+    }
+
+    /**
+     * Reads back an attribute value written by
+     * {@link #writeAttribute(DataOutput, AttributeDescriptor, Object, WKBWriter)}
+     * 
+     * @param in The input
+     * @param ad The attribute descriptor
+     * @param wkbReader A WKB reader to be reused, or null to create one on demand
+     * @return
+     * @throws IOException
+     */
+    public static Object readAttribute(DataInput in, AttributeDescriptor ad, WKBReader wkbReader)
+            throws IOException {
         // See the comments in {@link MergeSortDumper#writeAttribute(RandomAccessFile,
         // AttributeDescriptor, Object)} to get an insight on why the method is built like this
-        boolean isNull = raf.readBoolean();
+        boolean isNull = in.readBoolean();
         if (isNull) {
             return null;
         } else {
             Class<?> binding = ad.getType().getBinding();
             if (binding == Boolean.class) {
-                return raf.readBoolean();
+                return in.readBoolean();
             } else if (binding == Byte.class || binding == byte.class) {
-                return raf.readByte();
+                return in.readByte();
             } else if (binding == Short.class || binding == short.class) {
-                return raf.readShort();
+                return in.readShort();
             } else if (binding == Integer.class || binding == int.class) {
-                return raf.readInt();
+                return in.readInt();
             } else if (binding == Long.class || binding == long.class) {
-                return raf.readLong();
+                return in.readLong();
             } else if (binding == Float.class || binding == float.class) {
-                return raf.readFloat();
+                return in.readFloat();
             } else if (binding == Double.class || binding == double.class) {
-                return raf.readDouble();
+                return in.readDouble();
             } else if (binding == String.class) {
-                return raf.readUTF();
+                return in.readUTF();
             } else if (binding == java.sql.Date.class) {
-                return new java.sql.Date(raf.readLong());
+                return new java.sql.Date(in.readLong());
             } else if (binding == java.sql.Time.class) {
-                return new java.sql.Time(raf.readLong());
+                return new java.sql.Time(in.readLong());
             } else if (binding == java.sql.Timestamp.class) {
-                return new java.sql.Timestamp(raf.readLong());
+                return new java.sql.Timestamp(in.readLong());
             } else if (binding == java.util.Date.class) {
-                return new java.util.Date(raf.readLong());
+                return new java.util.Date(in.readLong());
             } else if (Geometry.class.isAssignableFrom(binding)) {
-                WKBReader reader = new WKBReader();
-                int length = raf.readInt();
+                WKBReader reader = wkbReader != null ? wkbReader : new WKBReader();
+                int length = in.readInt();
                 byte[] buffer = new byte[length];
-                raf.read(buffer);
+                in.readFully(buffer);
                 try {
                     return reader.read(buffer);
                 } catch (ParseException e) {
                     throw new IOException("Failed to parse the geometry WKB", e);
                 }
             } else {
-                int length = raf.readInt();
+                int length = in.readInt();
                 byte[] buffer = new byte[length];
-                raf.read(buffer);
+                in.readFully(buffer);
                 ByteArrayInputStream bis = new ByteArrayInputStream(buffer);
                 ObjectInputStream ois = new ObjectInputStream(bis);
                 try {
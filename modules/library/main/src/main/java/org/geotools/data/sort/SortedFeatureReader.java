@@ -69,7 +69,9 @@ public class SortedFeatureReader implements SimpleFeatureReader {
      * 
      * @param reader The reader to be sorted
      * @param query The query holding the SortBy directives, and the eventual max features in memory
-     *        hint {@link Hints#MAX_MEMORY_SORT}
+     *        hint {@link Hints#MAX_MEMORY_SORT}. If the query has a max features limit, only the
+     *        first start index + max features sorted features are returned, and if they fit in
+     *        memory they are selected without sorting the whole reader contents
      */
     public SortedFeatureReader(SimpleFeatureReader reader, Query query) throws IOException {
         this.delegate = MergeSortDumper.getDelegateReader(reader, query);
@@ -28,7 +28,7 @@ import org.geotools.data.collection.DelegateFeatureReader;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.collection.DecoratingFeatureCollection;
-import org.geotools.filter.visitor.BindingFilterVisitor;
+import org.geotools.filter.visitor.CompilingFilterVisitor;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.opengis.feature.Feature;
 import org.opengis.feature.type.FeatureType;
@@ -59,7 +59,7 @@ public class FilteringFeatureCollection<T extends FeatureType, F extends Feature
 	public FilteringFeatureCollection( FeatureCollection<T, F> delegate, Filter filter ) {
 		super(delegate);
 		this.delegate = delegate;
-        this.filter = (Filter) filter.accept(new BindingFilterVisitor(delegate.getSchema()), null);
+        this.filter = CompilingFilterVisitor.compile(filter, delegate.getSchema());
 	}
 	
 	public FeatureCollection<T, F> subCollection(Filter filter) {
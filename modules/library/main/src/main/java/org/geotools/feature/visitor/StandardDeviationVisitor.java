@@ -67,6 +67,10 @@ public class StandardDeviationVisitor implements FeatureCalc, FeatureAttributeVi
     int count = 0;
     double mean = 0;
     double m2 = 0;
+    /**
+     * The deviation computed by an optimization, e.g., by a database, takes priority
+     */
+    Double deviation = null;
 
     /**
      * Constructor left for backwards compatibility. The current algorithm uses
@@ -100,6 +104,9 @@ public class StandardDeviationVisitor implements FeatureCalc, FeatureAttributeVi
     }
 
     public CalcResult getResult() {
+        if (deviation != null) {
+            return new Result(deviation);
+        }
         if (count == 0) {
             return CalcResult.NULL_RESULT;
         }
@@ -138,8 +145,19 @@ public class StandardDeviationVisitor implements FeatureCalc, FeatureAttributeVi
 	    this.countNaN = 0;
 	    this.m2 = 0;
 	    this.mean = 0;
+	    this.deviation = null;
 	}
 
+    /**
+     * Sets the standard deviation computed by an optimization, instead of visiting the features
+     * 
+     * @param value The deviation, a number
+     */
+    public void setValue(Object value) {
+        reset();
+        this.deviation = ((Number) value).doubleValue();
+    }
+
     /** mean value generated when calcualting standard deviation */
     public double getMean() {
         return mean;
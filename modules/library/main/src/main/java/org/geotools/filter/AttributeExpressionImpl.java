@@ -254,14 +254,16 @@ public class AttributeExpressionImpl extends DefaultExpression implements Proper
 
     }
 
-    // accessor caching, scanning the registry every time is really very expensive
-    private PropertyAccessor lastAccessor;
+    // accessor caching, scanning the registry every time is really very expensive.
+    // Volatile rather than synchronized, the same expression is evaluated by many threads
+    // at the same time, and swapping the reference is atomic anyways
+    private volatile PropertyAccessor lastAccessor;
 
-    private synchronized PropertyAccessor getLastPropertyAccessor() {
+    private PropertyAccessor getLastPropertyAccessor() {
         return lastAccessor;
     }
 
-    private synchronized void setLastPropertyAccessor(PropertyAccessor accessor) {
+    private void setLastPropertyAccessor(PropertyAccessor accessor) {
         lastAccessor = accessor;
     }
    
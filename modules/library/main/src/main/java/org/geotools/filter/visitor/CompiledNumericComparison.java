@@ -0,0 +1,266 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.visitor;
+
+import org.geotools.filter.FilterAbstract;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.FilterVisitor;
+import org.opengis.filter.MultiValuedFilter.MatchAction;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.expression.Expression;
+
+/**
+ * Compares a numeric attribute with a numeric literal of the same class, working on primitives.
+ * <p>
+ * The results are the same as the generic comparison filters: ordering is done on doubles, and
+ * equality follows the same rules as {@link org.geotools.filter.IsEqualsToImpl}. Values of a
+ * different class than the literal are handed over to the original filter.
+ *
+ * @since 20.0
+ */
+abstract class CompiledNumericComparison extends FilterAbstract implements
+        BinaryComparisonOperator {
+
+    final BinaryComparisonOperator original;
+
+    final IndexedPropertyName property;
+
+    /**
+     * True if the property is the first expression, false if the literal is
+     */
+    final boolean propertyFirst;
+
+    final Class<?> literalClass;
+
+    final double literalDouble;
+
+    final long literalLong;
+
+    /**
+     * True if the literal is an integral value, and can be compared as a long
+     */
+    final boolean literalIsLong;
+
+    CompiledNumericComparison(BinaryComparisonOperator original, IndexedPropertyName property,
+            boolean propertyFirst, Number literal) {
+        this.original = original;
+        this.property = property;
+        this.propertyFirst = propertyFirst;
+        this.literalClass = literal.getClass();
+        this.literalDouble = literal.doubleValue();
+        this.literalLong = literal.longValue();
+        this.literalIsLong = literalDouble == (double) literalLong;
+    }
+
+    @Override
+    public boolean evaluate(Object object) {
+        Object value = property.evaluate(object);
+        if (value == null) {
+            return matchesNull();
+        }
+        if (value.getClass() != literalClass) {
+            return original.evaluate(object);
+        }
+        return matches((Number) value);
+    }
+
+    /**
+     * The result of the comparison when the attribute is null
+     */
+    boolean matchesNull() {
+        return false;
+    }
+
+    /**
+     * The result of the comparison with a value of the same class as the literal
+     */
+    abstract boolean matches(Number value);
+
+    /**
+     * Orders the property value against the literal, following the expression order, the same
+     * way as {@link org.geotools.filter.CompareFilterImpl} does with two numbers
+     */
+    final int compare(Number value) {
+        double left, right;
+        if (propertyFirst) {
+            left = value.doubleValue();
+            right = literalDouble;
+        } else {
+            left = literalDouble;
+            right = value.doubleValue();
+        }
+        return left > right ? 1 : (left == right ? 0 : -1);
+    }
+
+    /**
+     * Checks the property value is equal to the literal, the same way as
+     * {@link org.geotools.filter.IsEqualsToImpl} does with two numbers
+     */
+    final boolean isEqual(Number value) {
+        double fp = value.doubleValue();
+        long lg = value.longValue();
+        if (literalIsLong && fp == (double) lg) {
+            return lg == literalLong;
+        }
+        return fp == literalDouble || (Double.isNaN(fp) && Double.isNaN(literalDouble));
+    }
+
+    @Override
+    public Expression getExpression1() {
+        return original.getExpression1();
+    }
+
+    @Override
+    public Expression getExpression2() {
+        return original.getExpression2();
+    }
+
+    @Override
+    public boolean isMatchingCase() {
+        return original.isMatchingCase();
+    }
+
+    @Override
+    public MatchAction getMatchAction() {
+        return original.getMatchAction();
+    }
+
+    @Override
+    public String toString() {
+        return original.toString();
+    }
+
+    static class EqualTo extends CompiledNumericComparison implements PropertyIsEqualTo {
+
+        EqualTo(PropertyIsEqualTo original, IndexedPropertyName property, boolean propertyFirst,
+                Number literal) {
+            super(original, property, propertyFirst, literal);
+        }
+
+        @Override
+        boolean matches(Number value) {
+            return isEqual(value);
+        }
+
+        @Override
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return visitor.visit(this, extraData);
+        }
+    }
+
+    static class NotEqualTo extends CompiledNumericComparison implements PropertyIsNotEqualTo {
+
+        NotEqualTo(PropertyIsNotEqualTo original, IndexedPropertyName property,
+                boolean propertyFirst, Number literal) {
+            super(original, property, propertyFirst, literal);
+        }
+
+        @Override
+        boolean matchesNull() {
+            return true;
+        }
+
+        @Override
+        boolean matches(Number value) {
+            return !isEqual(value);
+        }
+
+        @Override
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return visitor.visit(this, extraData);
+        }
+    }
+
+    static class GreaterThan extends CompiledNumericComparison implements PropertyIsGreaterThan {
+
+        GreaterThan(PropertyIsGreaterThan original, IndexedPropertyName property,
+                boolean propertyFirst, Number literal) {
+            super(original, property, propertyFirst, literal);
+        }
+
+        @Override
+        boolean matches(Number value) {
+            return compare(value) > 0;
+        }
+
+        @Override
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return visitor.visit(this, extraData);
+        }
+    }
+
+    static class GreaterThanOrEqualTo extends CompiledNumericComparison implements
+            PropertyIsGreaterThanOrEqualTo {
+
+        GreaterThanOrEqualTo(PropertyIsGreaterThanOrEqualTo original,
+                IndexedPropertyName property, boolean propertyFirst, Number literal) {
+            super(original, property, propertyFirst, literal);
+        }
+
+        @Override
+        boolean matches(Number value) {
+            return compare(value) >= 0;
+        }
+
+        @Override
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return visitor.visit(this, extraData);
+        }
+    }
+
+    static class LessThan extends CompiledNumericComparison implements PropertyIsLessThan {
+
+        LessThan(PropertyIsLessThan original, IndexedPropertyName property,
+                boolean propertyFirst, Number literal) {
+            super(original, property, propertyFirst, literal);
+        }
+
+        @Override
+        boolean matches(Number value) {
+            return compare(value) < 0;
+        }
+
+        @Override
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return visitor.visit(this, extraData);
+        }
+    }
+
+    static class LessThanOrEqualTo extends CompiledNumericComparison implements
+            PropertyIsLessThanOrEqualTo {
+
+        LessThanOrEqualTo(PropertyIsLessThanOrEqualTo original, IndexedPropertyName property,
+                boolean propertyFirst, Number literal) {
+            super(original, property, propertyFirst, literal);
+        }
+
+        @Override
+        boolean matches(Number value) {
+            return compare(value) <= 0;
+        }
+
+        @Override
+        public Object accept(FilterVisitor visitor, Object extraData) {
+            return visitor.visit(this, extraData);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.visitor;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.FeatureType;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.Filter;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsGreaterThan;
+import org.opengis.filter.PropertyIsGreaterThanOrEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.PropertyIsLessThanOrEqualTo;
+import org.opengis.filter.PropertyIsNotEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Compiles a filter against a known {@link SimpleFeatureType}, for fast in memory evaluation
+ * against its features. On top of binding the literals to the type of the attributes they are
+ * compared to (see {@link BindingFilterVisitor}):
+ * <ul>
+ * <li>property names matching an attribute read it by index, without looking up property
+ * accessors</li>
+ * <li>comparisons between a numeric attribute and a literal are evaluated on primitives</li>
+ * </ul>
+ * The compiled filter evaluates exactly as the original one, and still works against features
+ * of other types, at the original speed. It is meant for evaluation only: encoders and
+ * splitters should be given the original filter.
+ *
+ * @since 20.0
+ */
+public class CompilingFilterVisitor extends BindingFilterVisitor {
+
+    static final Set<Class<?>> NUMERIC_CLASSES = new HashSet<Class<?>>(Arrays.<Class<?>> asList(
+            Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class));
+
+    SimpleFeatureType featureType;
+
+    public CompilingFilterVisitor(SimpleFeatureType schema) {
+        super(schema);
+        this.featureType = schema;
+    }
+
+    /**
+     * Compiles the filter if the schema is a {@link SimpleFeatureType}, or just binds its
+     * literals otherwise
+     */
+    public static Filter compile(Filter filter, FeatureType schema) {
+        if (filter == null || filter == Filter.INCLUDE || filter == Filter.EXCLUDE) {
+            return filter;
+        }
+        if (schema instanceof SimpleFeatureType) {
+            return (Filter) filter.accept(new CompilingFilterVisitor((SimpleFeatureType) schema),
+                    null);
+        }
+        return (Filter) filter.accept(new BindingFilterVisitor(schema), null);
+    }
+
+    @Override
+    public Object visit(PropertyName expression, Object extraData) {
+        String name = expression.getPropertyName();
+        if (name != null && !(expression instanceof IndexedPropertyName)) {
+            int index = featureType.indexOf(name);
+            if (index >= 0) {
+                return new IndexedPropertyName(expression, featureType, index);
+            }
+        }
+        return super.visit(expression, extraData);
+    }
+
+    @Override
+    public Object visit(PropertyIsEqualTo filter, Object extraData) {
+        return compile((BinaryComparisonOperator) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsNotEqualTo filter, Object extraData) {
+        return compile((BinaryComparisonOperator) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThan filter, Object extraData) {
+        return compile((BinaryComparisonOperator) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsGreaterThanOrEqualTo filter, Object extraData) {
+        return compile((BinaryComparisonOperator) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThan filter, Object extraData) {
+        return compile((BinaryComparisonOperator) super.visit(filter, extraData));
+    }
+
+    @Override
+    public Object visit(PropertyIsLessThanOrEqualTo filter, Object extraData) {
+        return compile((BinaryComparisonOperator) super.visit(filter, extraData));
+    }
+
+    /**
+     * Turns a bound comparison between an attribute and a numeric literal into a primitive one,
+     * returns the filter as is otherwise
+     */
+    Filter compile(BinaryComparisonOperator filter) {
+        Expression ex1 = filter.getExpression1();
+        Expression ex2 = filter.getExpression2();
+        IndexedPropertyName property;
+        Object value;
+        boolean propertyFirst;
+        if (ex1 instanceof IndexedPropertyName && ex2 instanceof Literal) {
+            property = (IndexedPropertyName) ex1;
+            value = ((Literal) ex2).getValue();
+            propertyFirst = true;
+        } else if (ex2 instanceof IndexedPropertyName && ex1 instanceof Literal) {
+            property = (IndexedPropertyName) ex2;
+            value = ((Literal) ex1).getValue();
+            propertyFirst = false;
+        } else {
+            return filter;
+        }
+        if (value == null || !NUMERIC_CLASSES.contains(value.getClass())) {
+            return filter;
+        }
+
+        Number literal = (Number) value;
+        if (filter instanceof PropertyIsEqualTo) {
+            return new CompiledNumericComparison.EqualTo((PropertyIsEqualTo) filter, property,
+                    propertyFirst, literal);
+        } else if (filter instanceof PropertyIsNotEqualTo) {
+            return new CompiledNumericComparison.NotEqualTo((PropertyIsNotEqualTo) filter,
+                    property, propertyFirst, literal);
+        } else if (filter instanceof PropertyIsGreaterThan) {
+            return new CompiledNumericComparison.GreaterThan((PropertyIsGreaterThan) filter,
+                    property, propertyFirst, literal);
+        } else if (filter instanceof PropertyIsGreaterThanOrEqualTo) {
+            return new CompiledNumericComparison.GreaterThanOrEqualTo(
+                    (PropertyIsGreaterThanOrEqualTo) filter, property, propertyFirst, literal);
+        } else if (filter instanceof PropertyIsLessThan) {
+            return new CompiledNumericComparison.LessThan((PropertyIsLessThan) filter, property,
+                    propertyFirst, literal);
+        } else if (filter instanceof PropertyIsLessThanOrEqualTo) {
+            return new CompiledNumericComparison.LessThanOrEqualTo(
+                    (PropertyIsLessThanOrEqualTo) filter, property, propertyFirst, literal);
+        }
+        return filter;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.visitor;
+
+import org.geotools.filter.AttributeExpressionImpl;
+import org.geotools.util.Converters;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * A property name reading the attribute of a {@link SimpleFeature} by index, skipping the
+ * property accessor lookup. The index is resolved once per feature type, and remembered for
+ * the last type seen, so that features retyped on the way (e.g., a query selecting a subset of
+ * the attributes) are still handled at full speed. Anything that is not a {@link SimpleFeature}
+ * having the attribute is evaluated as a normal property name.
+ *
+ * @since 20.0
+ */
+class IndexedPropertyName extends AttributeExpressionImpl {
+
+    /**
+     * A feature type, and the index of the attribute in it
+     */
+    static final class TypeIndex {
+        final SimpleFeatureType type;
+
+        final int index;
+
+        TypeIndex(SimpleFeatureType type, int index) {
+            this.type = type;
+            this.index = index;
+        }
+    }
+
+    volatile TypeIndex last;
+
+    IndexedPropertyName(PropertyName property, SimpleFeatureType schema, int index) {
+        super(property.getPropertyName(), property.getNamespaceContext());
+        this.last = new TypeIndex(schema, index);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T evaluate(Object obj, Class<T> target) {
+        if (obj instanceof SimpleFeature) {
+            SimpleFeature feature = (SimpleFeature) obj;
+            int index = getIndex(feature.getFeatureType());
+            if (index >= 0) {
+                Object value = feature.getAttribute(index);
+                if (target == null || value == null || target.isInstance(value)) {
+                    return (T) value;
+                }
+                return Converters.convert(value, target);
+            }
+        }
+        return super.evaluate(obj, target);
+    }
+
+    /**
+     * Returns the index of the attribute in the given type, or -1 if not found
+     */
+    int getIndex(SimpleFeatureType type) {
+        TypeIndex current = last;
+        if (current.type == type) {
+            return current.index;
+        }
+        int index = type.indexOf(attPath);
+        if (index >= 0) {
+            last = new TypeIndex(type, index);
+        }
+        return index;
+    }
+}
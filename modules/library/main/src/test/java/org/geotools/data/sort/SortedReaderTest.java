@@ -1,12 +1,17 @@
 package org.geotools.data.sort;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.NoSuchElementException;
 
+import org.geotools.data.Query;
 import org.geotools.data.simple.DelegateSimpleFeatureReader;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureReader;
@@ -238,6 +243,101 @@ public class SortedReaderTest {
         }
     }
 
+    @Test
+    public void testTopN() throws IOException {
+        Query q = new Query("test");
+        q.setSortBy(peopleDesc);
+        q.setStartIndex(5);
+        q.setMaxFeatures(10);
+        SimpleFeatureReader sr = new SortedFeatureReader(fr, q);
+        try {
+            // the reader returns the offset features too, they are skipped later
+            for (int i = 0; i < 15; i++) {
+                assertTrue(sr.hasNext());
+                assertEquals(Integer.valueOf(499 - i), sr.next().getAttribute("PERSONS"));
+            }
+            assertFalse(sr.hasNext());
+        } finally {
+            sr.close();
+        }
+    }
+
+    @Test
+    public void testTopNStable() throws IOException {
+        Query q = new Query("test");
+        q.setSortBy(new SortBy[] { ff.sort("byte", SortOrder.ASCENDING) });
+        q.setMaxFeatures(20);
+        assertStableOnByte(new SortedFeatureReader(fr, q), 20);
+    }
+
+    @Test
+    public void testFileSortStable() throws IOException {
+        SortBy[] byteAsc = new SortBy[] { ff.sort("byte", SortOrder.ASCENDING) };
+        assertStableOnByte(new SortedFeatureReader(fr, byteAsc, 7), 501);
+    }
+
+    @Test
+    public void testCompressedSpill() throws IOException {
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        SimpleFeatureIterator it = fc.features();
+        try {
+            while (it.hasNext()) {
+                features.add(it.next());
+            }
+        } finally {
+            it.close();
+        }
+        FeatureSpillFile spill = new FeatureSpillFile(schema, true);
+        try {
+            SimpleFeature[] array = features.toArray(new SimpleFeature[features.size()]);
+            FeatureSpillFile.Run first = spill.write(array, 10);
+            FeatureSpillFile.Run second = spill.write(array, array.length);
+            assertEquals(1, second.index);
+            // read them interleaved, like the merge would do
+            FeatureSpillFile.RunReader r1 = spill.open(first, 1024);
+            FeatureSpillFile.RunReader r2 = spill.open(second, 1024);
+            for (int i = 0; i < array.length; i++) {
+                if (i < 10) {
+                    assertEquals(array[i], r1.next());
+                }
+                assertEquals(array[i], r2.next());
+            }
+            assertNull(r1.next());
+            assertNull(r2.next());
+            r1.close();
+            r2.close();
+        } finally {
+            spill.close();
+        }
+        assertFalse(spill.file.exists());
+    }
+
+    private void assertStableOnByte(SimpleFeatureReader sr, int expected) throws IOException {
+        try {
+            int count = 0;
+            Byte prev = null;
+            int prevId = -1;
+            while (sr.hasNext()) {
+                SimpleFeature f = sr.next();
+                Byte curr = (Byte) f.getAttribute("byte");
+                int id = Integer.parseInt(f.getID());
+                if (count > 0 && curr != null && prev != null) {
+                    assertTrue(curr >= prev);
+                    if (curr.equals(prev)) {
+                        // ties keep the original order
+                        assertTrue(id > prevId);
+                    }
+                }
+                prev = curr;
+                prevId = id;
+                count++;
+            }
+            assertEquals(expected, count);
+        } finally {
+            sr.close();
+        }
+    }
+
     private void assertSortedOnPeopleAsc(SimpleFeatureReader fr) throws IllegalArgumentException,
             NoSuchElementException, IOException {
         double prev = -1;
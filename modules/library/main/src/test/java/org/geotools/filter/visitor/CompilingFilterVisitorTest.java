@@ -0,0 +1,166 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.filter.visitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.util.Converters;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.PropertyIsLessThan;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+
+public class CompilingFilterVisitorTest {
+
+    FilterFactory ff = CommonFactoryFinder.getFilterFactory();
+
+    SimpleFeatureType ft;
+
+    List<SimpleFeature> features;
+
+    @Before
+    public void setup() throws Exception {
+        ft = DataUtilities.createType("test",
+                "theGeom:Point,i:java.lang.Integer,l:java.lang.Long,d:java.lang.Double,label:String");
+        features = new ArrayList<SimpleFeature>();
+        Object[][] values = { { 10, 10l, 10d, "ten" }, { -3, -3l, -3.5, "minus three" },
+                { 0, 0l, -0d, "zero" }, { null, null, null, null },
+                { 20, Long.MAX_VALUE, Double.NaN, "Ten" },
+                { Integer.MIN_VALUE, Long.MIN_VALUE, Double.POSITIVE_INFINITY, "" } };
+        for (int i = 0; i < values.length; i++) {
+            SimpleFeatureBuilder fb = new SimpleFeatureBuilder(ft);
+            fb.set("i", values[i][0]);
+            fb.set("l", values[i][1]);
+            fb.set("d", values[i][2]);
+            fb.set("label", values[i][3]);
+            features.add(fb.buildFeature("test." + i));
+        }
+    }
+
+    /**
+     * Checks the compiled filter returns the same results as the bound one on all features
+     */
+    void assertSameResults(Filter original, Filter compiled) {
+        Filter bound = (Filter) original.accept(new BindingFilterVisitor(ft), null);
+        for (SimpleFeature feature : features) {
+            assertEquals(original + " on " + feature, bound.evaluate(feature),
+                    compiled.evaluate(feature));
+        }
+    }
+
+    @Test
+    public void testPropertyName() {
+        Expression compiled = (Expression) ff.property("d").accept(
+                new CompilingFilterVisitor(ft), null);
+        assertTrue(compiled instanceof IndexedPropertyName);
+        assertEquals("d", ((IndexedPropertyName) compiled).getPropertyName());
+        for (SimpleFeature feature : features) {
+            assertEquals(feature.getAttribute("d"), compiled.evaluate(feature));
+            assertEquals(Converters.convert(feature.getAttribute("d"), String.class),
+                    compiled.evaluate(feature, String.class));
+        }
+
+        // not an attribute, left alone
+        Expression other = (Expression) ff.property("foo").accept(
+                new CompilingFilterVisitor(ft), null);
+        assertTrue(!(other instanceof IndexedPropertyName));
+    }
+
+    @Test
+    public void testNumericComparisons() {
+        List<Filter> filters = new ArrayList<Filter>();
+        for (String name : new String[] { "i", "l", "d" }) {
+            for (Object value : new Object[] { "10", 10, 0, -3.5, "-0", Long.MAX_VALUE, "abc" }) {
+                Expression p = ff.property(name);
+                Expression v = ff.literal(value);
+                filters.add(ff.equals(p, v));
+                filters.add(ff.equals(v, p));
+                filters.add(ff.notEqual(p, v));
+                filters.add(ff.greater(p, v));
+                filters.add(ff.greater(v, p));
+                filters.add(ff.greaterOrEqual(p, v));
+                filters.add(ff.less(p, v));
+                filters.add(ff.less(v, p));
+                filters.add(ff.lessOrEqual(p, v));
+            }
+        }
+
+        for (Filter filter : filters) {
+            Filter compiled = CompilingFilterVisitor.compile(filter, ft);
+            assertSameResults(filter, compiled);
+        }
+    }
+
+    @Test
+    public void testCompiledStructure() {
+        Filter filter = ff.and(ff.less(ff.property("i"), ff.literal("10")),
+                ff.equal(ff.property("label"), ff.literal("ten"), false));
+        Filter compiled = CompilingFilterVisitor.compile(filter, ft);
+        assertSameResults(filter, compiled);
+
+        // the numeric comparison went primitive, keeping its type and expressions
+        List<Filter> children = ((org.opengis.filter.And) compiled).getChildren();
+        assertTrue(children.get(0) instanceof CompiledNumericComparison);
+        PropertyIsLessThan less = (PropertyIsLessThan) children.get(0);
+        assertEquals("i", ((IndexedPropertyName) less.getExpression1()).getPropertyName());
+        assertEquals(10, ((Literal) less.getExpression2()).getValue());
+
+        // the string one is just bound to the attribute
+        PropertyIsEqualTo equal = (PropertyIsEqualTo) children.get(1);
+        assertTrue(!(equal instanceof CompiledNumericComparison));
+        assertTrue(equal.getExpression1() instanceof IndexedPropertyName);
+    }
+
+    @Test
+    public void testOtherFeatureType() throws Exception {
+        Filter filter = ff.greater(ff.property("d"), ff.literal(5));
+        Filter compiled = CompilingFilterVisitor.compile(filter, ft);
+
+        // same attributes, different order, as in a retyping query
+        SimpleFeatureType retyped = DataUtilities.createType("test", "d:java.lang.Double,i:int");
+        SimpleFeature feature = SimpleFeatureBuilder.build(retyped, new Object[] { 6d, 1 },
+                "test.1");
+        assertTrue(compiled.evaluate(feature));
+        feature = SimpleFeatureBuilder.build(retyped, new Object[] { 4d, 10 }, "test.2");
+        assertEquals(filter.evaluate(feature), compiled.evaluate(feature));
+
+        // the attribute is missing, same as the original
+        SimpleFeatureType missing = DataUtilities.createType("test", "i:int");
+        feature = SimpleFeatureBuilder.build(missing, new Object[] { 10 }, "test.3");
+        assertEquals(filter.evaluate(feature), compiled.evaluate(feature));
+    }
+
+    @Test
+    public void testStaticFilters() {
+        assertSame(Filter.INCLUDE, CompilingFilterVisitor.compile(Filter.INCLUDE, ft));
+        assertSame(Filter.EXCLUDE, CompilingFilterVisitor.compile(Filter.EXCLUDE, ft));
+    }
+}
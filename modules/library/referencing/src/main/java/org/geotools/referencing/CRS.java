@@ -93,6 +93,7 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -185,13 +186,13 @@ public final class CRS {
      * A factory for CRS creation with (<var>latitude</var>, <var>longitude</var>) axis order
      * (unless otherwise specified in system property). Will be created only when first needed.
      */
-    private static CRSAuthorityFactory defaultFactory;
+    private static volatile CRSAuthorityFactory defaultFactory;
 
     /**
      * A factory for CRS creation with (<var>longitude</var>, <var>latitude</var>) axis order.
      * Will be created only when first needed.
      */
-    private static CRSAuthorityFactory xyFactory;
+    private static volatile CRSAuthorityFactory xyFactory;
 
     /**
      * A factory for default (non-lenient) operations.
@@ -252,24 +253,31 @@ public final class CRS {
      *
      * @since 2.3
      */
-    public static synchronized CRSAuthorityFactory getAuthorityFactory(final boolean longitudeFirst)
+    public static CRSAuthorityFactory getAuthorityFactory(final boolean longitudeFirst)
             throws FactoryRegistryException
     {
+        // Invoked on every decode, do not lock once the factory has been created.
         CRSAuthorityFactory factory = (longitudeFirst) ? xyFactory : defaultFactory;
-        if (factory == null) 
-            try {
-                // what matters is the value of the flag when the factories are created,. do updated
-                updateForcedLonLat();
-                factory = new DefaultAuthorityFactory(longitudeFirst);
-                if (longitudeFirst) {
-                    xyFactory = factory;
-                } else {
-                    defaultFactory = factory;
+        if (factory != null) {
+            return factory;
+        }
+        synchronized (CRS.class) {
+            factory = (longitudeFirst) ? xyFactory : defaultFactory;
+            if (factory == null) 
+                try {
+                    // what matters is the value of the flag when the factories are created,. do updated
+                    updateForcedLonLat();
+                    factory = new DefaultAuthorityFactory(longitudeFirst);
+                    if (longitudeFirst) {
+                        xyFactory = factory;
+                    } else {
+                        defaultFactory = factory;
+                    }
+                } catch (NoSuchElementException exception) {
+                    // No factory registered in FactoryFinder.
+                    throw new FactoryNotFoundException(null, exception);
                 }
-            } catch (NoSuchElementException exception) {
-                // No factory registered in FactoryFinder.
-                throw new FactoryNotFoundException(null, exception);
-            }
+        }
         return factory;
     }
     
@@ -525,6 +533,31 @@ public final class CRS {
         return getAuthorityFactory(longitudeFirst).createCoordinateReferenceSystem(code);
     }
 
+    /**
+     * Decodes in advance the given codes, typically at application startup, so that the
+     * authority factories used by {@link #decode(String,boolean) decode} have them cached
+     * before the first requests come in. Codes that can not be decoded are logged and skipped.
+     *
+     * @param  codes The Coordinate Reference System authority codes to load.
+     * @param  longitudeFirst {@code true} if axis order should be forced to
+     *         (<var>longitude</var>, <var>latitude</var>), as in {@link #decode(String,boolean)}.
+     * @return The number of codes successfully decoded.
+     *
+     * @since 20.0
+     */
+    public static int prewarm(final Collection<String> codes, final boolean longitudeFirst) {
+        int count = 0;
+        for (final String code : codes) {
+            try {
+                decode(code, longitudeFirst);
+                count++;
+            } catch (FactoryException e) {
+                LOGGER.log(Level.WARNING, "Could not prewarm the CRS cache with code " + code, e);
+            }
+        }
+        return count;
+    }
+
     /**
      * Parses a
      * <A HREF="http://geoapi.sourceforge.net/snapshot/javadoc/org/opengis/referencing/doc-files/WKT.html"><cite>Well
@@ -19,15 +19,12 @@
  */
 package org.geotools.referencing.factory;
 
-import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import java.util.Map;
 import java.util.Set;
-import java.util.Iterator;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.WeakHashMap;
-import java.util.LinkedHashMap;
 import java.util.logging.LogRecord;
 import java.util.logging.Level;
 import javax.measure.unit.Unit;
@@ -67,6 +64,11 @@ import org.geotools.resources.i18n.LoggingKeys;
  * one. This means that this buffered factory will continue to returns them as long as
  * they are in use somewhere else in the Java virtual machine, but will be discarted
  * (and recreated on the fly if needed) otherwise.
+ * <p>
+ * Objects already in the cache are returned without any locking, and the creation of
+ * objects for different codes may happen in parallel, so the backing store must be thread
+ * safe. Concurrent requests for the same code are created only once. The cache can be filled
+ * in advance with {@link #prewarm}.
  *
  * @since 2.1
  *
@@ -77,7 +79,7 @@ import org.geotools.resources.i18n.LoggingKeys;
  */
 public class BufferedAuthorityFactory extends AbstractAuthorityFactory implements BufferedFactory {
     /**
-     * The default value for {@link #maxStrongReferences}.
+     * The default maximum number of objects to keep by strong reference.
      */
     static final int DEFAULT_MAX = 20;
 
@@ -93,17 +95,9 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
     volatile AbstractAuthorityFactory backingStore;
 
     /**
-     * The pool of cached objects.
-     */
-    private final LinkedHashMap<Object,Object> pool =
-            new LinkedHashMap<Object,Object>(32, 0.75f, true);
-
-    /**
-     * The maximum number of objects to keep by strong reference. If a greater amount of
-     * objects are created, then the strong references for the oldest ones are replaced by
-     * weak references.
+     * The cache of created objects.
      */
-    private final int maxStrongReferences;
+    final ConcurrentReferencingObjectCache cache;
 
     /**
      * The pool of objects identified by {@link #find}.
@@ -145,8 +139,8 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
         while (factory instanceof BufferedAuthorityFactory) {
             factory = ((BufferedAuthorityFactory) factory).backingStore;
         }
-        this.backingStore        = factory;
-        this.maxStrongReferences = maxStrongReferences;
+        this.backingStore = factory;
+        this.cache        = new ConcurrentReferencingObjectCache(maxStrongReferences);
         completeHints();
     }
 
@@ -164,7 +158,7 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      */
     BufferedAuthorityFactory(final int priority, final int maxStrongReferences) {
         super(priority);
-        this.maxStrongReferences = maxStrongReferences;
+        this.cache = new ConcurrentReferencingObjectCache(maxStrongReferences);
         // completeHints() will be invoked by DeferredAuthorityFactory.getBackingStore()
     }
 
@@ -351,19 +345,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized IdentifiedObject createObject(final String code)
+    public IdentifiedObject createObject(final String code)
             throws FactoryException
     {
-        final IdentifiedObject object;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof IdentifiedObject) {
-            object = (IdentifiedObject) cached;
-        } else {
-            object = getBackingStore().createObject(code);
-        }
-        put(key, object);
-        return object;
+        return cache.getOrCreate(trimAuthority(code), IdentifiedObject.class,
+                () -> getBackingStore().createObject(code));
     }
 
     /**
@@ -372,19 +358,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Datum createDatum(final String code)
+    public Datum createDatum(final String code)
             throws FactoryException
     {
-        final Datum datum;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof Datum) {
-            datum = (Datum) cached;
-        } else {
-            datum = getBackingStore().createDatum(code);
-        }
-        put(key, datum);
-        return datum;
+        return cache.getOrCreate(trimAuthority(code), Datum.class,
+                () -> getBackingStore().createDatum(code));
     }
 
     /**
@@ -393,19 +371,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EngineeringDatum createEngineeringDatum(final String code)
+    public EngineeringDatum createEngineeringDatum(final String code)
             throws FactoryException
     {
-        final EngineeringDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof EngineeringDatum) {
-            datum = (EngineeringDatum) cached;
-        } else {
-            datum = getBackingStore().createEngineeringDatum(code);
-        }
-        put(key, datum);
-        return datum;
+        return cache.getOrCreate(trimAuthority(code), EngineeringDatum.class,
+                () -> getBackingStore().createEngineeringDatum(code));
     }
 
     /**
@@ -414,19 +384,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ImageDatum createImageDatum(final String code)
+    public ImageDatum createImageDatum(final String code)
             throws FactoryException
     {
-        final ImageDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof ImageDatum) {
-            datum = (ImageDatum) cached;
-        } else {
-            datum = getBackingStore().createImageDatum(code);
-        }
-        put(key, datum);
-        return datum;
+        return cache.getOrCreate(trimAuthority(code), ImageDatum.class,
+                () -> getBackingStore().createImageDatum(code));
     }
 
     /**
@@ -435,19 +397,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalDatum createVerticalDatum(final String code)
+    public VerticalDatum createVerticalDatum(final String code)
             throws FactoryException
     {
-        final VerticalDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof VerticalDatum) {
-            datum = (VerticalDatum) cached;
-        } else {
-            datum = getBackingStore().createVerticalDatum(code);
-        }
-        put(key, datum);
-        return datum;
+        return cache.getOrCreate(trimAuthority(code), VerticalDatum.class,
+                () -> getBackingStore().createVerticalDatum(code));
     }
 
     /**
@@ -456,19 +410,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TemporalDatum createTemporalDatum(final String code)
+    public TemporalDatum createTemporalDatum(final String code)
             throws FactoryException
     {
-        final TemporalDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof TemporalDatum) {
-            datum = (TemporalDatum) cached;
-        } else {
-            datum = getBackingStore().createTemporalDatum(code);
-        }
-        put(key, datum);
-        return datum;
+        return cache.getOrCreate(trimAuthority(code), TemporalDatum.class,
+                () -> getBackingStore().createTemporalDatum(code));
     }
 
     /**
@@ -477,19 +423,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeodeticDatum createGeodeticDatum(final String code)
+    public GeodeticDatum createGeodeticDatum(final String code)
             throws FactoryException
     {
-        final GeodeticDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof GeodeticDatum) {
-            datum = (GeodeticDatum) cached;
-        } else {
-            datum = getBackingStore().createGeodeticDatum(code);
-        }
-        put(key, datum);
-        return datum;
+        return cache.getOrCreate(trimAuthority(code), GeodeticDatum.class,
+                () -> getBackingStore().createGeodeticDatum(code));
     }
 
     /**
@@ -498,19 +436,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Ellipsoid createEllipsoid(final String code)
+    public Ellipsoid createEllipsoid(final String code)
             throws FactoryException
     {
-        final Ellipsoid ellipsoid;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof Ellipsoid) {
-            ellipsoid = (Ellipsoid) cached;
-        } else {
-            ellipsoid = getBackingStore().createEllipsoid(code);
-        }
-        put(key, ellipsoid);
-        return ellipsoid;
+        return cache.getOrCreate(trimAuthority(code), Ellipsoid.class,
+                () -> getBackingStore().createEllipsoid(code));
     }
 
     /**
@@ -519,19 +449,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized PrimeMeridian createPrimeMeridian(final String code)
+    public PrimeMeridian createPrimeMeridian(final String code)
             throws FactoryException
     {
-        final PrimeMeridian meridian;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof PrimeMeridian) {
-            meridian = (PrimeMeridian) cached;
-        } else {
-            meridian = getBackingStore().createPrimeMeridian(code);
-        }
-        put(key, meridian);
-        return meridian;
+        return cache.getOrCreate(trimAuthority(code), PrimeMeridian.class,
+                () -> getBackingStore().createPrimeMeridian(code));
     }
 
     /**
@@ -540,19 +462,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Extent createExtent(final String code)
+    public Extent createExtent(final String code)
             throws FactoryException
     {
-        final Extent extent;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof Extent) {
-            extent = (Extent) cached;
-        } else {
-            extent = getBackingStore().createExtent(code);
-        }
-        put(key, extent);
-        return extent;
+        return cache.getOrCreate(trimAuthority(code), Extent.class,
+                () -> getBackingStore().createExtent(code));
     }
 
     /**
@@ -561,19 +475,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateSystem createCoordinateSystem(final String code)
+    public CoordinateSystem createCoordinateSystem(final String code)
             throws FactoryException
     {
-        final CoordinateSystem cs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CoordinateSystem) {
-            cs = (CoordinateSystem) cached;
-        } else {
-            cs = getBackingStore().createCoordinateSystem(code);
-        }
-        put(key, cs);
-        return cs;
+        return cache.getOrCreate(trimAuthority(code), CoordinateSystem.class,
+                () -> getBackingStore().createCoordinateSystem(code));
     }
 
     /**
@@ -582,19 +488,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CartesianCS createCartesianCS(final String code)
+    public CartesianCS createCartesianCS(final String code)
             throws FactoryException
     {
-        final CartesianCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CartesianCS) {
-            cs = (CartesianCS) cached;
-        } else {
-            cs = getBackingStore().createCartesianCS(code);
-        }
-        put(key, cs);
-        return cs;
+        return cache.getOrCreate(trimAuthority(code), CartesianCS.class,
+                () -> getBackingStore().createCartesianCS(code));
     }
 
     /**
@@ -603,19 +501,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized PolarCS createPolarCS(final String code)
+    public PolarCS createPolarCS(final String code)
             throws FactoryException
     {
-        final PolarCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof PolarCS) {
-            cs = (PolarCS) cached;
-        } else {
-            cs = getBackingStore().createPolarCS(code);
-        }
-        put(key, cs);
-        return cs;
+        return cache.getOrCreate(trimAuthority(code), PolarCS.class,
+                () -> getBackingStore().createPolarCS(code));
     }
 
     /**
@@ -624,19 +514,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CylindricalCS createCylindricalCS(final String code)
+    public CylindricalCS createCylindricalCS(final String code)
             throws FactoryException
     {
-        final CylindricalCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CylindricalCS) {
-            cs = (CylindricalCS) cached;
-        } else {
-            cs = getBackingStore().createCylindricalCS(code);
-        }
-        put(key, cs);
-        return cs;
+        return cache.getOrCreate(trimAuthority(code), CylindricalCS.class,
+                () -> getBackingStore().createCylindricalCS(code));
     }
 
     /**
@@ -645,19 +527,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized SphericalCS createSphericalCS(final String code)
+    public SphericalCS createSphericalCS(final String code)
             throws FactoryException
     {
-        final SphericalCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof SphericalCS) {
-            cs = (SphericalCS) cached;
-        } else {
-            cs = getBackingStore().createSphericalCS(code);
-        }
-        put(key, cs);
-        return cs;
+        return cache.getOrCreate(trimAuthority(code), SphericalCS.class,
+                () -> getBackingStore().createSphericalCS(code));
     }
 
     /**
@@ -666,19 +540,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EllipsoidalCS createEllipsoidalCS(final String code)
+    public EllipsoidalCS createEllipsoidalCS(final String code)
             throws FactoryException
     {
-        final EllipsoidalCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof EllipsoidalCS) {
-            cs = (EllipsoidalCS) cached;
-        } else {
-            cs = getBackingStore().createEllipsoidalCS(code);
-        }
-        put(key, cs);
-        return cs;
+        return cache.getOrCreate(trimAuthority(code), EllipsoidalCS.class,
+                () -> getBackingStore().createEllipsoidalCS(code));
     }
 
     /**
@@ -687,19 +553,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalCS createVerticalCS(final String code)
+    public VerticalCS createVerticalCS(final String code)
             throws FactoryException
     {
-        final VerticalCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof VerticalCS) {
-            cs = (VerticalCS) cached;
-        } else {
-            cs = getBackingStore().createVerticalCS(code);
-        }
-        put(key, cs);
-        return cs;
+        return cache.getOrCreate(trimAuthority(code), VerticalCS.class,
+                () -> getBackingStore().createVerticalCS(code));
     }
 
     /**
@@ -708,19 +566,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TimeCS createTimeCS(final String code)
+    public TimeCS createTimeCS(final String code)
             throws FactoryException
     {
-        final TimeCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof TimeCS) {
-            cs = (TimeCS) cached;
-        } else {
-            cs = getBackingStore().createTimeCS(code);
-        }
-        put(key, cs);
-        return cs;
+        return cache.getOrCreate(trimAuthority(code), TimeCS.class,
+                () -> getBackingStore().createTimeCS(code));
     }
 
     /**
@@ -729,19 +579,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateSystemAxis createCoordinateSystemAxis(final String code)
+    public CoordinateSystemAxis createCoordinateSystemAxis(final String code)
             throws FactoryException
     {
-        final CoordinateSystemAxis axis;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CoordinateSystemAxis) {
-            axis = (CoordinateSystemAxis) cached;
-        } else {
-            axis = getBackingStore().createCoordinateSystemAxis(code);
-        }
-        put(key, axis);
-        return axis;
+        return cache.getOrCreate(trimAuthority(code), CoordinateSystemAxis.class,
+                () -> getBackingStore().createCoordinateSystemAxis(code));
     }
 
     /**
@@ -750,19 +592,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized Unit<?> createUnit(final String code)
+    public Unit<?> createUnit(final String code)
             throws FactoryException
     {
-        final Unit<?> unit;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof Unit) {
-            unit = (Unit) cached;
-        } else {
-            unit = getBackingStore().createUnit(code);
-        }
-        put(key, unit);
-        return unit;
+        return cache.getOrCreate(trimAuthority(code), Unit.class,
+                () -> getBackingStore().createUnit(code));
     }
 
     /**
@@ -771,19 +605,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
             throws FactoryException
     {
-        final CoordinateReferenceSystem crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CoordinateReferenceSystem) {
-            crs = (CoordinateReferenceSystem) cached;
-        } else {
-            crs = getBackingStore().createCoordinateReferenceSystem(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), CoordinateReferenceSystem.class,
+                () -> getBackingStore().createCoordinateReferenceSystem(code));
     }
 
     /**
@@ -792,19 +618,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized CompoundCRS createCompoundCRS(final String code)
+    public CompoundCRS createCompoundCRS(final String code)
             throws FactoryException
     {
-        final CompoundCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CompoundCRS) {
-            crs = (CompoundCRS) cached;
-        } else {
-            crs = getBackingStore().createCompoundCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), CompoundCRS.class,
+                () -> getBackingStore().createCompoundCRS(code));
     }
 
     /**
@@ -813,19 +631,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized DerivedCRS createDerivedCRS(final String code)
+    public DerivedCRS createDerivedCRS(final String code)
             throws FactoryException
     {
-        final DerivedCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof DerivedCRS) {
-            crs = (DerivedCRS) cached;
-        } else {
-            crs = getBackingStore().createDerivedCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), DerivedCRS.class,
+                () -> getBackingStore().createDerivedCRS(code));
     }
 
     /**
@@ -834,19 +644,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized EngineeringCRS createEngineeringCRS(final String code)
+    public EngineeringCRS createEngineeringCRS(final String code)
             throws FactoryException
     {
-        final EngineeringCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof EngineeringCRS) {
-            crs = (EngineeringCRS) cached;
-        } else {
-            crs = getBackingStore().createEngineeringCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), EngineeringCRS.class,
+                () -> getBackingStore().createEngineeringCRS(code));
     }
 
     /**
@@ -855,19 +657,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeographicCRS createGeographicCRS(final String code)
+    public GeographicCRS createGeographicCRS(final String code)
             throws FactoryException
     {
-        final GeographicCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof GeographicCRS) {
-            crs = (GeographicCRS) cached;
-        } else {
-            crs = getBackingStore().createGeographicCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), GeographicCRS.class,
+                () -> getBackingStore().createGeographicCRS(code));
     }
 
     /**
@@ -876,19 +670,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized GeocentricCRS createGeocentricCRS(final String code)
+    public GeocentricCRS createGeocentricCRS(final String code)
             throws FactoryException
     {
-        final GeocentricCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof GeocentricCRS) {
-            crs = (GeocentricCRS) cached;
-        } else {
-            crs = getBackingStore().createGeocentricCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), GeocentricCRS.class,
+                () -> getBackingStore().createGeocentricCRS(code));
     }
 
     /**
@@ -897,19 +683,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ImageCRS createImageCRS(final String code)
+    public ImageCRS createImageCRS(final String code)
             throws FactoryException
     {
-        final ImageCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof ImageCRS) {
-            crs = (ImageCRS) cached;
-        } else {
-            crs = getBackingStore().createImageCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), ImageCRS.class,
+                () -> getBackingStore().createImageCRS(code));
     }
 
     /**
@@ -918,19 +696,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized ProjectedCRS createProjectedCRS(final String code)
+    public ProjectedCRS createProjectedCRS(final String code)
             throws FactoryException
     {
-        final ProjectedCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof ProjectedCRS) {
-            crs = (ProjectedCRS) cached;
-        } else {
-            crs = getBackingStore().createProjectedCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), ProjectedCRS.class,
+                () -> getBackingStore().createProjectedCRS(code));
     }
 
     /**
@@ -939,19 +709,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized TemporalCRS createTemporalCRS(final String code)
+    public TemporalCRS createTemporalCRS(final String code)
             throws FactoryException
     {
-        final TemporalCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof TemporalCRS) {
-            crs = (TemporalCRS) cached;
-        } else {
-            crs = getBackingStore().createTemporalCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), TemporalCRS.class,
+                () -> getBackingStore().createTemporalCRS(code));
     }
 
     /**
@@ -960,19 +722,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @throws FactoryException if the object creation failed.
      */
     @Override
-    public synchronized VerticalCRS createVerticalCRS(final String code)
+    public VerticalCRS createVerticalCRS(final String code)
             throws FactoryException
     {
-        final VerticalCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof VerticalCRS) {
-            crs = (VerticalCRS) cached;
-        } else {
-            crs = getBackingStore().createVerticalCRS(code);
-        }
-        put(key, crs);
-        return crs;
+        return cache.getOrCreate(trimAuthority(code), VerticalCRS.class,
+                () -> getBackingStore().createVerticalCRS(code));
     }
 
     /**
@@ -983,19 +737,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized ParameterDescriptor createParameterDescriptor(final String code)
+    public ParameterDescriptor createParameterDescriptor(final String code)
             throws FactoryException
     {
-        final ParameterDescriptor parameter;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof ParameterDescriptor) {
-            parameter = (ParameterDescriptor) cached;
-        } else {
-            parameter = getBackingStore().createParameterDescriptor(code);
-        }
-        put(key, parameter);
-        return parameter;
+        return cache.getOrCreate(trimAuthority(code), ParameterDescriptor.class,
+                () -> getBackingStore().createParameterDescriptor(code));
     }
 
     /**
@@ -1006,19 +752,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized OperationMethod createOperationMethod(final String code)
+    public OperationMethod createOperationMethod(final String code)
             throws FactoryException
     {
-        final OperationMethod method;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof OperationMethod) {
-            method = (OperationMethod) cached;
-        } else {
-            method = getBackingStore().createOperationMethod(code);
-        }
-        put(key, method);
-        return method;
+        return cache.getOrCreate(trimAuthority(code), OperationMethod.class,
+                () -> getBackingStore().createOperationMethod(code));
     }
 
     /**
@@ -1029,19 +767,11 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized CoordinateOperation createCoordinateOperation(final String code)
+    public CoordinateOperation createCoordinateOperation(final String code)
             throws FactoryException
     {
-        final CoordinateOperation operation;
-        final String key = trimAuthority(code);
-        final Object cached = get(key);
-        if (cached instanceof CoordinateOperation) {
-            operation = (CoordinateOperation) cached;
-        } else {
-            operation = getBackingStore().createCoordinateOperation(code);
-        }
-        put(key, operation);
-        return operation;
+        return cache.getOrCreate(trimAuthority(code), CoordinateOperation.class,
+                () -> getBackingStore().createCoordinateOperation(code));
     }
 
     /**
@@ -1052,21 +782,38 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.2
      */
     @Override
-    public synchronized Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
+    @SuppressWarnings("unchecked")
+    public Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
                         final String sourceCRS, final String targetCRS)
             throws FactoryException
     {
-        final Set<CoordinateOperation> operations;
         final CodePair key = new CodePair(trimAuthority(sourceCRS), trimAuthority(targetCRS));
-        final Object cached = get(key);
-        if (cached instanceof Set) {
-            operations = (Set<CoordinateOperation>) cached;
-        } else {
-            operations = Collections.unmodifiableSet(getBackingStore()
-                         .createFromCoordinateReferenceSystemCodes(sourceCRS, targetCRS));
+        return cache.getOrCreate(key, Set.class, () -> Collections.unmodifiableSet(
+                getBackingStore().createFromCoordinateReferenceSystemCodes(sourceCRS, targetCRS)));
+    }
+
+    /**
+     * Creates in advance the {@linkplain CoordinateReferenceSystem coordinate reference systems}
+     * for the given codes, typically at application startup, so that the first requests for
+     * them are served from the cache. Codes that can not be decoded are logged and skipped.
+     *
+     * @param  codes The codes of the coordinate reference systems to load.
+     * @return The number of coordinate reference systems successfully loaded.
+     *
+     * @since 20.0
+     */
+    public int prewarm(final Collection<String> codes) {
+        int count = 0;
+        for (final String code : codes) {
+            try {
+                createCoordinateReferenceSystem(code);
+                count++;
+            } catch (FactoryException exception) {
+                LOGGER.log(Level.WARNING, "Could not prewarm the CRS cache with code " + code,
+                        exception);
+            }
         }
-        put(key, operations);
-        return operations;
+        return count;
     }
 
     /**
@@ -1115,7 +862,7 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
      * @since 2.4
      */
     @Override
-    public synchronized IdentifiedObjectFinder getIdentifiedObjectFinder(
+    public IdentifiedObjectFinder getIdentifiedObjectFinder(
             final Class<? extends IdentifiedObject> type) throws FactoryException
     {
         return new Finder(getBackingStore().getIdentifiedObjectFinder(type));
@@ -1200,52 +947,8 @@ public class BufferedAuthorityFactory extends AbstractAuthorityFactory implement
             backingStore.dispose();
             backingStore = null;
         }
-        pool.clear();
+        cache.clear();
         findPool.clear();
         super.dispose();
     }
-
-    /**
-     * Returns an object from the pool for the specified code. If the object was retained as a
-     * {@linkplain Reference weak reference}, the {@link Reference#get referent} is returned.
-     *
-     * @todo Consider logging a message here to the finer or finest level.
-     */
-    private Object get(final Object key) {
-        assert Thread.holdsLock(this);
-        Object object = pool.get(key);
-        if (object instanceof Reference) {
-            object = ((Reference<?>) object).get();
-        }
-        return object;
-    }
-
-    /**
-     * Put an element in the pool. This method is invoked everytime a {@code createFoo(...)}
-     * method is invoked, even if an object was already in the pool for the given code, for
-     * the following reasons: 1) Replaces weak reference by strong reference (if applicable)
-     * and 2) Alters the linked hash set order, so that this object is declared as the last
-     * one used.
-     */
-    private void put(final Object key, final Object object) {
-        assert Thread.holdsLock(this);
-        pool.put(key, object);
-        int toReplace = pool.size() - maxStrongReferences;
-        if (toReplace > 0) {
-            for (final Iterator<Map.Entry<Object,Object>> it=pool.entrySet().iterator(); it.hasNext();) {
-                final Map.Entry<Object,Object> entry = it.next();
-                final Object value = entry.getValue();
-                if (value instanceof Reference) {
-                    if (((Reference) value).get() == null) {
-                        it.remove();
-                    }
-                    continue;
-                }
-                entry.setValue(new WeakReference<Object>(value));
-                if (--toReplace == 0) {
-                    break;
-                }
-            }
-        }
-    }
 }
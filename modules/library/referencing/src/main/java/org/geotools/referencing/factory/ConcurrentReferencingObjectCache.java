@@ -0,0 +1,326 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.opengis.referencing.FactoryException;
+
+
+/**
+ * The cache of referencing objects used by {@link BufferedAuthorityFactory} and
+ * {@link ThreadedAuthorityFactory}. Cache hits are served without acquiring any lock,
+ * and misses for different codes are created in parallel.
+ * <p>
+ * Like the previous {@code LinkedHashMap} based pool, up to {@code maxStrongReferences} objects
+ * are retained by strong references, the least recently used ones being retained by
+ * {@linkplain WeakReference weak references} only. In order to keep the hit path free of
+ * writes to shared structures, the strong references are not demoted one at a time on every
+ * access, but in batches when their number grows over twice the configured maximum.
+ * <p>
+ * Concurrent requests for the same code wait for the thread already creating it, so that the
+ * backing store creates each object only once. The only exception are requests issued while
+ * the current thread is itself creating an object (a CRS asking for its datum, for example):
+ * the backing stores usually hold a lock during creation, so waiting there for an other thread
+ * could deadlock. Those nested requests create the object directly, and the first object
+ * stored in the cache wins.
+ *
+ * @since 20.0
+ *
+ * @source $URL$
+ * @version $Id$
+ */
+final class ConcurrentReferencingObjectCache {
+    /**
+     * Creates an object on cache misses.
+     */
+    interface Creator<T> {
+        T create() throws FactoryException;
+    }
+
+    /**
+     * Access times closer than this amount of nanoseconds are not recorded, so that
+     * frequently used entries are not written to by every thread hitting them.
+     */
+    private static final long ACCESS_RESOLUTION = 1000000;
+
+    /**
+     * The number of objects being created by the current thread, in any cache.
+     * A value greater than zero means the thread may hold backing store locks.
+     */
+    private static final ThreadLocal<int[]> NESTING = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            return new int[1];
+        }
+    };
+
+    /**
+     * A cached object, retained by a strong reference until demoted.
+     */
+    private static final class Entry {
+        final WeakReference<Object> weak;
+
+        volatile Object strong;
+
+        volatile long lastAccess;
+
+        Entry(final Object value, final long lastAccess) {
+            this.weak = new WeakReference<Object>(value);
+            this.strong = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * An object being created by some thread. Other threads asking
+     * for the same code wait for the latch to be released.
+     */
+    private static final class Pending {
+        final CountDownLatch done = new CountDownLatch(1);
+
+        volatile Object value;
+    }
+
+    /**
+     * The pool of cached objects.
+     */
+    private final Map<Object,Entry> pool = new ConcurrentHashMap<Object,Entry>();
+
+    /**
+     * The objects being created, by key.
+     */
+    private final Map<Object,Pending> pending = new ConcurrentHashMap<Object,Pending>();
+
+    /**
+     * The maximum number of objects to keep by strong reference.
+     */
+    private final int maxStrongReferences;
+
+    /**
+     * An approximation of the number of entries retained by strong references,
+     * recomputed exactly at every {@linkplain #demote demotion}.
+     */
+    private final AtomicInteger strongCount = new AtomicInteger();
+
+    /**
+     * Set while a thread is demoting strong references.
+     */
+    private final AtomicBoolean demoting = new AtomicBoolean();
+
+    /**
+     * The number of objects currently being created through this cache.
+     */
+    private final AtomicInteger creating = new AtomicInteger();
+
+    /**
+     * Creates a new cache which will hold the specified amount of object by strong references.
+     * Any additional object will be held by weak references.
+     */
+    ConcurrentReferencingObjectCache(final int maxStrongReferences) {
+        this.maxStrongReferences = maxStrongReferences;
+    }
+
+    /**
+     * Returns an object from the pool for the specified code, or {@code null} if none.
+     * If the object was retained by a weak reference only, it is promoted back to a strong one.
+     */
+    Object get(final Object key) {
+        final Entry entry = pool.get(key);
+        if (entry == null) {
+            return null;
+        }
+        Object object = entry.strong;
+        if (object == null) {
+            object = entry.weak.get();
+            if (object == null) {
+                return null;
+            }
+            entry.strong = object;
+            if (strongCount.incrementAndGet() > maxStrongReferences * 2) {
+                demote();
+            }
+        }
+        final long now = System.nanoTime();
+        if (now - entry.lastAccess > ACCESS_RESOLUTION) {
+            entry.lastAccess = now;
+        }
+        return object;
+    }
+
+    /**
+     * Puts an element in the pool, replacing any previous object for the same key.
+     */
+    void put(final Object key, final Object object) {
+        pool.put(key, new Entry(object, System.nanoTime()));
+        if (strongCount.incrementAndGet() > maxStrongReferences * 2) {
+            demote();
+        }
+    }
+
+    /**
+     * Returns the object cached for the specified key if it is an instance of the given type,
+     * or creates it otherwise. Only one thread creates a given key at a time, the others wait
+     * for its result (see the class javadoc for the exception of nested creations).
+     *
+     * @param  key The key, usually the authority code with the authority removed.
+     * @param  type The expected type of the cached object.
+     * @param  creator Creates the object when no suitable one is cached.
+     * @return The cached or newly created object.
+     * @throws FactoryException if the object creation failed.
+     */
+    <T> T getOrCreate(final Object key, final Class<T> type, final Creator<? extends T> creator)
+            throws FactoryException
+    {
+        Object cached = get(key);
+        if (type.isInstance(cached)) {
+            return type.cast(cached);
+        }
+        final int[] nesting = NESTING.get();
+        while (true) {
+            final Pending mine = new Pending();
+            final Pending other = pending.putIfAbsent(key, mine);
+            if (other == null) {
+                try {
+                    final T created = create(key, type, creator, nesting);
+                    mine.value = created;
+                    return created;
+                } finally {
+                    pending.remove(key, mine);
+                    mine.done.countDown();
+                }
+            }
+            if (nesting[0] != 0) {
+                // May be holding a lock needed by the other thread, do not wait for it.
+                return create(key, type, creator, nesting);
+            }
+            try {
+                other.done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return create(key, type, creator, nesting);
+            }
+            cached = other.value;
+            if (!type.isInstance(cached)) {
+                // The other thread failed or created an object of a different type, try ourself.
+                cached = get(key);
+            }
+            if (type.isInstance(cached)) {
+                return type.cast(cached);
+            }
+        }
+    }
+
+    /**
+     * Creates the object and stores it in the pool, unless a nested creation already did.
+     */
+    private <T> T create(final Object key, final Class<T> type,
+            final Creator<? extends T> creator, final int[] nesting) throws FactoryException
+    {
+        final T created;
+        nesting[0]++;
+        creating.incrementAndGet();
+        try {
+            created = creator.create();
+        } finally {
+            creating.decrementAndGet();
+            nesting[0]--;
+        }
+        final Object cached = get(key);
+        if (type.isInstance(cached)) {
+            return type.cast(cached);
+        }
+        put(key, created);
+        return created;
+    }
+
+    /**
+     * Returns {@code true} if some objects are currently being created through this cache.
+     */
+    boolean isCreating() {
+        return creating.get() != 0;
+    }
+
+    /**
+     * Replaces the strong references to the least recently used objects by weak references,
+     * so that no more than {@code maxStrongReferences} are left, and removes the entries
+     * whose object has been garbage collected. Does nothing if an other thread is already
+     * doing the job.
+     */
+    private void demote() {
+        if (!demoting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            final List<Entry> strong = new ArrayList<Entry>();
+            for (final Map.Entry<Object,Entry> candidate : pool.entrySet()) {
+                final Entry entry = candidate.getValue();
+                if (entry.strong != null) {
+                    strong.add(entry);
+                } else if (entry.weak.get() == null) {
+                    pool.remove(candidate.getKey(), entry);
+                }
+            }
+            final int toReplace = strong.size() - maxStrongReferences;
+            if (toReplace > 0) {
+                // Works on a snapshot of the access times, since other threads keep updating
+                // them. Entries accessed before the threshold are demoted, then as many entries
+                // accessed exactly at the threshold as needed.
+                final long[] accesses = new long[strong.size()];
+                for (int i = 0; i < accesses.length; i++) {
+                    accesses[i] = strong.get(i).lastAccess;
+                }
+                final long[] sorted = accesses.clone();
+                Arrays.sort(sorted);
+                final long threshold = sorted[toReplace - 1];
+                int atThreshold = 0;
+                for (int i = 0; i < toReplace; i++) {
+                    if (sorted[i] == threshold) {
+                        atThreshold++;
+                    }
+                }
+                for (int i = 0; i < accesses.length; i++) {
+                    if (accesses[i] < threshold) {
+                        strong.get(i).strong = null;
+                    } else if (accesses[i] == threshold && atThreshold > 0) {
+                        strong.get(i).strong = null;
+                        atThreshold--;
+                    }
+                }
+            }
+            strongCount.set(Math.min(strong.size(), maxStrongReferences));
+        } finally {
+            demoting.set(false);
+        }
+    }
+
+    /**
+     * Removes all entries from this cache.
+     */
+    void clear() {
+        pool.clear();
+        strongCount.set(0);
+    }
+}
@@ -249,7 +249,8 @@ public abstract class DeferredAuthorityFactory extends BufferedAuthorityFactory
     private final class Disposer extends TimerTask {
         public void run() {
             synchronized (DeferredAuthorityFactory.this) {
-                if (used || !canDisposeBackingStore(backingStore)) {
+                // Creations are no longer synchronized on this factory, check for pending ones.
+                if (used || cache.isCreating() || !canDisposeBackingStore(backingStore)) {
                     used = false;
                     return;
                 }
@@ -63,6 +63,9 @@ import org.geotools.resources.i18n.LoggingKeys;
  * of a strong one. This means that this buffered factory will continue to returns them
  * as long as they are in use somewhere else in the Java virtual machine, but will be
  * discarted (and recreated on the fly if needed) otherwise.
+ * <p>
+ * Cached objects are returned without any locking, and objects for different codes
+ * may be created in parallel by the backing store.
  *
  * @since 2.4
  *
@@ -73,7 +76,7 @@ import org.geotools.resources.i18n.LoggingKeys;
  */
 public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implements BufferedFactory {
     /**
-     * The default value for {@link #maxStrongReferences}.
+     * The default maximum number of objects to keep by strong reference.
      */
     static final int DEFAULT_MAX = 20;
 
@@ -86,12 +89,12 @@ public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implement
      * @see #getBackingStore
      * @see DeferredAuthorityFactory#createBackingStore
      */
-    AbstractAuthorityFactory backingStore;
+    volatile AbstractAuthorityFactory backingStore;
 
     /**
      * The cache for referencing objects.
      */
-    private final OldReferencingObjectCache objectCache;
+    private final ConcurrentReferencingObjectCache objectCache;
 
     /**
      * The pool of objects identified by {@link find}.
@@ -135,7 +138,7 @@ public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implement
             factory = ((ThreadedAuthorityFactory) factory).backingStore;
         }
         this.backingStore = factory;
-        this.objectCache = new OldReferencingObjectCache(maxStrongReferences);
+        this.objectCache = new ConcurrentReferencingObjectCache(maxStrongReferences);
         completeHints();
     }
 
@@ -153,7 +156,7 @@ public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implement
      */
     ThreadedAuthorityFactory(final int priority, final int maxStrongReferences) {
         super(priority);
-        this.objectCache = new OldReferencingObjectCache(maxStrongReferences);
+        this.objectCache = new ConcurrentReferencingObjectCache(maxStrongReferences);
         // completeHints() will be invoked by DeferredAuthorityFactory.getBackingStore()
     }
 
@@ -339,648 +342,377 @@ public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implement
      * Returns an arbitrary object from a code.
      */
     @Override
-    public synchronized IdentifiedObject createObject(final String code)
+    public IdentifiedObject createObject(final String code)
             throws FactoryException
     {
-        final IdentifiedObject object;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof IdentifiedObject) {
-            object = (IdentifiedObject) cached;
-        } else {
-            object = getBackingStore().createObject(code);
-        }
-        objectCache.put(key, object);
-        return object;
+        return objectCache.getOrCreate(trimAuthority(code), IdentifiedObject.class,
+                () -> getBackingStore().createObject(code));
     }
 
     /**
      * Returns an arbitrary datum from a code.
      */
     @Override
-    public synchronized Datum createDatum(final String code)
+    public Datum createDatum(final String code)
             throws FactoryException
     {
-        final Datum datum;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof Datum) {
-            datum = (Datum) cached;
-        } else {
-            datum = getBackingStore().createDatum(code);
-        }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.getOrCreate(trimAuthority(code), Datum.class,
+                () -> getBackingStore().createDatum(code));
     }
 
     /**
      * Returns an engineering datum from a code.
      */
     @Override
-    public synchronized EngineeringDatum createEngineeringDatum(final String code)
+    public EngineeringDatum createEngineeringDatum(final String code)
             throws FactoryException
     {
-        final EngineeringDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof EngineeringDatum) {
-            datum = (EngineeringDatum) cached;
-        } else {
-            datum = getBackingStore().createEngineeringDatum(code);
-        }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.getOrCreate(trimAuthority(code), EngineeringDatum.class,
+                () -> getBackingStore().createEngineeringDatum(code));
     }
 
     /**
      * Returns an image datum from a code.
      */
     @Override
-    public synchronized ImageDatum createImageDatum(final String code)
+    public ImageDatum createImageDatum(final String code)
             throws FactoryException
     {
-        final ImageDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof ImageDatum) {
-            datum = (ImageDatum) cached;
-        } else {
-            datum = getBackingStore().createImageDatum(code);
-        }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.getOrCreate(trimAuthority(code), ImageDatum.class,
+                () -> getBackingStore().createImageDatum(code));
     }
 
     /**
      * Returns a vertical datum from a code.
      */
     @Override
-    public synchronized VerticalDatum createVerticalDatum(final String code)
+    public VerticalDatum createVerticalDatum(final String code)
             throws FactoryException
     {
-        final VerticalDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof VerticalDatum) {
-            datum = (VerticalDatum) cached;
-        } else {
-            datum = getBackingStore().createVerticalDatum(code);
-        }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.getOrCreate(trimAuthority(code), VerticalDatum.class,
+                () -> getBackingStore().createVerticalDatum(code));
     }
 
     /**
      * Returns a temporal datum from a code.
      */
     @Override
-    public synchronized TemporalDatum createTemporalDatum(final String code)
+    public TemporalDatum createTemporalDatum(final String code)
             throws FactoryException
     {
-        final TemporalDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof TemporalDatum) {
-            datum = (TemporalDatum) cached;
-        } else {
-            datum = getBackingStore().createTemporalDatum(code);
-        }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.getOrCreate(trimAuthority(code), TemporalDatum.class,
+                () -> getBackingStore().createTemporalDatum(code));
     }
 
     /**
      * Returns a geodetic datum from a code.
      */
     @Override
-    public synchronized GeodeticDatum createGeodeticDatum(final String code)
+    public GeodeticDatum createGeodeticDatum(final String code)
             throws FactoryException
     {
-        final GeodeticDatum datum;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof GeodeticDatum) {
-            datum = (GeodeticDatum) cached;
-        } else {
-            datum = getBackingStore().createGeodeticDatum(code);
-        }
-        objectCache.put(key, datum);
-        return datum;
+        return objectCache.getOrCreate(trimAuthority(code), GeodeticDatum.class,
+                () -> getBackingStore().createGeodeticDatum(code));
     }
 
     /**
      * Returns an ellipsoid from a code.
      */
     @Override
-    public synchronized Ellipsoid createEllipsoid(final String code)
+    public Ellipsoid createEllipsoid(final String code)
             throws FactoryException
     {
-        final Ellipsoid ellipsoid;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof Ellipsoid) {
-            ellipsoid = (Ellipsoid) cached;
-        } else {
-            ellipsoid = getBackingStore().createEllipsoid(code);
-        }
-        objectCache.put(key, ellipsoid);
-        return ellipsoid;
+        return objectCache.getOrCreate(trimAuthority(code), Ellipsoid.class,
+                () -> getBackingStore().createEllipsoid(code));
     }
 
     /**
      * Returns a prime meridian from a code.
      */
     @Override
-    public synchronized PrimeMeridian createPrimeMeridian(final String code)
+    public PrimeMeridian createPrimeMeridian(final String code)
             throws FactoryException
     {
-        final PrimeMeridian meridian;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof PrimeMeridian) {
-            meridian = (PrimeMeridian) cached;
-        } else {
-            meridian = getBackingStore().createPrimeMeridian(code);
-        }
-        objectCache.put(key, meridian);
-        return meridian;
+        return objectCache.getOrCreate(trimAuthority(code), PrimeMeridian.class,
+                () -> getBackingStore().createPrimeMeridian(code));
     }
 
     /**
      * Returns an extent (usually an area of validity) from a code.
      */
     @Override
-    public synchronized Extent createExtent(final String code)
+    public Extent createExtent(final String code)
             throws FactoryException
     {
-        final Extent extent;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof Extent) {
-            extent = (Extent) cached;
-        } else {
-            extent = getBackingStore().createExtent(code);
-        }
-        objectCache.put(key, extent);
-        return extent;
+        return objectCache.getOrCreate(trimAuthority(code), Extent.class,
+                () -> getBackingStore().createExtent(code));
     }
 
     /**
      * Returns an arbitrary coordinate system from a code.
      */
     @Override
-    public synchronized CoordinateSystem createCoordinateSystem(final String code)
+    public CoordinateSystem createCoordinateSystem(final String code)
             throws FactoryException
     {
-        final CoordinateSystem cs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof CoordinateSystem) {
-            cs = (CoordinateSystem) cached;
-        } else {
-            cs = getBackingStore().createCoordinateSystem(code);
-        }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.getOrCreate(trimAuthority(code), CoordinateSystem.class,
+                () -> getBackingStore().createCoordinateSystem(code));
     }
 
     /**
      * Returns a cartesian coordinate system from a code.
      */
     @Override
-    public synchronized CartesianCS createCartesianCS(final String code)
+    public CartesianCS createCartesianCS(final String code)
             throws FactoryException
     {
-        final CartesianCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof CartesianCS) {
-            cs = (CartesianCS) cached;
-        } else {
-            cs = getBackingStore().createCartesianCS(code);
-        }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.getOrCreate(trimAuthority(code), CartesianCS.class,
+                () -> getBackingStore().createCartesianCS(code));
     }
 
     /**
      * Returns a polar coordinate system from a code.
      */
     @Override
-    public synchronized PolarCS createPolarCS(final String code)
+    public PolarCS createPolarCS(final String code)
             throws FactoryException
     {
-        final PolarCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof PolarCS) {
-            cs = (PolarCS) cached;
-        } else {
-            cs = getBackingStore().createPolarCS(code);
-        }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.getOrCreate(trimAuthority(code), PolarCS.class,
+                () -> getBackingStore().createPolarCS(code));
     }
 
     /**
      * Returns a cylindrical coordinate system from a code.
      */
     @Override
-    public synchronized CylindricalCS createCylindricalCS(final String code)
+    public CylindricalCS createCylindricalCS(final String code)
             throws FactoryException
     {
-        final CylindricalCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof CylindricalCS) {
-            cs = (CylindricalCS) cached;
-        } else {
-            cs = getBackingStore().createCylindricalCS(code);
-        }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.getOrCreate(trimAuthority(code), CylindricalCS.class,
+                () -> getBackingStore().createCylindricalCS(code));
     }
 
     /**
      * Returns a spherical coordinate system from a code.
      */
     @Override
-    public synchronized SphericalCS createSphericalCS(final String code)
+    public SphericalCS createSphericalCS(final String code)
             throws FactoryException
     {
-        final SphericalCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof SphericalCS) {
-            cs = (SphericalCS) cached;
-        } else {
-            cs = getBackingStore().createSphericalCS(code);
-        }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.getOrCreate(trimAuthority(code), SphericalCS.class,
+                () -> getBackingStore().createSphericalCS(code));
     }
 
     /**
      * Returns an ellipsoidal coordinate system from a code.
      */
     @Override
-    public synchronized EllipsoidalCS createEllipsoidalCS(final String code)
+    public EllipsoidalCS createEllipsoidalCS(final String code)
             throws FactoryException
     {
-        final EllipsoidalCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof EllipsoidalCS) {
-            cs = (EllipsoidalCS) cached;
-        } else {
-            cs = getBackingStore().createEllipsoidalCS(code);
-        }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.getOrCreate(trimAuthority(code), EllipsoidalCS.class,
+                () -> getBackingStore().createEllipsoidalCS(code));
     }
 
     /**
      * Returns a vertical coordinate system from a code.
      */
     @Override
-    public synchronized VerticalCS createVerticalCS(final String code)
+    public VerticalCS createVerticalCS(final String code)
             throws FactoryException
     {
-        final VerticalCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof VerticalCS) {
-            cs = (VerticalCS) cached;
-        } else {
-            cs = getBackingStore().createVerticalCS(code);
-        }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.getOrCreate(trimAuthority(code), VerticalCS.class,
+                () -> getBackingStore().createVerticalCS(code));
     }
 
     /**
      * Returns a temporal coordinate system from a code.
      */
     @Override
-    public synchronized TimeCS createTimeCS(final String code)
+    public TimeCS createTimeCS(final String code)
             throws FactoryException
     {
-        final TimeCS cs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof TimeCS) {
-            cs = (TimeCS) cached;
-        } else {
-            cs = getBackingStore().createTimeCS(code);
-        }
-        objectCache.put(key, cs);
-        return cs;
+        return objectCache.getOrCreate(trimAuthority(code), TimeCS.class,
+                () -> getBackingStore().createTimeCS(code));
     }
 
     /**
      * Returns a coordinate system axis from a code.
      */
     @Override
-    public synchronized CoordinateSystemAxis createCoordinateSystemAxis(final String code)
+    public CoordinateSystemAxis createCoordinateSystemAxis(final String code)
             throws FactoryException
     {
-        final CoordinateSystemAxis axis;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof CoordinateSystemAxis) {
-            axis = (CoordinateSystemAxis) cached;
-        } else {
-            axis = getBackingStore().createCoordinateSystemAxis(code);
-        }
-        objectCache.put(key, axis);
-        return axis;
+        return objectCache.getOrCreate(trimAuthority(code), CoordinateSystemAxis.class,
+                () -> getBackingStore().createCoordinateSystemAxis(code));
     }
 
     /**
      * Returns an unit from a code.
      */
     @Override
-    public synchronized Unit<?> createUnit(final String code)
+    public Unit<?> createUnit(final String code)
             throws FactoryException
     {
-        final Unit<?> unit;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof Unit) {
-            unit = (Unit) cached;
-        } else {
-            unit = getBackingStore().createUnit(code);
-        }
-        objectCache.put(key, unit);
-        return unit;
+        return objectCache.getOrCreate(trimAuthority(code), Unit.class,
+                () -> getBackingStore().createUnit(code));
     }
 
     /**
      * Returns an arbitrary coordinate reference system from a code.
      */
     @Override
-    public synchronized CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
+    public CoordinateReferenceSystem createCoordinateReferenceSystem(final String code)
             throws FactoryException
     {
-        final CoordinateReferenceSystem crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof CoordinateReferenceSystem) {
-            crs = (CoordinateReferenceSystem) cached;
-        } else {
-            crs = getBackingStore().createCoordinateReferenceSystem(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), CoordinateReferenceSystem.class,
+                () -> getBackingStore().createCoordinateReferenceSystem(code));
     }
 
     /**
      * Returns a 3D coordinate reference system from a code.
      */
     @Override
-    public synchronized CompoundCRS createCompoundCRS(final String code)
+    public CompoundCRS createCompoundCRS(final String code)
             throws FactoryException
     {
-        final CompoundCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof CompoundCRS) {
-            crs = (CompoundCRS) cached;
-        } else {
-            crs = getBackingStore().createCompoundCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), CompoundCRS.class,
+                () -> getBackingStore().createCompoundCRS(code));
     }
 
     /**
      * Returns a derived coordinate reference system from a code.
      */
     @Override
-    public synchronized DerivedCRS createDerivedCRS(final String code)
+    public DerivedCRS createDerivedCRS(final String code)
             throws FactoryException
     {
-        final DerivedCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof DerivedCRS) {
-            crs = (DerivedCRS) cached;
-        } else {
-            crs = getBackingStore().createDerivedCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), DerivedCRS.class,
+                () -> getBackingStore().createDerivedCRS(code));
     }
 
     /**
      * Returns an engineering coordinate reference system from a code.
      */
     @Override
-    public synchronized EngineeringCRS createEngineeringCRS(final String code)
+    public EngineeringCRS createEngineeringCRS(final String code)
             throws FactoryException
     {
-        final EngineeringCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof EngineeringCRS) {
-            crs = (EngineeringCRS) cached;
-        } else {
-            crs = getBackingStore().createEngineeringCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), EngineeringCRS.class,
+                () -> getBackingStore().createEngineeringCRS(code));
     }
 
     /**
      * Returns a geographic coordinate reference system from a code.
      */
     @Override
-    public synchronized GeographicCRS createGeographicCRS(final String code)
+    public GeographicCRS createGeographicCRS(final String code)
             throws FactoryException
     {
-        final GeographicCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof GeographicCRS) {
-            crs = (GeographicCRS) cached;
-        } else {
-            crs = getBackingStore().createGeographicCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), GeographicCRS.class,
+                () -> getBackingStore().createGeographicCRS(code));
     }
 
     /**
      * Returns a geocentric coordinate reference system from a code.
      */
     @Override
-    public synchronized GeocentricCRS createGeocentricCRS(final String code)
+    public GeocentricCRS createGeocentricCRS(final String code)
             throws FactoryException
     {
-        final GeocentricCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof GeocentricCRS) {
-            crs = (GeocentricCRS) cached;
-        } else {
-            crs = getBackingStore().createGeocentricCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), GeocentricCRS.class,
+                () -> getBackingStore().createGeocentricCRS(code));
     }
 
     /**
      * Returns an image coordinate reference system from a code.
      */
     @Override
-    public synchronized ImageCRS createImageCRS(final String code)
+    public ImageCRS createImageCRS(final String code)
             throws FactoryException
     {
-        final ImageCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof ImageCRS) {
-            crs = (ImageCRS) cached;
-        } else {
-            crs = getBackingStore().createImageCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), ImageCRS.class,
+                () -> getBackingStore().createImageCRS(code));
     }
 
     /**
      * Returns a projected coordinate reference system from a code.
      */
     @Override
-    public synchronized ProjectedCRS createProjectedCRS(final String code)
+    public ProjectedCRS createProjectedCRS(final String code)
             throws FactoryException
     {
-        final ProjectedCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof ProjectedCRS) {
-            crs = (ProjectedCRS) cached;
-        } else {
-            crs = getBackingStore().createProjectedCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), ProjectedCRS.class,
+                () -> getBackingStore().createProjectedCRS(code));
     }
 
     /**
      * Returns a temporal coordinate reference system from a code.
      */
     @Override
-    public synchronized TemporalCRS createTemporalCRS(final String code)
+    public TemporalCRS createTemporalCRS(final String code)
             throws FactoryException
     {
-        final TemporalCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof TemporalCRS) {
-            crs = (TemporalCRS) cached;
-        } else {
-            crs = getBackingStore().createTemporalCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), TemporalCRS.class,
+                () -> getBackingStore().createTemporalCRS(code));
     }
 
     /**
      * Returns a vertical coordinate reference system from a code.
      */
     @Override
-    public synchronized VerticalCRS createVerticalCRS(final String code)
+    public VerticalCRS createVerticalCRS(final String code)
             throws FactoryException
     {
-        final VerticalCRS crs;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof VerticalCRS) {
-            crs = (VerticalCRS) cached;
-        } else {
-            crs = getBackingStore().createVerticalCRS(code);
-        }
-        objectCache.put(key, crs);
-        return crs;
+        return objectCache.getOrCreate(trimAuthority(code), VerticalCRS.class,
+                () -> getBackingStore().createVerticalCRS(code));
     }
 
     /**
      * Returns a parameter descriptor from a code.
      */
     @Override
-    public synchronized ParameterDescriptor createParameterDescriptor(final String code)
+    public ParameterDescriptor createParameterDescriptor(final String code)
             throws FactoryException
     {
-        final ParameterDescriptor parameter;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof ParameterDescriptor) {
-            parameter = (ParameterDescriptor) cached;
-        } else {
-            parameter = getBackingStore().createParameterDescriptor(code);
-        }
-        objectCache.put(key, parameter);
-        return parameter;
+        return objectCache.getOrCreate(trimAuthority(code), ParameterDescriptor.class,
+                () -> getBackingStore().createParameterDescriptor(code));
     }
 
     /**
      * Returns an operation method from a code.
      */
     @Override
-    public synchronized OperationMethod createOperationMethod(final String code)
+    public OperationMethod createOperationMethod(final String code)
             throws FactoryException
     {
-        final OperationMethod method;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof OperationMethod) {
-            method = (OperationMethod) cached;
-        } else {
-            method = getBackingStore().createOperationMethod(code);
-        }
-        objectCache.put(key, method);
-        return method;
+        return objectCache.getOrCreate(trimAuthority(code), OperationMethod.class,
+                () -> getBackingStore().createOperationMethod(code));
     }
 
     /**
      * Returns an operation from a single operation code.
      */
     @Override
-    public synchronized CoordinateOperation createCoordinateOperation(final String code)
+    public CoordinateOperation createCoordinateOperation(final String code)
             throws FactoryException
     {
-        final CoordinateOperation operation;
-        final String key = trimAuthority(code);
-        final Object cached = objectCache.get(key);
-        if (cached instanceof CoordinateOperation) {
-            operation = (CoordinateOperation) cached;
-        } else {
-            operation = getBackingStore().createCoordinateOperation(code);
-        }
-        objectCache.put(key, operation);
-        return operation;
+        return objectCache.getOrCreate(trimAuthority(code), CoordinateOperation.class,
+                () -> getBackingStore().createCoordinateOperation(code));
     }
 
     /**
      * Returns an operation from coordinate reference system codes.
      */
     @Override
-    public synchronized Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
+    @SuppressWarnings("unchecked")
+    public Set<CoordinateOperation> createFromCoordinateReferenceSystemCodes(
                         final String sourceCode, final String targetCode)
             throws FactoryException
     {
-        final Set<CoordinateOperation> operations;
         final CodePair key = new CodePair(trimAuthority(sourceCode), trimAuthority(targetCode));
-        final Object cached = objectCache.get(key);
-        if (cached instanceof CoordinateOperation) {
-            operations = (Set<CoordinateOperation>) cached;
-        } else {
-            operations = Collections.unmodifiableSet(getBackingStore()
-                         .createFromCoordinateReferenceSystemCodes(sourceCode, targetCode));
-        }
-        objectCache.put(key, operations);
-        return operations;
+        return objectCache.getOrCreate(key, Set.class, () -> Collections.unmodifiableSet(
+                getBackingStore().createFromCoordinateReferenceSystemCodes(sourceCode, targetCode)));
     }
 
     /**
@@ -1025,7 +757,7 @@ public class ThreadedAuthorityFactory extends AbstractAuthorityFactory implement
      * store and caches the result.
      */
     @Override
-    public synchronized IdentifiedObjectFinder getIdentifiedObjectFinder(
+    public IdentifiedObjectFinder getIdentifiedObjectFinder(
             final Class<? extends IdentifiedObject> type) throws FactoryException
     {
         return new Finder(getBackingStore().getIdentifiedObjectFinder(type));
@@ -16,8 +16,12 @@
  */
 package org.geotools.referencing.operation;
 
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.geotools.factory.BufferedFactory;
 import org.geotools.factory.Hints;
@@ -41,6 +45,14 @@ import org.opengis.referencing.operation.OperationNotFoundException;
  * In most cases, users should not need to create an instance of this class explicitly. An instance
  * of {@code BufferedCoordinateOperationFactory} should be automatically registered and returned
  * by {@link ReferencingFactoryFinder} in default Geotools configuration.
+ * <p>
+ * Lookups are performed in two steps. A bounded cache keyed by the identity of the source and
+ * target CRS serves the common case of callers asking again and again for the same CRS instances
+ * (e.g. the ones returned by {@link org.geotools.referencing.CRS#decode}) without computing hash
+ * codes or comparing the CRS. When it misses, the operations are looked up in a soft cache keyed
+ * by CRS equality, and finally created by the backing factory. The size of the first cache can be
+ * set with the <code>{@value #CACHE_SIZE_KEY}</code> system property, and the cache effectiveness
+ * can be checked with {@link #getCacheHits} and {@link #getCacheMisses}.
  *
  * @since 2.3
  * @version $Id$
@@ -58,6 +70,48 @@ public class BufferedCoordinateOperationFactory extends AbstractCoordinateOperat
      */
     static final int PRIORITY = AuthorityBackedFactory.PRIORITY + 10;
 
+    /**
+     * The system property setting the maximum number of operations cached by CRS identity.
+     *
+     * @since 20.0
+     */
+    public static final String CACHE_SIZE_KEY = "org.geotools.referencing.operation.cacheSize";
+
+    /**
+     * The default maximum number of operations cached by CRS identity.
+     */
+    static final int DEFAULT_CACHE_SIZE = 512;
+
+    /**
+     * A pair of source-destination {@link CoordinateReferenceSystem} compared by identity.
+     * Cheap to build and to compare, as opposed to {@link CRSPair} which computes the CRS
+     * hash codes and may perform a deep comparison of their definitions.
+     */
+    private static final class IdentityPair {
+        private final CoordinateReferenceSystem sourceCRS, targetCRS;
+
+        IdentityPair(final CoordinateReferenceSystem sourceCRS,
+                     final CoordinateReferenceSystem targetCRS)
+        {
+            this.sourceCRS = sourceCRS;
+            this.targetCRS = targetCRS;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(sourceCRS) + System.identityHashCode(targetCRS);
+        }
+
+        @Override
+        public boolean equals(final Object object) {
+            if (object instanceof IdentityPair) {
+                final IdentityPair that = (IdentityPair) object;
+                return this.sourceCRS == that.sourceCRS && this.targetCRS == that.targetCRS;
+            }
+            return false;
+        }
+    }
+
     /**
      * Helper class used in order to build an hashing for a pair of source-destination
      * {@link CoordinateReferenceSystem} objects. This is used to cache the transformations
@@ -130,6 +184,27 @@ public class BufferedCoordinateOperationFactory extends AbstractCoordinateOperat
     private final Map<CRSPair, CoordinateOperation> pool =
             new SoftValueHashMap<CRSPair, CoordinateOperation>();
 
+    /**
+     * The most recently used operations, by CRS identity. Bounded to {@link #cacheSize} entries.
+     */
+    private final Map<IdentityPair, CoordinateOperation> recent =
+            new ConcurrentHashMap<IdentityPair, CoordinateOperation>();
+
+    /**
+     * The maximum number of entries in {@link #recent}.
+     */
+    private final int cacheSize = Integer.getInteger(CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE);
+
+    /**
+     * Set while a thread is trimming {@link #recent}.
+     */
+    private final AtomicBoolean trimming = new AtomicBoolean();
+
+    /**
+     * The number of operations found in the cache, and created by the backing factory.
+     */
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
     /**
      * Creates a buffered factory wrapping the {@linkplain AuthorityBackedFactory default one}.
      */
@@ -251,15 +326,67 @@ public class BufferedCoordinateOperationFactory extends AbstractCoordinateOperat
     {
         ensureNonNull("sourceCRS", sourceCRS);
         ensureNonNull("targetCRS", targetCRS);
+        final IdentityPair recentKey = new IdentityPair(sourceCRS, targetCRS);
+        CoordinateOperation op = recent.get(recentKey);
+        if (op != null) {
+            hits.increment();
+            return op;
+        }
         final CRSPair key = new CRSPair(sourceCRS, targetCRS);
-        CoordinateOperation op;
         op = pool.get(key);
         if (op == null) {
+            misses.increment();
             op = getBackingFactory().createOperation(sourceCRS, targetCRS);
             pool.put(key, op);
+        } else {
+            hits.increment();
+        }
+        recent.put(recentKey, op);
+        if (recent.size() > cacheSize) {
+            trimRecent();
         }
         return op;
     }
+
+    /**
+     * Removes entries from the identity cache until it is back to three quarters of its
+     * maximum size. Entries are not removed in least recently used order, the ones still
+     * in use will be found again in the soft cache and put back on their next request.
+     */
+    private void trimRecent() {
+        if (trimming.compareAndSet(false, true)) {
+            try {
+                final int target = cacheSize * 3 / 4;
+                final Iterator<IdentityPair> it = recent.keySet().iterator();
+                while (recent.size() > target && it.hasNext()) {
+                    it.next();
+                    it.remove();
+                }
+            } finally {
+                trimming.set(false);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of {@link #createOperation(CoordinateReferenceSystem,
+     * CoordinateReferenceSystem) createOperation} invocations served from the cache.
+     *
+     * @since 20.0
+     */
+    public long getCacheHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of {@link #createOperation(CoordinateReferenceSystem,
+     * CoordinateReferenceSystem) createOperation} invocations delegated to the backing factory.
+     *
+     * @since 20.0
+     */
+    public long getCacheMisses() {
+        return misses.sum();
+    }
     
     /**
      * Returns all available operations for conversion or transformation between two coordinate reference systems. The operation creation is delegated
@@ -0,0 +1,170 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.factory;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Test;
+import org.opengis.referencing.FactoryException;
+
+/**
+ * Tests {@link ConcurrentReferencingObjectCache}.
+ *
+ * @source $URL$
+ */
+public final class ConcurrentReferencingObjectCacheTest {
+
+    @Test
+    public void testHit() throws FactoryException {
+        final ConcurrentReferencingObjectCache cache = new ConcurrentReferencingObjectCache(20);
+        final AtomicInteger created = new AtomicInteger();
+        final ConcurrentReferencingObjectCache.Creator<String> creator = () -> {
+            created.incrementAndGet();
+            return new String("value");
+        };
+        final String first = cache.getOrCreate("4326", String.class, creator);
+        assertSame(first, cache.getOrCreate("4326", String.class, creator));
+        assertSame(first, cache.get("4326"));
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testDifferentType() throws FactoryException {
+        final ConcurrentReferencingObjectCache cache = new ConcurrentReferencingObjectCache(20);
+        cache.put("4326", "a string");
+        assertEquals(Integer.valueOf(4326), cache.getOrCreate("4326", Integer.class, () -> 4326));
+        assertEquals(Integer.valueOf(4326), cache.get("4326"));
+    }
+
+    @Test
+    public void testDemotion() {
+        final ConcurrentReferencingObjectCache cache = new ConcurrentReferencingObjectCache(2);
+        final List<Object> values = new ArrayList<Object>();
+        for (int i = 0; i < 10; i++) {
+            final Object value = new Object();
+            values.add(value);
+            cache.put(i, value);
+        }
+        // strong references were demoted, but the values are still reachable from here
+        for (int i = 0; i < 10; i++) {
+            assertSame(values.get(i), cache.get(i));
+        }
+    }
+
+    @Test
+    public void testFailure() throws FactoryException {
+        final ConcurrentReferencingObjectCache cache = new ConcurrentReferencingObjectCache(20);
+        try {
+            cache.getOrCreate("1", String.class, () -> {
+                throw new FactoryException("Expected");
+            });
+            fail("Should have thrown an exception");
+        } catch (FactoryException e) {
+            assertEquals("Expected", e.getMessage());
+        }
+        assertNull(cache.get("1"));
+        assertEquals("ok", cache.getOrCreate("1", String.class, () -> "ok"));
+    }
+
+    /**
+     * Many threads asking for the same code at the same time should cause a single creation.
+     */
+    @Test
+    public void testConcurrentMisses() throws Exception {
+        final ConcurrentReferencingObjectCache cache = new ConcurrentReferencingObjectCache(20);
+        final AtomicInteger created = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final int threads = 16;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<Object>> results = new ArrayList<Future<Object>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<Object>() {
+                    public Object call() throws Exception {
+                        start.await();
+                        return cache.getOrCreate("4326", Object.class, () -> {
+                            created.incrementAndGet();
+                            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+                            return new Object();
+                        });
+                    }
+                }));
+            }
+            start.countDown();
+            final Object expected = results.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<Object> result : results) {
+                assertSame(expected, result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, created.get());
+            assertFalse(cache.isCreating());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * A creation asking for an other code, like a CRS asking for its datum, must not deadlock
+     * against a thread creating that other code while waiting for a backing store lock.
+     */
+    @Test
+    public void testNestedCreation() throws Exception {
+        final ConcurrentReferencingObjectCache cache = new ConcurrentReferencingObjectCache(20);
+        final Object backingStoreLock = new Object();
+        final CountDownLatch datumPending = new CountDownLatch(1);
+        final ConcurrentReferencingObjectCache.Creator<String> datum = () -> {
+            datumPending.countDown();
+            synchronized (backingStoreLock) {
+                return "datum";
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> crs;
+            synchronized (backingStoreLock) {
+                executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        return cache.getOrCreate("6326", String.class, datum);
+                    }
+                });
+                assertTrue(datumPending.await(10, TimeUnit.SECONDS));
+                crs = executor.submit(new Callable<String>() {
+                    public String call() throws Exception {
+                        return cache.getOrCreate("4326", String.class, () -> {
+                            synchronized (backingStoreLock) {
+                                return "crs on " + cache.getOrCreate("6326", String.class, datum);
+                            }
+                        });
+                    }
+                });
+            }
+            assertEquals("crs on datum", crs.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.referencing.operation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.WKT;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.After;
+import org.junit.Test;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.CoordinateOperation;
+
+/**
+ * Tests the caching performed by {@link BufferedCoordinateOperationFactory}.
+ *
+ * @source $URL$
+ */
+public final class BufferedCoordinateOperationFactoryTest {
+
+    @After
+    public void clearCacheSize() {
+        System.clearProperty(BufferedCoordinateOperationFactory.CACHE_SIZE_KEY);
+    }
+
+    private BufferedCoordinateOperationFactory createFactory() {
+        return new BufferedCoordinateOperationFactory(new DefaultCoordinateOperationFactory(),
+                BufferedCoordinateOperationFactory.PRIORITY);
+    }
+
+    @Test
+    public void testSameInstances() throws Exception {
+        final BufferedCoordinateOperationFactory factory = createFactory();
+        final CoordinateReferenceSystem utm = CRS.parseWKT(WKT.UTM_10N);
+        final CoordinateOperation op = factory.createOperation(DefaultGeographicCRS.WGS84, utm);
+        assertEquals(0, factory.getCacheHits());
+        assertEquals(1, factory.getCacheMisses());
+        for (int i = 0; i < 10; i++) {
+            assertSame(op, factory.createOperation(DefaultGeographicCRS.WGS84, utm));
+        }
+        assertEquals(10, factory.getCacheHits());
+        assertEquals(1, factory.getCacheMisses());
+    }
+
+    @Test
+    public void testEqualInstances() throws Exception {
+        final BufferedCoordinateOperationFactory factory = createFactory();
+        final CoordinateReferenceSystem utm1 = CRS.parseWKT(WKT.UTM_10N);
+        final CoordinateReferenceSystem utm2 = CRS.parseWKT(WKT.UTM_10N);
+        assertNotSame(utm1, utm2);
+        final CoordinateOperation op = factory.createOperation(DefaultGeographicCRS.WGS84, utm1);
+        assertSame(op, factory.createOperation(DefaultGeographicCRS.WGS84, utm2));
+        assertEquals(1, factory.getCacheHits());
+        assertEquals(1, factory.getCacheMisses());
+    }
+
+    @Test
+    public void testBoundedCache() throws Exception {
+        System.setProperty(BufferedCoordinateOperationFactory.CACHE_SIZE_KEY, "4");
+        final BufferedCoordinateOperationFactory factory = createFactory();
+        final CoordinateReferenceSystem[] crs = new CoordinateReferenceSystem[10];
+        final CoordinateOperation[] ops = new CoordinateOperation[crs.length];
+        for (int i = 0; i < crs.length; i++) {
+            crs[i] = CRS.parseWKT(WKT.UTM_58S);
+            ops[i] = factory.createOperation(DefaultGeographicCRS.WGS84, crs[i]);
+        }
+        // all the CRS are equal, the backing factory was invoked once
+        assertEquals(1, factory.getCacheMisses());
+        for (int i = 0; i < crs.length; i++) {
+            assertSame(ops[0], ops[i]);
+            assertSame(ops[0], factory.createOperation(DefaultGeographicCRS.WGS84, crs[i]));
+        }
+        assertEquals(1, factory.getCacheMisses());
+    }
+}
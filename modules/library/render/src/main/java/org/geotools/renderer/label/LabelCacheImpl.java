@@ -37,6 +37,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -106,6 +108,17 @@ public class LabelCacheImpl implements LabelCache {
     static final boolean DEBUG_CACHE_BOUNDS = Boolean.getBoolean("org.geotools.labelcache.showbounds");
 
     public static boolean DISABLE_LETTER_LEVEL_CONFLICT = Boolean.getBoolean("org.geotools.labelcache.disableLetterLevelConflict");
+
+    /**
+     * Number of labels beyond which the label text is laid out in parallel, before the serial
+     * conflict resolution pass. A negative value disables the parallel layout.
+     */
+    public static int PARALLEL_LAYOUT_THRESHOLD = Integer.getInteger("org.geotools.labelcache.parallelLayoutThreshold", 1000);
+
+    /**
+     * Minimum number of labels laid out by each parallel task
+     */
+    static final int MIN_LABELS_PER_TASK = 250;
     
     public enum LabelRenderingMode {
         /**
@@ -168,7 +181,7 @@ public class LabelCacheImpl implements LabelCache {
 
     protected SLDStyleFactory styleFactory = new SLDStyleFactory();
 
-    boolean stop = false;
+    volatile boolean stop = false;
 
     Set<String> enabledLayers = new HashSet<String>();
 
@@ -494,6 +507,11 @@ public class LabelCacheImpl implements LabelCache {
         } else {
             items = getActiveLabels();
         }
+        // lay out the label text in parallel, the conflict resolution below is serial instead
+        if (PARALLEL_LAYOUT_THRESHOLD >= 0 && items.size() > PARALLEL_LAYOUT_THRESHOLD) {
+            prepareLabels(graphics, items);
+        }
+
         LabelPainter painter = constructPainter.apply(graphics, labelRenderingMode);
         for (LabelCacheItem labelItem : items) {
             if (stop)
@@ -507,6 +525,47 @@ public class LabelCacheImpl implements LabelCache {
         LOGGER.log(Level.FINE, "REMAINING LINE LABELS : {0}", items.size() - paintedLineLabels);
     }
 
+    /**
+     * Lays out the text of the labels in parallel, using the common fork/join pool. Each task
+     * gets its own copy of the graphics, and its own painter. Failures are ignored here, the
+     * label will be laid out again, and the failure reported, during the serial painting.
+     */
+    void prepareLabels(Graphics2D graphics, List<LabelCacheItem> items) {
+        int tasks = Math.min(ForkJoinPool.getCommonPoolParallelism(),
+                items.size() / MIN_LABELS_PER_TASK);
+        if (tasks < 2) {
+            return;
+        }
+
+        int chunkSize = (items.size() + tasks - 1) / tasks;
+        List<ForkJoinTask<?>> futures = new ArrayList<>();
+        for (int start = 0; start < items.size(); start += chunkSize) {
+            final List<LabelCacheItem> chunk = items.subList(start,
+                    Math.min(items.size(), start + chunkSize));
+            final Graphics2D taskGraphics = (Graphics2D) graphics.create();
+            final LabelPainter painter = constructPainter.apply(taskGraphics, labelRenderingMode);
+            futures.add(ForkJoinPool.commonPool().submit(() -> {
+                try {
+                    for (LabelCacheItem item : chunk) {
+                        if (stop) {
+                            return;
+                        }
+                        try {
+                            painter.prepareLabel(item);
+                        } catch (Exception e) {
+                            LOGGER.log(Level.FINEST, "Failed to lay out label in advance", e);
+                        }
+                    }
+                } finally {
+                    taskGraphics.dispose();
+                }
+            }));
+        }
+        for (ForkJoinTask<?> future : futures) {
+            future.join();
+        }
+    }
+
     int paintLabel(Graphics2D graphics, Rectangle displayArea, LabelIndex glyphs,
             int paintedLineLabels, LabelPainter painter, LabelCacheItem labelItem) {
         boolean painted;
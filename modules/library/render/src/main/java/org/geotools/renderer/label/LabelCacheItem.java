@@ -16,6 +16,7 @@
  */
 package org.geotools.renderer.label;
 
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
@@ -58,6 +59,17 @@ public class LabelCacheItem implements Comparable<LabelCacheItem> {
     private Set<String> layerIds = new HashSet<String>();
 
     int maxDisplacement = 0;
+
+    /**
+     * The label layout computed in advance by {@link LabelPainter#prepareLabel(LabelCacheItem)},
+     * consumed by the next {@link LabelPainter#setLabel(LabelCacheItem)} call
+     */
+    List<LineInfo> preparedLines;
+
+    /**
+     * The label bounds matching {@link #preparedLines}
+     */
+    Rectangle2D preparedBounds;
     
     int[] displacementAngles;
 
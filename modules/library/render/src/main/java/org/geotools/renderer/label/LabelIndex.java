@@ -17,15 +17,21 @@
 package org.geotools.renderer.label;
 
 import java.awt.geom.Rectangle2D;
-import java.util.Iterator;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.vividsolutions.jts.geom.Envelope;
-import com.vividsolutions.jts.index.quadtree.Quadtree;
 
 /**
  * Stores label items and helps in finding the interferering ones, either by
- * pure overlap or within a certain distance from the specified bounds
+ * pure overlap or within a certain distance from the specified bounds.
+ * <p>
+ * The items are kept in a sparse uniform grid, whose cells are about the size of a label: the
+ * conflict check only scans the few cells touched by the candidate bounds, and stops at the
+ * first interference found. Items covering too many cells (large reserved areas, very long
+ * labels) are kept aside and checked one by one.
  * 
  * @author Andrea Aime
  * 
@@ -36,7 +42,38 @@ import com.vividsolutions.jts.index.quadtree.Quadtree;
  */
 public class LabelIndex {
 
-    Quadtree index = new Quadtree();
+    /**
+     * The default cell size, in pixels
+     */
+    public static final double DEFAULT_CELL_SIZE = 64;
+
+    /**
+     * Items covering more cells than this are not split among cells
+     */
+    static final int MAX_CELLS_PER_ITEM = 64;
+
+    final double cellSize;
+
+    final Map<Long, List<InterferenceItem>> cells = new HashMap<Long, List<InterferenceItem>>();
+
+    final List<InterferenceItem> largeItems = new ArrayList<InterferenceItem>();
+
+    public LabelIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Builds an index with the given grid cell size, in pixels. Best results are obtained with
+     * cells about as large as the typical label
+     * 
+     * @param cellSize
+     */
+    public LabelIndex(double cellSize) {
+        if (!(cellSize > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive, was " + cellSize);
+        }
+        this.cellSize = cellSize;
+    }
 
     /**
      * Returns true if there is any label in the index within the specified
@@ -47,22 +84,48 @@ public class LabelIndex {
      * @param distance
      * @return
      */
-    @SuppressWarnings("unchecked")
     public boolean labelsWithinDistance(Rectangle2D bounds, double distance) {
         if (distance < 0)
             return false;
 
         Envelope e = toEnvelope(bounds);
         e.expandBy(distance);
-        List<InterferenceItem> results = index.query(e);
-        if (results.size() == 0)
-            return false;
-        for (Iterator<InterferenceItem> it = results.iterator(); it.hasNext();) {
-            InterferenceItem item = it.next();
+        for (InterferenceItem item : largeItems) {
             if (item.env.intersects(e)) {
                 return true;
             }
         }
+
+        int minCol = cell(e.getMinX());
+        int maxCol = cell(e.getMaxX());
+        int minRow = cell(e.getMinY());
+        int maxRow = cell(e.getMaxY());
+        if ((long) (maxCol - minCol + 1) * (maxRow - minRow + 1) > cells.size()) {
+            // cheaper to scan the non empty cells
+            for (List<InterferenceItem> items : cells.values()) {
+                if (intersects(items, e)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                List<InterferenceItem> items = cells.get(key(col, row));
+                if (items != null && intersects(items, e)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean intersects(List<InterferenceItem> items, Envelope e) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).env.intersects(e)) {
+                return true;
+            }
+        }
         return false;
     }
 
@@ -74,7 +137,40 @@ public class LabelIndex {
      */
     public void addLabel(LabelCacheItem item, Rectangle2D bounds) {
         Envelope e = toEnvelope(bounds);
-        index.insert(e, new InterferenceItem(e, item));
+        insert(new InterferenceItem(e, item));
+    }
+
+    private void insert(InterferenceItem item) {
+        Envelope e = item.env;
+        int minCol = cell(e.getMinX());
+        int maxCol = cell(e.getMaxX());
+        int minRow = cell(e.getMinY());
+        int maxRow = cell(e.getMaxY());
+        if ((long) (maxCol - minCol + 1) * (maxRow - minRow + 1) > MAX_CELLS_PER_ITEM) {
+            largeItems.add(item);
+            return;
+        }
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                Long key = key(col, row);
+                List<InterferenceItem> items = cells.get(key);
+                if (items == null) {
+                    items = new ArrayList<InterferenceItem>(4);
+                    cells.put(key, items);
+                }
+                items.add(item);
+            }
+        }
+    }
+
+    private int cell(double ordinate) {
+        double cell = Math.floor(ordinate / cellSize);
+        // clamp, labels way off screen should not wrap around
+        return (int) Math.max(Integer.MIN_VALUE / 2, Math.min(Integer.MAX_VALUE / 2, cell));
+    }
+
+    private static Long key(int col, int row) {
+        return Long.valueOf(((long) col << 32) | (row & 0xFFFFFFFFL));
     }
 
     /**
@@ -88,7 +184,7 @@ public class LabelIndex {
     }
 
     /**
-     * Simple structure stored into the quadtree (keeping the item around helps
+     * Simple structure stored into the grid (keeping the item around helps
      * in debugging)
      * 
      * @author Andrea Aime
@@ -117,7 +213,7 @@ public class LabelIndex {
             Envelope env = toEnvelope(area);
             
             InterferenceItem item = new InterferenceItem(env,null);            
-            index.insert( env, item );
+            insert( item );
         }
     }
 }
@@ -129,6 +129,41 @@ public class LabelPainter {
         TextStyle2D textStyle = labelItem.getTextStyle();
         textStyle.setLabel(labelItem.getLabel());
 
+        // use the layout prepared in advance, if any
+        if (labelItem.preparedLines != null) {
+            lines = labelItem.preparedLines;
+            labelBounds = labelItem.preparedBounds;
+            labelItem.preparedLines = null;
+            labelItem.preparedBounds = null;
+            return;
+        }
+
+        layoutLabel(labelItem);
+    }
+
+    /**
+     * Lays out the label and stores the results in the item, to be picked up by the next
+     * {@link #setLabel(LabelCacheItem)} call. Does not alter the shared text style, so different
+     * painters, each with its own graphics, can prepare different labels in parallel.
+     * 
+     * @param labelItem
+     */
+    void prepareLabel(LabelCacheItem labelItem) {
+        layoutLabel(labelItem);
+        labelItem.preparedLines = lines;
+        labelItem.preparedBounds = labelBounds;
+        lines = null;
+        labelBounds = null;
+    }
+
+    /**
+     * Splits the label in lines and computes their positions and overall bounds
+     * 
+     * @param labelItem
+     */
+    void layoutLabel(LabelCacheItem labelItem) {
+        TextStyle2D textStyle = labelItem.getTextStyle();
+
         // reset previous caches
         labelBounds = null;
         lines = null;
@@ -24,6 +24,7 @@ import org.geotools.map.Layer;
 import org.geotools.renderer.ScreenMap;
 import org.geotools.renderer.crs.ProjectionHandler;
 import org.geotools.styling.Rule;
+import org.opengis.filter.Filter;
 import org.opengis.filter.expression.Expression;
 import org.opengis.filter.sort.SortBy;
 
@@ -96,6 +97,12 @@ final class LiteFeatureTypeStyle {
      */
     int metaBuffer;
 
+    /**
+     * The filters of {@link #ruleList}, compiled against the layer schema for fast evaluation,
+     * or null if the rule filters have to be evaluated as is
+     */
+    Filter[] ruleFilters;
+
     /**
      * use this for only the 1st FTS. We don't actually create an image for it -- we just use the
      * graphics. WATCH OUT FOR THIS. NOTE: image=null in this case
@@ -16,23 +16,34 @@
  */
 package org.geotools.renderer.lite;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.NoSuchElementException;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.data.sort.SimpleFeatureIO;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.util.DefaultProgressListener;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.Feature;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.util.ProgressListener;
 
+import com.vividsolutions.jts.io.WKBReader;
+import com.vividsolutions.jts.io.WKBWriter;
+
 /**
  * A FeatureIterator that can have a position marked, and can be reset to it
  * 
@@ -42,6 +53,45 @@ abstract class MarkFeatureIterator implements FeatureIterator<Feature> {
 
     static final Logger LOGGER = Logging.getLogger(MarkFeatureIterator.class);
 
+    /**
+     * How features get stored once there are too many to be kept in memory
+     */
+    enum SpillMode {
+        /**
+         * Compact records in regions of a temporary file mapped in memory
+         */
+        MAPPED,
+        /**
+         * Compact records in direct buffers, outside of the Java heap
+         */
+        DIRECT,
+        /**
+         * Whole features streamed to a temporary file
+         */
+        FILE
+    }
+
+    /**
+     * System property used to choose the {@link SpillMode}, defaults to
+     * {@link SpillMode#MAPPED}
+     */
+    public static final String SPILL_MODE_KEY = "org.geotools.renderer.markFeatureIterator.spill";
+
+    static final SpillMode SPILL_MODE = getSpillMode();
+
+    static SpillMode getSpillMode() {
+        String mode = System.getProperty(SPILL_MODE_KEY);
+        if (mode != null) {
+            try {
+                return SpillMode.valueOf(mode.trim().toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                LOGGER.log(Level.WARNING, "Invalid value for " + SPILL_MODE_KEY + ": " + mode
+                        + ", using " + SpillMode.MAPPED);
+            }
+        }
+        return SpillMode.MAPPED;
+    }
+
     /**
      * Builds a new {@link MarkFeatureIterator} making sure no too many features are kept in memory.
      * The listener won't receive any notification, but will be used to check if the data loading
@@ -54,6 +104,11 @@ abstract class MarkFeatureIterator implements FeatureIterator<Feature> {
      */
     public static MarkFeatureIterator create(FeatureCollection fc, int maxFeaturesInMemory,
             ProgressListener listener) throws IOException {
+        return create(fc, maxFeaturesInMemory, listener, SPILL_MODE);
+    }
+
+    static MarkFeatureIterator create(FeatureCollection fc, int maxFeaturesInMemory,
+            ProgressListener listener, SpillMode spillMode) throws IOException {
         List<Feature> features = new ArrayList<>();
         int count = 0;
         if (listener == null) {
@@ -69,8 +124,15 @@ abstract class MarkFeatureIterator implements FeatureIterator<Feature> {
                 count++;
                 if (count >= maxFeaturesInMemory) {
                     if (fc.getSchema() instanceof SimpleFeatureType) {
-                        return new DiskMarkFeatureIterator(features, fi,
-                                (SimpleFeatureType) fc.getSchema(), listener);
+                        SimpleFeatureType schema = (SimpleFeatureType) fc.getSchema();
+                        if (spillMode == SpillMode.FILE) {
+                            return new DiskMarkFeatureIterator(features, fi, schema, listener);
+                        } else {
+                            SpillBuffer buffer = new SpillBuffer(spillMode == SpillMode.MAPPED,
+                                    SpillBuffer.DEFAULT_CHUNK_SIZE);
+                            return new CompactMarkFeatureIterator(features, fi, schema,
+                                    listener, buffer);
+                        }
                     } else {
                         throw new IllegalArgumentException(
                                 "Cannot offload to disk complex features "
@@ -252,4 +314,180 @@ abstract class MarkFeatureIterator implements FeatureIterator<Feature> {
         }
     }
 
+
+    /**
+     * Implementation offloading the features in a {@link SpillBuffer}, outside of the heap.
+     * Each feature is stored as a length prefixed record containing the feature id and the
+     * attributes encoded by {@link SimpleFeatureIO#writeAttribute}, with geometries as WKB.
+     * Only the attributes of the collection schema are stored, the renderer already restricts
+     * them to the ones used by the styles.
+     */
+    static class CompactMarkFeatureIterator extends MarkFeatureIterator {
+
+        /**
+         * Gives access to the backing array, to avoid copying each record
+         */
+        static class RecordOutput extends ByteArrayOutputStream {
+            byte[] getBuffer() {
+                return buf;
+            }
+        }
+
+        /**
+         * Allows to read records from a reusable array
+         */
+        static class RecordInput extends ByteArrayInputStream {
+            RecordInput() {
+                super(new byte[0]);
+            }
+
+            void reset(byte[] buffer, int length) {
+                this.buf = buffer;
+                this.pos = 0;
+                this.mark = 0;
+                this.count = length;
+            }
+        }
+
+        SpillBuffer buffer;
+
+        SimpleFeatureType schema;
+
+        List<AttributeDescriptor> descriptors;
+
+        SimpleFeatureBuilder builder;
+
+        WKBReader wkbReader = new WKBReader();
+
+        RecordInput recordInput = new RecordInput();
+
+        DataInputStream input = new DataInputStream(recordInput);
+
+        byte[] record = new byte[1024];
+
+        long position;
+
+        int curr;
+
+        long markPosition;
+
+        int mark;
+
+        int featureCount;
+
+        public CompactMarkFeatureIterator(List<Feature> features, FeatureIterator fi,
+                SimpleFeatureType schema, ProgressListener listener, SpillBuffer buffer)
+                throws IOException {
+            this.buffer = buffer;
+            this.schema = schema;
+            this.descriptors = schema.getAttributeDescriptors();
+            this.builder = new SimpleFeatureBuilder(schema);
+
+            try {
+                RecordOutput bos = new RecordOutput();
+                DataOutputStream out = new DataOutputStream(bos);
+                WKBWriter wkbWriter = new WKBWriter();
+
+                // dump all the features in memory, releasing them as we go
+                for (int i = 0; i < features.size() && !listener.isCanceled(); i++) {
+                    write((SimpleFeature) features.set(i, null), bos, out, wkbWriter);
+                }
+                features.clear();
+
+                // dump all the subsequent ones
+                while (fi.hasNext() && !listener.isCanceled()) {
+                    write((SimpleFeature) fi.next(), bos, out, wkbWriter);
+                }
+                // do not close the iterator, the caller does that
+            } catch (IOException | RuntimeException e) {
+                buffer.close();
+                throw e;
+            }
+        }
+
+        void write(SimpleFeature feature, RecordOutput bos, DataOutputStream out,
+                WKBWriter wkbWriter) throws IOException {
+            bos.reset();
+            out.writeUTF(feature.getID());
+            for (int i = 0; i < descriptors.size(); i++) {
+                SimpleFeatureIO.writeAttribute(out, descriptors.get(i), feature.getAttribute(i),
+                        wkbWriter);
+            }
+            out.flush();
+            buffer.writeInt(bos.size());
+            buffer.write(bos.getBuffer(), 0, bos.size());
+            featureCount++;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return curr < featureCount;
+        }
+
+        @Override
+        public Feature next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more features available");
+            }
+            try {
+                int length = buffer.readInt(position);
+                if (record.length < length) {
+                    record = new byte[Math.max(length, record.length * 2)];
+                }
+                buffer.read(position + 4, record, 0, length);
+                position += 4 + length;
+                curr++;
+
+                recordInput.reset(record, length);
+                String fid = input.readUTF();
+                for (AttributeDescriptor ad : descriptors) {
+                    builder.add(SimpleFeatureIO.readAttribute(input, ad, wkbReader));
+                }
+                return builder.buildFeature(fid);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (buffer != null) {
+                try {
+                    buffer.close();
+                    buffer = null;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        @Override
+        public void mark() throws IOException {
+            mark = curr;
+            markPosition = position;
+        }
+
+        @Override
+        public void reset() throws IOException {
+            curr = mark;
+            position = markPosition;
+        }
+
+        @Override
+        public String toString() {
+            return "CompactMarkFeatureIterator [mark=" + mark + ", markPosition=" + markPosition
+                    + ", buffer=" + buffer + ", curr=" + curr + ", position=" + position
+                    + ", featureCount=" + featureCount + "]";
+        }
+
+        @Override
+        protected void finalize() throws Throwable {
+            if (buffer != null) {
+                LOGGER.warning("There is code leaving CompactMarkFeatureIterator open, "
+                        + "this is leaking off heap memory or temporary files!");
+                close();
+            }
+        }
+    }
+
 }
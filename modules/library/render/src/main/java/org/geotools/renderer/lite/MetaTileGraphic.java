@@ -0,0 +1,591 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Composite;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Paint;
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.RenderingHints.Key;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.BufferedImageOp;
+import java.awt.image.ImageObserver;
+import java.awt.image.RenderedImage;
+import java.awt.image.renderable.RenderableImage;
+import java.text.AttributedCharacterIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A graphic spanning a meta tile, painting on a set of tile graphics, each one covering a
+ * rectangle of the meta tile. Every state change is forwarded to all tiles, shapes are painted
+ * only on the tiles their bounds touch, anything else (images, text) is painted on all tiles and
+ * left to the tile clipping.
+ * <p>
+ * The tile graphics are supposed to paint over an area as big as their rectangle (e.g., a
+ * tile sized image), and are translated so that the meta tile coordinates fall in place.
+ *
+ * @since 20.0
+ */
+final class MetaTileGraphic extends Graphics2D {
+
+    final List<Graphics2D> tiles;
+
+    final List<Rectangle> areas;
+
+    /**
+     * The transform of each tile at the time the meta tile was set up, including the translation
+     * to the tile area
+     */
+    final List<AffineTransform> baseTransforms;
+
+    /**
+     * The meta tile transform, the same for all tiles, modulo their base transform
+     */
+    AffineTransform transform;
+
+    /**
+     * True if the tiles have been created by this object, and need to be disposed with it
+     */
+    final boolean owner;
+
+    /**
+     * Builds a new meta tile graphic
+     *
+     * @param tiles The graphics of each tile
+     * @param areas The area of each tile, in meta tile pixels
+     */
+    public MetaTileGraphic(List<Graphics2D> tiles, List<Rectangle> areas) {
+        if (tiles.isEmpty() || tiles.size() != areas.size()) {
+            throw new IllegalArgumentException("Expected one area per tile, and at least one "
+                    + "tile, but got " + tiles.size() + " tiles and " + areas.size() + " areas");
+        }
+        this.tiles = new ArrayList<>(tiles);
+        this.areas = new ArrayList<>(areas);
+        this.baseTransforms = new ArrayList<>(tiles.size());
+        for (int i = 0; i < tiles.size(); i++) {
+            Graphics2D tile = tiles.get(i);
+            Rectangle area = areas.get(i);
+            tile.translate(-area.x, -area.y);
+            baseTransforms.add(tile.getTransform());
+        }
+        this.transform = new AffineTransform();
+        this.owner = false;
+    }
+
+    private MetaTileGraphic(MetaTileGraphic parent) {
+        this.tiles = new ArrayList<>(parent.tiles.size());
+        for (Graphics2D tile : parent.tiles) {
+            tiles.add((Graphics2D) tile.create());
+        }
+        this.areas = parent.areas;
+        this.baseTransforms = parent.baseTransforms;
+        this.transform = new AffineTransform(parent.transform);
+        this.owner = true;
+    }
+
+    Graphics2D first() {
+        return tiles.get(0);
+    }
+
+    /**
+     * Paints the shape only on the tiles touched by its bounds, expanded by the given margin in
+     * pixels. A negative margin means the bounds cannot be estimated, and the shape is painted
+     * on all tiles.
+     */
+    void paint(Shape s, double margin, boolean fill) {
+        Rectangle2D bounds = null;
+        if (margin >= 0) {
+            Rectangle2D userBounds = s.getBounds2D();
+            bounds = transform.createTransformedShape(userBounds).getBounds2D();
+            bounds.setRect(bounds.getX() - margin, bounds.getY() - margin, bounds.getWidth()
+                    + margin * 2, bounds.getHeight() + margin * 2);
+        }
+        for (int i = 0; i < tiles.size(); i++) {
+            if (bounds == null || bounds.intersects(areas.get(i))) {
+                if (fill) {
+                    tiles.get(i).fill(s);
+                } else {
+                    tiles.get(i).draw(s);
+                }
+            }
+        }
+    }
+
+    /**
+     * The amount of pixels a stroke can extend beyond the shape, or -1 if unknown
+     */
+    double getStrokeMargin() {
+        Stroke stroke = first().getStroke();
+        if (!(stroke instanceof BasicStroke)) {
+            return -1;
+        }
+        BasicStroke bs = (BasicStroke) stroke;
+        double scale = Math.max(Math.hypot(transform.getScaleX(), transform.getShearY()),
+                Math.hypot(transform.getShearX(), transform.getScaleY()));
+        double extent = bs.getLineWidth() / 2;
+        if (bs.getLineJoin() == BasicStroke.JOIN_MITER) {
+            extent *= Math.max(1, bs.getMiterLimit());
+        }
+        // one more pixel for antialiasing
+        return extent * scale + 1;
+    }
+
+    void updateTransforms() {
+        for (int i = 0; i < tiles.size(); i++) {
+            AffineTransform tx = new AffineTransform(baseTransforms.get(i));
+            tx.concatenate(transform);
+            tiles.get(i).setTransform(tx);
+        }
+    }
+
+    public void addRenderingHints(Map<?, ?> hints) {
+        for (Graphics2D tile : tiles) {
+            tile.addRenderingHints(hints);
+        }
+    }
+
+    public void clearRect(int x, int y, int width, int height) {
+        for (Graphics2D tile : tiles) {
+            tile.clearRect(x, y, width, height);
+        }
+    }
+
+    public void clip(Shape s) {
+        for (Graphics2D tile : tiles) {
+            tile.clip(s);
+        }
+    }
+
+    public void clipRect(int x, int y, int width, int height) {
+        for (Graphics2D tile : tiles) {
+            tile.clipRect(x, y, width, height);
+        }
+    }
+
+    public void copyArea(int x, int y, int width, int height, int dx, int dy) {
+        throw new UnsupportedOperationException("Copying areas across tiles is not supported");
+    }
+
+    public Graphics create() {
+        return new MetaTileGraphic(this);
+    }
+
+    public Graphics create(int x, int y, int width, int height) {
+        MetaTileGraphic result = new MetaTileGraphic(this);
+        result.translate(x, y);
+        result.clipRect(0, 0, width, height);
+        return result;
+    }
+
+    public void dispose() {
+        if (owner) {
+            for (Graphics2D tile : tiles) {
+                tile.dispose();
+            }
+        }
+    }
+
+    public void draw(Shape s) {
+        paint(s, getStrokeMargin(), false);
+    }
+
+    public void drawGlyphVector(GlyphVector g, float x, float y) {
+        for (Graphics2D tile : tiles) {
+            tile.drawGlyphVector(g, x, y);
+        }
+    }
+
+    public void drawImage(BufferedImage img, BufferedImageOp op, int x, int y) {
+        for (Graphics2D tile : tiles) {
+            tile.drawImage(img, op, x, y);
+        }
+    }
+
+    public boolean drawImage(Image img, AffineTransform xform, ImageObserver obs) {
+        boolean result = true;
+        for (Graphics2D tile : tiles) {
+            result &= tile.drawImage(img, xform, obs);
+        }
+        return result;
+    }
+
+    public boolean drawImage(Image img, int x, int y, Color bgcolor, ImageObserver observer) {
+        boolean result = true;
+        for (Graphics2D tile : tiles) {
+            result &= tile.drawImage(img, x, y, bgcolor, observer);
+        }
+        return result;
+    }
+
+    public boolean drawImage(Image img, int x, int y, ImageObserver observer) {
+        boolean result = true;
+        for (Graphics2D tile : tiles) {
+            result &= tile.drawImage(img, x, y, observer);
+        }
+        return result;
+    }
+
+    public boolean drawImage(Image img, int x, int y, int width, int height, Color bgcolor,
+            ImageObserver observer) {
+        boolean result = true;
+        for (Graphics2D tile : tiles) {
+            result &= tile.drawImage(img, x, y, width, height, bgcolor, observer);
+        }
+        return result;
+    }
+
+    public boolean drawImage(Image img, int x, int y, int width, int height,
+            ImageObserver observer) {
+        boolean result = true;
+        for (Graphics2D tile : tiles) {
+            result &= tile.drawImage(img, x, y, width, height, observer);
+        }
+        return result;
+    }
+
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1,
+            int sx2, int sy2, Color bgcolor, ImageObserver observer) {
+        boolean result = true;
+        for (Graphics2D tile : tiles) {
+            result &= tile.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, bgcolor,
+                    observer);
+        }
+        return result;
+    }
+
+    public boolean drawImage(Image img, int dx1, int dy1, int dx2, int dy2, int sx1, int sy1,
+            int sx2, int sy2, ImageObserver observer) {
+        boolean result = true;
+        for (Graphics2D tile : tiles) {
+            result &= tile.drawImage(img, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, observer);
+        }
+        return result;
+    }
+
+    public void drawLine(int x1, int y1, int x2, int y2) {
+        for (Graphics2D tile : tiles) {
+            tile.drawLine(x1, y1, x2, y2);
+        }
+    }
+
+    public void drawOval(int x, int y, int width, int height) {
+        for (Graphics2D tile : tiles) {
+            tile.drawOval(x, y, width, height);
+        }
+    }
+
+    public void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        for (Graphics2D tile : tiles) {
+            tile.drawArc(x, y, width, height, startAngle, arcAngle);
+        }
+    }
+
+    public void drawPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        for (Graphics2D tile : tiles) {
+            tile.drawPolygon(xPoints, yPoints, nPoints);
+        }
+    }
+
+    public void drawPolygon(Polygon p) {
+        draw(p);
+    }
+
+    public void drawPolyline(int[] xPoints, int[] yPoints, int nPoints) {
+        for (Graphics2D tile : tiles) {
+            tile.drawPolyline(xPoints, yPoints, nPoints);
+        }
+    }
+
+    public void drawRect(int x, int y, int width, int height) {
+        for (Graphics2D tile : tiles) {
+            tile.drawRect(x, y, width, height);
+        }
+    }
+
+    public void drawRenderableImage(RenderableImage img, AffineTransform xform) {
+        for (Graphics2D tile : tiles) {
+            tile.drawRenderableImage(img, xform);
+        }
+    }
+
+    public void drawRenderedImage(RenderedImage img, AffineTransform xform) {
+        for (Graphics2D tile : tiles) {
+            tile.drawRenderedImage(img, xform);
+        }
+    }
+
+    public void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        for (Graphics2D tile : tiles) {
+            tile.drawRoundRect(x, y, width, height, arcWidth, arcHeight);
+        }
+    }
+
+    public void drawString(AttributedCharacterIterator iterator, float x, float y) {
+        for (Graphics2D tile : tiles) {
+            // the iterator is consumed while drawing
+            iterator.first();
+            tile.drawString(iterator, x, y);
+        }
+    }
+
+    public void drawString(AttributedCharacterIterator iterator, int x, int y) {
+        for (Graphics2D tile : tiles) {
+            iterator.first();
+            tile.drawString(iterator, x, y);
+        }
+    }
+
+    public void drawString(String s, float x, float y) {
+        for (Graphics2D tile : tiles) {
+            tile.drawString(s, x, y);
+        }
+    }
+
+    public void drawString(String str, int x, int y) {
+        for (Graphics2D tile : tiles) {
+            tile.drawString(str, x, y);
+        }
+    }
+
+    public void fill(Shape s) {
+        paint(s, 1, true);
+    }
+
+    public void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        for (Graphics2D tile : tiles) {
+            tile.fillArc(x, y, width, height, startAngle, arcAngle);
+        }
+    }
+
+    public void fillOval(int x, int y, int width, int height) {
+        for (Graphics2D tile : tiles) {
+            tile.fillOval(x, y, width, height);
+        }
+    }
+
+    public void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        for (Graphics2D tile : tiles) {
+            tile.fillPolygon(xPoints, yPoints, nPoints);
+        }
+    }
+
+    public void fillPolygon(Polygon p) {
+        fill(p);
+    }
+
+    public void fillRect(int x, int y, int width, int height) {
+        for (Graphics2D tile : tiles) {
+            tile.fillRect(x, y, width, height);
+        }
+    }
+
+    public void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        for (Graphics2D tile : tiles) {
+            tile.fillRoundRect(x, y, width, height, arcWidth, arcHeight);
+        }
+    }
+
+    public Color getBackground() {
+        return first().getBackground();
+    }
+
+    public Shape getClip() {
+        return first().getClip();
+    }
+
+    public Rectangle getClipBounds() {
+        return first().getClipBounds();
+    }
+
+    public Color getColor() {
+        return first().getColor();
+    }
+
+    public Composite getComposite() {
+        return first().getComposite();
+    }
+
+    public GraphicsConfiguration getDeviceConfiguration() {
+        return first().getDeviceConfiguration();
+    }
+
+    public Font getFont() {
+        return first().getFont();
+    }
+
+    public FontMetrics getFontMetrics(Font f) {
+        return first().getFontMetrics(f);
+    }
+
+    public FontRenderContext getFontRenderContext() {
+        return first().getFontRenderContext();
+    }
+
+    public Paint getPaint() {
+        return first().getPaint();
+    }
+
+    public Object getRenderingHint(Key hintKey) {
+        return first().getRenderingHint(hintKey);
+    }
+
+    public RenderingHints getRenderingHints() {
+        return first().getRenderingHints();
+    }
+
+    public Stroke getStroke() {
+        return first().getStroke();
+    }
+
+    public AffineTransform getTransform() {
+        return new AffineTransform(transform);
+    }
+
+    public boolean hit(Rectangle rect, Shape s, boolean onStroke) {
+        return first().hit(rect, s, onStroke);
+    }
+
+    public void rotate(double theta, double x, double y) {
+        transform.rotate(theta, x, y);
+        updateTransforms();
+    }
+
+    public void rotate(double theta) {
+        transform.rotate(theta);
+        updateTransforms();
+    }
+
+    public void scale(double sx, double sy) {
+        transform.scale(sx, sy);
+        updateTransforms();
+    }
+
+    public void setBackground(Color color) {
+        for (Graphics2D tile : tiles) {
+            tile.setBackground(color);
+        }
+    }
+
+    public void setClip(int x, int y, int width, int height) {
+        for (Graphics2D tile : tiles) {
+            tile.setClip(x, y, width, height);
+        }
+    }
+
+    public void setClip(Shape clip) {
+        for (Graphics2D tile : tiles) {
+            tile.setClip(clip);
+        }
+    }
+
+    public void setColor(Color c) {
+        for (Graphics2D tile : tiles) {
+            tile.setColor(c);
+        }
+    }
+
+    public void setComposite(Composite comp) {
+        for (Graphics2D tile : tiles) {
+            tile.setComposite(comp);
+        }
+    }
+
+    public void setFont(Font font) {
+        for (Graphics2D tile : tiles) {
+            tile.setFont(font);
+        }
+    }
+
+    public void setPaint(Paint paint) {
+        for (Graphics2D tile : tiles) {
+            tile.setPaint(paint);
+        }
+    }
+
+    public void setPaintMode() {
+        for (Graphics2D tile : tiles) {
+            tile.setPaintMode();
+        }
+    }
+
+    public void setRenderingHint(Key hintKey, Object hintValue) {
+        for (Graphics2D tile : tiles) {
+            tile.setRenderingHint(hintKey, hintValue);
+        }
+    }
+
+    public void setRenderingHints(Map<?, ?> hints) {
+        for (Graphics2D tile : tiles) {
+            tile.setRenderingHints(hints);
+        }
+    }
+
+    public void setStroke(Stroke s) {
+        for (Graphics2D tile : tiles) {
+            tile.setStroke(s);
+        }
+    }
+
+    public void setTransform(AffineTransform Tx) {
+        transform = new AffineTransform(Tx);
+        updateTransforms();
+    }
+
+    public void setXORMode(Color c1) {
+        for (Graphics2D tile : tiles) {
+            tile.setXORMode(c1);
+        }
+    }
+
+    public void shear(double shx, double shy) {
+        transform.shear(shx, shy);
+        updateTransforms();
+    }
+
+    public void transform(AffineTransform Tx) {
+        transform.concatenate(Tx);
+        updateTransforms();
+    }
+
+    public void translate(double tx, double ty) {
+        transform.translate(tx, ty);
+        updateTransforms();
+    }
+
+    public void translate(int x, int y) {
+        transform.translate(x, y);
+        updateTransforms();
+    }
+
+}
@@ -0,0 +1,185 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.collection.DecoratingFeatureCollection;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.Feature;
+import org.opengis.feature.type.FeatureType;
+
+/**
+ * A feature collection that starts reading its delegate in a background thread as soon as
+ * {@link #start(ExecutorService)} is called, buffering up to a fixed number of features, so that
+ * the data sources of several layers can be read at the same time while the renderer is still
+ * painting the previous ones.
+ * <p>
+ * The first call to {@link #features()} consumes the prefetched features. If the background
+ * task did not start yet (e.g., the thread pool is saturated) the calling thread reads the
+ * delegate directly, so that a busy or single threaded pool cannot cause a deadlock. Any further
+ * call to {@link #features()} reads the delegate again, as a normal collection would.
+ */
+class PrefetchingFeatureCollection<T extends FeatureType, F extends Feature> extends
+        DecoratingFeatureCollection<T, F> {
+
+    static final Logger LOGGER = Logging.getLogger(PrefetchingFeatureCollection.class);
+
+    /** Marks the end of the prefetched features */
+    static final Object END = new Object();
+
+    final BlockingQueue<Object> queue;
+
+    /** Set by whoever gets to read the delegate first, the background task or the consumer */
+    final AtomicBoolean started = new AtomicBoolean(false);
+
+    final AtomicBoolean consumed = new AtomicBoolean(false);
+
+    volatile boolean cancelled;
+
+    volatile Throwable failure;
+
+    PrefetchingFeatureCollection(FeatureCollection<T, F> delegate, int bufferSize) {
+        super(delegate);
+        this.queue = new ArrayBlockingQueue<Object>(Math.max(1, bufferSize));
+    }
+
+    /**
+     * Submits the background loading task to the specified executor
+     */
+    public void start(ExecutorService executor) {
+        try {
+            executor.submit(new Runnable() {
+
+                @Override
+                public void run() {
+                    prefetch();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "Could not start prefetching, will read data on demand", e);
+        }
+    }
+
+    void prefetch() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        try (FeatureIterator<F> fi = delegate.features()) {
+            while (!cancelled && fi.hasNext()) {
+                offer(fi.next());
+            }
+        } catch (Throwable t) {
+            failure = t;
+        } finally {
+            offer(END);
+            if (cancelled) {
+                // always deliver the end marker, a consumer might still be waiting for it. Only
+                // this thread adds to the queue, so there is room for it once cleared
+                queue.clear();
+                queue.offer(END);
+            }
+        }
+    }
+
+    private void offer(Object item) {
+        try {
+            while (!cancelled && !queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                // waiting for the consumer to catch up
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops the background loading, if still running, and releases the buffered features
+     */
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+    }
+
+    @Override
+    public FeatureIterator<F> features() {
+        if (!consumed.compareAndSet(false, true) || started.compareAndSet(false, true)) {
+            // already consumed, or the background task did not get to run yet
+            return delegate.features();
+        }
+        return new PrefetchedIterator();
+    }
+
+    class PrefetchedIterator implements FeatureIterator<F> {
+
+        Object next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                try {
+                    next = queue.poll(100, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    next = END;
+                }
+                if (next == null && cancelled) {
+                    // the background task might be stuck reading the delegate
+                    next = END;
+                }
+            }
+            if (next == END) {
+                Throwable t = failure;
+                if (t != null) {
+                    failure = null;
+                    if (t instanceof RuntimeException) {
+                        throw (RuntimeException) t;
+                    }
+                    throw new RuntimeException("Failed to load the layer features", t);
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public F next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException("No more features");
+            }
+            F result = (F) next;
+            next = null;
+            return result;
+        }
+
+        @Override
+        public void close() {
+            cancel();
+        }
+    }
+}
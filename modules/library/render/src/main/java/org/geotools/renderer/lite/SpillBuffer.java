@@ -0,0 +1,186 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * An append only byte store living outside of the Java heap, split in fixed size chunks. The
+ * chunks are either direct buffers, or regions of a temporary file mapped in memory, in which
+ * case the operating system decides what stays in memory and what gets paged out to disk.
+ * <p>
+ * Not thread safe, meant to be written once and then read back, possibly several times, by a
+ * single thread.
+ *
+ * @since 20.0
+ */
+class SpillBuffer implements Closeable {
+
+    static final Logger LOGGER = Logging.getLogger(SpillBuffer.class);
+
+    static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+
+    final int chunkSize;
+
+    final List<ByteBuffer> chunks = new ArrayList<>();
+
+    final byte[] intBuffer = new byte[4];
+
+    File file;
+
+    RandomAccessFile raf;
+
+    FileChannel channel;
+
+    long size;
+
+    /**
+     * Builds a new spill buffer
+     *
+     * @param mapped If true the chunks are mapped from a temporary file, otherwise they are
+     *        allocated as direct buffers
+     * @param chunkSize The size of each chunk
+     * @throws IOException
+     */
+    public SpillBuffer(boolean mapped, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        if (mapped) {
+            file = File.createTempFile("z-ordered-", ".spill");
+            raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+        }
+    }
+
+    /**
+     * Appends the bytes at the end of the buffer
+     */
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            int chunkOffset = (int) (size % chunkSize);
+            if (chunkOffset == 0 && size / chunkSize == chunks.size()) {
+                chunks.add(allocate(chunks.size()));
+            }
+            ByteBuffer chunk = chunks.get((int) (size / chunkSize));
+            int written = Math.min(length, chunkSize - chunkOffset);
+            chunk.position(chunkOffset);
+            chunk.put(bytes, offset, written);
+            offset += written;
+            length -= written;
+            size += written;
+        }
+    }
+
+    /**
+     * Appends a big endian integer at the end of the buffer
+     */
+    public void writeInt(int value) throws IOException {
+        intBuffer[0] = (byte) (value >>> 24);
+        intBuffer[1] = (byte) (value >>> 16);
+        intBuffer[2] = (byte) (value >>> 8);
+        intBuffer[3] = (byte) value;
+        write(intBuffer, 0, 4);
+    }
+
+    /**
+     * Reads exactly <code>length</code> bytes starting from the given position
+     */
+    public void read(long position, byte[] target, int offset, int length) {
+        if (position < 0 || position + length > size) {
+            throw new IndexOutOfBoundsException("Cannot read " + length + " bytes at " + position
+                    + ", the buffer size is " + size);
+        }
+        while (length > 0) {
+            ByteBuffer chunk = chunks.get((int) (position / chunkSize));
+            int chunkOffset = (int) (position % chunkSize);
+            int read = Math.min(length, chunkSize - chunkOffset);
+            chunk.position(chunkOffset);
+            chunk.get(target, offset, read);
+            offset += read;
+            length -= read;
+            position += read;
+        }
+    }
+
+    /**
+     * Reads a big endian integer at the given position
+     */
+    public int readInt(long position) {
+        read(position, intBuffer, 0, 4);
+        return ((intBuffer[0] & 0xFF) << 24) | ((intBuffer[1] & 0xFF) << 16)
+                | ((intBuffer[2] & 0xFF) << 8) | (intBuffer[3] & 0xFF);
+    }
+
+    /**
+     * The number of bytes written so far
+     */
+    public long size() {
+        return size;
+    }
+
+    ByteBuffer allocate(int index) throws IOException {
+        if (channel != null) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, (long) index * chunkSize,
+                    chunkSize);
+        } else {
+            return ByteBuffer.allocateDirect(chunkSize);
+        }
+    }
+
+    /**
+     * Releases the chunks and removes the temporary file, if any. The memory backing the chunks
+     * is given back to the system once they get garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        chunks.clear();
+        size = 0;
+        if (raf != null) {
+            try {
+                raf.close();
+            } finally {
+                raf = null;
+                channel = null;
+                // on some platforms mapped files cannot be removed until unmapped, which
+                // happens only when the buffers get garbage collected
+                if (!file.delete()) {
+                    LOGGER.log(Level.FINE, "Could not remove " + file
+                            + " right away, will try again on exit");
+                    file.deleteOnExit();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillBuffer [size=" + size + ", chunks=" + chunks.size() + ", file=" + file + "]";
+    }
+}
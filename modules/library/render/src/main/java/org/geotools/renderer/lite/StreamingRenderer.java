@@ -29,6 +29,7 @@ import java.awt.font.GlyphVector;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.NoninvertibleTransformException;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.IOException;
@@ -37,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -76,6 +78,7 @@ import org.geotools.filter.IllegalFilterException;
 import org.geotools.filter.function.GeometryTransformationVisitor;
 import org.geotools.filter.spatial.DefaultCRSFilterVisitor;
 import org.geotools.filter.spatial.ReprojectingFilterVisitor;
+import org.geotools.filter.visitor.CompilingFilterVisitor;
 import org.geotools.filter.visitor.SimplifyingFilterVisitor;
 import org.geotools.filter.visitor.SpatialFilterVisitor;
 import org.geotools.geometry.jts.Decimator;
@@ -341,6 +344,29 @@ public class StreamingRenderer implements GTRenderer {
      */
     public static final String OPTIMIZE_FTS_RENDERING_KEY = "optimizeFTSRendering";
 
+    /**
+     * Boolean flag enabling parallel data loading for the layers in the map (disabled by
+     * default).
+     * <p>When enabled, and a thread pool has been provided via
+     * {@link #setThreadPool(ExecutorService)}, the features of all the vector layers that
+     * can be read with a single scan are loaded in parallel, each one in its own bounded memory
+     * buffer, while the renderer paints the layers one after the other in the usual order.
+     * Layers with rendering transformations, direct layers and z-ordered groups are loaded
+     * on demand as usual.</p>
+     * <p>The painting order, label conflict resolution and compositing are not affected,
+     * the map rendering time will be however bound by the slowest source, instead of
+     * being the sum of all source latencies</p>
+     */
+    public static final String PARALLEL_LAYER_LOADING_KEY = "parallelLayerLoading";
+
+    /**
+     * Integer value controlling how many features are buffered in memory for each layer
+     * when {@link #PARALLEL_LAYER_LOADING_KEY} is enabled (defaults to 1000)
+     */
+    public static final String PARALLEL_LAYER_LOADING_BUFFER_KEY = "parallelLayerLoadingBuffer";
+
+    private static final int PARALLEL_LAYER_LOADING_BUFFER_DEFAULT = 1000;
+
 
     /**
      * Enables advanced reprojection handling. Geometries will be sliced to fit into the
@@ -663,6 +689,64 @@ public class StreamingRenderer implements GTRenderer {
         return RendererUtilities.calculateOGCScale(envelope, paintArea.width, hints);
     }
 
+    /**
+     * Renders a set of tiles sharing the same size and resolution in a single pass, as a meta
+     * tile covering their union. The data is read only once for the whole meta tile, geometries
+     * are transformed and decimated once in meta tile pixels, and painted on the graphics of the
+     * tiles they touch. Labels are laid out over the whole meta tile, so that their conflicts are
+     * resolved across tiles, and labels crossing a tile border get painted on both sides.
+     * <p>
+     * The tiles do not need to be contiguous, but it's wise to keep them close, as the union is
+     * what gets queried and painted. Each graphics is supposed to paint over a tile sized area
+     * starting at its origin (e.g., a tile sized image), it will be translated to place the tile
+     * in the meta tile, and should not be reused afterwards without resetting its transform.
+     * 
+     * @param tiles The graphics to paint each tile on
+     * @param tileAreas The map area of each tile, all in the same CRS
+     * @param tileSize The size of each tile, in pixels
+     */
+    public void paintTiles(List<Graphics2D> tiles, List<ReferencedEnvelope> tileAreas,
+            Rectangle tileSize) {
+        if (tiles == null || tileAreas == null || tileSize == null) {
+            throw new NullPointerException("renderer requires tiles, tile areas and tile size");
+        } else if (tiles.isEmpty() || tiles.size() != tileAreas.size()) {
+            throw new IllegalArgumentException("Expected the same number of tiles and tile "
+                    + "areas, and at least one tile, but got " + tiles.size() + " tiles and "
+                    + tileAreas.size() + " areas");
+        }
+
+        // compute the meta tile area, checking all tiles share the same resolution
+        ReferencedEnvelope first = tileAreas.get(0);
+        double resX = first.getWidth() / tileSize.width;
+        double resY = first.getHeight() / tileSize.height;
+        ReferencedEnvelope metaArea = new ReferencedEnvelope(first);
+        for (ReferencedEnvelope tileArea : tileAreas) {
+            if (Math.abs(tileArea.getWidth() / tileSize.width - resX) > resX * 1e-6
+                    || Math.abs(tileArea.getHeight() / tileSize.height - resY) > resY * 1e-6) {
+                throw new IllegalArgumentException("All tiles should have the same resolution, "
+                        + "but " + tileArea + " does not match " + first);
+            }
+            metaArea.expandToInclude(tileArea);
+        }
+        Rectangle paintArea = new Rectangle(0, 0, (int) Math.round(metaArea.getWidth() / resX),
+                (int) Math.round(metaArea.getHeight() / resY));
+        AffineTransform worldToScreen = RendererUtilities.worldToScreenTransform(metaArea,
+                paintArea);
+
+        // locate each tile in the meta tile
+        List<Rectangle> pixelAreas = new ArrayList<Rectangle>(tileAreas.size());
+        for (ReferencedEnvelope tileArea : tileAreas) {
+            Rectangle2D world = new Rectangle2D.Double(tileArea.getMinX(), tileArea.getMinY(),
+                    tileArea.getWidth(), tileArea.getHeight());
+            Rectangle2D screen = worldToScreen.createTransformedShape(world).getBounds2D();
+            pixelAreas.add(new Rectangle((int) Math.round(screen.getMinX()),
+                    (int) Math.round(screen.getMinY()), tileSize.width, tileSize.height));
+        }
+
+        MetaTileGraphic graphics = new MetaTileGraphic(tiles, pixelAreas);
+        paint(graphics, paintArea, metaArea, worldToScreen);
+    }
+
     /**
      * Renders features based on the map layers and their styles as specified in
      * the map context using <code>setContext</code>. <p/> This version of
@@ -773,6 +857,7 @@ public class StreamingRenderer implements GTRenderer {
         }
         Future painterFuture = localThreadPool.submit(painterThread);
         List<CompositingGroup> compositingGroups = null;
+        Map<String, PrefetchedLayer> prefetchedLayers = Collections.emptyMap();
         try {
             if(mapContent == null) {
                 throw new IllegalStateException("Cannot call paint, you did not set a MapContent in this renderer");
@@ -784,6 +869,11 @@ public class StreamingRenderer implements GTRenderer {
             // split over multiple map contents, one per composition base
             compositingGroups = CompositingGroup.splitOnCompositingBase(graphics, paintArea, zGroupedMapContent);
             
+            // start loading the layer data in parallel, if so requested
+            if (isParallelLayerLoadingEnabled()) {
+                prefetchedLayers = prefetchLayers(compositingGroups);
+            }
+            
             int layerCounter = 0;
             for (CompositingGroup compositingGroup : compositingGroups) {
                 MapContent currentMapContent = compositingGroup.mapContent;
@@ -830,9 +920,14 @@ public class StreamingRenderer implements GTRenderer {
                         }
                     } else {
                         try {
-                            // extract the feature type stylers from the style object
-                            // and process them
-                            processStylers(compositingGraphic, layer, layerId);
+                            PrefetchedLayer prefetched = prefetchedLayers.get(layerId);
+                            if (prefetched != null) {
+                                drawPrefetched(compositingGraphic, layerId, prefetched);
+                            } else {
+                                // extract the feature type stylers from the style object
+                                // and process them
+                                processStylers(compositingGraphic, layer, layerId);
+                            }
                         } catch (Throwable t) {
                             fireErrorEvent(t);
                         }
@@ -853,6 +948,10 @@ public class StreamingRenderer implements GTRenderer {
                 }
             }
         } finally {
+            // stop any background loading still running (e.g., rendering has been stopped)
+            for (PrefetchedLayer prefetched : prefetchedLayers.values()) {
+                prefetched.cancel();
+            }
             try {
                 // clean up generated map contents (in finally block to ensure it's done regardless of how we got here
                 if (compositingGroups != null) {
@@ -900,6 +999,99 @@ public class StreamingRenderer implements GTRenderer {
         
     }
 
+    /**
+     * Prepares the queries of the layers that can be loaded in parallel, and starts loading
+     * their data in the background. The map keys are the same layer identifiers used by the
+     * paint loop.
+     */
+    private Map<String, PrefetchedLayer> prefetchLayers(List<CompositingGroup> compositingGroups) {
+        ExecutorService executor = threadPool;
+        if (executor == null) {
+            return Collections.emptyMap();
+        }
+        int bufferSize = getParallelLayerLoadingBuffer();
+        Map<String, PrefetchedLayer> result = new HashMap<String, PrefetchedLayer>();
+        int layerCounter = 0;
+        for (CompositingGroup compositingGroup : compositingGroups) {
+            for (Layer layer : compositingGroup.mapContent.layers()) {
+                layerCounter++;
+                if (!layer.isVisible() || layer instanceof DirectLayer
+                        || layer instanceof ZGroupLayer) {
+                    continue;
+                }
+                String layerId = String.valueOf(layerCounter);
+                try {
+                    PrefetchedLayer prefetched = prefetchLayer(compositingGroup.graphics, layer,
+                            bufferSize, executor);
+                    if (prefetched != null) {
+                        result.put(layerId, prefetched);
+                    }
+                } catch (Throwable t) {
+                    // the layer will be processed (and the error reported) by the paint loop
+                    LOGGER.log(Level.FINE, "Could not prepare layer " + layerId
+                            + " for parallel loading", t);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prepares the styles and feature collections of a layer, starting the background
+     * loading of its features. Returns null if the layer is not suitable for parallel loading,
+     * that is, if its data is not going to be read exactly once, or if it's the result of a
+     * rendering transformation.
+     */
+    private PrefetchedLayer prefetchLayer(Graphics2D graphics, Layer layer, int bufferSize,
+            ExecutorService executor) throws Exception {
+        final FeatureSource featureSource = layer.getFeatureSource();
+        if (featureSource == null) {
+            return null;
+        }
+        final FeatureType schema = featureSource.getSchema();
+        final ArrayList<LiteFeatureTypeStyle> lfts = createLiteFeatureTypeStyles(layer, graphics,
+                isOptimizedFTSRenderingEnabled());
+        if (lfts.isEmpty() || !(lfts.size() == 1 || isOptimizedFTSRenderingEnabled())) {
+            return null;
+        }
+        for (LiteFeatureTypeStyle fts : lfts) {
+            if (fts.transformation != null) {
+                return null;
+            }
+        }
+
+        PrefetchedLayer result = new PrefetchedLayer(lfts);
+        try {
+            for (List<LiteFeatureTypeStyle> uniform : classifyByFeatureProduction(lfts)) {
+                FeatureCollection features = getFeatures(layer, schema, uniform);
+                if (features != null) {
+                    PrefetchingFeatureCollection prefetching = new PrefetchingFeatureCollection(
+                            features, bufferSize);
+                    result.add(uniform, prefetching);
+                    prefetching.start(executor);
+                }
+            }
+        } catch (Exception e) {
+            result.cancel();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Draws a layer whose data has been loaded in the background
+     */
+    private void drawPrefetched(final Graphics2D graphics, String layerId,
+            PrefetchedLayer prefetched) {
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Processing " + prefetched.lfts.size() + " prefetched stylers");
+        }
+        for (int i = 0; i < prefetched.groups.size() && !renderingStopRequested; i++) {
+            drawFeatures(graphics, layerId, prefetched.collections.get(i), prefetched.lfts,
+                    prefetched.groups.get(i));
+        }
+    }
+
     /**
      * Builds the blocking queue used to bridge between the data loading thread and
      * the painting one
@@ -1453,6 +1645,28 @@ public class StreamingRenderer implements GTRenderer {
         return Boolean.TRUE.equals(result);
     }
 
+    /**
+     * Checks if parallel layer loading is enabled, or not.
+     * See {@link #PARALLEL_LAYER_LOADING_KEY} description for a full explanation.
+     */
+    private boolean isParallelLayerLoadingEnabled() {
+        if (rendererHints == null)
+            return false;
+        Object result = rendererHints.get(PARALLEL_LAYER_LOADING_KEY);
+        if (result == null)
+            return false;
+        return Boolean.TRUE.equals(result);
+    }
+
+    private int getParallelLayerLoadingBuffer() {
+        if (rendererHints == null)
+            return PARALLEL_LAYER_LOADING_BUFFER_DEFAULT;
+        Number result = (Number) rendererHints.get(PARALLEL_LAYER_LOADING_BUFFER_KEY);
+        if (result == null)
+            return PARALLEL_LAYER_LOADING_BUFFER_DEFAULT;
+        return result.intValue();
+    }
+
     /**
      * Checks if the advanced projection handling is enabled
      * @return
@@ -1786,11 +2000,35 @@ public class StreamingRenderer implements GTRenderer {
 
             // apply the uom and dpi rescale
             applyUnitRescale(result);
+
+            // compile the rule filters for fast evaluation against the layer features
+            compileRuleFilters(result, layer.getFeatureSource().getSchema());
         }
 
         return result;
     }
 
+    /**
+     * Compiles the rule filters against the schema, unless a rendering transformation is going
+     * to change the features. The rules are left untouched, as their filters are also used to
+     * build the query.
+     */
+    void compileRuleFilters(final List<LiteFeatureTypeStyle> lfts, FeatureType schema) {
+        if (!(schema instanceof SimpleFeatureType)) {
+            return;
+        }
+        for (LiteFeatureTypeStyle fts : lfts) {
+            if (fts.transformation != null) {
+                continue;
+            }
+            Filter[] filters = new Filter[fts.ruleList.length];
+            for (int i = 0; i < filters.length; i++) {
+                filters[i] = CompilingFilterVisitor.compile(fts.ruleList[i].getFilter(), schema);
+            }
+            fts.ruleFilters = filters;
+        }
+    }
+
     
     /**
      * Returns true if the ScreenMap optimization can be applied given the current renderer and
@@ -1939,11 +2177,17 @@ public class StreamingRenderer implements GTRenderer {
             }
 
             // finally, perform rendering
-            if (isOptimizedFTSRenderingEnabled() && lfts.size() > 1) {
-                drawOptimized(graphics, layerId, features, uniform);
-            } else {
-                drawPlain(graphics, layerId, features, uniform);
-            }
+            drawFeatures(graphics, layerId, features, lfts, uniform);
+        }
+    }
+
+    private void drawFeatures(final Graphics2D graphics, String layerId,
+            FeatureCollection features, List<LiteFeatureTypeStyle> lfts,
+            List<LiteFeatureTypeStyle> uniform) {
+        if (isOptimizedFTSRenderingEnabled() && lfts.size() > 1) {
+            drawOptimized(graphics, layerId, features, uniform);
+        } else {
+            drawPlain(graphics, layerId, features, uniform);
         }
     }
 
@@ -2479,11 +2723,12 @@ public class StreamingRenderer implements GTRenderer {
             Filter filter;
             Graphics2D graphics = fts.graphics;
             // applicable rules
+            final Filter[] ruleFilters = fts.ruleFilters;
             final int length = ruleList.length;
             int paintCommands = 0;
             for (int t = 0; t < length; t++) {
                 r = ruleList[t];
-                filter = r.getFilter();
+                filter = ruleFilters != null ? ruleFilters[t] : r.getFilter();
 
                 if (filter == null || filter.evaluate(rf.feature)) {
                     doElse = false;
@@ -3240,6 +3485,33 @@ public class StreamingRenderer implements GTRenderer {
         }
     }
     
+    /**
+     * The styles and feature collections of a layer whose data is being loaded in the
+     * background, one collection for each group of feature type styles sharing the same data
+     */
+    static class PrefetchedLayer {
+        final List<LiteFeatureTypeStyle> lfts;
+
+        final List<List<LiteFeatureTypeStyle>> groups = new ArrayList<List<LiteFeatureTypeStyle>>();
+
+        final List<PrefetchingFeatureCollection> collections = new ArrayList<PrefetchingFeatureCollection>();
+
+        PrefetchedLayer(List<LiteFeatureTypeStyle> lfts) {
+            this.lfts = lfts;
+        }
+
+        void add(List<LiteFeatureTypeStyle> group, PrefetchingFeatureCollection collection) {
+            groups.add(group);
+            collections.add(collection);
+        }
+
+        void cancel() {
+            for (PrefetchingFeatureCollection collection : collections) {
+                collection.cancel();
+            }
+        }
+    }
+
     /**
      * A request sent to the painting thread 
      * @author aaime
@@ -0,0 +1,273 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.coverage.grid.GridEnvelope2D;
+import org.geotools.coverage.grid.GridGeometry2D;
+import org.geotools.factory.Hints;
+import org.geotools.resources.coverage.CoverageUtilities;
+import org.geotools.styling.AbstractContrastMethodStrategy;
+import org.geotools.styling.ChannelSelection;
+import org.geotools.styling.ColorMap;
+import org.geotools.styling.ContrastEnhancement;
+import org.geotools.styling.RasterSymbolizer;
+import org.geotools.styling.SelectedChannelType;
+import org.geotools.util.logging.Logging;
+import org.opengis.coverage.grid.GridCoverage;
+import org.opengis.filter.expression.Expression;
+import org.opengis.style.ContrastMethod;
+
+/**
+ * Applies a {@link RasterSymbolizer} with a {@link ColorMap} in a single pass over the source
+ * tiles, instead of chaining the band selection, contrast enhancement, color map and opacity
+ * operations, each materializing its own tiles.
+ * <p>
+ * When every step of the symbolizer depends only on the value of the pixel being processed, the
+ * whole chain is a function of the value of the selected band. For byte, unsigned short and short
+ * sources this function is tabulated by running the usual {@link RasterSymbolizerHelper} chain
+ * once, over a small image holding all the possible values, and then applied to the actual
+ * coverage with a {@link RasterSymbolizerLookupOpImage}. The output is thus the same as the
+ * chain one, color model included.
+ * <p>
+ * Symbolizers depending on image statistics (histogram, normalization without explicit min and
+ * max, gamma correction), sources with a ROI, an alpha channel or a palette, and floating point
+ * sources are left to the usual chain.
+ * <p>
+ * The fused path can be disabled setting the
+ * <code>org.geotools.renderer.lite.gridcoverage2d.disableFusedSymbolizer</code> system property
+ * to true.
+ *
+ * @since 20.0
+ */
+class FusedRasterSymbolizer {
+
+    static final Logger LOGGER = Logging.getLogger(FusedRasterSymbolizer.class);
+
+    static boolean ENABLED = !Boolean
+            .getBoolean("org.geotools.renderer.lite.gridcoverage2d.disableFusedSymbolizer");
+
+    /**
+     * Normalization algorithms that only depend on the pixel value, given their min and max
+     * parameters
+     */
+    static final String[] POINTWISE_ALGORITHMS = {
+            ContrastEnhancementType.NORMALIZE_STRETCH_TO_MINMAX_NAME,
+            ContrastEnhancementType.NORMALIZE_CLIP_TO_MINMAX_NAME,
+            ContrastEnhancementType.NORMALIZE_CLIP_TO_ZERO_NAME };
+
+    /**
+     * Symbolizes the coverage in a single pass, if possible
+     *
+     * @param coverage The coverage to symbolize
+     * @param symbolizer The raster symbolizer
+     * @param factory The factory used to build the output coverage
+     * @param hints The hints controlling the JAI operations
+     * @return The symbolized coverage, or null if the symbolizer cannot be applied in a single
+     *         pass and the usual chain needs to be used instead
+     */
+    static GridCoverage2D symbolize(GridCoverage2D coverage, RasterSymbolizer symbolizer,
+            GridCoverageFactory factory, Hints hints) {
+        if (!ENABLED) {
+            return null;
+        }
+        final int band = getSourceBand(coverage, symbolizer);
+        if (band < 0) {
+            return null;
+        }
+
+        // the sample value to table index offset
+        final RenderedImage image = coverage.getRenderedImage();
+        final SampleModel sm = image.getSampleModel();
+        final int offset;
+        final int height;
+        switch (sm.getDataType()) {
+        case DataBuffer.TYPE_BYTE:
+            offset = 0;
+            height = 1;
+            break;
+        case DataBuffer.TYPE_USHORT:
+            offset = 0;
+            height = 256;
+            break;
+        case DataBuffer.TYPE_SHORT:
+            offset = -Short.MIN_VALUE;
+            height = 256;
+            break;
+        default:
+            return null;
+        }
+
+        // run the usual chain against all the possible values
+        final int width = 256;
+        final SampleModel valuesSM = sm.createCompatibleSampleModel(width, height);
+        final TiledImage values = new TiledImage(0, 0, width, height, 0, 0, valuesSM,
+                image.getColorModel());
+        final WritableRaster valuesRaster = values.getWritableTile(0, 0);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                final int value = y * width + x - offset;
+                for (int b = 0; b < valuesSM.getNumBands(); b++) {
+                    valuesRaster.setSample(x, y, b, value);
+                }
+            }
+        }
+        values.releaseWritableTile(0, 0);
+        Map properties = coverage.getProperties() == null ? new HashMap() : new HashMap(
+                coverage.getProperties());
+        final GridCoverage2D valuesCoverage = factory.create(coverage.getName(), values,
+                new GridGeometry2D(new GridEnvelope2D(0, 0, width, height),
+                        coverage.getEnvelope()), coverage.getSampleDimensions(), null,
+                properties);
+        final RasterSymbolizerHelper helper = new RasterSymbolizerHelper(valuesCoverage, hints);
+        helper.visit(symbolizer);
+        final GridCoverage2D valuesOutput = (GridCoverage2D) helper.getOutput();
+        final RenderedImage outputImage = valuesOutput.getRenderedImage();
+        final SampleModel outputSM = outputImage.getSampleModel();
+        if (!(outputSM instanceof ComponentSampleModel)
+                || (outputSM.getDataType() != DataBuffer.TYPE_BYTE
+                        && outputSM.getDataType() != DataBuffer.TYPE_USHORT)) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Cannot fuse the raster symbolizer, unsupported output " + outputSM);
+            }
+            return null;
+        }
+
+        // tabulate the results
+        final Raster outputRaster = outputImage.getData();
+        final int[][] lut = new int[outputSM.getNumBands()][];
+        for (int b = 0; b < lut.length; b++) {
+            lut[b] = outputRaster.getSamples(outputRaster.getMinX(), outputRaster.getMinY(),
+                    width, height, b, (int[]) null);
+        }
+
+        // and apply them in one go
+        final ImageLayout layout = new ImageLayout(image);
+        layout.setColorModel(outputImage.getColorModel());
+        layout.setSampleModel(outputSM.createCompatibleSampleModel(image.getTileWidth(),
+                image.getTileHeight()));
+        final RenderedImage symbolized = new RasterSymbolizerLookupOpImage(image, layout, hints,
+                band, lut, offset);
+        if (LOGGER.isLoggable(Level.FINE)) {
+            LOGGER.fine("Applied the raster symbolizer in a single pass");
+        }
+
+        Map outputProperties = valuesOutput.getProperties() == null ? new HashMap()
+                : new HashMap(valuesOutput.getProperties());
+        return factory.create(valuesOutput.getName(), symbolized, coverage.getGridGeometry(),
+                valuesOutput.getSampleDimensions(), new GridCoverage[] { coverage },
+                outputProperties);
+    }
+
+    /**
+     * Returns the index of the single source band the symbolizer output depends on, or -1 if
+     * the symbolizer cannot be fused for this coverage
+     */
+    static int getSourceBand(GridCoverage2D coverage, RasterSymbolizer symbolizer) {
+        // the target is color mapping, which reduces the output to a single band
+        final ColorMap colorMap = symbolizer.getColorMap();
+        if (colorMap == null || colorMap.getColorMapEntries() == null
+                || colorMap.getColorMapEntries().length == 0) {
+            return -1;
+        }
+
+        // no palette, alpha or ROI, each of them requires more than the band value
+        final RenderedImage image = coverage.getRenderedImage();
+        final ColorModel cm = image.getColorModel();
+        if (cm instanceof IndexColorModel || (cm != null && cm.hasAlpha())
+                || CoverageUtilities.getROIProperty(coverage) != null) {
+            return -1;
+        }
+
+        // the contrast enhancement must be pointwise as well
+        if (!isPointwise(symbolizer.getContrastEnhancement())) {
+            return -1;
+        }
+
+        // which band?
+        final int numBands = image.getSampleModel().getNumBands();
+        final ChannelSelection cs = symbolizer.getChannelSelection();
+        final SelectedChannelType gray = cs != null ? cs.getGrayChannel() : null;
+        if (gray == null) {
+            final SelectedChannelType[] rgb = cs != null ? cs.getRGBChannels() : null;
+            if (rgb != null && rgb.length == 3 && rgb[0] != null && rgb[1] != null
+                    && rgb[2] != null) {
+                return -1;
+            }
+            return numBands == 1 ? 0 : -1;
+        }
+        if (!isPointwise(gray.getContrastEnhancement())) {
+            return -1;
+        }
+        try {
+            final int band = Integer.parseInt(gray.getChannelName()) - 1;
+            return band >= 0 && band < numBands ? band : -1;
+        } catch (NumberFormatException e) {
+            // let the usual chain report the error
+            return -1;
+        }
+    }
+
+    /**
+     * Returns true if the contrast enhancement result only depends on the value of the pixel
+     * being enhanced
+     */
+    static boolean isPointwise(ContrastEnhancement ce) {
+        if (ce == null) {
+            return true;
+        }
+        final Expression gamma = ce.getGammaValue();
+        if (gamma != null) {
+            final Number value = gamma.evaluate(null, Double.class);
+            if (value != null && Math.abs(value.doubleValue() - 1) > 1E-6) {
+                return false;
+            }
+        }
+        final ContrastMethod method = ce.getMethod();
+        if (method == null || method.name() == null || "NONE".equalsIgnoreCase(method.name())) {
+            return true;
+        }
+        if (!"NORMALIZE".equalsIgnoreCase(method.name()) || ce.getOptions() == null) {
+            return false;
+        }
+        final Expression algorithm = ce.getOptions().get(AbstractContrastMethodStrategy.ALGORITHM);
+        final String name = algorithm != null ? algorithm.evaluate(null, String.class) : null;
+        for (String pointwise : POINTWISE_ALGORITHMS) {
+            if (pointwise.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -491,9 +491,17 @@ public final class GridCoverageRenderer {
             if (LOGGER.isLoggable(Level.FINE)) {
                 LOGGER.fine("Applying Raster Symbolizer ");
             }
-            final RasterSymbolizerHelper rsp = new RasterSymbolizerHelper(sanitized, this.hints);
-            rsp.visit(symbolizer);
-            symbolizerGC = (GridCoverage2D) rsp.getOutput();
+            // pointwise color maps can be applied in a single pass over the tiles
+            final GridCoverage2D fused = FusedRasterSymbolizer.symbolize(sanitized, symbolizer,
+                    gridCoverageFactory, this.hints);
+            if (fused != null) {
+                symbolizerGC = fused;
+            } else {
+                final RasterSymbolizerHelper rsp = new RasterSymbolizerHelper(sanitized,
+                        this.hints);
+                rsp.visit(symbolizer);
+                symbolizerGC = (GridCoverage2D) rsp.getOutput();
+            }
         } else {
             symbolizerGC = preSymbolizer;
         }
@@ -0,0 +1,144 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import java.awt.Rectangle;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferShort;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Map;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.PointOpImage;
+
+/**
+ * {@link PointOpImage} applying a whole raster symbolizer in a single pass: the samples of one
+ * band of the source are read straight from the source tiles, and each output band is looked up
+ * in a table indexed by the sample value. Supports byte, unsigned short and short sources, and
+ * byte or unsigned short outputs, both backed by a {@link ComponentSampleModel}.
+ *
+ * @see FusedRasterSymbolizer
+ * @since 20.0
+ */
+class RasterSymbolizerLookupOpImage extends PointOpImage {
+
+    /** The source band to read */
+    private final int band;
+
+    /** The output values for each output band, indexed by source value plus offset */
+    private final int[][] lut;
+
+    /** The offset to add to a source value to get its index in the table */
+    private final int offset;
+
+    /**
+     * @param source The source image
+     * @param layout The layout of the output, its sample model must be a
+     *        {@link ComponentSampleModel} of byte or unsigned short type
+     * @param configuration The JAI configuration, may be null
+     * @param band The source band to read
+     * @param lut The output values, one array per output band
+     * @param offset The offset to add to a source value to get its index in the tables
+     */
+    RasterSymbolizerLookupOpImage(RenderedImage source, ImageLayout layout, Map<?, ?> configuration,
+            int band, int[][] lut, int offset) {
+        super(source, layout, configuration, true);
+        this.band = band;
+        this.lut = lut;
+        this.offset = offset;
+    }
+
+    @Override
+    protected void computeRect(Raster[] sources, WritableRaster dest, Rectangle destRect) {
+        final Raster source = sources[0];
+        final int width = destRect.width;
+        final int[] indexes = new int[width];
+
+        final SampleModel sourceSM = source.getSampleModel();
+        final DataBuffer sourceBuffer = source.getDataBuffer();
+        final ComponentSampleModel destSM = (ComponentSampleModel) dest.getSampleModel();
+        final DataBuffer destBuffer = dest.getDataBuffer();
+        final int destBands = destSM.getNumBands();
+
+        for (int y = destRect.y; y < destRect.y + destRect.height; y++) {
+            // source values to table indexes
+            if (sourceSM instanceof ComponentSampleModel) {
+                final ComponentSampleModel csm = (ComponentSampleModel) sourceSM;
+                final int bank = csm.getBankIndices()[band];
+                final int pixelStride = csm.getPixelStride();
+                int pos = sourceBuffer.getOffsets()[bank]
+                        + csm.getOffset(destRect.x - source.getSampleModelTranslateX(),
+                                y - source.getSampleModelTranslateY(), band);
+                switch (sourceBuffer.getDataType()) {
+                case DataBuffer.TYPE_BYTE:
+                    final byte[] bytes = ((DataBufferByte) sourceBuffer).getData(bank);
+                    for (int i = 0; i < width; i++, pos += pixelStride) {
+                        indexes[i] = (bytes[pos] & 0xFF) + offset;
+                    }
+                    break;
+                case DataBuffer.TYPE_USHORT:
+                    final short[] ushorts = ((DataBufferUShort) sourceBuffer).getData(bank);
+                    for (int i = 0; i < width; i++, pos += pixelStride) {
+                        indexes[i] = (ushorts[pos] & 0xFFFF) + offset;
+                    }
+                    break;
+                case DataBuffer.TYPE_SHORT:
+                    final short[] shorts = ((DataBufferShort) sourceBuffer).getData(bank);
+                    for (int i = 0; i < width; i++, pos += pixelStride) {
+                        indexes[i] = shorts[pos] + offset;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported source data type "
+                            + sourceBuffer.getDataType());
+                }
+            } else {
+                source.getSamples(destRect.x, y, width, 1, band, indexes);
+                for (int i = 0; i < width; i++) {
+                    indexes[i] += offset;
+                }
+            }
+
+            // table lookup, straight into the destination
+            final int pixelStride = destSM.getPixelStride();
+            for (int b = 0; b < destBands; b++) {
+                final int[] table = lut[b];
+                final int bank = destSM.getBankIndices()[b];
+                int pos = destBuffer.getOffsets()[bank]
+                        + destSM.getOffset(destRect.x - dest.getSampleModelTranslateX(),
+                                y - dest.getSampleModelTranslateY(), b);
+                if (destBuffer.getDataType() == DataBuffer.TYPE_BYTE) {
+                    final byte[] bytes = ((DataBufferByte) destBuffer).getData(bank);
+                    for (int i = 0; i < width; i++, pos += pixelStride) {
+                        bytes[pos] = (byte) table[indexes[i]];
+                    }
+                } else {
+                    final short[] shorts = ((DataBufferUShort) destBuffer).getData(bank);
+                    for (int i = 0; i < width; i++, pos += pixelStride) {
+                        shorts[pos] = (short) table[indexes[i]];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.label;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LabelIndexTest {
+
+    @Test
+    public void testOverlapAndDistance() {
+        LabelIndex index = new LabelIndex(10);
+        index.addLabel(null, new Rectangle2D.Double(100, 100, 50, 10));
+
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(140, 105, 20, 20), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(160, 105, 20, 20), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(160, 105, 20, 20), 10));
+        // touching counts as interference, same as before
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(150, 110, 5, 5), 0));
+        // negative distance disables the check
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(140, 105, 20, 20), -1));
+    }
+
+    @Test
+    public void testReservedAreas() {
+        LabelIndex index = new LabelIndex(10);
+        // a large area, kept out of the grid
+        index.reserveArea(Arrays.<Rectangle2D> asList(new Rectangle2D.Double(0, 0, 1000, 20),
+                new Rectangle2D.Double(-50, -50, 5, 5)));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(500, 10, 5, 5), 0));
+        assertTrue(index.labelsWithinDistance(new Rectangle2D.Double(-48, -48, 1, 1), 0));
+        assertFalse(index.labelsWithinDistance(new Rectangle2D.Double(500, 30, 5, 5), 0));
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        Random random = new Random(0);
+        LabelIndex index = new LabelIndex();
+        List<Rectangle2D> labels = new ArrayList<Rectangle2D>();
+        for (int i = 0; i < 2000; i++) {
+            Rectangle2D label = randomRectangle(random);
+            labels.add(label);
+            index.addLabel(null, label);
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            Rectangle2D candidate = randomRectangle(random);
+            double distance = random.nextInt(4) == 0 ? 2000 : random.nextDouble() * 10;
+            assertEquals(bruteForce(labels, candidate, distance),
+                    index.labelsWithinDistance(candidate, distance));
+        }
+    }
+
+    private Rectangle2D randomRectangle(Random random) {
+        // mostly label sized, with a few huge ones, some falling outside of the map
+        double width = random.nextInt(50) == 0 ? random.nextDouble() * 3000 : 5 + random
+                .nextDouble() * 150;
+        double height = 5 + random.nextDouble() * 20;
+        return new Rectangle2D.Double(random.nextDouble() * 2400 - 200,
+                random.nextDouble() * 2400 - 200, width, height);
+    }
+
+    private boolean bruteForce(List<Rectangle2D> labels, Rectangle2D candidate, double distance) {
+        double minX = candidate.getMinX() - distance;
+        double maxX = candidate.getMaxX() + distance;
+        double minY = candidate.getMinY() - distance;
+        double maxY = candidate.getMaxY() + distance;
+        for (Rectangle2D label : labels) {
+            if (label.getMinX() <= maxX && label.getMaxX() >= minX && label.getMinY() <= maxY
+                    && label.getMaxY() >= minY) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
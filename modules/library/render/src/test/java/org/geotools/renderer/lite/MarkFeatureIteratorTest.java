@@ -23,16 +23,22 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 
 import org.geotools.data.Query;
 import org.geotools.data.property.PropertyDataStore;
+import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.renderer.lite.MarkFeatureIterator.CompactMarkFeatureIterator;
 import org.geotools.renderer.lite.MarkFeatureIterator.DiskMarkFeatureIterator;
 import org.geotools.renderer.lite.MarkFeatureIterator.MemoryMarkFeatureIterator;
+import org.geotools.renderer.lite.MarkFeatureIterator.SpillMode;
 import org.geotools.test.TestData;
 import org.geotools.util.DefaultProgressListener;
 import org.junit.Before;
 import org.junit.Test;
+import org.opengis.feature.Feature;
+import org.opengis.feature.simple.SimpleFeature;
 
 public class MarkFeatureIteratorTest {
 
@@ -47,12 +53,53 @@ public class MarkFeatureIteratorTest {
 
     @Test
     public void testResetOnDisk() throws Exception {
-        testReset(0);
+        testReset(0, SpillMode.FILE);
+    }
+
+    @Test
+    public void testResetMapped() throws Exception {
+        testReset(0, SpillMode.MAPPED);
+    }
+
+    @Test
+    public void testResetDirect() throws Exception {
+        testReset(1, SpillMode.DIRECT);
     }
 
     @Test
     public void testResetInMemory() throws Exception {
-        testReset(1000);
+        testReset(1000, SpillMode.MAPPED);
+    }
+
+    @Test
+    public void testCompactAcrossChunks() throws Exception {
+        SimpleFeature expected;
+        try (SimpleFeatureIterator fi = zroads.getFeatures().features()) {
+            expected = fi.next();
+        }
+        // tiny chunks, so that the records and their lengths straddle the chunk boundaries
+        for (boolean mapped : new boolean[] { true, false }) {
+            SpillBuffer buffer = new SpillBuffer(mapped, 7);
+            try (SimpleFeatureIterator fi = zroads.getFeatures().features();
+                    MarkFeatureIterator iterator = new CompactMarkFeatureIterator(
+                            new ArrayList<Feature>(), fi, zroads.getSchema(),
+                            new DefaultProgressListener(), buffer)) {
+                assertTrue(buffer.chunks.size() > 1);
+                assertThreeFeatures(iterator);
+                iterator.reset();
+                SimpleFeature first = (SimpleFeature) iterator.next();
+                iterator.mark();
+                assertEquals(expected.getID(), first.getID());
+                assertEquals(expected.getAttributes(), first.getAttributes());
+                assertEquals("Line.2", iterator.next().getIdentifier().getID());
+                iterator.reset();
+                assertEquals("Line.2", iterator.next().getIdentifier().getID());
+            }
+            assertEquals(0, buffer.size());
+            if (buffer.file != null) {
+                assertFalse(buffer.file.exists());
+            }
+        }
     }
 
     @Test
@@ -64,14 +111,16 @@ public class MarkFeatureIteratorTest {
         assertNull(iterator);
     }
 
-    private void testReset(int limit) throws IOException {
+    private void testReset(int limit, SpillMode mode) throws IOException {
         DefaultProgressListener listener = new DefaultProgressListener();
         try (MarkFeatureIterator iterator = MarkFeatureIterator.create(zroads.getFeatures(), limit,
-                listener)) {
+                listener, mode)) {
             if (limit >= zroads.getCount(Query.ALL)) {
                 assertTrue(iterator instanceof MemoryMarkFeatureIterator);
-            } else {
+            } else if (mode == SpillMode.FILE) {
                 assertTrue(iterator instanceof DiskMarkFeatureIterator);
+            } else {
+                assertTrue(iterator instanceof CompactMarkFeatureIterator);
             }
 
             iterator.mark();
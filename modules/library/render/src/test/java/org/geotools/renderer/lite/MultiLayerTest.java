@@ -6,12 +6,17 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.geotools.coverage.grid.GridCoverage2D;
 import org.geotools.coverage.grid.GridCoverageFactory;
 import org.geotools.data.property.PropertyDataStore;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.image.test.ImageAssert;
 import org.geotools.map.FeatureLayer;
 import org.geotools.map.GridCoverageLayer;
 import org.geotools.map.MapContent;
@@ -65,4 +70,52 @@ public class MultiLayerTest {
 		assertEquals(0, pixel[2]);
 		assertEquals(255, pixel[3]);
 	}
+
+	@Test
+	public void testParallelLayerLoading() throws Exception {
+	    // single thread pool, the data has to be read on demand to avoid deadlocks
+	    assertParallelLoading(Executors.newSingleThreadExecutor());
+	    assertParallelLoading(Executors.newFixedThreadPool(4));
+	}
+
+	private void assertParallelLoading(ExecutorService executor) throws Exception {
+	    File property = new File(TestData.getResource(this, "buildings.properties").toURI());
+	    PropertyDataStore ds = new PropertyDataStore(property.getParentFile());
+	    SimpleFeatureSource fs = ds.getFeatureSource("buildings");
+	    ReferencedEnvelope bounds = new ReferencedEnvelope(0, 10, 0, 10, DefaultGeographicCRS.WGS84);
+
+	    StyleBuilder sb = new StyleBuilder();
+	    Style gray = sb.createStyle(sb.createPolygonSymbolizer(null, sb.createFill(Color.GRAY)));
+	    Style blue = sb.createStyle(sb.createPolygonSymbolizer(null, sb.createFill(Color.BLUE)));
+
+	    MapContent mc = new MapContent();
+	    mc.addLayer(new FeatureLayer(fs, gray));
+	    mc.addLayer(new FeatureLayer(fs, blue));
+
+	    try {
+	        StreamingRenderer renderer = new StreamingRenderer();
+	        Map<Object, Object> hints = new HashMap<>();
+	        hints.put(StreamingRenderer.PARALLEL_LAYER_LOADING_KEY, true);
+	        hints.put(StreamingRenderer.PARALLEL_LAYER_LOADING_BUFFER_KEY, 1);
+	        renderer.setRendererHints(hints);
+	        renderer.setThreadPool(executor);
+	        renderer.setMapContent(mc);
+	        BufferedImage parallel = RendererBaseTest.renderImage(renderer, bounds, null);
+
+	        renderer = new StreamingRenderer();
+	        renderer.setMapContent(mc);
+	        BufferedImage serial = RendererBaseTest.renderImage(renderer, bounds, null);
+
+	        // same painting order, the last layer is painted on top
+	        ImageAssert.assertEquals(serial, parallel, 0);
+	        int[] pixel = new int[4];
+	        parallel.getData().getPixel(165, 225, pixel);
+	        assertEquals(0, pixel[0]);
+	        assertEquals(0, pixel[1]);
+	        assertEquals(255, pixel[2]);
+	    } finally {
+	        executor.shutdown();
+	        mc.dispose();
+	    }
+	}
 }
@@ -0,0 +1,117 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+public class PrefetchingFeatureCollectionTest {
+
+    ExecutorService executor;
+
+    PrefetchingFeatureCollection<SimpleFeatureType, SimpleFeature> collection;
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("test", "name:String");
+        ListFeatureCollection features = new ListFeatureCollection(type);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        for (int i = 0; i < 100; i++) {
+            fb.add("f" + i);
+            features.add(fb.buildFeature("test." + i));
+        }
+        collection = new PrefetchingFeatureCollection<SimpleFeatureType, SimpleFeature>(
+                features, 2);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Starts prefetching and waits for the buffer to fill up, the background task is then
+     * blocked waiting for the consumer
+     */
+    void startAndFill() throws InterruptedException {
+        collection.start(executor);
+        while (collection.queue.remainingCapacity() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testReadAll() throws Exception {
+        startAndFill();
+        int count = 0;
+        try (FeatureIterator<SimpleFeature> fi = collection.features()) {
+            while (fi.hasNext()) {
+                assertEquals("f" + count, fi.next().getAttribute("name"));
+                count++;
+            }
+        }
+        assertEquals(100, count);
+    }
+
+    @Test(timeout = 10000)
+    public void testCancelWhileIterating() throws Exception {
+        startAndFill();
+        try (FeatureIterator<SimpleFeature> fi = collection.features()) {
+            assertTrue(fi.hasNext());
+            fi.next();
+            collection.cancel();
+            // the iteration ends instead of waiting forever for the cleared features
+            int count = 1;
+            while (fi.hasNext()) {
+                fi.next();
+                count++;
+            }
+            assertTrue(count < 100);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testInterruptWhileIterating() throws Exception {
+        startAndFill();
+        try (FeatureIterator<SimpleFeature> fi = collection.features()) {
+            assertTrue(fi.hasNext());
+            fi.next();
+            // interrupts the background task blocked on the full buffer
+            executor.shutdownNow();
+            int count = 1;
+            while (fi.hasNext()) {
+                fi.next();
+                count++;
+            }
+            assertTrue(count < 100);
+        }
+    }
+}
@@ -17,10 +17,15 @@
 package org.geotools.renderer.lite;
 
 import static java.awt.RenderingHints.*;
+import static org.junit.Assert.assertEquals;
 
 import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
 import java.io.File;
+import java.util.Arrays;
 
 import org.geotools.data.property.PropertyDataStore;
 import org.geotools.data.simple.SimpleFeatureSource;
@@ -108,4 +113,52 @@ public class TileTest {
                 rightTileBounds);
     }
 
+    @Test
+    public void testPaintTiles() throws Exception {
+        MapContent mc = new MapContent();
+        mc.addLayer(new FeatureLayer(polyfs, RendererBaseTest.loadStyle(this, "fillCross.sld")));
+        mc.addLayer(new FeatureLayer(linefs, RendererBaseTest.loadStyle(this, "dotsStars.sld")));
+
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(mc);
+        renderer.setJava2DHints(new RenderingHints(KEY_ANTIALIASING, VALUE_ANTIALIAS_ON));
+
+        // the two tiles painted in one pass
+        BufferedImage left = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        BufferedImage right = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D leftGraphics = left.createGraphics();
+        Graphics2D rightGraphics = right.createGraphics();
+        renderer.paintTiles(Arrays.asList(leftGraphics, rightGraphics),
+                Arrays.asList(leftTileBounds, rightTileBounds), new Rectangle(0, 0, 100, 100));
+        leftGraphics.dispose();
+        rightGraphics.dispose();
+
+        // the same area painted as a single image
+        BufferedImage meta = new BufferedImage(200, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        Graphics2D metaGraphics = meta.createGraphics();
+        ReferencedEnvelope metaBounds = new ReferencedEnvelope(leftTileBounds);
+        metaBounds.expandToInclude(rightTileBounds);
+        renderer.paint(metaGraphics, new Rectangle(0, 0, 200, 100), metaBounds);
+        metaGraphics.dispose();
+        mc.dispose();
+
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 100; x++) {
+                assertEquals(meta.getRGB(x, y), left.getRGB(x, y));
+                assertEquals(meta.getRGB(x + 100, y), right.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPaintTilesDifferentResolution() throws Exception {
+        StreamingRenderer renderer = new StreamingRenderer();
+        renderer.setMapContent(new MapContent());
+        BufferedImage image = new BufferedImage(100, 100, BufferedImage.TYPE_4BYTE_ABGR);
+        ReferencedEnvelope larger = new ReferencedEnvelope(10, 30, 0, 20,
+                leftTileBounds.getCoordinateReferenceSystem());
+        renderer.paintTiles(Arrays.asList(image.createGraphics(), image.createGraphics()),
+                Arrays.asList(leftTileBounds, larger), new Rectangle(0, 0, 100, 100));
+    }
+
 }
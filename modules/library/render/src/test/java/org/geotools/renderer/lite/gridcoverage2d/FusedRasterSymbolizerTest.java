@@ -0,0 +1,203 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.renderer.lite.gridcoverage2d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Color;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+
+import javax.media.jai.RasterFactory;
+import javax.media.jai.TiledImage;
+
+import org.geotools.coverage.CoverageFactoryFinder;
+import org.geotools.coverage.GridSampleDimension;
+import org.geotools.coverage.grid.GridCoverage2D;
+import org.geotools.coverage.grid.GridCoverageFactory;
+import org.geotools.geometry.GeneralEnvelope;
+import org.geotools.styling.ChannelSelection;
+import org.geotools.styling.ChannelSelectionImpl;
+import org.geotools.styling.ColorMap;
+import org.geotools.styling.ContrastEnhancement;
+import org.geotools.styling.ContrastEnhancementImpl;
+import org.geotools.styling.ContrastMethodStrategy;
+import org.geotools.styling.HistogramContrastMethodStrategy;
+import org.geotools.styling.NormalizeContrastMethodStrategy;
+import org.geotools.styling.RasterSymbolizer;
+import org.geotools.styling.SelectedChannelType;
+import org.geotools.styling.SelectedChannelTypeImpl;
+import org.geotools.styling.StyleBuilder;
+import org.junit.Test;
+
+public class FusedRasterSymbolizerTest {
+
+    static final GridCoverageFactory FACTORY = CoverageFactoryFinder.getGridCoverageFactory(null);
+
+    StyleBuilder sb = new StyleBuilder();
+
+    GridCoverage2D buildCoverage(int dataType, int bands, int min, int max) {
+        int width = 300;
+        int height = 200;
+        SampleModel sm = RasterFactory.createPixelInterleavedSampleModel(dataType, 64, 64, bands);
+        TiledImage image = new TiledImage(0, 0, width, height, 0, 0, sm,
+                TiledImage.createColorModel(sm));
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int b = 0; b < bands; b++) {
+                    int value = min + (x * 7 + y * 13 + b * 31) % (max - min + 1);
+                    image.setSample(x, y, b, value);
+                }
+            }
+        }
+        GridSampleDimension[] dimensions = new GridSampleDimension[bands];
+        for (int b = 0; b < bands; b++) {
+            dimensions[b] = new GridSampleDimension("band" + b);
+        }
+        return FACTORY.create("test", image, new GeneralEnvelope(new double[] { -90, -180 },
+                new double[] { 90, 180 }), dimensions, null, null);
+    }
+
+    ColorMap buildColorMap(double... quantities) {
+        return sb.createColorMap(new String[] { "low", "mid", "high" }, quantities,
+                new Color[] { Color.RED, new Color(0, 255, 0, 128), Color.BLUE },
+                ColorMap.TYPE_RAMP);
+    }
+
+    ContrastEnhancement buildNormalize(String algorithm, int min, int max) {
+        ContrastEnhancement ce = new ContrastEnhancementImpl();
+        ContrastMethodStrategy method = new NormalizeContrastMethodStrategy();
+        method.addOption("algorithm", sb.literalExpression(algorithm));
+        method.addOption("minValue", sb.literalExpression(min));
+        method.addOption("maxValue", sb.literalExpression(max));
+        ce.setMethod(method);
+        return ce;
+    }
+
+    GridCoverage2D symbolizeChain(GridCoverage2D coverage, RasterSymbolizer rs) {
+        RasterSymbolizerHelper helper = new RasterSymbolizerHelper(coverage, null);
+        helper.visit(rs);
+        return (GridCoverage2D) helper.getOutput();
+    }
+
+    void assertSameOutput(GridCoverage2D expected, GridCoverage2D actual) {
+        RenderedImage ei = expected.getRenderedImage();
+        RenderedImage ai = actual.getRenderedImage();
+        assertEquals(ei.getColorModel(), ai.getColorModel());
+        assertEquals(ei.getSampleModel().getNumBands(), ai.getSampleModel().getNumBands());
+        assertEquals(ei.getWidth(), ai.getWidth());
+        assertEquals(ei.getHeight(), ai.getHeight());
+        Raster er = ei.getData();
+        Raster ar = ai.getData();
+        for (int b = 0; b < er.getNumBands(); b++) {
+            int[] es = er.getSamples(er.getMinX(), er.getMinY(), er.getWidth(), er.getHeight(), b,
+                    (int[]) null);
+            int[] as = ar.getSamples(ar.getMinX(), ar.getMinY(), ar.getWidth(), ar.getHeight(), b,
+                    (int[]) null);
+            assertArrayEquals(es, as);
+        }
+    }
+
+    @Test
+    public void testShortColorMap() {
+        GridCoverage2D coverage = buildCoverage(DataBuffer.TYPE_SHORT, 1, -2000, 3000);
+        RasterSymbolizer rs = sb.createRasterSymbolizer();
+        rs.setColorMap(buildColorMap(-1000, 0, 2000));
+        rs.setOpacity(sb.literalExpression(0.7));
+
+        GridCoverage2D fused = FusedRasterSymbolizer.symbolize(coverage, rs, FACTORY, null);
+        assertNotNull(fused);
+        assertSameOutput(symbolizeChain(coverage, rs), fused);
+    }
+
+    @Test
+    public void testUShortColorMap() {
+        GridCoverage2D coverage = buildCoverage(DataBuffer.TYPE_USHORT, 1, 0, 60000);
+        RasterSymbolizer rs = sb.createRasterSymbolizer();
+        rs.setColorMap(buildColorMap(1000, 20000, 50000));
+
+        GridCoverage2D fused = FusedRasterSymbolizer.symbolize(coverage, rs, FACTORY, null);
+        assertNotNull(fused);
+        assertSameOutput(symbolizeChain(coverage, rs), fused);
+    }
+
+    @Test
+    public void testByteGrayChannelStretch() {
+        GridCoverage2D coverage = buildCoverage(DataBuffer.TYPE_BYTE, 3, 0, 255);
+        RasterSymbolizer rs = sb.createRasterSymbolizer();
+        ChannelSelection cs = new ChannelSelectionImpl();
+        SelectedChannelType gray = new SelectedChannelTypeImpl();
+        gray.setChannelName("2");
+        gray.setContrastEnhancement(buildNormalize(
+                ContrastEnhancementType.NORMALIZE_STRETCH_TO_MINMAX_NAME, 20, 200));
+        cs.setGrayChannel(gray);
+        rs.setChannelSelection(cs);
+        rs.setColorMap(buildColorMap(10, 100, 250));
+
+        assertEquals(1, FusedRasterSymbolizer.getSourceBand(coverage, rs));
+        GridCoverage2D fused = FusedRasterSymbolizer.symbolize(coverage, rs, FACTORY, null);
+        assertNotNull(fused);
+        assertSameOutput(symbolizeChain(coverage, rs), fused);
+    }
+
+    @Test
+    public void testNotFused() {
+        GridCoverage2D coverage = buildCoverage(DataBuffer.TYPE_BYTE, 1, 0, 255);
+
+        // no color map
+        RasterSymbolizer rs = sb.createRasterSymbolizer();
+        assertNull(FusedRasterSymbolizer.symbolize(coverage, rs, FACTORY, null));
+
+        // statistics based contrast enhancement
+        rs.setColorMap(buildColorMap(10, 100, 250));
+        ContrastEnhancement histogram = new ContrastEnhancementImpl();
+        histogram.setMethod(new HistogramContrastMethodStrategy());
+        rs.setContrastEnhancement(histogram);
+        assertNull(FusedRasterSymbolizer.symbolize(coverage, rs, FACTORY, null));
+        ContrastEnhancement normalize = new ContrastEnhancementImpl();
+        normalize.setMethod(new NormalizeContrastMethodStrategy());
+        rs.setContrastEnhancement(normalize);
+        assertNull(FusedRasterSymbolizer.symbolize(coverage, rs, FACTORY, null));
+
+        // floating point data
+        rs.setContrastEnhancement(null);
+        GridCoverage2D floats = buildCoverage(DataBuffer.TYPE_FLOAT, 1, 0, 255);
+        assertNull(FusedRasterSymbolizer.symbolize(floats, rs, FACTORY, null));
+
+        // multiband without a gray channel selection
+        GridCoverage2D rgb = buildCoverage(DataBuffer.TYPE_BYTE, 3, 0, 255);
+        assertNull(FusedRasterSymbolizer.symbolize(rgb, rs, FACTORY, null));
+    }
+
+    @Test
+    public void testOutputGeometry() {
+        GridCoverage2D coverage = buildCoverage(DataBuffer.TYPE_BYTE, 1, 0, 255);
+        RasterSymbolizer rs = sb.createRasterSymbolizer();
+        rs.setColorMap(buildColorMap(10, 100, 250));
+        GridCoverage2D fused = FusedRasterSymbolizer.symbolize(coverage, rs, FACTORY, null);
+        assertNotNull(fused);
+        assertEquals(coverage.getGridGeometry(), fused.getGridGeometry());
+        RenderedImage image = fused.getRenderedImage();
+        assertEquals(coverage.getRenderedImage().getTileWidth(), image.getTileWidth());
+        assertNotNull(image.getTile(1, 1));
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geopkg;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.factory.Hints;
+import org.geotools.geometry.jts.coordinatesequence.CoordinateSequences;
+import org.geotools.geopkg.geom.GeoPkgGeomWriter;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFilter;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Loads a feature collection into a GeoPackage feature table in bulk.
+ * <p>
+ * Rows are inserted through a single prepared statement, in JDBC batches, inside large
+ * transactions, with the connection configured for bulk writes for the duration of the load.
+ * Geometries are encoded to GeoPackage binaries by a pool of worker threads, while the batches
+ * encoded before them are being inserted.
+ * </p>
+ * <p>
+ * The table is expected to have no spatial index during the load, the index is best built in a
+ * single pass once all the rows are in (see {@link GeoPackage#createSpatialIndex(FeatureEntry)}).
+ * </p>
+ *
+ * @since 20.0
+ */
+class FeatureBulkLoader {
+
+    /** Number of features encoded by a worker at once, and inserted in a single JDBC batch */
+    static final int BATCH_SIZE = 1000;
+
+    /** Number of batches inserted in a single transaction */
+    static final int BATCHES_PER_TRANSACTION = 100;
+
+    /**
+     * Connection settings used during the load: no sync to disk after each transaction, the
+     * rollback journal kept in memory, and a larger page cache (in KiB when negative)
+     */
+    static final Map<String, String> BULK_PRAGMAS = new LinkedHashMap<>();
+    static {
+        BULK_PRAGMAS.put("synchronous", "OFF");
+        BULK_PRAGMAS.put("journal_mode", "MEMORY");
+        BULK_PRAGMAS.put("cache_size", "-65536");
+        BULK_PRAGMAS.put("temp_store", "MEMORY");
+    }
+
+    JDBCDataStore dataStore;
+
+    FeatureEntry entry;
+
+    GeoPkgGeomWriter.Configuration writerConfig;
+
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    /** Flags the attributes holding booleans in the source collection */
+    boolean[] booleans;
+
+    FeatureBulkLoader(JDBCDataStore dataStore, FeatureEntry entry,
+            GeoPkgGeomWriter.Configuration writerConfig) {
+        this.dataStore = dataStore;
+        this.entry = entry;
+        this.writerConfig = writerConfig;
+    }
+
+    /**
+     * Inserts all the features of the collection in the entry table.
+     * <p>
+     * The features are committed every {@link #BATCHES_PER_TRANSACTION} batches, in case of
+     * failure the ones committed before are kept.
+     * </p>
+     *
+     * @return The number of features inserted
+     */
+    long load(SimpleFeatureCollection collection, Connection cx) throws IOException {
+        SimpleFeatureType source = collection.getSchema();
+        SimpleFeatureType target = dataStore.getSchema(entry.getTableName());
+        List<AttributeDescriptor> attributes = new ArrayList<>();
+        for (AttributeDescriptor ad : target.getAttributeDescriptors()) {
+            if (source.getDescriptor(ad.getLocalName()) != null) {
+                attributes.add(ad);
+            }
+        }
+        booleans = new boolean[attributes.size()];
+        for (int i = 0; i < booleans.length; i++) {
+            booleans[i] = Boolean.class.equals(source.getDescriptor(
+                    attributes.get(i).getLocalName()).getType().getBinding());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            Map<String, String> pragmas = pragmas(cx, BULK_PRAGMAS);
+            boolean autoCommit = cx.getAutoCommit();
+            cx.setAutoCommit(false);
+            try (PreparedStatement ps = cx.prepareStatement(insertSQL(attributes));
+                    SimpleFeatureIterator it = collection.features()) {
+                // keep the workers busy while the batches encoded before are inserted
+                Deque<Future<Object[][]>> pending = new ArrayDeque<>();
+                long count = 0;
+                int batches = 0;
+                while (it.hasNext() || !pending.isEmpty()) {
+                    while (it.hasNext() && pending.size() < threads * 2) {
+                        final Object[][] rows = read(it, attributes);
+                        pending.add(executor.submit(() -> encode(rows, attributes)));
+                    }
+                    Object[][] rows = pending.poll().get();
+                    insert(rows, attributes, ps, cx);
+                    count += rows.length;
+                    if (++batches % BATCHES_PER_TRANSACTION == 0) {
+                        cx.commit();
+                    }
+                }
+                cx.commit();
+                return count;
+            } catch (Exception e) {
+                cx.rollback();
+                throw e;
+            } finally {
+                cx.setAutoCommit(autoCommit);
+                pragmas(cx, pragmas);
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the values of the next batch of features, booleans converted to integers as the
+     * GeoPackage specification requires (GEOT-5904)
+     */
+    Object[][] read(SimpleFeatureIterator it, List<AttributeDescriptor> attributes) {
+        List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+        while (it.hasNext() && rows.size() < BATCH_SIZE) {
+            SimpleFeature f = it.next();
+            Object[] row = new Object[attributes.size()];
+            for (int i = 0; i < row.length; i++) {
+                Object value = f.getAttribute(attributes.get(i).getLocalName());
+                if (booleans[i]) {
+                    value = Boolean.TRUE.equals(value) ? 1 : 0;
+                }
+                row[i] = value;
+            }
+            rows.add(row);
+        }
+        return rows.toArray(new Object[rows.size()][]);
+    }
+
+    /**
+     * Replaces the geometries of the rows with their GeoPackage binary encoding, empty
+     * geometries are stored as null like {@link GeoPkgDialect} does
+     */
+    Object[][] encode(Object[][] rows, List<AttributeDescriptor> attributes) throws IOException {
+        int srid = entry.getSrid() != null ? entry.getSrid() : 0;
+        for (int i = 0; i < attributes.size(); i++) {
+            if (!(attributes.get(i) instanceof GeometryDescriptor)) {
+                continue;
+            }
+            int dimension = dimension(attributes.get(i));
+            for (Object[] row : rows) {
+                Geometry g = (Geometry) row[i];
+                if (g == null || g.isEmpty()) {
+                    row[i] = null;
+                } else {
+                    g.setSRID(srid);
+                    int dim = dimension > 0 ? dimension : dimension(g);
+                    row[i] = new GeoPkgGeomWriter(dim, writerConfig).write(g);
+                }
+            }
+        }
+        return rows;
+    }
+
+    void insert(Object[][] rows, List<AttributeDescriptor> attributes, PreparedStatement ps,
+            Connection cx) throws SQLException {
+        PreparedStatementSQLDialect dialect = (PreparedStatementSQLDialect) dataStore
+                .getSQLDialect();
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                AttributeDescriptor ad = attributes.get(i);
+                if (ad instanceof GeometryDescriptor) {
+                    if (row[i] == null) {
+                        ps.setNull(i + 1, Types.BLOB);
+                    } else {
+                        ps.setBytes(i + 1, (byte[]) row[i]);
+                    }
+                } else {
+                    Class<?> binding = ad.getType().getBinding();
+                    if (Boolean.class.equals(binding)) {
+                        binding = Integer.class;
+                    }
+                    dialect.setValue(row[i], binding, ps, i + 1, cx);
+                }
+            }
+            ps.addBatch();
+        }
+        ps.executeBatch();
+    }
+
+    String insertSQL(List<AttributeDescriptor> attributes) {
+        StringBuffer sql = new StringBuffer("INSERT INTO ");
+        dataStore.getSQLDialect().encodeTableName(entry.getTableName(), sql);
+        sql.append(" (");
+        for (int i = 0; i < attributes.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            dataStore.getSQLDialect().encodeColumnName(null, attributes.get(i).getLocalName(),
+                    sql);
+        }
+        sql.append(") VALUES (");
+        for (int i = 0; i < attributes.size(); i++) {
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        return sql.append(")").toString();
+    }
+
+    /**
+     * Sets the pragmas on the connection
+     *
+     * @return The previous values of the pragmas
+     */
+    static Map<String, String> pragmas(Connection cx, Map<String, String> pragmas)
+            throws SQLException {
+        Map<String, String> previous = new LinkedHashMap<>();
+        try (Statement st = cx.createStatement()) {
+            for (Map.Entry<String, String> pragma : pragmas.entrySet()) {
+                try (ResultSet rs = st.executeQuery("PRAGMA " + pragma.getKey())) {
+                    if (rs.next()) {
+                        previous.put(pragma.getKey(), rs.getString(1));
+                    }
+                }
+                st.execute("PRAGMA " + pragma.getKey() + " = " + pragma.getValue());
+            }
+        }
+        return previous;
+    }
+
+    static int dimension(AttributeDescriptor descriptor) {
+        Object dimension = descriptor.getUserData().get(Hints.COORDINATE_DIMENSION);
+        return dimension instanceof Integer ? (Integer) dimension : -1;
+    }
+
+    /**
+     * The max dimension of the geometry coordinate sequences, as the JDBC store computes it
+     */
+    static int dimension(Geometry g) {
+        final int[] dimension = { 2 };
+        g.apply(new CoordinateSequenceFilter() {
+
+            @Override
+            public void filter(CoordinateSequence seq, int i) {
+                dimension[0] = Math.max(dimension[0], CoordinateSequences.coordinateDimension(seq));
+            }
+
+            @Override
+            public boolean isGeometryChanged() {
+                return false;
+            }
+
+            @Override
+            public boolean isDone() {
+                return false;
+            }
+        });
+        return dimension[0];
+    }
+}
@@ -716,6 +716,48 @@ public class GeoPackage {
         add(entry, source.getFeatures(filter));
     }
 
+    /**
+     * Adds a new feature dataset to the geopackage, in bulk.
+     * <p>
+     * Meant for large datasets: the features are inserted through batched prepared statements
+     * in large transactions, with the connection tuned for bulk writes, and their geometries are
+     * encoded by multiple threads. The spatial index, if requested, is built in a single pass
+     * after the features have been inserted.
+     * </p>
+     * <p>
+     * Unlike {@link #add(FeatureEntry, SimpleFeatureCollection)} the features are not added in a
+     * single transaction, in case of failure the ones inserted until then are kept.
+     * </p>
+     *
+     * @param entry Contains metadata about the feature entry.
+     * @param collection The simple feature collection to add to the geopackage.
+     * @param spatialIndex Whether to create the spatial index of the feature entry.
+     *
+     * @throws IOException Any errors occurring while adding the new feature dataset.
+     */
+    public void addBulk(FeatureEntry entry, SimpleFeatureCollection collection,
+            boolean spatialIndex) throws IOException {
+        FeatureEntry e = new FeatureEntry();
+        e.init(entry);
+
+        if (e.getBounds() == null) {
+            e.setBounds(collection.getBounds());
+        }
+
+        create(e, collection.getSchema());
+
+        try (Connection cx = connPool.getConnection()) {
+            new FeatureBulkLoader(dataStore(), e, writerConfig).load(collection, cx);
+        } catch (SQLException ex) {
+            throw new IOException(ex);
+        }
+
+        if (spatialIndex) {
+            createSpatialIndex(e);
+        }
+        entry.init(e);
+    }
+
     /**
      * Returns a writer used to modify or add to the contents of a feature dataset.
      *  
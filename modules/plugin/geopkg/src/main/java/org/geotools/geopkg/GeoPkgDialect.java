@@ -36,9 +36,10 @@ import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
 import org.opengis.feature.type.PropertyDescriptor;
+import org.opengis.filter.And;
 import org.opengis.filter.Filter;
 import org.opengis.filter.FilterFactory;
-import org.opengis.filter.spatial.BBOX;
+import org.opengis.filter.Or;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -52,6 +53,10 @@ import java.sql.Statement;
 import java.sql.Time;
 import java.sql.Timestamp;
 import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
@@ -72,6 +77,11 @@ public class GeoPkgDialect extends PreparedStatementSQLDialect {
    
     static final String HAS_SPATIAL_INDEX = "hasGeopkgSpatialIndex";
 
+    /**
+     * Max number of separate envelopes searched in the spatial index, past it they are merged
+     */
+    static final int MAX_INDEX_ENVELOPES = 16;
+
     protected GeoPkgGeomWriter.Configuration geomWriterConfig;
 
     public GeoPkgDialect(JDBCDataStore dataStore, GeoPkgGeomWriter.Configuration writerConfig) {
@@ -122,8 +132,17 @@ public class GeoPkgDialect extends PreparedStatementSQLDialect {
     @Override
     public Envelope decodeGeometryEnvelope(ResultSet rs, int column, Connection cx)
         throws SQLException, IOException {
-        Geometry g = geometry(rs.getBytes(column));
-        return g != null ? g.getEnvelopeInternal() : null;
+        byte[] bytes = rs.getBytes(column);
+        if (bytes == null) {
+            return null;
+        }
+        // use the envelope in the header when available, without parsing the geometry
+        Envelope envelope = new GeoPkgGeomReader(bytes).getEnvelope();
+        if (Double.isNaN(envelope.getMinX()) || Double.isNaN(envelope.getMinY())) {
+            // envelope of an empty geometry
+            return new Envelope();
+        }
+        return envelope;
     }
 
     @Override  public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, String column,
@@ -501,21 +520,22 @@ public class GeoPkgDialect extends PreparedStatementSQLDialect {
     public Filter[] splitFilter(Filter filter, SimpleFeatureType schema) {
         // sqlite does not have ST_* function support but can do a rtree search, assuming
         // there are rtrees to hit
-        // This implementation only supports figuring a bbox in case there is a single
+        // This implementation only supports figuring the bboxes in case there is a single
         // indexed spatial attribute (could be extended to use multiple spatial attributes if need be)
         final GeometryDescriptor searchAttribute = simpleSpatialSearch(filter, schema);
         if (searchAttribute != null) {
-            Envelope envelope = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR,
-                    null);
-            if (envelope != null && !envelope.isNull() 
-                    && !Double.isInfinite(envelope.getWidth())
-                    && !Double.isInfinite(envelope.getHeight())) {
+            List<Envelope> envelopes = indexEnvelopes(filter);
+            if (envelopes != null && !envelopes.isEmpty()) {
                 // split assuming there is no spatial support
                 Filter[] split = super.splitFilter(filter, schema);
                 FilterFactory ff = dataStore.getFilterFactory();
-                BBOX bbox = ff.bbox(searchAttribute.getLocalName(), envelope.getMinX(),
-                        envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(), null);
-                split[0] = ff.and(split[0], bbox);
+                List<Filter> bboxes = new ArrayList<>();
+                for (Envelope envelope : envelopes) {
+                    bboxes.add(ff.bbox(searchAttribute.getLocalName(), envelope.getMinX(),
+                            envelope.getMinY(), envelope.getMaxX(), envelope.getMaxY(), null));
+                }
+                Filter indexFilter = bboxes.size() == 1 ? bboxes.get(0) : ff.or(bboxes);
+                split[0] = ff.and(split[0], indexFilter);
                 
                 return split;
             }
@@ -524,6 +544,98 @@ public class GeoPkgDialect extends PreparedStatementSQLDialect {
         return super.splitFilter(filter, schema);
     }
 
+    /**
+     * Computes the envelopes to be searched in the spatial index in order to find all the features
+     * matching the filter. Spatial operators are bounded by the {@link ExtractBoundsFilterVisitor}
+     * (with DWithin expanded by the distance), the branches of an OR are kept separate so that
+     * the index is not searched for the empty space in between them.
+     * 
+     * @param filter
+     * @return The envelopes, or null if the filter cannot be bounded
+     */
+    List<Envelope> indexEnvelopes(Filter filter) {
+        List<Envelope> envelopes;
+        if (filter instanceof Or) {
+            envelopes = new ArrayList<>();
+            for (Filter child : ((Or) filter).getChildren()) {
+                List<Envelope> childEnvelopes = indexEnvelopes(child);
+                if (childEnvelopes == null) {
+                    // one branch can match anywhere
+                    return null;
+                }
+                envelopes.addAll(childEnvelopes);
+            }
+        } else if (filter instanceof And) {
+            // the overall bounds are the intersection of the ones of the children, if a child
+            // is an OR its envelopes are clipped to them
+            Envelope bounds = bounds(filter);
+            if (bounds == null) {
+                return null;
+            }
+            envelopes = Collections.singletonList(bounds);
+            for (Filter child : ((And) filter).getChildren()) {
+                List<Envelope> childEnvelopes = indexEnvelopes(child);
+                if (childEnvelopes != null && childEnvelopes.size() > envelopes.size()) {
+                    envelopes = new ArrayList<>();
+                    for (Envelope envelope : childEnvelopes) {
+                        Envelope clipped = envelope.intersection(bounds);
+                        if (!clipped.isNull()) {
+                            envelopes.add(clipped);
+                        }
+                    }
+                }
+            }
+        } else {
+            Envelope bounds = bounds(filter);
+            return bounds != null ? Collections.singletonList(bounds) : null;
+        }
+        return mergeEnvelopes(envelopes);
+    }
+
+    private Envelope bounds(Filter filter) {
+        Envelope envelope = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR,
+                null);
+        if (envelope == null || envelope.isNull() 
+                || Double.isInfinite(envelope.getWidth())
+                || Double.isInfinite(envelope.getHeight())) {
+            return null;
+        }
+        return new Envelope(envelope);
+    }
+
+    /**
+     * Merges the overlapping envelopes, and falls back on a single envelope if too many distinct
+     * ones are left
+     */
+    static List<Envelope> mergeEnvelopes(List<Envelope> envelopes) {
+        List<Envelope> merged = new ArrayList<>();
+        for (Envelope envelope : envelopes) {
+            Envelope current = new Envelope(envelope);
+            // as the current envelope grows it can reach envelopes that have been skipped before
+            boolean grown = true;
+            while (grown) {
+                grown = false;
+                for (Iterator<Envelope> it = merged.iterator(); it.hasNext();) {
+                    Envelope other = it.next();
+                    if (other.intersects(current)) {
+                        current.expandToInclude(other);
+                        it.remove();
+                        grown = true;
+                    }
+                }
+            }
+            merged.add(current);
+        }
+        if (merged.size() > MAX_INDEX_ENVELOPES) {
+            Envelope union = new Envelope();
+            for (Envelope envelope : merged) {
+                union.expandToInclude(envelope);
+            }
+            return Collections.singletonList(union);
+        }
+        return merged;
+    }
+
     /**
      * Checks if the filter uses a single spatial attribute, and such spatial attribute is indexed
      * 
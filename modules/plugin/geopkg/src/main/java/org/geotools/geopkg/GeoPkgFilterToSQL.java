@@ -20,6 +20,9 @@ import java.io.IOException;
 import java.io.Writer;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import org.geotools.data.jdbc.FilterToSQLException;
 import org.geotools.filter.FilterCapabilities;
@@ -28,6 +31,7 @@ import org.geotools.jdbc.PrimaryKeyColumn;
 import org.opengis.feature.Attribute;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.filter.Filter;
+import org.opengis.filter.Or;
 import org.opengis.filter.expression.Literal;
 import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.spatial.BBOX;
@@ -155,23 +159,8 @@ public class GeoPkgFilterToSQL extends PreparedFilterToSQL {
 
         // can we use the spatial index?
         try {
-            if (primaryKey != null && attribute != null && Boolean.TRUE.equals(attribute.getUserData().get(GeoPkgDialect.HAS_SPATIAL_INDEX))) {
-                // encode the primary key
-                PrimaryKeyColumn pk = primaryKey.getColumns().get(0);
-                String pkName = pk.getName();
-                filterFactory.property(pkName).accept(this, null);
-                // Make Sure the table name is escaped - GEOT-5852
-                StringBuffer sb = new StringBuffer();
-                dialect.encodeTableName(
-                        "rtree_" + featureType.getTypeName() + "_" + attribute.getLocalName(), sb);
-                String spatial_index = sb.toString();
-
-                out.write(" IN (SELECT id FROM " + spatial_index + " r WHERE");
-                out.write(" r.maxx >= " + envelope.getMinX());
-                out.write(" AND r.minx <= " + envelope.getMaxX());
-                out.write(" AND r.maxy >= " + envelope.getMinY());
-                out.write(" AND r.miny <= " + envelope.getMaxY());
-                out.write(")");
+            if (isIndexed(attribute)) {
+                encodeIndexSearch(attribute, Collections.singletonList(envelope));
             } else {
                 // fall back on direct BBOX tests, it's still faster than loading the whole geometry and to do BBOX in memory
                 StringBuffer sb = new StringBuffer();
@@ -188,6 +177,84 @@ public class GeoPkgFilterToSQL extends PreparedFilterToSQL {
 
         return extraData;
     }
-    
-    
+
+    /**
+     * An OR of BBOX filters against the same indexed attribute (as set up by
+     * {@link GeoPkgDialect#splitFilter(Filter, org.opengis.feature.simple.SimpleFeatureType)})
+     * is encoded as a single search in the spatial index, instead of one sub-query per BBOX
+     */
+    @Override
+    public Object visit(Or filter, Object extraData) {
+        AttributeDescriptor attribute = null;
+        List<Envelope> envelopes = new ArrayList<>();
+        for (Filter child : filter.getChildren()) {
+            if (!(child instanceof BBOX)
+                    || !(((BBOX) child).getExpression1() instanceof PropertyName)
+                    || !(((BBOX) child).getExpression2() instanceof Literal)) {
+                return super.visit(filter, extraData);
+            }
+            BBOX bbox = (BBOX) child;
+            AttributeDescriptor ad = bbox.getExpression1().evaluate(featureType,
+                    AttributeDescriptor.class);
+            Geometry reference = bbox.getExpression2().evaluate(null, Geometry.class);
+            if (!isIndexed(ad) || (attribute != null && !attribute.equals(ad))
+                    || reference == null) {
+                return super.visit(filter, extraData);
+            }
+            attribute = ad;
+            Envelope envelope = reference.getEnvelopeInternal();
+            envelope.expandBy(1e-11);
+            envelopes.add(envelope);
+        }
+        if (attribute == null) {
+            return super.visit(filter, extraData);
+        }
+
+        try {
+            out.write("(");
+            encodeIndexSearch(attribute, envelopes);
+            out.write(")");
+        } catch (IOException e) {
+            throw new RuntimeException("Failure encoding the SQL equivalent for a spatial filter", e);
+        }
+        return extraData;
+    }
+
+    private boolean isIndexed(AttributeDescriptor attribute) {
+        return primaryKey != null && attribute != null
+                && Boolean.TRUE.equals(attribute.getUserData().get(GeoPkgDialect.HAS_SPATIAL_INDEX));
+    }
+
+    /**
+     * Encodes a primary key lookup in the rtree of the attribute, matching the features whose
+     * bounds intersect any of the envelopes
+     */
+    private void encodeIndexSearch(AttributeDescriptor attribute, List<Envelope> envelopes)
+            throws IOException {
+        // encode the primary key
+        PrimaryKeyColumn pk = primaryKey.getColumns().get(0);
+        String pkName = pk.getName();
+        filterFactory.property(pkName).accept(this, null);
+        // Make Sure the table name is escaped - GEOT-5852
+        StringBuffer sb = new StringBuffer();
+        dialect.encodeTableName(
+                "rtree_" + featureType.getTypeName() + "_" + attribute.getLocalName(), sb);
+        String spatial_index = sb.toString();
+
+        out.write(" IN (SELECT id FROM " + spatial_index + " r WHERE");
+        boolean multiple = envelopes.size() > 1;
+        for (int i = 0; i < envelopes.size(); i++) {
+            Envelope envelope = envelopes.get(i);
+            if (i > 0) {
+                out.write(" OR");
+            }
+            out.write(multiple ? " (" : " ");
+            out.write("r.maxx >= " + envelope.getMinX());
+            out.write(" AND r.minx <= " + envelope.getMaxX());
+            out.write(" AND r.maxy >= " + envelope.getMinY());
+            out.write(" AND r.miny <= " + envelope.getMaxY());
+            out.write(multiple ? ")" : "");
+        }
+        out.write(")");
+    }
 }
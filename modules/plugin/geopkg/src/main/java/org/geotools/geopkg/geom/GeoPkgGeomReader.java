@@ -38,6 +38,7 @@ import com.vividsolutions.jts.io.WKBReader;
 import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.JTS;
 import org.geotools.math.Line;
+import org.geotools.renderer.ScreenMap;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -62,6 +63,7 @@ public class GeoPkgGeomReader {
     
     private Hints hints;
     private Number simplificationDistance;
+    private ScreenMap screenMap;
     private Class geometryType;
 
     public GeoPkgGeomReader(InStream input) {
@@ -90,10 +92,9 @@ public class GeoPkgGeomReader {
 
         if (geometry == null) {
             Envelope envelope = header.getEnvelope();
-            if (simplificationDistance != null && geometryType != null && 
+            if (geometryType != null && 
                     header.getFlags().getEnvelopeIndicator() != EnvelopeType.NONE &&
-                    envelope.getWidth() < simplificationDistance.doubleValue() 
-                    && envelope.getHeight() < simplificationDistance.doubleValue()) {
+                    (isSimplifiable(envelope) || isSubPixel(envelope))) {
                 Geometry simplified = getSimplifiedShape(geometryType, envelope.getMinX(), envelope.getMinY(), 
                         envelope.getMaxX(), envelope.getMaxY());
                 if (simplified != null) {
@@ -108,6 +109,22 @@ public class GeoPkgGeomReader {
         return geometry;
     }
 
+    private boolean isSimplifiable(Envelope envelope) {
+        return simplificationDistance != null
+                && envelope.getWidth() < simplificationDistance.doubleValue() 
+                && envelope.getHeight() < simplificationDistance.doubleValue();
+    }
+
+    /**
+     * Checks the header envelope against the screen map: a geometry smaller than a pixel is either
+     * skipped or replaced by its simplified shape by the feature reader, in both cases there is
+     * no need to parse the WKB, the shape built from the header envelope will do
+     */
+    private boolean isSubPixel(Envelope envelope) {
+        return screenMap != null && !Double.isNaN(envelope.getMinX())
+                && !Double.isNaN(envelope.getMinY()) && screenMap.canSimplify(envelope);
+    }
+
     public Geometry getSimplifiedShape(Class type, double minX, double minY, double maxX, double maxY) {
         CoordinateSequenceFactory csf = factory.getCoordinateSequenceFactory();
         if(Point.class.equals(type)) {
@@ -260,6 +277,7 @@ public class GeoPkgGeomReader {
     public void setHints(Hints hints) {
         if (hints != null) {
             this.simplificationDistance = (Number) hints.get(Hints.GEOMETRY_DISTANCE);
+            this.screenMap = (ScreenMap) hints.get(Hints.SCREENMAP);
         }
         this.hints = hints;
     }
@@ -532,6 +532,35 @@ public class GeoPackageTest {
         }
     }
 
+    @Test
+    public void testBulkAdd() throws Exception {
+        ShapefileDataStore shp = new ShapefileDataStore(setUpShapefile());
+        SimpleFeatureCollection coll = shp.getFeatureSource().getFeatures();
+
+        FeatureEntry entry = new FeatureEntry();
+        geopkg.addBulk(entry, coll, true);
+
+        assertTableExists("bugsites");
+        assertFeatureEntry(entry);
+        assertTrue(geopkg.hasSpatialIndex(entry));
+
+        try (SimpleFeatureReader re = Features.simple(shp.getFeatureReader());
+                SimpleFeatureReader ra = geopkg.reader(entry, null, null)) {
+            while (re.hasNext()) {
+                assertTrue(ra.hasNext());
+                assertSimilar(re.next(), ra.next());
+            }
+            assertFalse(ra.hasNext());
+        }
+
+        try (Connection cx = geopkg.getDataSource().getConnection();
+                Statement st = cx.createStatement();
+                ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM rtree_bugsites_the_geom")) {
+            rs.next();
+            assertEquals(coll.size(), rs.getInt(1));
+        }
+    }
+
     @Test
     public void testCreateTileEntry() throws Exception {
         TileEntry e = new TileEntry();
@@ -0,0 +1,142 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geopkg;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.AutoGeneratedPrimaryKeyColumn;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+public class GeoPkgDialectTest {
+
+    FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+
+    GeoPkgDialect dialect = new GeoPkgDialect(null, null);
+
+    @Test
+    public void testIndexEnvelopesBBOX() {
+        List<Envelope> envelopes = dialect.indexEnvelopes(ff.bbox("geom", 0, 0, 10, 10, null));
+        assertEquals(Collections.singletonList(new Envelope(0, 10, 0, 10)), envelopes);
+    }
+
+    @Test
+    public void testIndexEnvelopesDWithin() {
+        Filter filter = ff.dwithin(ff.property("geom"), ff.literal(point(5, 5)), 2, "m");
+        List<Envelope> envelopes = dialect.indexEnvelopes(filter);
+        assertEquals(1, envelopes.size());
+        assertTrue(envelopes.get(0).contains(new Envelope(3, 7, 3, 7)));
+    }
+
+    @Test
+    public void testIndexEnvelopesOr() {
+        Filter filter = ff.or(ff.bbox("geom", 0, 0, 1, 1, null),
+                ff.intersects(ff.property("geom"), ff.literal(point(100, 100))));
+        List<Envelope> envelopes = dialect.indexEnvelopes(filter);
+        assertEquals(2, envelopes.size());
+        assertEquals(new Envelope(0, 1, 0, 1), envelopes.get(0));
+        assertEquals(new Envelope(100, 100, 100, 100), envelopes.get(1));
+    }
+
+    @Test
+    public void testIndexEnvelopesOrOverlapping() {
+        Filter filter = ff.or(Arrays.asList(ff.bbox("geom", 0, 0, 2, 2, null),
+                ff.bbox("geom", 10, 10, 11, 11, null), ff.bbox("geom", 1, 1, 3, 3, null)));
+        List<Envelope> envelopes = dialect.indexEnvelopes(filter);
+        assertEquals(2, envelopes.size());
+        assertTrue(envelopes.contains(new Envelope(0, 3, 0, 3)));
+        assertTrue(envelopes.contains(new Envelope(10, 11, 10, 11)));
+    }
+
+    @Test
+    public void testIndexEnvelopesAndClipped() {
+        Filter or = ff.or(ff.bbox("geom", 0, 0, 2, 2, null), ff.bbox("geom", 8, 8, 10, 10, null));
+        Filter filter = ff.and(Arrays.asList(ff.equals(ff.property("name"), ff.literal("a")), or,
+                ff.bbox("geom", 1, 1, 9, 9, null)));
+        List<Envelope> envelopes = dialect.indexEnvelopes(filter);
+        assertEquals(2, envelopes.size());
+        assertEquals(new Envelope(1, 2, 1, 2), envelopes.get(0));
+        assertEquals(new Envelope(8, 9, 8, 9), envelopes.get(1));
+    }
+
+    @Test
+    public void testIndexEnvelopesUnbounded() {
+        Filter filter = ff.or(ff.bbox("geom", 0, 0, 1, 1, null),
+                ff.equals(ff.property("name"), ff.literal("a")));
+        assertNull(dialect.indexEnvelopes(filter));
+        assertNull(dialect.indexEnvelopes(ff.not(ff.bbox("geom", 0, 0, 1, 1, null))));
+    }
+
+    @Test
+    public void testMergeTooManyEnvelopes() {
+        List<Envelope> envelopes = new ArrayList<>();
+        for (int i = 0; i <= GeoPkgDialect.MAX_INDEX_ENVELOPES; i++) {
+            envelopes.add(new Envelope(i * 10, i * 10 + 1, 0, 1));
+        }
+        List<Envelope> merged = GeoPkgDialect.mergeEnvelopes(envelopes);
+        assertEquals(Collections.singletonList(
+                new Envelope(0, GeoPkgDialect.MAX_INDEX_ENVELOPES * 10 + 1, 0, 1)), merged);
+    }
+
+    @Test
+    public void testEncodeOrIndexSearch() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("ft");
+        tb.add("geom", Polygon.class);
+        tb.add("name", String.class);
+        SimpleFeatureType featureType = tb.buildFeatureType();
+        featureType.getDescriptor("geom").getUserData().put(GeoPkgDialect.HAS_SPATIAL_INDEX,
+                Boolean.TRUE);
+
+        GeoPkgFilterToSQL encoder = new GeoPkgFilterToSQL(dialect);
+        encoder.setFeatureType(featureType);
+        encoder.setPrimaryKey(new PrimaryKey("ft", Collections.<PrimaryKeyColumn> singletonList(
+                new AutoGeneratedPrimaryKeyColumn("fid", Integer.class))));
+        encoder.setInline(true);
+
+        Filter filter = ff.or(ff.bbox("geom", 0, 0, 1, 1, null),
+                ff.bbox("geom", 5, 5, 6, 6, null));
+        String sql = encoder.encodeToString(filter);
+        // a single lookup in the index
+        assertEquals(sql, sql.indexOf("SELECT id FROM"), sql.lastIndexOf("SELECT id FROM"));
+        assertTrue(sql, sql.contains("\"rtree_ft_geom\""));
+        assertTrue(sql, sql.contains(") OR (r.maxx >= "));
+    }
+
+    Point point(double x, double y) {
+        return new GeometryFactory().createPoint(new Coordinate(x, y));
+    }
+}
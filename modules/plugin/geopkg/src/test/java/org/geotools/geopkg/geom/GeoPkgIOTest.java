@@ -21,10 +21,13 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 
+import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.GeometryBuilder;
+import org.geotools.renderer.ScreenMap;
 import org.junit.Test;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Polygon;
 
 public class GeoPkgIOTest {
 
@@ -46,4 +49,27 @@ public class GeoPkgIOTest {
         assertEquals(0x50, bytes[1]);
         assertEquals(0x00, bytes[2]);
     }
+
+    @Test
+    public void testSubPixelFromHeader() throws IOException {
+        Geometry g1 = new GeometryBuilder().point(0,0).buffer(10);
+        byte[] bytes = new GeoPkgGeomWriter().write(g1);
+
+        ScreenMap screenMap = new ScreenMap(0, 0, 10, 10);
+        screenMap.setSpans(50, 50);
+        GeoPkgGeomReader reader = new GeoPkgGeomReader(bytes);
+        reader.setHints(new Hints(Hints.SCREENMAP, screenMap));
+        reader.setGeometryType(Polygon.class);
+        Geometry g2 = reader.get();
+        // the geometry is smaller than a pixel, its shape is built from the header envelope
+        assertEquals(5, g2.getNumPoints());
+        assertEquals(g1.getEnvelopeInternal(), g2.getEnvelopeInternal());
+
+        // larger than a pixel, fully read
+        screenMap.setSpans(5, 5);
+        reader = new GeoPkgGeomReader(bytes);
+        reader.setHints(new Hints(Hints.SCREENMAP, screenMap));
+        reader.setGeometryType(Polygon.class);
+        assertTrue(g1.equals(reader.get()));
+    }
 }
@@ -0,0 +1,580 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.gce.imagemosaic.GranuleDescriptor.GranuleLoadingResult;
+
+/**
+ * Loads granules on a fixed pool of threads shared by all the mosaics, so that the number of
+ * loading threads does not grow with the number of configured mosaics.
+ * <p>
+ * Each mosaic request gets its own {@link LoadingRequest}, with its own queue of granules. The
+ * loading threads serve the requests in round robin, one granule at a time, so that a request
+ * hitting many granules does not starve the ones hitting just a few. Each request can also be
+ * limited in the number of granules it loads in parallel, and in the total number of granules
+ * it can load.
+ * <p>
+ * When too many granules are queued, or when a granule is submitted by one of the loading
+ * threads (e.g., by a nested mosaic), the granule is loaded in the calling thread, slowing down
+ * the producers instead of growing the queue, and avoiding deadlocks.
+ * <p>
+ * The default scheduler is configured with the following system variables:
+ * <ul>
+ * <li>{@value #THREADS_KEY}: the number of loading threads, defaults to the number of
+ * processors</li>
+ * <li>{@value #MAX_PARALLEL_KEY}: the max number of granules a single request can load in
+ * parallel, defaults to the number of threads</li>
+ * <li>{@value #MAX_GRANULES_KEY}: the max number of granules a single request can load, 0 (the
+ * default) means no limit</li>
+ * <li>{@value #MAX_QUEUED_KEY}: the max number of granules waiting to be loaded, across all
+ * requests, defaults to 1024</li>
+ * </ul>
+ *
+ * @since 20.0
+ */
+public class GranuleLoadingScheduler {
+
+    static final Logger LOGGER = org.geotools.util.logging.Logging
+            .getLogger(GranuleLoadingScheduler.class);
+
+    public static final String THREADS_KEY = "org.geotools.imagemosaic.loadingThreads";
+
+    public static final String MAX_PARALLEL_KEY = "org.geotools.imagemosaic.maxParallelGranules";
+
+    public static final String MAX_GRANULES_KEY = "org.geotools.imagemosaic.maxGranulesPerRequest";
+
+    public static final String MAX_QUEUED_KEY = "org.geotools.imagemosaic.maxQueuedGranules";
+
+    static GranuleLoadingScheduler defaultScheduler;
+
+    /**
+     * Returns the scheduler shared by all the mosaics, creating it on first use
+     */
+    public static synchronized GranuleLoadingScheduler getDefault() {
+        if (defaultScheduler == null) {
+            int processors = Runtime.getRuntime().availableProcessors();
+            int threads = Integer.getInteger(THREADS_KEY, processors);
+            defaultScheduler = new GranuleLoadingScheduler(threads, Integer.getInteger(
+                    MAX_PARALLEL_KEY, threads), Integer.getInteger(MAX_GRANULES_KEY, 0),
+                    Integer.getInteger(MAX_QUEUED_KEY, 1024));
+        }
+        return defaultScheduler;
+    }
+
+    /**
+     * Replaces the scheduler shared by all the mosaics, shutting down the current one. Requests
+     * already running on the old scheduler get their pending granules cancelled.
+     */
+    public static synchronized void setDefault(GranuleLoadingScheduler scheduler) {
+        if (defaultScheduler != null && defaultScheduler != scheduler) {
+            defaultScheduler.shutdown();
+        }
+        defaultScheduler = scheduler;
+    }
+
+    final int maxParallelPerRequest;
+
+    final int maxGranulesPerRequest;
+
+    final int maxQueued;
+
+    final ReentrantLock lock = new ReentrantLock();
+
+    final Condition workAvailable = lock.newCondition();
+
+    /**
+     * The requests having granules to load, and not already loading as many granules in
+     * parallel as allowed
+     */
+    final ArrayDeque<LoadingRequest> ready = new ArrayDeque<LoadingRequest>();
+
+    /**
+     * The requests not closed yet
+     */
+    final Set<LoadingRequest> open = new HashSet<LoadingRequest>();
+
+    final Worker[] workers;
+
+    int queued;
+
+    volatile boolean shutdown;
+
+    final AtomicLong submitted = new AtomicLong();
+
+    final AtomicLong completed = new AtomicLong();
+
+    final AtomicLong failed = new AtomicLong();
+
+    final AtomicLong cancelled = new AtomicLong();
+
+    final AtomicLong rejected = new AtomicLong();
+
+    final AtomicLong callerRuns = new AtomicLong();
+
+    final AtomicLong started = new AtomicLong();
+
+    final AtomicLong totalWait = new AtomicLong();
+
+    final AtomicLong maxWait = new AtomicLong();
+
+    final AtomicLong requests = new AtomicLong();
+
+    final AtomicLong closedRequests = new AtomicLong();
+
+    final AtomicLong requestGranules = new AtomicLong();
+
+    final AtomicLong maxRequestGranules = new AtomicLong();
+
+    /**
+     * Creates a new scheduler and starts its loading threads
+     *
+     * @param threads The number of loading threads
+     * @param maxParallelPerRequest The max number of granules a request can load in parallel
+     * @param maxGranulesPerRequest The max number of granules a request can load, or 0 for no
+     *        limit
+     * @param maxQueued The max number of granules waiting to be loaded, beyond which granules are
+     *        loaded in the submitting thread
+     */
+    public GranuleLoadingScheduler(int threads, int maxParallelPerRequest,
+            int maxGranulesPerRequest, int maxQueued) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive, was "
+                    + threads);
+        }
+        this.maxParallelPerRequest = Math.max(1, maxParallelPerRequest);
+        this.maxGranulesPerRequest = maxGranulesPerRequest;
+        this.maxQueued = maxQueued;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Worker(i);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Starts a new request, whose granules will be loaded fairly with the ones of the other
+     * requests. The request should be closed when done.
+     */
+    public LoadingRequest newRequest() {
+        requests.incrementAndGet();
+        LoadingRequest request = new LoadingRequest();
+        lock.lock();
+        try {
+            open.add(request);
+        } finally {
+            lock.unlock();
+        }
+        return request;
+    }
+
+    /**
+     * Stops the loading threads, cancelling the granules that have not been loaded yet
+     */
+    public void shutdown() {
+        List<LoadingTask> pending = new ArrayList<LoadingTask>();
+        lock.lock();
+        try {
+            shutdown = true;
+            for (LoadingRequest request : open) {
+                pending.addAll(request.pending);
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (LoadingTask task : pending) {
+            task.cancel(false);
+        }
+        for (Worker worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * The number of loading threads
+     */
+    public int getThreads() {
+        return workers.length;
+    }
+
+    /**
+     * The number of granules submitted so far
+     */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /**
+     * The number of granules successfully loaded
+     */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /**
+     * The number of granules whose loading failed
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * The number of granules cancelled before being loaded
+     */
+    public long getCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * The number of granules refused because their request was over the granule limit
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * The number of granules loaded in the submitting thread, because the queue was full or the
+     * granule was submitted by a loading thread
+     */
+    public long getCallerRuns() {
+        return callerRuns.get();
+    }
+
+    /**
+     * The number of granules currently waiting to be loaded
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The average time the granules waited in queue before being loaded, in milliseconds
+     */
+    public double getAverageQueueWait() {
+        long count = started.get();
+        return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalWait.get()) / 1000d / count;
+    }
+
+    /**
+     * The longest time a granule waited in queue before being loaded, in milliseconds
+     */
+    public double getMaxQueueWait() {
+        return TimeUnit.NANOSECONDS.toMicros(maxWait.get()) / 1000d;
+    }
+
+    /**
+     * The number of requests served so far
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * The average number of granules submitted by the closed requests
+     */
+    public double getAverageGranulesPerRequest() {
+        long closed = closedRequests.get();
+        return closed == 0 ? 0 : (double) requestGranules.get() / closed;
+    }
+
+    /**
+     * The largest number of granules submitted by a single request
+     */
+    public long getMaxGranulesPerRequest() {
+        return maxRequestGranules.get();
+    }
+
+    @Override
+    public String toString() {
+        return "GranuleLoadingScheduler [threads=" + workers.length + ", submitted="
+                + getSubmitted() + ", completed=" + getCompleted() + ", failed=" + getFailed()
+                + ", cancelled=" + getCancelled() + ", rejected=" + getRejected()
+                + ", callerRuns=" + getCallerRuns() + ", queued=" + getQueued()
+                + ", averageQueueWait=" + getAverageQueueWait() + "ms, maxQueueWait="
+                + getMaxQueueWait() + "ms, requests=" + getRequests()
+                + ", averageGranulesPerRequest=" + getAverageGranulesPerRequest()
+                + ", maxGranulesPerRequest=" + getMaxGranulesPerRequest() + "]";
+    }
+
+    static void updateMax(AtomicLong max, long value) {
+        long current;
+        while ((current = max.get()) < value && !max.compareAndSet(current, value)) {
+            // retry
+        }
+    }
+
+    /**
+     * The granules loaded on behalf of a single mosaic request
+     */
+    public class LoadingRequest {
+
+        final ArrayDeque<LoadingTask> pending = new ArrayDeque<LoadingTask>();
+
+        final List<LoadingTask> tasks = new ArrayList<LoadingTask>();
+
+        int running;
+
+        boolean inReadyQueue;
+
+        boolean closed;
+
+        /**
+         * Queues a granule for loading
+         *
+         * @return The future result. If the request is over its granule limit, the future fails
+         *         with a {@link GranuleLoadingException}
+         */
+        public Future<GranuleLoadingResult> submit(Callable<GranuleLoadingResult> loader) {
+            LoadingTask task = new LoadingTask(this, loader);
+            submitted.incrementAndGet();
+            boolean runHere = false;
+            lock.lock();
+            try {
+                if (closed || shutdown) {
+                    task.cancel(false);
+                    return task;
+                }
+                tasks.add(task);
+                if (maxGranulesPerRequest > 0 && tasks.size() > maxGranulesPerRequest) {
+                    rejected.incrementAndGet();
+                    task.reject(new GranuleLoadingException("The request loads more than "
+                            + maxGranulesPerRequest + " granules, the limit set by "
+                            + MAX_GRANULES_KEY, null));
+                    return task;
+                }
+                if (queued >= maxQueued || Thread.currentThread() instanceof Worker) {
+                    runHere = true;
+                } else {
+                    pending.add(task);
+                    queued++;
+                    schedule();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (runHere) {
+                callerRuns.incrementAndGet();
+                task.run();
+            }
+            return task;
+        }
+
+        /**
+         * Cancels all the granules not loaded yet, interrupting the ones being loaded
+         */
+        public void cancel() {
+            List<LoadingTask> toCancel;
+            lock.lock();
+            try {
+                toCancel = new ArrayList<LoadingTask>(tasks);
+                // drain the queue first, so that the threads do not pick up the granules
+                // while the running ones are being cancelled
+                queued -= pending.size();
+                pending.clear();
+                if (inReadyQueue) {
+                    ready.remove(this);
+                    inReadyQueue = false;
+                }
+            } finally {
+                lock.unlock();
+            }
+            for (LoadingTask task : toCancel) {
+                task.cancel(true);
+            }
+        }
+
+        /**
+         * Cancels the granules not loaded yet and records the request statistics. Further
+         * submissions will be cancelled right away.
+         */
+        public void close() {
+            int granules;
+            lock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                open.remove(this);
+                granules = tasks.size();
+            } finally {
+                lock.unlock();
+            }
+            cancel();
+            closedRequests.incrementAndGet();
+            requestGranules.addAndGet(granules);
+            updateMax(maxRequestGranules, granules);
+        }
+
+        /**
+         * The number of granules submitted so far
+         */
+        public int getGranules() {
+            lock.lock();
+            try {
+                return tasks.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Puts the request in the ready queue if it has granules to load and can load more in
+         * parallel. To be called while holding the lock.
+         */
+        void schedule() {
+            if (!inReadyQueue && !pending.isEmpty() && running < maxParallelPerRequest) {
+                ready.add(this);
+                inReadyQueue = true;
+                workAvailable.signal();
+            }
+        }
+    }
+
+    /**
+     * A granule load, keeping track of the time spent in queue
+     */
+    class LoadingTask extends FutureTask<GranuleLoadingResult> {
+
+        final LoadingRequest request;
+
+        final long queuedAt = System.nanoTime();
+
+        LoadingTask(LoadingRequest request, Callable<GranuleLoadingResult> loader) {
+            super(loader);
+            this.request = request;
+        }
+
+        @Override
+        public void run() {
+            if (isDone()) {
+                return;
+            }
+            long wait = System.nanoTime() - queuedAt;
+            started.incrementAndGet();
+            totalWait.addAndGet(wait);
+            updateMax(maxWait, wait);
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                cancelled.incrementAndGet();
+                lock.lock();
+                try {
+                    if (request.pending.remove(this)) {
+                        queued--;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } else {
+                try {
+                    get();
+                    completed.incrementAndGet();
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                }
+            }
+        }
+
+        void reject(Exception e) {
+            setException(e);
+        }
+    }
+
+    /**
+     * A loading thread, serving the ready requests in round robin
+     */
+    class Worker extends Thread {
+
+        Worker(int index) {
+            super("GranuleLoader-" + index);
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                LoadingRequest request;
+                LoadingTask task;
+                lock.lock();
+                try {
+                    while (ready.isEmpty() && !shutdown) {
+                        try {
+                            workAvailable.await();
+                        } catch (InterruptedException e) {
+                            // check the shutdown flag again
+                        }
+                    }
+                    if (shutdown) {
+                        return;
+                    }
+                    request = ready.poll();
+                    request.inReadyQueue = false;
+                    task = request.pending.poll();
+                    if (task == null) {
+                        continue;
+                    }
+                    queued--;
+                    request.running++;
+                    // back to the end of the queue, if there is more to load
+                    request.schedule();
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    LOGGER.log(Level.WARNING, "Unexpected error loading a granule", t);
+                } finally {
+                    // clear the interrupted status left by a cancellation
+                    Thread.interrupted();
+                    lock.lock();
+                    try {
+                        request.running--;
+                        request.schedule();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+}
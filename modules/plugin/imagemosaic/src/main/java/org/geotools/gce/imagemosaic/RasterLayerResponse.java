@@ -534,6 +534,8 @@ public class RasterLayerResponse {
 
     private ROIExcessGranuleRemover excessGranuleRemover;
 
+    private GranuleLoadingScheduler.LoadingRequest loadingRequest;
+
     /**
      * Construct a {@code RasterLayerResponse} given a specific {@link RasterLayerRequest}, a {@code GridCoverageFactory} to produce
      * {@code GridCoverage}s and an {@code ImageReaderSpi} to be used for instantiating an Image Reader for a read operation,
@@ -571,7 +573,15 @@ public class RasterLayerResponse {
      * @uml.property name="gridCoverage"
      */
     public GridCoverage2D createResponse() throws IOException {
-        processRequest();
+        try {
+            processRequest();
+        } finally {
+            // cancels whatever granule is still queued, e.g., in case of failure
+            if (loadingRequest != null) {
+                loadingRequest.close();
+                loadingRequest = null;
+            }
+        }
         return gridCoverage;
     }
 
@@ -1241,6 +1251,18 @@ public class RasterLayerResponse {
         return multithreadingAllowed;
     }
 
+    /**
+     * Returns the request used to load the granules on the {@link GranuleLoadingScheduler} shared
+     * among all the mosaics, when multithreading is allowed and no executor has been provided to
+     * the reader
+     */
+    public synchronized GranuleLoadingScheduler.LoadingRequest getLoadingRequest() {
+        if (loadingRequest == null) {
+            loadingRequest = GranuleLoadingScheduler.getDefault().newRequest();
+        }
+        return loadingRequest;
+    }
+
     public RasterManager getRasterManager() {
         return rasterManager;
     }
@@ -116,101 +116,110 @@ public class BaseSubmosaicProducer implements SubmosaicProducer {
         URL sourceUrl = null;
         final List<MosaicElement> returnValues = new ArrayList<>();
         // collect sources for the current dimension and then process them
-        for (Future<GranuleDescriptor.GranuleLoadingResult> future : granulesFutures) {
-
-            try {
-                // get the resulting RenderedImage
-                final GranuleDescriptor.GranuleLoadingResult result = future.get();
-                if (result == null) {
-                    if (LOGGER.isLoggable(Level.FINE)) {
-                        LOGGER.log(Level.FINE, "Unable to load the raster for granule with request "
-                                + rasterLayerResponse.getRequest().toString());
+        try {
+            for (Future<GranuleDescriptor.GranuleLoadingResult> future : granulesFutures) {
+
+                try {
+                    // get the resulting RenderedImage
+                    final GranuleDescriptor.GranuleLoadingResult result = future.get();
+                    if (result == null) {
+                        if (LOGGER.isLoggable(Level.FINE)) {
+                            LOGGER.log(Level.FINE, "Unable to load the raster for granule with request "
+                                    + rasterLayerResponse.getRequest().toString());
+                        }
+                        continue;
                     }
-                    continue;
-                }
-                final RenderedImage loadedImage = result.getRaster();
-                if (loadedImage == null) {
-                    if (LOGGER.isLoggable(Level.FINE)) {
-                        LOGGER.log(Level.FINE,
-                                "Unable to load the raster for granuleDescriptor "
-                                        + result.getGranuleUrl() + " with request "
-                                        + rasterLayerResponse.getRequest().toString());
+                    final RenderedImage loadedImage = result.getRaster();
+                    if (loadedImage == null) {
+                        if (LOGGER.isLoggable(Level.FINE)) {
+                            LOGGER.log(Level.FINE,
+                                    "Unable to load the raster for granuleDescriptor "
+                                            + result.getGranuleUrl() + " with request "
+                                            + rasterLayerResponse.getRequest().toString());
+                        }
+                        continue;
                     }
-                    continue;
-                }
                 
-                // perform excess granule removal in case multithreaded loading is enabled
-                if(isMultithreadedLoadingEnabled()) {
-                    ROIExcessGranuleRemover remover = rasterLayerResponse.getExcessGranuleRemover();
-                    if(remover != null) {
-                        if(remover.isRenderingAreaComplete()) {
-                            break;
+                    // perform excess granule removal in case multithreaded loading is enabled
+                    if(isMultithreadedLoadingEnabled()) {
+                        ROIExcessGranuleRemover remover = rasterLayerResponse.getExcessGranuleRemover();
+                        if(remover != null) {
+                            if(remover.isRenderingAreaComplete()) {
+                                break;
+                            }
+                            if(!remover.addGranule(result)) {
+                                // skip this granule
+                                continue;
+                            }
                         }
-                        if(!remover.addGranule(result)) {
-                            // skip this granule
-                            continue;
+                    }
+
+                    // now process it
+                    if (sourceThreshold == null) {
+                        //
+                        // We check here if the images have an alpha channel or some
+                        // other sort of transparency. In case we have transparency
+                        // I also save the index of the transparent channel.
+                        //
+                        // Specifically, I have to check if the loaded image have
+                        // transparency, because if we do a ROI and/or we have a
+                        // transparent color to set we have to remove it.
+                        //
+                        final ColorModel cm = loadedImage.getColorModel();
+                        hasAlpha = cm.hasAlpha();
+                        if (hasAlpha) {
+                            alphaIndex[0] = cm.getNumComponents() - 1;
                         }
+
+                        //
+                        // we set the input threshold accordingly to the input
+                        // image data type. I find the default value (which is 0) very bad
+                        // for data type other than byte and ushort. With float and double
+                        // it can cut off a large par of the dynamic.
+                        //
+                        sourceThreshold = new double[][] { { CoverageUtilities
+                                .getMosaicThreshold(loadedImage.getSampleModel().getDataType()) } };
                     }
-                }
 
-                // now process it
-                if (sourceThreshold == null) {
-                    //
-                    // We check here if the images have an alpha channel or some
-                    // other sort of transparency. In case we have transparency
-                    // I also save the index of the transparent channel.
-                    //
-                    // Specifically, I have to check if the loaded image have
-                    // transparency, because if we do a ROI and/or we have a
-                    // transparent color to set we have to remove it.
-                    //
-                    final ColorModel cm = loadedImage.getColorModel();
-                    hasAlpha = cm.hasAlpha();
-                    if (hasAlpha) {
-                        alphaIndex[0] = cm.getNumComponents() - 1;
+                    // moving on
+                    if (LOGGER.isLoggable(Level.FINE)) {
+                        LOGGER.fine("Adding to mosaic granule " + result.getGranuleUrl());
                     }
 
-                    //
-                    // we set the input threshold accordingly to the input
-                    // image data type. I find the default value (which is 0) very bad
-                    // for data type other than byte and ushort. With float and double
-                    // it can cut off a large par of the dynamic.
-                    //
-                    sourceThreshold = new double[][] { { CoverageUtilities
-                            .getMosaicThreshold(loadedImage.getSampleModel().getDataType()) } };
-                }
+                    // path management
+                    File inputFile = URLs.urlToFile(result.getGranuleUrl());
+                    String canonicalPath = inputFile.getCanonicalPath();
+                    // Remove ovr extension if present
+                    String fileCanonicalPath = canonicalPath;
+                    if (canonicalPath.endsWith(".ovr")) {
+                        fileCanonicalPath = canonicalPath.substring(0, canonicalPath.length() - 4);
+                    }
+                    paths.append(canonicalPath).append(",");
+                    // take only the first source URL found
+                    if (sourceUrl == null) {
+                        sourceUrl = result.getGranuleUrl();
+                    }
 
-                // moving on
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    LOGGER.fine("Adding to mosaic granule " + result.getGranuleUrl());
-                }
+                    // add to the mosaic collection, with preprocessing
+                    // TODO pluggable mechanism for processing (artifacts,etc...)
+                    MosaicElement input = preProcessGranuleRaster(loadedImage, result,
+                            fileCanonicalPath);
+                    returnValues.add(input);
 
-                // path management
-                File inputFile = URLs.urlToFile(result.getGranuleUrl());
-                String canonicalPath = inputFile.getCanonicalPath();
-                // Remove ovr extension if present
-                String fileCanonicalPath = canonicalPath;
-                if (canonicalPath.endsWith(".ovr")) {
-                    fileCanonicalPath = canonicalPath.substring(0, canonicalPath.length() - 4);
-                }
-                paths.append(canonicalPath).append(",");
-                // take only the first source URL found
-                if (sourceUrl == null) {
-                    sourceUrl = result.getGranuleUrl();
+                } catch (Exception e) {
+                    if (LOGGER.isLoggable(Level.INFO)) {
+                        LOGGER.info("Adding to mosaic failed, original request was "
+                                + rasterLayerResponse.getRequest());
+                    }
+                    throw new IOException(e);
                 }
-
-                // add to the mosaic collection, with preprocessing
-                // TODO pluggable mechanism for processing (artifacts,etc...)
-                MosaicElement input = preProcessGranuleRaster(loadedImage, result,
-                        fileCanonicalPath);
-                returnValues.add(input);
-
-            } catch (Exception e) {
-                if (LOGGER.isLoggable(Level.INFO)) {
-                    LOGGER.info("Adding to mosaic failed, original request was "
-                            + rasterLayerResponse.getRequest());
+            }
+        } finally {
+            // cancel the granules still loading, when bailing out early or failing
+            for (Future<GranuleDescriptor.GranuleLoadingResult> future : granulesFutures) {
+                if (!future.isDone()) {
+                    future.cancel(true);
                 }
-                throw new IOException(e);
             }
         }
         
@@ -385,10 +394,15 @@ public class BaseSubmosaicProducer implements SubmosaicProducer {
         if (!dryRun) {
             final boolean multiThreadedLoading = isMultithreadedLoadingEnabled();
             if (multiThreadedLoading) {
-                // MULTITHREADED EXECUTION submitting the task
+                // MULTITHREADED EXECUTION submitting the task, to the executor provided
+                // by the user if any, or to the scheduler shared among all the mosaics
                 final ExecutorService mtLoader = rasterLayerResponse
                         .getRasterManager().getParentReader().getMultiThreadedLoader();
-                granulesFutures.add(mtLoader.submit(loader));
+                if (mtLoader != null) {
+                    granulesFutures.add(mtLoader.submit(loader));
+                } else {
+                    granulesFutures.add(rasterLayerResponse.getLoadingRequest().submit(loader));
+                }
             } else {
                 // SINGLE THREADED Execution, we defer the execution to when we have done the loading
                 final FutureTask<GranuleDescriptor.GranuleLoadingResult> task = new FutureTask<>(
@@ -422,10 +436,7 @@ public class BaseSubmosaicProducer implements SubmosaicProducer {
     }
     
     private boolean isMultithreadedLoadingEnabled() {
-        final ExecutorService mtLoader = rasterLayerResponse
-                .getRasterManager().getParentReader().getMultiThreadedLoader();
-        final boolean multiThreadedLoading = rasterLayerResponse.isMultithreadingAllowed() && mtLoader != null;
-        return multiThreadedLoading;
+        return rasterLayerResponse.isMultithreadingAllowed();
     }
 
 
@@ -0,0 +1,205 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.gce.imagemosaic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.geotools.gce.imagemosaic.GranuleDescriptor.GranuleLoadingResult;
+import org.geotools.gce.imagemosaic.GranuleLoadingScheduler.LoadingRequest;
+import org.junit.After;
+import org.junit.Test;
+
+public class GranuleLoadingSchedulerTest {
+
+    GranuleLoadingScheduler scheduler;
+
+    @After
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * A loader recording its name in the shared completion list, waiting on a latch before
+     * loading if provided
+     */
+    static Callable<GranuleLoadingResult> loader(final String name, final List<String> loaded,
+            final CountDownLatch latch) {
+        return new Callable<GranuleLoadingResult>() {
+
+            @Override
+            public GranuleLoadingResult call() throws Exception {
+                if (latch != null) {
+                    latch.await();
+                }
+                loaded.add(name);
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void testRoundRobin() throws Exception {
+        scheduler = new GranuleLoadingScheduler(1, 1, 0, 1000);
+        List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+
+        // block the only thread, so that everything else gets queued
+        CountDownLatch latch = new CountDownLatch(1);
+        LoadingRequest blocker = scheduler.newRequest();
+        Future<GranuleLoadingResult> blocking = blocker.submit(loader("blocker", loaded, latch));
+
+        // a large request, followed by a small one
+        LoadingRequest large = scheduler.newRequest();
+        List<Future<GranuleLoadingResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futures.add(large.submit(loader("large" + i, loaded, null)));
+        }
+        LoadingRequest small = scheduler.newRequest();
+        for (int i = 0; i < 2; i++) {
+            futures.add(small.submit(loader("small" + i, loaded, null)));
+        }
+
+        latch.countDown();
+        blocking.get(5, TimeUnit.SECONDS);
+        for (Future<GranuleLoadingResult> future : futures) {
+            assertNull(future.get(5, TimeUnit.SECONDS));
+        }
+
+        // the small request did not wait for the large one to be completed
+        assertEquals(13, loaded.size());
+        assertTrue(loaded.indexOf("small1") < loaded.indexOf("large9"));
+        assertTrue(loaded.indexOf("small1") <= 4);
+
+        blocker.close();
+        large.close();
+        small.close();
+        assertEquals(13, scheduler.getSubmitted());
+        assertEquals(13, scheduler.getCompleted());
+        assertEquals(3, scheduler.getRequests());
+        assertEquals(10, scheduler.getMaxGranulesPerRequest());
+        assertEquals(13 / 3d, scheduler.getAverageGranulesPerRequest(), 1e-6);
+        assertTrue(scheduler.getMaxQueueWait() >= scheduler.getAverageQueueWait());
+        assertEquals(0, scheduler.getQueued());
+    }
+
+    @Test
+    public void testCancelOnClose() throws Exception {
+        scheduler = new GranuleLoadingScheduler(1, 1, 0, 1000);
+        List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+
+        CountDownLatch latch = new CountDownLatch(1);
+        LoadingRequest request = scheduler.newRequest();
+        Future<GranuleLoadingResult> running = request.submit(loader("running", loaded, latch));
+        List<Future<GranuleLoadingResult>> queued = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            queued.add(request.submit(loader("queued" + i, loaded, null)));
+        }
+
+        // abandon the request, the running task gets interrupted and the others never run
+        request.close();
+        assertTrue(running.isCancelled());
+        for (Future<GranuleLoadingResult> future : queued) {
+            assertTrue(future.isCancelled());
+        }
+        assertEquals(0, scheduler.getQueued());
+        assertEquals(6, scheduler.getCancelled());
+
+        // the thread is still usable by other requests
+        LoadingRequest other = scheduler.newRequest();
+        assertNull(other.submit(loader("other", loaded, null)).get(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("other"), loaded);
+        other.close();
+
+        // submitting to a closed request cancels right away
+        assertTrue(request.submit(loader("late", loaded, null)).isCancelled());
+    }
+
+    @Test
+    public void testMaxGranules() throws Exception {
+        scheduler = new GranuleLoadingScheduler(2, 2, 3, 1000);
+        List<String> loaded = Collections.synchronizedList(new ArrayList<String>());
+        LoadingRequest request = scheduler.newRequest();
+        List<Future<GranuleLoadingResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(request.submit(loader("granule" + i, loaded, null)));
+        }
+        for (int i = 0; i < 3; i++) {
+            assertNull(futures.get(i).get(5, TimeUnit.SECONDS));
+        }
+        try {
+            futures.get(3).get(5, TimeUnit.SECONDS);
+            fail("Should have failed, too many granules");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof GranuleLoadingException);
+        }
+        assertEquals(1, scheduler.getRejected());
+        assertFalse(loaded.contains("granule3"));
+        request.close();
+    }
+
+    @Test
+    public void testCallerRunsWhenQueueFull() throws Exception {
+        scheduler = new GranuleLoadingScheduler(1, 1, 0, 1);
+        final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+        Callable<GranuleLoadingResult> recorder = new Callable<GranuleLoadingResult>() {
+
+            @Override
+            public GranuleLoadingResult call() throws Exception {
+                threads.add(Thread.currentThread());
+                return null;
+            }
+        };
+
+        CountDownLatch latch = new CountDownLatch(1);
+        LoadingRequest request = scheduler.newRequest();
+        Future<GranuleLoadingResult> blocking = request.submit(loader("blocker",
+                new ArrayList<String>(), latch));
+        // wait for the blocker to be picked up, then fill the queue
+        long start = System.currentTimeMillis();
+        while (scheduler.getQueued() > 0 && System.currentTimeMillis() - start < 5000) {
+            Thread.sleep(10);
+        }
+        Future<GranuleLoadingResult> queued = request.submit(recorder);
+        Future<GranuleLoadingResult> overflow = request.submit(recorder);
+
+        // the overflow ran in this thread, before the queued one
+        assertTrue(overflow.isDone());
+        assertSame(Thread.currentThread(), threads.get(0));
+        assertEquals(1, scheduler.getCallerRuns());
+
+        latch.countDown();
+        blocking.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertEquals(2, threads.size());
+        request.close();
+    }
+}
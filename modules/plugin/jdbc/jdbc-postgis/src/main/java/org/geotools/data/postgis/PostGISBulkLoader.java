@@ -0,0 +1,327 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.jdbc.datasource.DataSourceFinder;
+import org.geotools.data.jdbc.datasource.UnWrapper;
+import org.geotools.factory.Hints;
+import org.geotools.geometry.jts.CurvedGeometry;
+import org.geotools.geometry.jts.CurvedRing;
+import org.geotools.geometry.jts.WKTWriter2;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.geotools.referencing.CRS;
+import org.geotools.util.Converters;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.postgresql.PGConnection;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.io.WKBWriter;
+
+/**
+ * Loads features in a PostgreSQL table with the COPY command, in its text format.
+ * <p>
+ * Geometries are sent as hexadecimal EWKB, or as EWKT for curved geometries, and every other
+ * value is encoded the same way as the literals of the INSERT statements would be.
+ * </p>
+ *
+ * @since 20.0
+ */
+class PostGISBulkLoader {
+
+    static final Logger LOGGER = Logging.getLogger(PostGISBulkLoader.class);
+
+    static final String NULL = "\\N";
+
+    static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    final PostGISDialect dialect;
+
+    PostGISBulkLoader(PostGISDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * Returns true if all the attributes of the feature type can be encoded for COPY, types not
+     * handled here (arrays, hstore, ...) are left to the INSERT statements.
+     */
+    static boolean canLoad(SimpleFeatureType featureType) {
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (!canEncode(att.getType().getBinding())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean canEncode(Class<?> binding) {
+        return Geometry.class.isAssignableFrom(binding) || byte[].class.equals(binding)
+                || Number.class.isAssignableFrom(binding) || Boolean.class.equals(binding)
+                || CharSequence.class.isAssignableFrom(binding) || Character.class.equals(binding)
+                || Date.class.isAssignableFrom(binding) || UUID.class.equals(binding);
+    }
+
+    /**
+     * Copies the features, along with their primary key values, in the table.
+     */
+    void load(String schema, SimpleFeatureType featureType, List<SimpleFeature> features,
+            List<List<Object>> keyValues, PrimaryKey key, Connection cx)
+            throws IOException, SQLException {
+        String sql = copySQL(schema, featureType, key);
+        StringBuilder data = new StringBuilder(features.size() * 64);
+        for (int i = 0; i < features.size(); i++) {
+            encodeRow(featureType, features.get(i), keyValues.get(i), key, data);
+        }
+        LOGGER.log(Level.FINE, "Bulk loading {0} features with {1}",
+                new Object[] { features.size(), sql });
+        long copied = unwrap(cx).getCopyAPI().copyIn(sql, new StringReader(data.toString()));
+        if (copied != features.size()) {
+            throw new IOException("Failed to insert some features, expected " + features.size()
+                    + " rows to be copied but got " + copied);
+        }
+    }
+
+    /**
+     * Builds the COPY statement, listing the attributes first, then the primary key columns.
+     */
+    String copySQL(String schema, SimpleFeatureType featureType, PrimaryKey key) {
+        StringBuffer sql = new StringBuffer("COPY ");
+        if (schema != null) {
+            dialect.encodeSchemaName(schema, sql);
+            sql.append(".");
+        }
+        dialect.encodeTableName(featureType.getTypeName(), sql);
+        sql.append(" (");
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            if (isKey(key, att.getLocalName())) {
+                continue;
+            }
+            dialect.encodeColumnName(null, att.getLocalName(), sql);
+            sql.append(",");
+        }
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            dialect.encodeColumnName(null, col.getName(), sql);
+            sql.append(",");
+        }
+        sql.setLength(sql.length() - 1);
+        sql.append(") FROM STDIN");
+        return sql.toString();
+    }
+
+    /**
+     * Encodes a feature as a line of tab separated values.
+     */
+    void encodeRow(SimpleFeatureType featureType, SimpleFeature feature, List<Object> keyValues,
+            PrimaryKey key, StringBuilder data) throws IOException {
+        boolean first = true;
+        for (AttributeDescriptor att : featureType.getAttributeDescriptors()) {
+            String colName = att.getLocalName();
+            if (isKey(key, colName)) {
+                continue;
+            }
+            Object value = feature.getAttribute(colName);
+            if (value == null && !att.isNillable()) {
+                throw new IOException("Cannot set a NULL value on the not null column " + colName);
+            }
+            if (!first) {
+                data.append('\t');
+            }
+            first = false;
+            if (value instanceof Geometry) {
+                encodeGeometry((Geometry) value, att, data);
+            } else {
+                encodeValue(value, att.getType().getBinding(), data);
+            }
+        }
+        for (int i = 0; i < key.getColumns().size(); i++) {
+            if (!first) {
+                data.append('\t');
+            }
+            first = false;
+            encodeValue(keyValues.get(i), key.getColumns().get(i).getType(), data);
+        }
+        data.append('\n');
+    }
+
+    void encodeValue(Object value, Class<?> binding, StringBuilder data) {
+        if (value == null) {
+            data.append(NULL);
+        } else if (value instanceof byte[]) {
+            // bytea hex format, the backslash is escaped for COPY
+            byte[] bytes = (byte[]) value;
+            data.append("\\\\x");
+            for (byte b : bytes) {
+                data.append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        } else if (value instanceof Date && BigDate.class.isAssignableFrom(binding)) {
+            data.append(((Date) value).getTime());
+        } else if (value instanceof Number || value instanceof Boolean) {
+            data.append(String.valueOf(value));
+        } else if (value instanceof java.sql.Date || value instanceof java.sql.Time
+                || value instanceof Timestamp) {
+            data.append(value.toString());
+        } else if (value instanceof Date) {
+            data.append(new Timestamp(((Date) value).getTime()).toString());
+        } else {
+            String text = Converters.convert(value, String.class);
+            escape(text != null ? text : value.toString(), data);
+        }
+    }
+
+    void encodeGeometry(Geometry g, AttributeDescriptor att, StringBuilder data) {
+        if (g.isEmpty()) {
+            data.append(NULL);
+            return;
+        }
+        int srid = getSRID(g, att);
+        int dimension = getDimension(g, att);
+        if (g instanceof CurvedGeometry) {
+            // WKB would lose the arcs
+            if (srid > 0) {
+                data.append("SRID=").append(srid).append(';');
+            }
+            data.append(new WKTWriter2(dimension).write(g));
+            return;
+        }
+        if (g instanceof LinearRing && !(g instanceof CurvedRing)) {
+            // postgis does not handle linear rings, convert to just a line string
+            g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
+        }
+        byte[] wkb = new WKBWriter(dimension).write(g);
+        if (srid > 0) {
+            // turn the big endian WKB into EWKB by flagging the type and inserting the srid
+            append(data, wkb, 0, 1);
+            data.append(HEX[((wkb[1] >> 4) & 0xF) | 0x2]).append(HEX[wkb[1] & 0xF]);
+            append(data, wkb, 2, 5);
+            append(data, new byte[] { (byte) (srid >>> 24), (byte) (srid >>> 16),
+                    (byte) (srid >>> 8), (byte) srid }, 0, 4);
+            append(data, wkb, 5, wkb.length);
+        } else {
+            append(data, wkb, 0, wkb.length);
+        }
+    }
+
+    static void append(StringBuilder data, byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            data.append(HEX[(bytes[i] >> 4) & 0xF]).append(HEX[bytes[i] & 0xF]);
+        }
+    }
+
+    /**
+     * Escapes the characters that have a special meaning in the COPY text format.
+     */
+    static void escape(String text, StringBuilder data) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+            case '\\':
+                data.append("\\\\");
+                break;
+            case '\n':
+                data.append("\\n");
+                break;
+            case '\r':
+                data.append("\\r");
+                break;
+            case '\t':
+                data.append("\\t");
+                break;
+            default:
+                data.append(c);
+            }
+        }
+    }
+
+    int getSRID(Geometry g, AttributeDescriptor att) {
+        Object srid = att.getUserData().get(JDBCDataStore.JDBC_NATIVE_SRID);
+        if (srid instanceof Integer && (Integer) srid > 0) {
+            return (Integer) srid;
+        }
+        if (g.getSRID() > 0) {
+            return g.getSRID();
+        }
+        if (g.getUserData() instanceof CoordinateReferenceSystem) {
+            try {
+                Integer code = CRS.lookupEpsgCode((CoordinateReferenceSystem) g.getUserData(),
+                        false);
+                if (code != null) {
+                    return code;
+                }
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, "Failed to lookup the EPSG code of the geometry CRS", e);
+            }
+        }
+        return -1;
+    }
+
+    int getDimension(Geometry g, AttributeDescriptor att) {
+        Object dimension = att.getUserData().get(Hints.COORDINATE_DIMENSION);
+        if (dimension instanceof Integer && (Integer) dimension > 0) {
+            return Math.min((Integer) dimension, 3);
+        }
+        Coordinate c = g.getCoordinate();
+        return c == null || Double.isNaN(c.z) ? 2 : 3;
+    }
+
+    static boolean isKey(PrimaryKey key, String name) {
+        for (PrimaryKeyColumn col : key.getColumns()) {
+            if (col.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the native PostgreSQL connection, looking through the pooling wrappers
+     */
+    static PGConnection unwrap(Connection cx) throws SQLException {
+        if (cx instanceof PGConnection) {
+            return (PGConnection) cx;
+        }
+        UnWrapper unwrapper = DataSourceFinder.getUnWrapper(cx);
+        if (unwrapper != null) {
+            Connection unwrapped = unwrapper.unwrap(cx);
+            if (unwrapped instanceof PGConnection) {
+                return (PGConnection) unwrapped;
+            }
+        }
+        if (cx.isWrapperFor(PGConnection.class)) {
+            return cx.unwrap(PGConnection.class);
+        }
+        throw new SQLException("Could not obtain the native PostgreSQL connection for "
+                + cx.getClass());
+    }
+}
@@ -38,6 +38,8 @@ import java.util.logging.Level;
 
 import org.geotools.data.jdbc.FilterToSQL;
 import org.geotools.factory.Hints;
+import org.geotools.feature.visitor.MedianVisitor;
+import org.geotools.feature.visitor.StandardDeviationVisitor;
 import org.geotools.filter.function.FilterFunction_area;
 import org.geotools.geometry.jts.CircularRing;
 import org.geotools.geometry.jts.CircularString;
@@ -52,8 +54,11 @@ import org.geotools.geometry.jts.WKTWriter2;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKey;
 import org.geotools.referencing.CRS;
 import org.geotools.util.Version;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
@@ -153,6 +158,47 @@ public class PostGISDialect extends BasicSQLDialect {
        return "distinct".equalsIgnoreCase(function);
     }
 
+    /**
+     * The median, as an ordered set aggregate, available since PostgreSQL 9.4
+     */
+    static final String MEDIAN_FUNCTION = "percentile_cont";
+
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        super.registerAggregateFunctions(aggregates);
+        // the visitors compute the population deviation
+        aggregates.put(StandardDeviationVisitor.class, "stddev_pop");
+        // the store keeps the aggregates for its whole life, make sure the version is known
+        Version pgVersion = pgsqlVersion;
+        if (pgVersion == null && dataStore.getDataSource() != null) {
+            Connection cx = null;
+            try {
+                cx = dataStore.getDataSource().getConnection();
+                pgVersion = getPostgreSQLVersion(cx);
+            } catch (SQLException e) {
+                LOGGER.log(Level.WARNING, "Failed to retrieve the PostgreSQL version, "
+                        + "the median will be computed in memory", e);
+            } finally {
+                dataStore.closeSafe(cx);
+            }
+        }
+        if (pgVersion != null && pgVersion.compareTo(PGSQL_V_9_4) >= 0) {
+            aggregates.put(MedianVisitor.class, MEDIAN_FUNCTION);
+        }
+    }
+
+    @Override
+    public void encodeAggregateFunction(String function, String column, StringBuffer sql) {
+        if (MEDIAN_FUNCTION.equals(function)) {
+            // same as the median visitor, averages the two middle values if their count is even
+            sql.append(MEDIAN_FUNCTION).append("(0.5) WITHIN GROUP (ORDER BY ").append(column)
+                    .append(")");
+        } else {
+            super.encodeAggregateFunction(function, column, sql);
+        }
+    }
+
     static final Version V_1_5_0 = new Version("1.5.0");
 
     static final Version V_2_0_0 = new Version("2.0.0");
@@ -165,6 +211,8 @@ public class PostGISDialect extends BasicSQLDialect {
     
     static final Version PGSQL_V_9_1 = new Version("9.1");
 
+    static final Version PGSQL_V_9_4 = new Version("9.4");
+
     public PostGISDialect(JDBCDataStore dataStore) {
         super(dataStore);
     }
@@ -178,6 +226,12 @@ public class PostGISDialect extends BasicSQLDialect {
     boolean functionEncodingEnabled = false;
     
     boolean simplifyEnabled = true;
+
+    boolean base64EncodingEnabled = true;
+
+    boolean twkbEnabled = false;
+
+    boolean copyEnabled = false;
     
     Version version, pgsqlVersion;
 
@@ -230,6 +284,100 @@ public class PostGISDialect extends BasicSQLDialect {
         this.simplifyEnabled = simplifyEnabled;
     }
 
+    public boolean isBase64EncodingEnabled() {
+        return base64EncodingEnabled;
+    }
+
+    /**
+     * Enables/disables base64 encoding of geometries on the server side. When disabled the
+     * geometries are transferred as raw bytea, saving the base64 expansion on the wire and the
+     * decoding on the client
+     * 
+     * @see PostgisNGDataStoreFactory#BINARY_TRANSFER
+     */
+    public void setBase64EncodingEnabled(boolean base64EncodingEnabled) {
+        this.base64EncodingEnabled = base64EncodingEnabled;
+    }
+
+    public boolean isTWKBEnabled() {
+        return twkbEnabled;
+    }
+
+    /**
+     * Enables/disables usage of ST_AsTWKB for geometries that are simplified on the fly,
+     * quantizing the coordinates to the simplification distance (requires PostGIS 2.2+)
+     * 
+     * @see PostgisNGDataStoreFactory#TWKB
+     */
+    public void setTWKBEnabled(boolean twkbEnabled) {
+        this.twkbEnabled = twkbEnabled;
+    }
+
+    public boolean isCopyEnabled() {
+        return copyEnabled;
+    }
+
+    /**
+     * Enables/disables usage of the COPY command to insert several features at once, when the
+     * primary key values are known before the insertion (user provided feature ids, non serial
+     * keys)
+     * 
+     * @see PostgisNGDataStoreFactory#COPY
+     */
+    public void setCopyEnabled(boolean copyEnabled) {
+        this.copyEnabled = copyEnabled;
+    }
+
+    /**
+     * Returns true if the geometry has been encoded as TWKB by
+     * {@link #encodeGeometryColumnSimplified(GeometryDescriptor, String, int, StringBuffer, Double)},
+     * mirroring the decisions taken by the store and the encoding method
+     */
+    boolean isTWKBEncoded(GeometryDescriptor gatt, Hints hints) {
+        if (!twkbEnabled || !simplifyEnabled || gatt == null || hints == null
+                || !hints.containsKey(Hints.GEOMETRY_SIMPLIFICATION)
+                || hints.containsKey(Hints.GEOMETRY_GENERALIZATION)) {
+            return false;
+        }
+        return isTWKBEncodable(gatt);
+    }
+
+    private boolean isTWKBEncodable(GeometryDescriptor gatt) {
+        Class<?> binding = gatt.getType().getBinding();
+        return twkbEnabled && version != null && version.compareTo(V_2_2_0) >= 0
+                && binding != Point.class && NON_CURVED_GEOMETRY_CLASSES.contains(binding)
+                && !isGeography(gatt);
+    }
+
+    private boolean isGeography(GeometryDescriptor gatt) {
+        return "geography".equals(gatt.getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME));
+    }
+
+    /**
+     * Returns the number of decimal digits TWKB coordinates are rounded to so that the
+     * quantization grid is no coarser than the simplification distance
+     */
+    static int getTWKBPrecision(Double distance) {
+        if (distance == null || distance <= 0 || Double.isNaN(distance)) {
+            return 7;
+        }
+        int digits = (int) Math.ceil(-Math.log10(distance));
+        // TWKB stores the precision as a 4 bits zig-zag encoded integer
+        return Math.max(-7, Math.min(7, digits));
+    }
+
+    private void openGeometryEncoding(StringBuffer sql) {
+        if (base64EncodingEnabled) {
+            sql.append("encode(");
+        }
+    }
+
+    private void closeGeometryEncoding(StringBuffer sql) {
+        if (base64EncodingEnabled) {
+            sql.append(",'base64')");
+        }
+    }
+
 
     @Override
     public void initializeConnection(Connection cx) throws SQLException {
@@ -268,6 +416,9 @@ public class PostGISDialect extends BasicSQLDialect {
             throws IOException, SQLException {
         WKBAttributeIO reader = getWKBReader(factory);
         
+        if (isTWKBEncoded(descriptor, hints)) {
+            return (Geometry) reader.readTWKB(rs, column);
+        }
         return (Geometry) reader.read(rs, column);
     }
     
@@ -276,6 +427,9 @@ public class PostGISDialect extends BasicSQLDialect {
             throws IOException, SQLException {
         WKBAttributeIO reader = getWKBReader(factory);
         
+        if (isTWKBEncoded(descriptor, hints)) {
+            return (Geometry) reader.readTWKB(rs, column);
+        }
         return (Geometry) reader.read(rs, column);
     }
 
@@ -287,6 +441,7 @@ public class PostGISDialect extends BasicSQLDialect {
         }  else {
             reader.setGeometryFactory(factory);
         }
+        reader.setBase64EncodingEnabled(base64EncodingEnabled);
         return reader;
     }
 
@@ -300,28 +455,29 @@ public class PostGISDialect extends BasicSQLDialect {
     public void encodeGeometryColumn(GeometryDescriptor gatt, String prefix, int srid, Hints hints, 
         StringBuffer sql) {
     
-        boolean geography = "geography".equals(gatt.getUserData().get(
-                JDBCDataStore.JDBC_NATIVE_TYPENAME));
+        boolean geography = isGeography(gatt);
     
+        openGeometryEncoding(sql);
         if (geography) {
-            sql.append("encode(ST_AsBinary(");
+            sql.append("ST_AsBinary(");
             encodeColumnName(prefix, gatt.getLocalName(), sql);
-            sql.append("),'base64')");
+            sql.append(")");
         }
         else {
             boolean force2D = hints != null && hints.containsKey(Hints.FEATURE_2D) && 
                 Boolean.TRUE.equals(hints.get(Hints.FEATURE_2D));
 
             if (force2D) {
-                sql.append("encode(ST_AsBinary(" + getForce2DFunction() + "(");
+                sql.append("ST_AsBinary(" + getForce2DFunction() + "(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append(")),'base64')");
+                sql.append("))");
             } else {
-                sql.append("encode(ST_AsEWKB(");
+                sql.append("ST_AsEWKB(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append("),'base64')");
+                sql.append(")");
             }
         }
+        closeGeometryEncoding(sql);
     }
     
     @Override
@@ -334,21 +490,28 @@ public class PostGISDialect extends BasicSQLDialect {
             // http://postgis.net/docs/manual-2.2/ST_Simplify.html
             String preserveCollapsed = version.compareTo(V_2_2_0) >= 0 ? ", true" : "";
 
-            boolean geography = "geography".equals(gatt.getUserData().get(
-                    JDBCDataStore.JDBC_NATIVE_TYPENAME));
+            boolean geography = isGeography(gatt);
     
+            openGeometryEncoding(sql);
             if (geography) {
-                sql.append("encode(ST_AsBinary(");
+                sql.append("ST_AsBinary(");
+                encodeColumnName(prefix, gatt.getLocalName(), sql);
+                sql.append(")");
+            } else if (isTWKBEncodable(gatt)) {
+                // quantize to the simplification distance, the simplified geometry
+                // cannot be more precise than that anyways
+                sql.append("ST_AsTWKB(ST_Simplify(" + getForce2DFunction() + "(");
                 encodeColumnName(prefix, gatt.getLocalName(), sql);
-                sql.append("),'base64')");
+                sql.append("), " + distance + preserveCollapsed + "), "
+                        + getTWKBPrecision(distance) + ")");
             } else {
                 if (NON_CURVED_GEOMETRY_CLASSES.contains(gatt.getType().getBinding())) {
-                    sql.append("encode(ST_AsBinary(ST_Simplify(" + getForce2DFunction() + "(");
+                    sql.append("ST_AsBinary(ST_Simplify(" + getForce2DFunction() + "(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
-                    sql.append("), " + distance + preserveCollapsed + ")),'base64')");
+                    sql.append("), " + distance + preserveCollapsed + "))");
                 } else {
                     // we can have curves mixed in
-                    sql.append("encode(ST_AsBinary(");
+                    sql.append("ST_AsBinary(");
                     sql.append("CASE WHEN ST_HasArc(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
                     sql.append(") THEN ");
@@ -356,10 +519,11 @@ public class PostGISDialect extends BasicSQLDialect {
                     sql.append(" ELSE ");
                     sql.append("ST_Simplify(" + getForce2DFunction() + "(");
                     encodeColumnName(prefix, gatt.getLocalName(), sql);
-                    sql.append("), " + distance + preserveCollapsed + ") END),'base64')");
+                    sql.append("), " + distance + preserveCollapsed + ") END)");
                 }
 
             }
+            closeGeometryEncoding(sql);
         }
     }
 
@@ -818,6 +982,25 @@ public class PostGISDialect extends BasicSQLDialect {
     public boolean lookupGeneratedValuesPostInsert() {
         return true;
     }
+
+    @Override
+    public boolean isMultiRowInsertSupported() {
+        // the generated keys are returned for all the rows thanks to INSERT ... RETURNING
+        return true;
+    }
+
+    @Override
+    public boolean isBulkInsertSupported(SimpleFeatureType featureType) {
+        return copyEnabled && PostGISBulkLoader.canLoad(featureType);
+    }
+
+    @Override
+    public void insertBulk(SimpleFeatureType featureType, List<SimpleFeature> features,
+            List<List<Object>> keyValues, PrimaryKey key, Connection cx)
+            throws IOException, SQLException {
+        new PostGISBulkLoader(this).load(dataStore.getDatabaseSchema(), featureType, features,
+                keyValues, key, cx);
+    }
     
     @Override
     public Object getLastAutoGeneratedValue(String schemaName, String tableName, String columnName,
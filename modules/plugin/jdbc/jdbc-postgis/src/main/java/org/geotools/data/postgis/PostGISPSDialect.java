@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.List;
 import java.util.Map;
 
 import org.geotools.factory.Hints;
@@ -29,6 +30,9 @@ import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.PreparedFilterToSQL;
 import org.geotools.jdbc.PreparedStatementSQLDialect;
+import org.geotools.jdbc.PrimaryKey;
+import org.opengis.feature.FeatureVisitor;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.GeometryDescriptor;
 
@@ -80,8 +84,9 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
     public Geometry decodeGeometryValue(GeometryDescriptor descriptor,
                                         ResultSet rs, String column, GeometryFactory factory, Connection cx, Hints hints)
             throws IOException, SQLException {
+        // simplification is not delegated, hence geometries are never TWKB encoded here
         return delegate
-                .decodeGeometryValue(descriptor, rs, column, factory, cx, hints);
+                .decodeGeometryValue(descriptor, rs, column, factory, cx, new Hints());
     }
 
     @Override
@@ -128,6 +133,18 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         return delegate.lookupGeneratedValuesPostInsert();
     }
 
+    @Override
+    public boolean isBulkInsertSupported(SimpleFeatureType featureType) {
+        return delegate.isBulkInsertSupported(featureType);
+    }
+
+    @Override
+    public void insertBulk(SimpleFeatureType featureType, List<SimpleFeature> features,
+            List<List<Object>> keyValues, PrimaryKey key, Connection cx)
+            throws IOException, SQLException {
+        delegate.insertBulk(featureType, features, keyValues, key, cx);
+    }
+
     public Object getNextAutoGeneratedValue(String schemaName,
             String tableName, String columnName, Connection cx)
             throws SQLException {
@@ -246,6 +263,31 @@ public class PostGISPSDialect extends PreparedStatementSQLDialect {
         return fts;
     }
 
+    @Override
+    public boolean isFilterTemplateCacheSupported() {
+        // geography literals are looked at: they are clipped to the world into a new literal, or
+        // encoded as a constant TRUE/FALSE. Either way the filter literal does not become a
+        // parameter, and the store does not keep a template for the filter
+        return true;
+    }
+
+    @Override
+    public void initializeConnection(Connection cx) throws SQLException {
+        // looks up the database versions, some of the capabilities depend on them
+        delegate.initializeConnection(cx);
+    }
+
+    @Override
+    public void registerAggregateFunctions(
+            Map<Class<? extends FeatureVisitor>, String> aggregates) {
+        delegate.registerAggregateFunctions(aggregates);
+    }
+
+    @Override
+    public void encodeAggregateFunction(String function, String column, StringBuffer sql) {
+        delegate.encodeAggregateFunction(function, column, sql);
+    }
+
     @Override
     public boolean isLimitOffsetSupported() {
         return delegate.isLimitOffsetSupported();
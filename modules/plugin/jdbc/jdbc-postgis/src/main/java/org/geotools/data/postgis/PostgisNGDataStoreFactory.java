@@ -88,6 +88,31 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
     public static final Param SIMPLIFY = new Param("Support on the fly geometry simplification", Boolean.class, 
             "When enabled, operations such as map rendering will pass a hint that will enable the usage of ST_Simplify", false, Boolean.TRUE);
     
+    /**
+     * Transfers geometries as raw bytea instead of base64 encoded text
+     */
+    public static final Param BINARY_TRANSFER = new Param("Binary geometry transfer", Boolean.class, 
+            "When enabled geometries are transferred from the database as raw binary instead of " +
+            "base64 encoded text, reducing the amount of data on the wire and the decoding effort", 
+            false, Boolean.FALSE, new KVP(Param.LEVEL, "advanced"));
+    
+    /**
+     * Enables usage of ST_AsTWKB for geometries simplified on the fly
+     */
+    public static final Param TWKB = new Param("Use TWKB for simplified geometries", Boolean.class, 
+            "When enabled, and on the fly simplification is active, simplified geometries are " +
+            "transferred as Tiny WKB quantized to the simplification distance (requires PostGIS 2.2+)", 
+            false, Boolean.FALSE, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Enables usage of the COPY command for bulk inserts
+     */
+    public static final Param COPY = new Param("Use COPY for bulk inserts", Boolean.class, 
+            "When enabled, batches of features whose primary key values are known before the " +
+            "insertion are loaded with the COPY command instead of INSERT statements " +
+            "(see also the batch insert size)", 
+            false, Boolean.FALSE, new KVP(Param.LEVEL, "advanced"));
+    
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
         return new PostGISDialect(dataStore);
@@ -159,6 +184,16 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         Boolean simplify = (Boolean) SIMPLIFY.lookUp(params);
         dialect.setSimplifyEnabled(simplify == null || simplify);
         
+        // check binary geometry transfer and TWKB usage (off by default)
+        Boolean binary = (Boolean) BINARY_TRANSFER.lookUp(params);
+        dialect.setBase64EncodingEnabled(!Boolean.TRUE.equals(binary));
+        Boolean twkb = (Boolean) TWKB.lookUp(params);
+        dialect.setTWKBEnabled(Boolean.TRUE.equals(twkb));
+        
+        // check bulk loading with COPY (off by default)
+        Boolean copy = (Boolean) COPY.lookUp(params);
+        dialect.setCopyEnabled(Boolean.TRUE.equals(copy));
+        
         // encode BBOX filter with wrapping ST_Envelope (GEOT-5167)
         Boolean encodeBBOXAsEnvelope = false;
         String largeGeometriesOptimized = System.getProperty("org.geotools.data.postgis.largeGeometriesOptimize");
@@ -185,6 +220,9 @@ public class PostgisNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
         parameters.put(ENCODE_FUNCTIONS.key, ENCODE_FUNCTIONS);
         parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(BINARY_TRANSFER.key, BINARY_TRANSFER);
+        parameters.put(TWKB.key, TWKB);
+        parameters.put(COPY.key, COPY);
         parameters.put(CREATE_DB_IF_MISSING.key, CREATE_DB_IF_MISSING);
         parameters.put(CREATE_PARAMS.key, CREATE_PARAMS);
     }
@@ -0,0 +1,304 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ParseException;
+
+/**
+ * Reads a {@link Geometry} from a byte array in <a
+ * href="https://github.com/TWKB/Specification">Tiny Well-Known Binary</a> format, as produced by
+ * PostGIS <code>ST_AsTWKB</code>.
+ * <p>
+ * The varint encoded, delta compressed coordinates are decoded straight into the
+ * {@link CoordinateSequence} implementation of the target {@link GeometryFactory}, without
+ * allocating intermediate {@link com.vividsolutions.jts.geom.Coordinate} objects.
+ * Like {@link WKBReader}, the reader repairs structurally invalid output caused by quantization
+ * (collapsed lines get a duplicate vertex, collapsed rings are closed and padded).
+ * <p>
+ * Instances are not thread safe, the dialect keeps one per thread.
+ */
+class TWKBReader {
+
+    static final int TWKB_POINT = 1;
+
+    static final int TWKB_LINESTRING = 2;
+
+    static final int TWKB_POLYGON = 3;
+
+    static final int TWKB_MULTIPOINT = 4;
+
+    static final int TWKB_MULTILINESTRING = 5;
+
+    static final int TWKB_MULTIPOLYGON = 6;
+
+    static final int TWKB_GEOMETRYCOLLECTION = 7;
+
+    static final int META_BBOX = 0x01;
+
+    static final int META_SIZE = 0x02;
+
+    static final int META_IDLIST = 0x04;
+
+    static final int META_EXTENDED_DIMS = 0x08;
+
+    static final int META_EMPTY = 0x10;
+
+    GeometryFactory factory;
+
+    CoordinateSequenceFactory csFactory;
+
+    byte[] bytes;
+
+    int position;
+
+    // the per geometry state, TWKB deltas are relative to the previous point of the same geometry
+    int dimensions;
+
+    boolean hasZ;
+
+    boolean hasM;
+
+    double[] scales = new double[4];
+
+    long[] previous = new long[4];
+
+    public TWKBReader(GeometryFactory factory) {
+        setGeometryFactory(factory);
+    }
+
+    public void setGeometryFactory(GeometryFactory factory) {
+        this.factory = factory;
+        this.csFactory = factory.getCoordinateSequenceFactory();
+    }
+
+    /**
+     * Parses the TWKB contained in the specified byte array
+     *
+     * @param twkb
+     * @return The geometry, or null if the input was null
+     * @throws ParseException
+     */
+    public Geometry read(byte[] twkb) throws ParseException {
+        if (twkb == null) {
+            return null;
+        }
+        this.bytes = twkb;
+        this.position = 0;
+        try {
+            return readGeometry();
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new ParseException("Unexpected end of TWKB data at byte " + position);
+        } finally {
+            this.bytes = null;
+        }
+    }
+
+    Geometry readGeometry() throws ParseException {
+        int typeAndPrecision = bytes[position++] & 0xFF;
+        int type = typeAndPrecision & 0x0F;
+        int precision = zigZagDecode(typeAndPrecision >> 4);
+        int metadata = bytes[position++] & 0xFF;
+
+        hasZ = false;
+        hasM = false;
+        int zPrecision = 0;
+        int mPrecision = 0;
+        if ((metadata & META_EXTENDED_DIMS) != 0) {
+            int extended = bytes[position++] & 0xFF;
+            hasZ = (extended & 0x01) != 0;
+            hasM = (extended & 0x02) != 0;
+            zPrecision = (extended >> 2) & 0x07;
+            mPrecision = (extended >> 5) & 0x07;
+        }
+        dimensions = 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+        scales[0] = scales[1] = Math.pow(10, -precision);
+        scales[2] = Math.pow(10, -zPrecision);
+        scales[3] = Math.pow(10, -mPrecision);
+        if (!hasZ) {
+            // keep M, if any, in the third slot
+            scales[2] = scales[3];
+        }
+        previous[0] = previous[1] = previous[2] = previous[3] = 0;
+
+        if ((metadata & META_SIZE) != 0) {
+            readUnsignedVarLong();
+        }
+        if ((metadata & META_BBOX) != 0) {
+            // min and delta for each dimension, we don't need them
+            for (int i = 0; i < dimensions * 2; i++) {
+                readUnsignedVarLong();
+            }
+        }
+
+        boolean empty = (metadata & META_EMPTY) != 0;
+        boolean idList = (metadata & META_IDLIST) != 0;
+        switch (type) {
+        case TWKB_POINT:
+            return empty ? factory.createPoint((CoordinateSequence) null) : readPoint();
+        case TWKB_LINESTRING:
+            return empty ? factory.createLineString((CoordinateSequence) null) : readLineString();
+        case TWKB_POLYGON:
+            return empty ? factory.createPolygon((LinearRing) null, null) : readPolygon();
+        case TWKB_MULTIPOINT: {
+            Point[] points = new Point[empty ? 0 : readCount(idList)];
+            for (int i = 0; i < points.length; i++) {
+                points[i] = readPoint();
+            }
+            return factory.createMultiPoint(points);
+        }
+        case TWKB_MULTILINESTRING: {
+            LineString[] lines = new LineString[empty ? 0 : readCount(idList)];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = readLineString();
+            }
+            return factory.createMultiLineString(lines);
+        }
+        case TWKB_MULTIPOLYGON: {
+            Polygon[] polygons = new Polygon[empty ? 0 : readCount(idList)];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = readPolygon();
+            }
+            return factory.createMultiPolygon(polygons);
+        }
+        case TWKB_GEOMETRYCOLLECTION: {
+            Geometry[] geometries = new Geometry[empty ? 0 : readCount(idList)];
+            for (int i = 0; i < geometries.length; i++) {
+                // each member is a full TWKB geometry, with its own header
+                geometries[i] = readGeometry();
+            }
+            return factory.createGeometryCollection(geometries);
+        }
+        default:
+            throw new ParseException("Unknown TWKB geometry type " + type);
+        }
+    }
+
+    int readCount(boolean idList) {
+        int count = (int) readUnsignedVarLong();
+        if (idList) {
+            for (int i = 0; i < count; i++) {
+                readUnsignedVarLong();
+            }
+        }
+        return count;
+    }
+
+    Point readPoint() {
+        return factory.createPoint(readCoordinates(1, 1));
+    }
+
+    LineString readLineString() {
+        int count = (int) readUnsignedVarLong();
+        return factory.createLineString(readCoordinates(count, count == 1 ? 2 : count));
+    }
+
+    Polygon readPolygon() {
+        int ringCount = (int) readUnsignedVarLong();
+        if (ringCount == 0) {
+            return factory.createPolygon((LinearRing) null, null);
+        }
+        LinearRing shell = readLinearRing();
+        LinearRing[] holes = new LinearRing[ringCount - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = readLinearRing();
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    LinearRing readLinearRing() {
+        int count = (int) readUnsignedVarLong();
+        CoordinateSequence cs = readCoordinates(count, count);
+        if (count > 0 && (count < 4 || !isClosed(cs))) {
+            cs = closeRing(cs);
+        }
+        return factory.createLinearRing(cs);
+    }
+
+    /**
+     * Reads <code>count</code> points into a sequence of <code>size</code> elements,
+     * padding the tail with copies of the last point read
+     */
+    CoordinateSequence readCoordinates(int count, int size) {
+        int csDimension = hasZ ? 3 : 2;
+        CoordinateSequence cs = csFactory.create(size, csDimension);
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dimensions; d++) {
+                previous[d] += zigZagDecode(readUnsignedVarLong());
+                if (d < csDimension) {
+                    cs.setOrdinate(i, d, previous[d] * scales[d]);
+                }
+            }
+        }
+        for (int i = count; i < size && i > 0; i++) {
+            for (int d = 0; d < csDimension; d++) {
+                cs.setOrdinate(i, d, cs.getOrdinate(count - 1, d));
+            }
+        }
+        return cs;
+    }
+
+    boolean isClosed(CoordinateSequence cs) {
+        int last = cs.size() - 1;
+        return cs.getOrdinate(0, 0) == cs.getOrdinate(last, 0)
+                && cs.getOrdinate(0, 1) == cs.getOrdinate(last, 1);
+    }
+
+    CoordinateSequence closeRing(CoordinateSequence cs) {
+        int size = cs.size();
+        int dimension = cs.getDimension();
+        boolean closed = isClosed(cs);
+        int newSize = Math.max(4, closed ? size : size + 1);
+        CoordinateSequence result = csFactory.create(newSize, dimension);
+        for (int i = 0; i < newSize; i++) {
+            // copy the original points, pad with the last one, and close with the first
+            int source = i == newSize - 1 ? 0 : Math.min(i, size - 1);
+            for (int d = 0; d < dimension; d++) {
+                result.setOrdinate(i, d, cs.getOrdinate(source, d));
+            }
+        }
+        return result;
+    }
+
+    long readUnsignedVarLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int zigZagDecode(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
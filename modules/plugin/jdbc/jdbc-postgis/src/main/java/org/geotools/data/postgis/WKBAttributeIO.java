@@ -44,19 +44,39 @@ import com.vividsolutions.jts.io.WKBWriter;
  */
 public class WKBAttributeIO {
     WKBReader wkbr;
+    TWKBReader twkbr;
     ByteArrayInStream inStream = new ByteArrayInStream(new byte[0]);
     GeometryFactory gf;
+    boolean base64EncodingEnabled = true;
 
     public WKBAttributeIO() {
         this(new GeometryFactory());
     }
     
     public WKBAttributeIO(GeometryFactory gf) {
-        wkbr = new WKBReader(gf);
+        setGeometryFactory(gf);
     }
     
     public void setGeometryFactory(GeometryFactory gf) {
-        wkbr = new WKBReader(gf);
+        if (this.gf != gf) {
+            this.gf = gf;
+            wkbr = new WKBReader(gf);
+            twkbr = null;
+        }
+    }
+
+    public boolean isBase64EncodingEnabled() {
+        return base64EncodingEnabled;
+    }
+
+    /**
+     * Sets whether the geometry bytes read from the result set are base64 encoded
+     * (the default) or are the raw binary representation
+     * 
+     * @param base64EncodingEnabled
+     */
+    public void setBase64EncodingEnabled(boolean base64EncodingEnabled) {
+        this.base64EncodingEnabled = base64EncodingEnabled;
     }
 
     /**
@@ -84,16 +104,35 @@ public class WKBAttributeIO {
         }
     }
 
+    /**
+     * Converts a Tiny Well Known Binary representation to a JTS Geometry object
+     */
+    private Geometry twkb2Geometry(byte[] twkbBytes) throws IOException {
+        if (twkbBytes == null)
+            return null;
+        try {
+            if (twkbr == null) {
+                twkbr = new TWKBReader(gf);
+            }
+            return twkbr.read(twkbBytes);
+        } catch (Exception e) {
+            throw new DataSourceException("An exception occurred while parsing TWKB data", e);
+        }
+    }
+
+    private byte[] decodeBytes(byte[] bytes) {
+        if (bytes == null) // ie. its a null column -> return a null geometry!
+            return null;
+        return base64EncodingEnabled ? Base64.decode(bytes) : bytes;
+    }
+
     /**
      * @see org.geotools.data.jdbc.attributeio.AttributeIO#read(java.sql.ResultSet,
      *      int)
      */
     public Object read(ResultSet rs, String columnName) throws IOException {
         try {
-            byte bytes[] = rs.getBytes(columnName);
-            if (bytes == null) // ie. its a null column -> return a null geometry!
-                return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return wkb2Geometry(decodeBytes(rs.getBytes(columnName)));
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
@@ -105,10 +144,29 @@ public class WKBAttributeIO {
      */
     public Object read(ResultSet rs, int columnIndex) throws IOException {
         try {
-            byte bytes[] = rs.getBytes(columnIndex);
-            if (bytes == null) // ie. its a null column -> return a null geometry!
-                return null;
-            return wkb2Geometry(Base64.decode(bytes));
+            return wkb2Geometry(decodeBytes(rs.getBytes(columnIndex)));
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+    }
+
+    /**
+     * Reads a geometry encoded with <code>ST_AsTWKB</code> from the specified column
+     */
+    public Object readTWKB(ResultSet rs, String columnName) throws IOException {
+        try {
+            return twkb2Geometry(decodeBytes(rs.getBytes(columnName)));
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+    }
+
+    /**
+     * Reads a geometry encoded with <code>ST_AsTWKB</code> from the specified column
+     */
+    public Object readTWKB(ResultSet rs, int columnIndex) throws IOException {
+        try {
+            return twkb2Geometry(decodeBytes(rs.getBytes(columnIndex)));
         } catch (SQLException e) {
             throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
         }
@@ -0,0 +1,110 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.NonIncrementingPrimaryKeyColumn;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+
+public class PostGISBulkLoaderTest {
+
+    PostGISBulkLoader loader;
+
+    SimpleFeatureType featureType;
+
+    PrimaryKey key;
+
+    @Before
+    public void setUp() {
+        loader = new PostGISBulkLoader(new PostGISDialect(null));
+
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("ft1");
+        tb.add("geometry", Point.class);
+        tb.add("name", String.class);
+        tb.add("data", byte[].class);
+        featureType = tb.buildFeatureType();
+        featureType.getDescriptor("geometry").getUserData().put(JDBCDataStore.JDBC_NATIVE_SRID,
+                4326);
+
+        key = new PrimaryKey("ft1", Collections.<PrimaryKeyColumn> singletonList(
+                new NonIncrementingPrimaryKeyColumn("fid", Integer.class)));
+    }
+
+    @Test
+    public void testCopySQL() {
+        assertEquals("COPY \"public\".\"ft1\" (\"geometry\",\"name\",\"data\",\"fid\") FROM STDIN",
+                loader.copySQL("public", featureType, key));
+        assertEquals("COPY \"ft1\" (\"geometry\",\"name\",\"data\",\"fid\") FROM STDIN",
+                loader.copySQL(null, featureType, key));
+    }
+
+    @Test
+    public void testEncodeRow() throws Exception {
+        Point p = new GeometryFactory().createPoint(new Coordinate(1, 2));
+        SimpleFeature feature = SimpleFeatureBuilder.build(featureType,
+                new Object[] { p, "a\tb\\c\nd", new byte[] { 1, (byte) 0xAB } }, null);
+        StringBuilder data = new StringBuilder();
+        loader.encodeRow(featureType, feature, Arrays.<Object> asList(12), key, data);
+        String ewkb = "00" + "20000001" + "000010e6" + "3ff0000000000000" + "4000000000000000";
+        assertEquals(ewkb + "\ta\\tb\\\\c\\nd\t\\\\x01ab\t12\n", data.toString());
+    }
+
+    @Test
+    public void testEncodeNulls() throws Exception {
+        SimpleFeature feature = SimpleFeatureBuilder.build(featureType,
+                new Object[] { new GeometryFactory().createPoint((Coordinate) null), null, null },
+                null);
+        StringBuilder data = new StringBuilder();
+        loader.encodeRow(featureType, feature, Arrays.<Object> asList(12), key, data);
+        assertEquals("\\N\t\\N\t\\N\t12\n", data.toString());
+    }
+
+    @Test
+    public void testCanLoad() {
+        assertTrue(PostGISBulkLoader.canLoad(featureType));
+
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("hstore");
+        tb.add("tags", Map.class);
+        assertFalse(PostGISBulkLoader.canLoad(tb.buildFeatureType()));
+
+        tb.setName("arrays");
+        tb.add("values", List.class);
+        assertFalse(PostGISBulkLoader.canLoad(tb.buildFeatureType()));
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.factory.Hints;
+import org.geotools.jdbc.JDBCTestSetup;
+import org.geotools.jdbc.JDBCTestSupport;
+import org.opengis.feature.simple.SimpleFeature;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Checks the geometries transferred as binary TWKB decode like the same geometries transferred
+ * as binary WKB
+ */
+public class PostGISTWKBOnlineTest extends JDBCTestSupport {
+
+    /** Reads the first column as WKB, with M dropped, and the second as TWKB */
+    static final String DECODE_SQL = "SELECT ST_AsEWKB(CASE WHEN ST_Zmflag(g) >= 2 "
+            + "THEN ST_Force3DZ(g) ELSE ST_Force2D(g) END), ST_AsTWKB(g, ?, ?, ?), "
+            + "GeometryType(g) FROM (SELECT ST_GeomFromText(?) AS g) AS t";
+
+    @Override
+    protected JDBCTestSetup createTestSetup() {
+        return new PostGISTWKBTestSetup();
+    }
+
+    PostGISDialect getDialect() {
+        return (PostGISDialect) dataStore.getSQLDialect();
+    }
+
+    boolean isTWKBAvailable() throws Exception {
+        try (Connection cx = dataStore.getDataSource().getConnection()) {
+            return getDialect().getVersion(cx).compareTo(PostGISDialect.V_2_2_0) >= 0;
+        }
+    }
+
+    public void testDecode() throws Exception {
+        if (!isTWKBAvailable()) {
+            return;
+        }
+        assertDecoded("POINT(1.1234567 -2.7654321)");
+        assertDecoded("LINESTRING(0 0, 1.5 2.25, -3.125 4)");
+        assertDecoded("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 4, 4 4, 4 2, 2 2))");
+        assertDecoded("MULTIPOINT((1 1), (-2 3.5))");
+        assertDecoded("MULTILINESTRING((0 0, 1 1), (2 2, 3 5))");
+        assertDecoded("MULTIPOLYGON(((0 0, 1 0, 1 1, 0 0)), ((5 5, 6 5, 6 6, 5 5)))");
+        assertDecoded("GEOMETRYCOLLECTION(POINT(1 2), LINESTRING(0 0, 3 4), "
+                + "POLYGON((0 0, 1 0, 1 1, 0 0)))");
+    }
+
+    public void testDecodeZM() throws Exception {
+        if (!isTWKBAvailable()) {
+            return;
+        }
+        assertDecoded("POINT Z(1 2 3.5)");
+        assertDecoded("LINESTRING Z(0 0 1, 1 1 -2, 2 0 3)");
+        assertDecoded("POLYGON Z((0 0 1, 1 0 2, 1 1 3, 0 0 1))");
+        assertDecoded("MULTIPOLYGON Z(((0 0 1, 1 0 2, 1 1 3, 0 0 1)), ((5 5 0, 6 5 0, 6 6 0, "
+                + "5 5 0)))");
+        // M values are skipped, whether or not Z is there as well
+        assertDecoded("POINT M(1 2 3)");
+        assertDecoded("LINESTRING M(0 0 1, 1 1 2)");
+        assertDecoded("MULTIPOLYGON M(((0 0 1, 1 0 2, 1 1 3, 0 0 1)))");
+        assertDecoded("LINESTRING ZM(0 0 1 2, 1 1 3 4)");
+        assertDecoded("POLYGON ZM((0 0 1 2, 1 0 2 3, 1 1 3 4, 0 0 1 2))");
+        assertDecoded("MULTIPOINT ZM((1 1 1 1), (2 2 2 2))");
+    }
+
+    public void testDecodeEmpty() throws Exception {
+        if (!isTWKBAvailable()) {
+            return;
+        }
+        for (String type : new String[] { "POINT", "LINESTRING", "POLYGON", "MULTIPOINT",
+                "MULTILINESTRING", "MULTIPOLYGON", "GEOMETRYCOLLECTION" }) {
+            // the WKB reader cannot read all empty geometries, check against the database
+            Object[] decoded = decode(type + " EMPTY", 7, false);
+            Geometry twkb = (Geometry) decoded[1];
+            assertTrue(type, twkb.isEmpty());
+            assertEquals(decoded[2], twkb.getGeometryType().toUpperCase());
+        }
+    }
+
+    public void testDecodeCollapsed() throws Exception {
+        if (!isTWKBAvailable()) {
+            return;
+        }
+        // a line and a hole collapsing to a single point when rounded to units
+        assertCollapsed("LINESTRING(1.1 1.1, 1.2 1.2)");
+        assertCollapsed("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), "
+                + "(2.1 2.1, 2.3 2.1, 2.3 2.3, 2.1 2.1))");
+        // a ring collapsing to a segment, a whole polygon collapsing to a point
+        assertCollapsed("POLYGON((0 0, 10 0, 10 0.2, 0 0))");
+        assertCollapsed("MULTIPOLYGON(((0.1 0.1, 0.2 0.1, 0.2 0.2, 0.1 0.1)), "
+                + "((5 5, 8 5, 8 8, 5 5)))");
+        assertCollapsed("MULTILINESTRING((0 0, 0.1 0.1), (5 5, 6 6))");
+    }
+
+    public void testReadSimplified() throws Exception {
+        if (!isTWKBAvailable()) {
+            return;
+        }
+        PostGISDialect dialect = getDialect();
+        dialect.setBase64EncodingEnabled(false);
+        dialect.setTWKBEnabled(true);
+        for (String[] geometry : PostGISTWKBTestSetup.GEOMETRIES) {
+            ContentFeatureSource fs = dataStore.getFeatureSource(tname("twkb_"
+                    + geometry[0].toLowerCase()));
+            SimpleFeature expected = DataUtilities.first(fs.getFeatures());
+
+            // a distance small enough not to remove any point
+            Query query = new Query(fs.getSchema().getTypeName());
+            query.getHints().put(Hints.GEOMETRY_SIMPLIFICATION, 1e-7);
+            assertTrue(dialect.isTWKBEncoded(fs.getSchema().getGeometryDescriptor(),
+                    query.getHints()));
+            SimpleFeature actual = DataUtilities.first(fs.getFeatures(query));
+
+            Geometry expectedGeometry = (Geometry) expected.getDefaultGeometry();
+            Geometry actualGeometry = (Geometry) actual.getDefaultGeometry();
+            assertTrue(geometry[0] + ": " + actualGeometry,
+                    expectedGeometry.equalsExact(actualGeometry, 1e-7));
+        }
+    }
+
+    /**
+     * Returns the WKB decoded geometry, the TWKB decoded one and the type reported by the
+     * database
+     */
+    Object[] decode(String wkt, int precision, boolean readWKB) throws Exception {
+        WKBAttributeIO io = new WKBAttributeIO(new GeometryFactory());
+        io.setBase64EncodingEnabled(false);
+        try (Connection cx = dataStore.getDataSource().getConnection();
+                PreparedStatement ps = cx.prepareStatement(DECODE_SQL)) {
+            ps.setInt(1, precision);
+            ps.setInt(2, precision);
+            ps.setInt(3, precision);
+            ps.setString(4, wkt);
+            try (ResultSet rs = ps.executeQuery()) {
+                assertTrue(rs.next());
+                return new Object[] { readWKB ? io.read(rs, 1) : null, io.readTWKB(rs, 2),
+                        rs.getString(3) };
+            }
+        }
+    }
+
+    void assertDecoded(String wkt) throws Exception {
+        Object[] decoded = decode(wkt, 7, true);
+        Geometry wkb = (Geometry) decoded[0];
+        Geometry twkb = (Geometry) decoded[1];
+        assertEquals(wkt, wkb.getGeometryType(), twkb.getGeometryType());
+        assertTrue(wkt + ": " + twkb, wkb.equalsExact(twkb, 1e-9));
+        Coordinate[] expected = wkb.getCoordinates();
+        Coordinate[] actual = twkb.getCoordinates();
+        for (int i = 0; i < expected.length; i++) {
+            if (Double.isNaN(expected[i].z)) {
+                assertTrue(wkt, Double.isNaN(actual[i].z));
+            } else {
+                assertEquals(wkt, expected[i].z, actual[i].z, 1e-9);
+            }
+        }
+    }
+
+    /**
+     * Checks the geometry rounded to units keeps the structure of the original one, each
+     * component made of the rounded points of the original component, and rings still closed
+     */
+    void assertCollapsed(String wkt) throws Exception {
+        Object[] decoded = decode(wkt, 0, true);
+        Geometry wkb = (Geometry) decoded[0];
+        Geometry twkb = (Geometry) decoded[1];
+        assertEquals(wkt, wkb.getGeometryType(), twkb.getGeometryType());
+        assertEquals(wkt, wkb.getNumGeometries(), twkb.getNumGeometries());
+
+        List<Coordinate[]> expected = getComponents(wkb);
+        List<Coordinate[]> actual = getComponents(twkb);
+        assertEquals(wkt, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(wkt, getRoundedPoints(expected.get(i)), getRoundedPoints(actual.get(i)));
+        }
+        for (int i = 0; i < twkb.getNumGeometries(); i++) {
+            Geometry part = twkb.getGeometryN(i);
+            if (part instanceof Polygon) {
+                Polygon polygon = (Polygon) part;
+                assertTrue(wkt, polygon.getExteriorRing().isClosed());
+                assertEquals(wkt, ((Polygon) wkb.getGeometryN(i)).getNumInteriorRing(),
+                        polygon.getNumInteriorRing());
+            }
+        }
+    }
+
+    /** The coordinates of each line and ring of the geometry */
+    List<Coordinate[]> getComponents(Geometry geometry) {
+        List<Coordinate[]> components = new ArrayList<Coordinate[]>();
+        for (int i = 0; i < geometry.getNumGeometries(); i++) {
+            Geometry part = geometry.getGeometryN(i);
+            if (part instanceof Polygon) {
+                Polygon polygon = (Polygon) part;
+                components.add(polygon.getExteriorRing().getCoordinates());
+                for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+                    components.add(polygon.getInteriorRingN(j).getCoordinates());
+                }
+            } else {
+                components.add(part.getCoordinates());
+            }
+        }
+        return components;
+    }
+
+    Set<Coordinate> getRoundedPoints(Coordinate[] coordinates) {
+        Set<Coordinate> points = new HashSet<Coordinate>();
+        for (Coordinate c : coordinates) {
+            points.add(new Coordinate(Math.round(c.x), Math.round(c.y)));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import org.geotools.jdbc.JDBCDelegatingTestSetup;
+
+public class PostGISTWKBTestSetup extends JDBCDelegatingTestSetup {
+
+    /** The geometry types that can be transferred as TWKB, and a sample of each */
+    static final String[][] GEOMETRIES = {
+            { "LINESTRING", "LINESTRING(0 0, 1.5 2.25, -3.125 4, 10.1234567 -20.7654321)" },
+            { "POLYGON", "POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), (2 2, 2 4, 4 4, 4 2, 2 2))" },
+            { "MULTIPOINT", "MULTIPOINT((1 1), (-2 3.5), (100.0000001 -45))" },
+            { "MULTILINESTRING", "MULTILINESTRING((0 0, 1 1.5), (2 2, 3 5, 7 1))" },
+            { "MULTIPOLYGON", "MULTIPOLYGON(((0 0, 10 0, 10 10, 0 10, 0 0), "
+                    + "(2 2, 2 4, 4 4, 4 2, 2 2)), ((20 20, 30 20, 30 30, 20 20)))" } };
+
+    protected PostGISTWKBTestSetup() {
+        super(new PostGISTestSetup());
+    }
+
+    @Override
+    protected void setUpData() throws Exception {
+        for (String[] geometry : GEOMETRIES) {
+            String table = "twkb_" + geometry[0].toLowerCase();
+            runSafe("DROP TABLE \"" + table + "\" cascade");
+            run("CREATE TABLE \"" + table + "\" (\"id\" INT, \"geom\" geometry(" + geometry[0]
+                    + ", 4326), PRIMARY KEY(id))");
+            run("INSERT INTO \"" + table + "\" VALUES (0, ST_GeomFromText('" + geometry[1]
+                    + "', 4326))");
+        }
+    }
+}
@@ -16,8 +16,14 @@
  */
 package org.geotools.data.postgis;
 
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.feature.visitor.MedianVisitor;
 import org.geotools.jdbc.JDBCAggregateFunctionOnlineTest;
 import org.geotools.jdbc.JDBCAggregateTestSetup;
+import org.opengis.feature.FeatureVisitor;
 
 /**
  * 
@@ -31,4 +37,18 @@ public class PostgisAggregateFunctionOnlineTest extends JDBCAggregateFunctionOnl
         return new PostGISAggregateTestSetup();
     }
 
+    public void testMedianRegisteredBeforeConnecting() throws Exception {
+        // a dialect that did not see any connection yet still knows the server supports it
+        PostGISDialect fresh = new PostGISDialect(dataStore);
+        Map<Class<? extends FeatureVisitor>, String> aggregates =
+                new HashMap<Class<? extends FeatureVisitor>, String>();
+        fresh.registerAggregateFunctions(aggregates);
+
+        try (Connection cx = dataStore.getDataSource().getConnection()) {
+            boolean supported = new PostGISDialect(dataStore).getPostgreSQLVersion(cx)
+                    .compareTo(PostGISDialect.PGSQL_V_9_4) >= 0;
+            assertEquals(supported, aggregates.containsKey(MedianVisitor.class));
+        }
+    }
+
 }
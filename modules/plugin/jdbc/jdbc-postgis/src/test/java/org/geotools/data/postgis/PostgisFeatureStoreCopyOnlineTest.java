@@ -0,0 +1,41 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.JDBCFeatureStoreOnlineTest;
+import org.geotools.jdbc.JDBCTestSetup;
+
+/**
+ * Runs the feature store tests with bulk loading through COPY enabled
+ *
+ * @source $URL$
+ */
+public class PostgisFeatureStoreCopyOnlineTest extends JDBCFeatureStoreOnlineTest {
+
+    @Override
+    protected JDBCTestSetup createTestSetup() {
+        return new PostGISTestSetup() {
+            @Override
+            protected void setUpDataStore(JDBCDataStore dataStore) {
+                super.setUpDataStore(dataStore);
+                ((PostGISDialect) dataStore.getSQLDialect()).setCopyEnabled(true);
+            }
+        };
+    }
+
+}
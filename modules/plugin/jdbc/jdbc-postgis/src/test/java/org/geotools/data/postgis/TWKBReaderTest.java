@@ -0,0 +1,116 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.postgis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class TWKBReaderTest {
+
+    TWKBReader reader;
+
+    @Before
+    public void setUp() {
+        reader = new TWKBReader(new GeometryFactory());
+    }
+
+    @Test
+    public void testNull() throws Exception {
+        assertNull(reader.read(null));
+    }
+
+    @Test
+    public void testPoint() throws Exception {
+        // SELECT ST_AsTWKB('POINT(1 2)'::geometry, 0)
+        assertGeometry("POINT(1 2)", 0x01, 0x00, 0x02, 0x04);
+    }
+
+    @Test
+    public void testMultiByteVarInt() throws Exception {
+        assertGeometry("POINT(-100 300)", 0x01, 0x00, 0xC7, 0x01, 0xD8, 0x04);
+    }
+
+    @Test
+    public void testLineString() throws Exception {
+        assertGeometry("LINESTRING(1 1, 5 5)", 0x02, 0x00, 0x02, 0x02, 0x02, 0x08, 0x08);
+    }
+
+    @Test
+    public void testPolygonWithPrecision() throws Exception {
+        assertGeometry("POLYGON((0 0, 1 0, 1 1, 0 0))", 0x23, 0x00, 0x01, 0x04, 0, 0, 20, 0, 0,
+                20, 19, 19);
+    }
+
+    @Test
+    public void testMultiLineStringDeltasAcrossParts() throws Exception {
+        assertGeometry("MULTILINESTRING((0 0, 1 1), (2 2, 3 3))", 0x05, 0x00, 0x02, 0x02, 0x00,
+                0x00, 0x02, 0x02, 0x02, 0x02, 0x02, 0x02, 0x02);
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        Geometry g = read(0x02, 0x10);
+        assertTrue(g.isEmpty());
+    }
+
+    @Test
+    public void testCollapsedRing() throws Exception {
+        // a ring that collapsed to two points while quantizing
+        Polygon p = (Polygon) read(0x03, 0x00, 0x01, 0x02, 0, 0, 2, 2);
+        assertEquals(4, p.getExteriorRing().getNumPoints());
+        assertTrue(p.getExteriorRing().isClosed());
+    }
+
+    @Test(expected = ParseException.class)
+    public void testTruncated() throws Exception {
+        read(0x02, 0x00, 0x02, 0x02);
+    }
+
+    @Test
+    public void testPrecision() {
+        assertEquals(0, PostGISDialect.getTWKBPrecision(1d));
+        assertEquals(1, PostGISDialect.getTWKBPrecision(0.5));
+        assertEquals(3, PostGISDialect.getTWKBPrecision(0.001));
+        assertEquals(-2, PostGISDialect.getTWKBPrecision(150d));
+        assertEquals(7, PostGISDialect.getTWKBPrecision(1e-12));
+        assertEquals(7, PostGISDialect.getTWKBPrecision(null));
+    }
+
+    private void assertGeometry(String expectedWKT, int... bytes) throws Exception {
+        Geometry expected = new WKTReader().read(expectedWKT);
+        Geometry actual = read(bytes);
+        assertTrue("Expected " + expected + " but got " + actual, expected.equalsExact(actual));
+    }
+
+    private Geometry read(int... bytes) throws ParseException {
+        byte[] twkb = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            twkb[i] = (byte) bytes[i];
+        }
+        return reader.read(twkb);
+    }
+}
@@ -16,11 +16,17 @@
  */
 package org.geotools.data.postgis.ps;
 
+import org.geotools.data.DataUtilities;
 import org.geotools.data.postgis.PostgisGeographyTestSetup;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.store.ContentFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.JDBCGeographyOnlineTest;
 import org.geotools.jdbc.JDBCGeographyTestSetup;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
 
 /**
  * 
@@ -46,4 +52,22 @@ public class PostgisGeographyOnlineTest extends JDBCGeographyOnlineTest {
         SimpleFeatureType ft = dataStore.getFeatureSource(tname("geopoint")).getSchema();
         assertEquals("geography", ft.getGeometryDescriptor().getUserData().get(JDBCDataStore.JDBC_NATIVE_TYPENAME));
     }
+
+    public void testBBoxWorldThenSmaller() throws Exception {
+        if (!isGeographySupportAvailable()) {
+            return;
+        }
+
+        // the world bbox is encoded as a constant, the SQL must not be reused for the next one
+        FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2(null);
+        ContentFeatureSource fs = dataStore.getFeatureSource(tname("geopoint"));
+        Filter world = ff.and(ff.bbox(aname("geo"), -180, -90, 180, 90, "EPSG:4326"),
+                ff.notEqual(ff.property(aname("name")), ff.literal("London")));
+        assertEquals(2, fs.getFeatures(world).size());
+        Filter small = ff.and(ff.bbox(aname("geo"), -1, 45, 1, 50, "EPSG:4326"),
+                ff.notEqual(ff.property(aname("name")), ff.literal("Town")));
+        SimpleFeatureCollection features = fs.getFeatures(small);
+        assertEquals(1, features.size());
+        assertEquals("London", DataUtilities.first(features).getAttribute(aname("name")));
+    }
 }
@@ -1,6 +1,7 @@
 package org.geotools.data.shapefile;
 
 import static org.geotools.data.shapefile.files.ShpFileType.FIX;
+import static org.geotools.data.shapefile.files.ShpFileType.PRX;
 import static org.geotools.data.shapefile.files.ShpFileType.QIX;
 import static org.geotools.data.shapefile.files.ShpFileType.SHP;
 import static org.geotools.data.shapefile.files.ShpFileType.SHX;
@@ -8,6 +9,7 @@ import static org.geotools.data.shapefile.files.ShpFileType.SHX;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.ArrayList;
 import java.util.List;
@@ -30,6 +32,7 @@ import org.geotools.data.shapefile.index.TreeException;
 import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
+import org.geotools.data.shapefile.index.rtree.PackedRTree;
 import org.geotools.data.shapefile.shp.IndexFile;
 import org.geotools.util.NullProgressListener;
 import org.geotools.util.URLs;
@@ -56,6 +59,8 @@ class IndexManager {
 
     CachedQuadTree cachedTree;
 
+    PackedRTree packedTree;
+
     ShapefileDataStore store;
     
     /**
@@ -96,13 +101,18 @@ class IndexManager {
     public boolean createSpatialIndex(boolean force) {
         // create index as needed
         try {
-            if (shpFiles.isLocal() && (isIndexStale(QIX) || force)) {
+            ShpFileType indexType = getSpatialIndexType();
+            if (shpFiles.isLocal() && (isIndexStale(indexType) || force)) {
                 ShapefileDataStoreFactory.LOGGER.fine("Creating spatial index for "
                         + shpFiles.get(SHP));
 
                 ShapeFileIndexer indexer = new ShapeFileIndexer();
                 indexer.setShapeFileName(shpFiles);
+                indexer.setIndexType(indexType);
                 indexer.index(false, new NullProgressListener());
+                synchronized (this) {
+                    packedTree = null;
+                }
 
                 return true;
             }
@@ -180,7 +190,17 @@ class IndexManager {
      * @return
      */
     boolean isSpatialIndexAvailable() {
-        return shpFiles.isLocal() && shpFiles.exists(QIX);
+        return shpFiles.isLocal() && shpFiles.exists(getSpatialIndexType());
+    }
+
+    /**
+     * Returns the type of spatial index in use, the packed R-tree if enabled in the store, the
+     * quadtree otherwise
+     * 
+     * @return
+     */
+    ShpFileType getSpatialIndexType() {
+        return store.isPackedSpatialIndexEnabled() ? PRX : QIX;
     }
 
     /**
@@ -301,6 +321,15 @@ class IndexManager {
         // check if the spatial index needs recreating
         createSpatialIndex(false);
 
+        if (getSpatialIndexType() == PRX) {
+            PackedRTree tree = openPackedTree();
+            if (tree != null && !bbox.contains(tree.getBounds())) {
+                return tree.search(bbox);
+            } else {
+                return null;
+            }
+        }
+
         if (cachedTree == null) {
             boolean canCache = false;
             URL treeURL = shpFiles.acquireRead(QIX, writer);
@@ -368,6 +397,23 @@ class IndexManager {
 
             try {
                 FileSystemIndexStore idxStore = new FileSystemIndexStore(treeFile);
+                if (shpFiles.isSharedMappingEnabled()) {
+                    // read off the shared map, the lock is released when the tree is closed
+                    // get the channel before the index file, which holds a read lock until
+                    // closed, and close both if the tree cannot be loaded
+                    FileChannel channel = (FileChannel) shpFiles.getReadChannel(QIX, writer);
+                    IndexFile indexFile = null;
+                    try {
+                        indexFile = store.shpManager.openIndexFile();
+                        return idxStore.load(channel, indexFile, store.isMemoryMapped());
+                    } catch (IOException | RuntimeException e) {
+                        channel.close();
+                        if (indexFile != null) {
+                            indexFile.close();
+                        }
+                        throw e;
+                    }
+                }
                 return idxStore.load(store.shpManager.openIndexFile(), store.isMemoryMapped());
             } catch (IOException e) {
                 throw new StoreException(e);
@@ -377,7 +423,38 @@ class IndexManager {
         }
     }
 
+    /**
+     * Returns the packed R-tree index, memory mapping it on first access. The tree is read only
+     * and thread safe, so the same instance is shared by all the readers until the index gets
+     * rebuilt.
+     * 
+     * @return The packed R-tree, or null if the index file is missing or empty
+     * 
+     * @throws IOException
+     */
+    synchronized PackedRTree openPackedTree() throws IOException {
+        if (packedTree != null || !shpFiles.isLocal()) {
+            return packedTree;
+        }
+        URL treeURL = shpFiles.acquireRead(PRX, writer);
+        try {
+            File treeFile = URLs.urlToFile(treeURL);
+
+            if (!treeFile.exists() || (treeFile.length() == 0)) {
+                return null;
+            }
+
+            packedTree = PackedRTree.open(treeFile);
+            return packedTree;
+        } finally {
+            shpFiles.unlockRead(treeURL, writer);
+        }
+    }
+
     public void dispose() {
         this.cachedTree = null;
+        synchronized (this) {
+            this.packedTree = null;
+        }
     }
 }
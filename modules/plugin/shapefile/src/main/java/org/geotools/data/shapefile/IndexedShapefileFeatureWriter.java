@@ -61,6 +61,20 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
         }
     }
 
+    /**
+     * When writing in parallel also collects the records bounds, so that the spatial index can
+     * be built on close without reading the shapefile back
+     */
+    @Override
+    void setWriterThreads(int threads) {
+        super.setWriterThreads(threads);
+        ShapefileDataStore store = indexes.store;
+        if (parallelWriter != null && shpFiles.isLocal() && store.isIndexed()
+                && store.isIndexCreationEnabled()) {
+            recordBounds = new RecordBounds();
+        }
+    }
+
     @Override
     public SimpleFeature next() throws IOException {
         // closed already, error!
@@ -110,9 +124,21 @@ class IndexedShapefileFeatureWriter extends ShapefileFeatureWriter implements Fi
                 }
 
                 deleteFile(ShpFileType.QIX);
+                deleteFile(ShpFileType.PRX);
+
+                // all the records went through this writer, build the index right away
+                if (recordBounds != null && recordBounds.getCount() == records) {
+                    ShapeFileIndexer indexer = new ShapeFileIndexer();
+                    indexer.setShapeFileName(shpFiles);
+                    indexer.setIndexType(indexes.getSpatialIndexType());
+                    indexer.index(recordBounds);
+                    indexes.dispose();
+                }
             }
         } catch (Throwable e) {
             ShapefileDataStoreFactory.LOGGER.log(Level.WARNING, "Error creating Spatial index", e);
+        } finally {
+            recordBounds = null;
         }
     }
 
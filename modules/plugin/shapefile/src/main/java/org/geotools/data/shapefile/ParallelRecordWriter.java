@@ -0,0 +1,269 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.geotools.data.shapefile.dbf.DbaseFileHeader;
+import org.geotools.data.shapefile.dbf.DbaseFileWriter;
+import org.geotools.data.shapefile.dbf.DbaseRecordEncoder;
+import org.geotools.data.shapefile.shp.ShapeHandler;
+import org.geotools.data.shapefile.shp.ShapeType;
+import org.geotools.data.shapefile.shp.ShapefileException;
+import org.geotools.data.shapefile.shp.ShapefileWriter;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Encodes the shp and dbf records in a pool of worker threads, a batch of records at a time, and
+ * writes the results in submission order to the shapefile and dbf writers, each batch with a
+ * single write per file.
+ * <p>
+ * The record sizes are known before encoding, so the caller still gets to check the file size
+ * limits synchronously. The number of batches in flight is bounded, when the workers fall behind
+ * the caller waits for the oldest batch to be written.
+ *
+ * @since 20.0
+ */
+class ParallelRecordWriter {
+
+    static final int BATCH_SIZE = 512;
+
+    static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    final ShapefileWriter shpWriter;
+
+    final DbaseFileWriter dbfWriter;
+
+    final DbaseFileHeader dbfHeader;
+
+    final Charset charset;
+
+    final TimeZone timeZone;
+
+    final ExecutorService executor;
+
+    final int maxPending;
+
+    final Deque<Future<EncodedBatch>> pending = new ArrayDeque<Future<EncodedBatch>>();
+
+    RecordBatch current;
+
+    /**
+     * The number of the next record to be added, starting from 1 as in the shp file
+     */
+    int nextRecord = 1;
+
+    ParallelRecordWriter(ShapefileWriter shpWriter, DbaseFileWriter dbfWriter,
+            DbaseFileHeader dbfHeader, Charset charset, TimeZone timeZone, int threads) {
+        this.shpWriter = shpWriter;
+        this.dbfWriter = dbfWriter;
+        this.dbfHeader = dbfHeader;
+        this.charset = charset;
+        this.timeZone = timeZone;
+        this.maxPending = threads * 2;
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r,
+                        "shapefile-writer-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Adds a record to the current batch, submitting it for encoding once full
+     *
+     * @param shapeType The shape type of the file
+     * @param geometry The geometry, already converted to the shape type, or null
+     * @param length The geometry content length in bytes, as returned by the shape handler
+     * @param values The dbf values, the array must not be modified afterwards
+     */
+    void add(ShapeType shapeType, Geometry geometry, int length, Object[] values)
+            throws IOException {
+        if (current == null) {
+            current = new RecordBatch(shapeType, nextRecord);
+        }
+        current.add(geometry, length, values);
+        nextRecord++;
+        if (current.count == BATCH_SIZE) {
+            submit();
+        }
+
+        // write out what is already encoded, and wait if too much is still in flight
+        while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > maxPending)) {
+            writeNext();
+        }
+    }
+
+    void submit() {
+        final RecordBatch batch = current;
+        current = null;
+        pending.add(executor.submit(new Callable<EncodedBatch>() {
+
+            @Override
+            public EncodedBatch call() throws Exception {
+                return encode(batch);
+            }
+        }));
+    }
+
+    void writeNext() throws IOException {
+        EncodedBatch encoded;
+        try {
+            encoded = pending.poll().get();
+        } catch (InterruptedException e) {
+            throw new IOException("Interrupted while waiting for the records to be encoded", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to encode the records", cause);
+        }
+        shpWriter.writeRecords(encoded.shp, encoded.lengths, encoded.count);
+        dbfWriter.writeRecords(encoded.dbf);
+    }
+
+    /**
+     * Encodes and writes all the records added so far
+     */
+    void flush() throws IOException {
+        if (current != null) {
+            submit();
+        }
+        while (!pending.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Stops the worker threads, dropping the records not written yet
+     */
+    void close() {
+        for (Future<EncodedBatch> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        current = null;
+        executor.shutdownNow();
+    }
+
+    EncodedBatch encode(RecordBatch batch) throws IOException, ShapefileException {
+        ShapeHandler handler = batch.shapeType.getShapeHandler(new GeometryFactory());
+        ByteBuffer shp = ByteBuffer.allocate(batch.shpSize);
+        int[] lengths = new int[batch.count];
+        for (int i = 0; i < batch.count; i++) {
+            Geometry g = batch.geometries[i];
+            // same layout as ShapefileWriter.writeGeometry
+            int length = batch.lengths[i] / 2;
+            shp.order(ByteOrder.BIG_ENDIAN);
+            shp.putInt(batch.firstRecord + i);
+            shp.putInt(length);
+            shp.order(ByteOrder.LITTLE_ENDIAN);
+            if (g == null) {
+                shp.putInt(ShapeType.NULL.id);
+            } else {
+                shp.putInt(batch.shapeType.id);
+                handler.write(shp, g);
+            }
+            lengths[i] = length;
+        }
+        shp.flip();
+
+        DbaseRecordEncoder encoder = new DbaseRecordEncoder(dbfHeader, charset, timeZone);
+        ByteBuffer dbf = ByteBuffer.allocate(dbfHeader.getRecordLength() * batch.count);
+        for (int i = 0; i < batch.count; i++) {
+            encoder.encode(batch.values[i], dbf);
+        }
+        dbf.flip();
+
+        return new EncodedBatch(shp, lengths, batch.count, dbf);
+    }
+
+    /**
+     * The records waiting to be encoded
+     */
+    static class RecordBatch {
+
+        final ShapeType shapeType;
+
+        final int firstRecord;
+
+        final Geometry[] geometries = new Geometry[BATCH_SIZE];
+
+        final int[] lengths = new int[BATCH_SIZE];
+
+        final Object[][] values = new Object[BATCH_SIZE][];
+
+        int count;
+
+        int shpSize;
+
+        RecordBatch(ShapeType shapeType, int firstRecord) {
+            this.shapeType = shapeType;
+            this.firstRecord = firstRecord;
+        }
+
+        void add(Geometry geometry, int length, Object[] values) {
+            this.geometries[count] = geometry;
+            this.lengths[count] = length;
+            this.values[count] = values;
+            count++;
+            // record header plus content
+            shpSize += length + 8;
+        }
+    }
+
+    /**
+     * The encoded records, ready to be written
+     */
+    static class EncodedBatch {
+
+        final ByteBuffer shp;
+
+        final int[] lengths;
+
+        final int count;
+
+        final ByteBuffer dbf;
+
+        EncodedBatch(ByteBuffer shp, int[] lengths, int count, ByteBuffer dbf) {
+            this.shp = shp;
+            this.lengths = lengths;
+            this.count = count;
+            this.dbf = dbf;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import java.util.Arrays;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * The bounds of the records of a shapefile, collected while writing it so that the spatial index
+ * can be built without reading the file back. The boxes are stored as floats, rounded outwards so
+ * that they contain the original ones, to halve the memory usage.
+ *
+ * @since 20.0
+ */
+class RecordBounds {
+
+    float[] boxes = new float[1024 * 4];
+
+    int count;
+
+    final Envelope bounds = new Envelope();
+
+    /**
+     * Adds the bounds of the next record, null or empty for records without a geometry
+     */
+    void add(Envelope envelope) {
+        if (count * 4 == boxes.length) {
+            boxes = Arrays.copyOf(boxes, boxes.length * 2);
+        }
+        int base = count * 4;
+        if (envelope == null || envelope.isNull()) {
+            Arrays.fill(boxes, base, base + 4, Float.NaN);
+        } else {
+            boxes[base] = down(envelope.getMinX());
+            boxes[base + 1] = down(envelope.getMinY());
+            boxes[base + 2] = up(envelope.getMaxX());
+            boxes[base + 3] = up(envelope.getMaxY());
+            bounds.expandToInclude(envelope);
+        }
+        count++;
+    }
+
+    /**
+     * The number of records added so far
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * The bounds of all the records
+     */
+    Envelope getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Returns true if the record has no geometry
+     */
+    boolean isNull(int record) {
+        return Float.isNaN(boxes[record * 4]);
+    }
+
+    double getMinX(int record) {
+        return boxes[record * 4];
+    }
+
+    double getMinY(int record) {
+        return boxes[record * 4 + 1];
+    }
+
+    double getMaxX(int record) {
+        return boxes[record * 4 + 2];
+    }
+
+    double getMaxY(int record) {
+        return boxes[record * 4 + 3];
+    }
+
+    /**
+     * The bounds of the specified record, starting from 0
+     */
+    Envelope get(int record) {
+        return new Envelope(getMinX(record), getMaxX(record), getMinY(record), getMaxY(record));
+    }
+
+    static float down(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    static float up(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
+    }
+}
@@ -38,6 +38,7 @@ import org.geotools.data.shapefile.index.quadtree.QuadTree;
 import org.geotools.data.shapefile.index.quadtree.StoreException;
 import org.geotools.data.shapefile.index.quadtree.fs.FileSystemIndexStore;
 import org.geotools.data.shapefile.index.quadtree.fs.IndexHeader;
+import org.geotools.data.shapefile.index.rtree.PackedRTreeBuilder;
 import org.geotools.data.shapefile.shp.IndexFile;
 import org.geotools.data.shapefile.shp.ShapefileHeader;
 import org.geotools.data.shapefile.shp.ShapefileReader;
@@ -59,6 +60,13 @@ import com.vividsolutions.jts.geom.GeometryFactory;
  */
 class ShapeFileIndexer implements FileWriter {
     private static final Logger LOGGER = Logging.getLogger(ShapeFileIndexer.class);
+
+    /**
+     * Looks up the bounds of a record while optimizing the quadtree
+     */
+    private interface RecordEnvelopes {
+        Envelope get(int shapeId) throws IOException;
+    }
     
     private int max = -1;
     private int leafSize = 16;
@@ -66,6 +74,7 @@ class ShapeFileIndexer implements FileWriter {
 	private String byteOrder;
     private boolean interactive = false;
     private ShpFiles shpFiles;
+    private ShpFileType indexType = ShpFileType.QIX;
 
     public static void main(String[] args) throws IOException {
         if ((args.length < 1) || (((args.length - 1) % 2) != 0)) {
@@ -79,9 +88,10 @@ class ShapeFileIndexer implements FileWriter {
 
         for (int i = 0; i < args.length; i++) {
             if (args[i].equals("-t")) {
-                // idx.setIdxType(IndexType.valueOf(args[++i]));
-                // just skip it for backwards compatibility
-                i++;
+                // QIX (the default) or PRX, other values are ignored for backwards compatibility
+                if ("PRX".equalsIgnoreCase(args[++i])) {
+                    idx.setIndexType(ShpFileType.PRX);
+                }
             } else if (args[i].equals("-M")) {
                 idx.setMax(Integer.parseInt(args[++i]));
             } else if (args[i].equals("-s")) {
@@ -115,7 +125,7 @@ class ShapeFileIndexer implements FileWriter {
     }
 
     private static void usage() {
-        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX> "
+        System.out.println("Usage: ShapeFileIndexer " + "-t <QIX | PRX> "
                 + "[-M <max tree depth>] "
                 + "[-b <byte order NL | NM>] " + "<shape file>"
                 + "[-s <max number of items in a leaf>]");
@@ -123,7 +133,7 @@ class ShapeFileIndexer implements FileWriter {
         System.out.println();
 
         System.out.println("Options:");
-        System.out.println("\t-t Index type: RTREE or QUADTREE");
+        System.out.println("\t-t Index type: QIX (quadtree) or PRX (packed Hilbert R-tree)");
         System.out.println();
         System.out.println("Following options apllies only to QUADTREE:");
         System.out.println("\t-b byte order to use: NL = LSB; "
@@ -165,32 +175,24 @@ class ShapeFileIndexer implements FileWriter {
         ShapefileReader reader = null;
 
         // Temporary file for building...
-        StorageFile storage = shpFiles.getStorageFile(ShpFileType.QIX);
+        StorageFile storage = shpFiles.getStorageFile(indexType);
         File treeFile = storage.getFile();
 
         try {
             reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
             
-            if(max == -1) {
-                // compute a reasonable index max depth, considering a fully developed
-                // 10 levels one already contains 200k index nodes, good for indexing up
-                // to 3M features without consuming too much memory
-                int features = reader.getCount(0);
-                max = 1;
-                int nodes = 1;
-                while(nodes * leafSize < features) {
-                    max++;
-                    nodes *= 4;
-                }
-                if(max < 10) {
-                    max = 10;
-                }
+            if(indexType == ShpFileType.QIX && max == -1) {
+                computeMaxDepth(reader.getCount(0));
                 
                 reader.close();
                 reader = new ShapefileReader(shpFiles, true, false, new GeometryFactory());
             }
             
-            cnt = this.buildQuadTree(reader, treeFile, verbose);
+            if (indexType == ShpFileType.PRX) {
+                cnt = this.buildPackedRTree(reader, treeFile, verbose);
+            } else {
+                cnt = this.buildQuadTree(reader, treeFile, verbose);
+            }
         } finally {
             if (reader != null)
                 reader.close();
@@ -202,21 +204,95 @@ class ShapeFileIndexer implements FileWriter {
         return cnt;
     }
 
-    private int buildQuadTree(ShapefileReader reader, File file, boolean verbose)
-            throws IOException, StoreException {
-        LOGGER.fine("Building quadtree spatial index with depth " +  max + " for file " + file.getAbsolutePath());
-        
-        byte order = 0;
+    /**
+     * Indexes the shapefile denoted by setShapeFileName(String fileName) using the record bounds
+     * collected while writing it, instead of reading the records back
+     * 
+     * @param recordBounds The bounds of all the records in the shapefile
+     * @return The number of indexed records
+     */
+    int index(final RecordBounds recordBounds) throws IOException, StoreException {
+        if (this.shpFiles == null) {
+            throw new IOException("You have to set a shape file name!");
+        }
 
-        if ((this.byteOrder == null) || this.byteOrder.equalsIgnoreCase("NM")) {
-            order = IndexHeader.NEW_MSB_ORDER;
-        } else if (this.byteOrder.equalsIgnoreCase("NL")) {
-            order = IndexHeader.NEW_LSB_ORDER;
+        StorageFile storage = shpFiles.getStorageFile(indexType);
+        File treeFile = storage.getFile();
+
+        int cnt = 0;
+        IndexFile shpIndex = new IndexFile(shpFiles, false);
+        if (indexType == ShpFileType.PRX) {
+            LOGGER.fine("Building packed R-tree spatial index for file "
+                    + treeFile.getAbsolutePath());
+            try {
+                PackedRTreeBuilder builder = new PackedRTreeBuilder(recordBounds.getCount(),
+                        PackedRTreeBuilder.DEFAULT_NODE_SIZE);
+                for (int i = 0; i < recordBounds.getCount(); i++) {
+                    if (!recordBounds.isNull(i)) {
+                        builder.add(i, shpIndex.getOffsetInBytes(i), recordBounds.getMinX(i),
+                                recordBounds.getMinY(i), recordBounds.getMaxX(i),
+                                recordBounds.getMaxY(i));
+                    }
+                    cnt++;
+                }
+                builder.write(treeFile);
+            } finally {
+                shpIndex.close();
+            }
         } else {
-            throw new StoreException("Asked byte order '" + this.byteOrder
-                    + "' must be 'NL' or 'NM'!");
+            if (max == -1) {
+                computeMaxDepth(recordBounds.getCount());
+            }
+            LOGGER.fine("Building quadtree spatial index with depth " + max + " for file "
+                    + treeFile.getAbsolutePath());
+            QuadTree tree = new QuadTree(recordBounds.getCount(), max,
+                    new Envelope(recordBounds.getBounds()), shpIndex);
+            try {
+                for (int i = 0; i < recordBounds.getCount(); i++) {
+                    if (!recordBounds.isNull(i)) {
+                        tree.insert(i, recordBounds.get(i));
+                    }
+                    cnt++;
+                }
+                storeQuadTree(tree, treeFile, new RecordEnvelopes() {
+
+                    @Override
+                    public Envelope get(int shapeId) {
+                        return recordBounds.get(shapeId);
+                    }
+                });
+            } finally {
+                tree.close();
+            }
         }
 
+        // Final index file
+        storage.replaceOriginal();
+
+        return cnt;
+    }
+
+    /**
+     * Computes a reasonable index max depth, considering a fully developed 10 levels one already
+     * contains 200k index nodes, good for indexing up to 3M features without consuming too much
+     * memory
+     */
+    private void computeMaxDepth(int features) {
+        max = 1;
+        int nodes = 1;
+        while(nodes * leafSize < features) {
+            max++;
+            nodes *= 4;
+        }
+        if(max < 10) {
+            max = 10;
+        }
+    }
+
+    private int buildQuadTree(ShapefileReader reader, File file, boolean verbose)
+            throws IOException, StoreException {
+        LOGGER.fine("Building quadtree spatial index with depth " +  max + " for file " + file.getAbsolutePath());
+        
         IndexFile shpIndex = new IndexFile(shpFiles, false);
         QuadTree tree = null;
         int cnt = 0;
@@ -242,29 +318,91 @@ class ShapeFileIndexer implements FileWriter {
             }
             if (verbose)
                 System.out.println("done");
-            FileSystemIndexStore store = new FileSystemIndexStore(file, order);
-            
-            if(leafSize > 0) {
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    LOGGER.fine("Optimizing the tree (this might take some time)");
-                }
-                optimizeTree(tree, tree.getRoot(), 0, reader, shpIndex);
-                if (LOGGER.isLoggable(Level.FINE)) {
-                    LOGGER.fine("Tree optimized");
+            final ShapefileReader recordReader = reader;
+            final IndexFile recordIndex = shpIndex;
+            storeQuadTree(tree, file, new RecordEnvelopes() {
+
+                @Override
+                public Envelope get(int shapeId) throws IOException {
+                    int offset = recordIndex.getOffsetInBytes(shapeId);
+                    recordReader.goTo(offset);
+                    Record rec = recordReader.nextRecord();
+                    return new Envelope(rec.minX, rec.maxX, rec.minY, rec.maxY);
                 }
+            });
+        } finally {
+            tree.close();
+        }
+        return cnt;
+    }
+
+    /**
+     * Optimizes the tree, if a leaf size is set, and stores it in the specified file
+     */
+    private void storeQuadTree(QuadTree tree, File file, RecordEnvelopes envelopes)
+            throws IOException, StoreException {
+        byte order = 0;
+
+        if ((this.byteOrder == null) || this.byteOrder.equalsIgnoreCase("NM")) {
+            order = IndexHeader.NEW_MSB_ORDER;
+        } else if (this.byteOrder.equalsIgnoreCase("NL")) {
+            order = IndexHeader.NEW_LSB_ORDER;
+        } else {
+            throw new StoreException("Asked byte order '" + this.byteOrder
+                    + "' must be 'NL' or 'NM'!");
+        }
+
+        FileSystemIndexStore store = new FileSystemIndexStore(file, order);
+        
+        if(leafSize > 0) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Optimizing the tree (this might take some time)");
             }
-            
-            if(LOGGER.isLoggable(Level.FINE)) {
-                printStats(tree);
+            optimizeTree(tree, tree.getRoot(), 0, envelopes);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Tree optimized");
+            }
+        }
+        
+        if(LOGGER.isLoggable(Level.FINE)) {
+            printStats(tree);
+        }
+        store.store(tree);
+    }
+    
+    private int buildPackedRTree(ShapefileReader reader, File file, boolean verbose)
+            throws IOException {
+        LOGGER.fine("Building packed R-tree spatial index for file " + file.getAbsolutePath());
+
+        IndexFile shpIndex = new IndexFile(shpFiles, false);
+        int cnt = 0;
+        try {
+            PackedRTreeBuilder builder = new PackedRTreeBuilder(shpIndex.getRecordCount(),
+                    PackedRTreeBuilder.DEFAULT_NODE_SIZE);
+            Record rec = null;
+
+            while (reader.hasNext()) {
+                rec = reader.nextRecord();
+                builder.add(cnt, shpIndex.getOffsetInBytes(cnt), rec.minX, rec.minY, rec.maxX,
+                        rec.maxY);
+                cnt++;
+
+                if (verbose && ((cnt % 1000) == 0)) {
+                    System.out.print('.');
+                }
+                if (cnt % 100000 == 0)
+                    System.out.print('\n');
             }
-            store.store(tree);
+            if (verbose)
+                System.out.println("done");
+            builder.write(file);
         } finally {
-            tree.close();
+            shpIndex.close();
         }
         return cnt;
     }
     
-    private Node optimizeTree(QuadTree tree, Node node, int level, ShapefileReader reader, IndexFile index) throws StoreException, IOException {
+    private Node optimizeTree(QuadTree tree, Node node, int level, RecordEnvelopes envelopes) throws StoreException, IOException {
         // recurse, with a check to avoid too deep recursion due to odd data that has a
         if(node.getNumShapeIds() > leafSize && node.getNumSubNodes() == 0 && level < max * 2) {
             // ok, we need to split this baby further
@@ -282,10 +420,7 @@ class ShapeFileIndexer implements FileWriter {
             
             for (int i = 0; i < numShapesId; i++) {
                 final int shapeId = shapeIds[i];
-                int offset = index.getOffsetInBytes(shapeId);
-                reader.goTo(offset);
-                Record rec = reader.nextRecord();
-                Envelope env = new Envelope(rec.minX, rec.maxX, rec.minY, rec.maxY);
+                Envelope env = envelopes.get(shapeId);
                 tree.insert(node, shapeId, env, extraLevels);
             }
         }
@@ -295,7 +430,7 @@ class ShapeFileIndexer implements FileWriter {
         
         // recurse 
         for (int i = 0; i < node.getNumSubNodes(); i++) {
-            optimizeTree(tree, node.getSubNode(i), level + 1, reader, index);
+            optimizeTree(tree, node.getSubNode(i), level + 1, envelopes);
         }
         
         // prune empty subnodes
@@ -326,10 +461,7 @@ class ShapeFileIndexer implements FileWriter {
                 int[] shapeIds  = node.getShapesId();
                 for (int i = 0; i < shapeIds.length; i++) {
                     final int shapeId = shapeIds[i];
-                    int offset = index.getOffsetInBytes(shapeId);
-                    reader.goTo(offset);
-                    Record rec = reader.nextRecord();
-                    Envelope env = new Envelope(rec.minX, rec.maxX, rec.minY, rec.maxY);
+                    Envelope env = envelopes.get(shapeId);
                     bounds.expandToInclude(env);
                 }
             }
@@ -411,6 +543,19 @@ class ShapeFileIndexer implements FileWriter {
     }
 
 
+    /**
+     * Sets the type of index to build, either {@link ShpFileType#QIX} (the default) or
+     * {@link ShpFileType#PRX}
+     * 
+     * @param indexType
+     */
+    public void setIndexType(ShpFileType indexType) {
+        if (indexType != ShpFileType.QIX && indexType != ShpFileType.PRX) {
+            throw new IllegalArgumentException("Unsupported spatial index type " + indexType);
+        }
+        this.indexType = indexType;
+    }
+
     /**
      * DOCUMENT ME!
      * 
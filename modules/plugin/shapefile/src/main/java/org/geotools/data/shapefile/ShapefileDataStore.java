@@ -111,6 +111,8 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     
     boolean indexCreationEnabled = true;
 
+    boolean packedSpatialIndexEnabled = false;
+
     boolean fidIndexed = true;
 
     IndexManager indexManager;
@@ -121,6 +123,8 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     
     long maxDbfSize = ShapefileFeatureWriter.DEFAULT_MAX_DBF_SIZE;
 
+    int writerThreads = 1;
+
     public ShapefileDataStore(URL url) {
         shpFiles = new ShpFiles(url);
         if (TRACE_ENABLED) {
@@ -231,6 +235,63 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         this.maxDbfSize = maxDbfSize;
     }
 
+    /**
+     * The number of threads encoding the records when writing
+     * @return
+     */
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    /**
+     * When greater than one, the feature writers working against an empty shapefile will encode
+     * the shp and dbf records in the specified number of background threads, writing them in
+     * blocks, and will build the spatial index on close from the records bounds, instead of
+     * reading the shapefile back. Meant for bulk exports, the features must not be modified after
+     * being written. Defaults to 1, all the work is done in the calling thread.
+     * @param writerThreads
+     */
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
+    /**
+     * Returns true if the shapefile is read from memory maps shared among all the readers
+     * @return
+     */
+    public boolean isSharedMappingEnabled() {
+        return shpFiles.isSharedMappingEnabled();
+    }
+
+    /**
+     * When enabled the shp, shx, dbf and index files are memory mapped as a whole once, and all
+     * the readers are served from the same maps, without opening the files. The maps are kept
+     * until the files are modified or the store disposed. Meant for many concurrent readers of the
+     * same shapefile, combine with {@link #setMemoryMapped(boolean)} to have the readers work
+     * directly off the maps instead of copying the data. Disabled by default.
+     * @param sharedMappingEnabled
+     */
+    public void setSharedMappingEnabled(boolean sharedMappingEnabled) {
+        shpFiles.setSharedMappingEnabled(sharedMappingEnabled);
+    }
+
+    /**
+     * The maximum total size in bytes of the shared memory maps
+     * @return
+     */
+    public long getSharedMappingBudget() {
+        return shpFiles.getSharedMappingBudget();
+    }
+
+    /**
+     * Sets the maximum total size in bytes of the shared memory maps, the files that do not fit
+     * are read as usual. Defaults to {@link ShpFiles#DEFAULT_SHARED_MAPPING_BUDGET}
+     * @param sharedMappingBudget
+     */
+    public void setSharedMappingBudget(long sharedMappingBudget) {
+        shpFiles.setSharedMappingBudget(sharedMappingBudget);
+    }
+
 
     public SimpleFeatureType getSchema() throws IOException {
         return getSchema(getTypeName());
@@ -491,7 +552,7 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
         return "ShapefileDataStore [file=" + shpFiles.get(SHP) + ", charset=" + charset + ", timeZone=" + timeZone
                 + ", memoryMapped=" + memoryMapped + ", bufferCachingEnabled="
                 + bufferCachingEnabled + ", indexed=" + indexed + ", fidIndexed=" + fidIndexed
-                + "]";
+                + ", sharedMapping=" + shpFiles.isSharedMappingEnabled() + "]";
     }
 
     @Override
@@ -528,6 +589,20 @@ public class ShapefileDataStore extends ContentDataStore implements FileDataStor
     public void setIndexCreationEnabled(boolean indexCreationEnabled) {
         this.indexCreationEnabled = indexCreationEnabled;
     }
+
+    public boolean isPackedSpatialIndexEnabled() {
+        return packedSpatialIndexEnabled;
+    }
+
+    /**
+     * If true the spatial index is a packed Hilbert R-tree stored in a .prx file, instead of the
+     * .qix quadtree (the default). The packed tree is faster to build and to search, but it's not
+     * understood by other shapefile readers
+     * @param packedSpatialIndexEnabled
+     */
+    public void setPackedSpatialIndexEnabled(boolean packedSpatialIndexEnabled) {
+        this.packedSpatialIndexEnabled = packedSpatialIndexEnabled;
+    }
     
     @Override
     public void removeSchema(String typeName) throws IOException {
@@ -140,6 +140,30 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             Boolean.class, "enable/disable the use of spatial index for local shapefiles", false,
             true, new KVP(Param.LEVEL, "advanced"));
 
+    /**
+     * Optional - use a packed Hilbert R-tree (.prx) as the spatial index instead of the quadtree
+     * (.qix)
+     */
+    public static final Param PACKED_SPATIAL_INDEX = new Param("packed spatial index",
+            Boolean.class, "use a packed R-tree (.prx) instead of a quadtree (.qix) as the spatial index",
+            false, false, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Optional - map each file once and share the mapping among all readers, without opening the
+     * files for each reader
+     */
+    public static final Param SHARED_MEMORY_MAPS = new Param("share memory maps",
+            Boolean.class, "map each file once, as a whole, and serve all readers from the same map",
+            false, false, new KVP(Param.LEVEL, "advanced"));
+
+    /**
+     * Optional - the maximum total size in bytes of the shared memory maps
+     */
+    public static final Param SHARED_MEMORY_MAPS_BUDGET = new Param("shared memory maps budget",
+            Long.class,
+            "maximum total size in bytes of the shared memory maps, files not fitting are read as usual",
+            false, ShpFiles.DEFAULT_SHARED_MAPPING_BUDGET, new KVP(Param.LEVEL, "advanced"));
+
     public String getDisplayName() {
         return "Shapefile";
     }
@@ -150,7 +174,8 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
 
     public Param[] getParametersInfo() {
         return new Param[] { URLP, NAMESPACEP, ENABLE_SPATIAL_INDEX, CREATE_SPATIAL_INDEX, DBFCHARSET, DBFTIMEZONE,
-                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE };
+                MEMORY_MAPPED, CACHE_MEMORY_MAPS, FILE_TYPE, FSTYPE, PACKED_SPATIAL_INDEX,
+                SHARED_MEMORY_MAPS, SHARED_MEMORY_MAPS_BUDGET };
     }
 
     public boolean isAvailable() {
@@ -170,6 +195,9 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
         TimeZone dbfTimeZone = lookup(DBFTIMEZONE, params, TimeZone.class);
         Boolean isCreateSpatialIndex = lookup(CREATE_SPATIAL_INDEX, params, Boolean.class);
         Boolean isEnableSpatialIndex = (Boolean) ENABLE_SPATIAL_INDEX.lookUp(params);
+        Boolean isPackedSpatialIndex = lookup(PACKED_SPATIAL_INDEX, params, Boolean.class);
+        Boolean sharedMemoryMaps = lookup(SHARED_MEMORY_MAPS, params, Boolean.class);
+        Long sharedMemoryMapsBudget = lookup(SHARED_MEMORY_MAPS_BUDGET, params, Long.class);
         if (isEnableSpatialIndex == null) {
             // should not be needed as default is TRUE
             isEnableSpatialIndex = Boolean.TRUE;
@@ -199,6 +227,9 @@ public class ShapefileDataStoreFactory implements FileDataStoreFactorySpi {
             store.setTimeZone(dbfTimeZone);
             store.setIndexed(enableIndex);
             store.setIndexCreationEnabled(createIndex);
+            store.setPackedSpatialIndexEnabled(isPackedSpatialIndex);
+            store.setSharedMappingBudget(sharedMemoryMapsBudget);
+            store.setSharedMappingEnabled(isLocal && sharedMemoryMaps);
             return store;
         }
     }
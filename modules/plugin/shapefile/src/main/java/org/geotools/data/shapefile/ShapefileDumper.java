@@ -124,6 +124,8 @@ public class ShapefileDumper {
 
     Charset charset = (Charset) ShapefileDataStoreFactory.DBFCHARSET.getDefaultValue();
 
+    int writerThreads = 1;
+
     public ShapefileDumper(File targetDirectory) {
         this.targetDirectory = targetDirectory;
     }
@@ -194,6 +196,25 @@ public class ShapefileDumper {
         this.emptyShapefileAllowed = emptyShapefileAllowed;
     }
 
+    /**
+     * Returns the number of threads encoding the records of each shapefile (1 by default)
+     * @return
+     */
+    public int getWriterThreads() {
+        return writerThreads;
+    }
+
+    /**
+     * Sets the number of threads encoding the shp and dbf records of each shapefile. When greater
+     * than one the geometries and attributes are encoded in background threads and written in
+     * blocks, and the spatial index is built out of the records bounds once the shapefile is
+     * complete, speeding up large dumps on multi-core machines.
+     * @param writerThreads
+     */
+    public void setWriterThreads(int writerThreads) {
+        this.writerThreads = writerThreads;
+    }
+
     /**
      * Dumps the collection into one or more shapefiles. Multiple files will be geneated when
      * the input collection contains multiple geometry types, or as the size limit for output files
@@ -372,6 +393,7 @@ public class ShapefileDumper {
         // enforce the limits
         sfds.setMaxShpSize(this.maxShpSize);
         sfds.setMaxDbfSize(this.maxDbfSize);
+        sfds.setWriterThreads(this.writerThreads);
 
         return sfds;
     }
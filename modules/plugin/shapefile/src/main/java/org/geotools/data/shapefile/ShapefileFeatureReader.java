@@ -17,6 +17,7 @@
 package org.geotools.data.shapefile;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -132,6 +133,16 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
                     }
                 }
             }
+
+            // only copy and decode the fields we are going to use
+            int[] readFields = new int[dbfindexes.length];
+            int readCount = 0;
+            for (int index : dbfindexes) {
+                if (index >= 0) {
+                    readFields[readCount++] = index;
+                }
+            }
+            dbf.setReadFields(Arrays.copyOf(readFields, readCount));
         }
     }
 
@@ -345,6 +356,9 @@ class ShapefileFeatureReader implements FeatureReader<SimpleFeatureType, SimpleF
      */
     public void setSimplificationDistance(double simplificationDistance) {
         this.simplificationDistance = simplificationDistance;
+        if (shp != null) {
+            shp.setSimplificationDistance(simplificationDistance);
+        }
     }
 
     /**
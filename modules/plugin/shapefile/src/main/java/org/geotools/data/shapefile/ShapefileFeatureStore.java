@@ -73,6 +73,7 @@ class ShapefileFeatureStore extends ContentFeatureStore {
         }
         writer.setMaxShpSize(getDataStore().getMaxShpSize());
         writer.setMaxDbfSize(getDataStore().getMaxDbfSize());
+        writer.setWriterThreads(getDataStore().getWriterThreads());
 
         // if we only have to add move to the end.
         // TODO: just make the code transfer the bytes in bulk instead and start actual writing at
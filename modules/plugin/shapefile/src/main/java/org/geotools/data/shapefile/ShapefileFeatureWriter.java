@@ -128,6 +128,22 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
     
     private long maxDbfSize = DEFAULT_MAX_DBF_SIZE;
 
+    /**
+     * True if the shapefile was empty when the writer got created, so that every record gets
+     * appended in order
+     */
+    private boolean appendOnly;
+
+    /**
+     * Encodes the records in background threads, when enabled
+     */
+    ParallelRecordWriter parallelWriter;
+
+    /**
+     * The bounds of the records written so far, when collected for building the spatial index
+     */
+    RecordBounds recordBounds;
+
     public ShapefileFeatureWriter(ShpFiles shpFiles, ShapefileFeatureReader featureReader,
             Charset charset, TimeZone timezone) throws IOException {
         this.shpFiles = shpFiles;
@@ -171,6 +187,7 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         // don't try to read a shx file we're writing to in parallel
         featureReader.disableShxUsage();
         guessShapeType = !featureReader.hasNext();
+        appendOnly = guessShapeType;
         shapeType = featureReader.getShapeType();
         handler = shapeType.getShapeHandler(new GeometryFactory());
         shpWriter.writeHeaders(bounds, shapeType, records, shapefileLength);
@@ -184,12 +201,29 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         this.maxDbfSize = maxDbfSize;
     }
 
+    /**
+     * Sets the number of threads encoding the shp and dbf records. Only used when the shapefile
+     * was empty, and nothing has been written yet, as the records can then be appended in order
+     * without going back to the existing ones. In this mode the features values are encoded after
+     * {@link #write()} returns, so they must not be modified afterwards.
+     */
+    void setWriterThreads(int threads) {
+        if (threads > 1 && appendOnly && records == 0 && parallelWriter == null) {
+            parallelWriter = new ParallelRecordWriter(shpWriter, dbfWriter, dbfHeader,
+                    dbfCharset, dbfTimeZone, threads);
+        }
+    }
+
     /**
      * Go back and update the headers with the required info.
      * 
      * @throws IOException DOCUMENT ME!
      */
     protected void flush() throws IOException {
+        if (parallelWriter != null) {
+            parallelWriter.flush();
+        }
+
         // not sure the check for records <=0 is necessary,
         // but if records > 0 and shapeType is null there's probably
         // another problem.
@@ -293,6 +327,10 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
             try {
                 flush();
             } finally {
+                if (parallelWriter != null) {
+                    parallelWriter.close();
+                    parallelWriter = null;
+                }
                 shpWriter.close();
                 dbfWriter.close();
             }
@@ -396,8 +434,9 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         g = JTSUtilities.convertToCollection(g, shapeType);
 
         // bounds calculations
+        Envelope b = null;
         if (g != null) {
-            Envelope b = g.getEnvelopeInternal();
+            b = g.getEnvelopeInternal();
 
             if (!b.isNull()) {
                 bounds.expandToInclude(b);
@@ -405,11 +444,8 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         }
 
         // file length update
-        if (g != null) {
-            shapefileLength += (handler.getLength(g) + 8);
-        } else {
-            shapefileLength += (4 + 8);
-        }
+        int recordLength = g != null ? handler.getLength(g) : 4;
+        shapefileLength += (recordLength + 8);
         
         if (shapefileLength > maxShpSize) {
             currentFeature = null;
@@ -423,8 +459,9 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
                             + maxDbfSize + " bytes");
         }
 
-        // write it
-        shpWriter.writeGeometry(g);
+        // the values are encoded later when writing in parallel, so they need their own array
+        Object[] values = parallelWriter != null ? new Object[transferCache.length]
+                : transferCache;
 
         // writing of attributes
         int idx = 0;
@@ -432,11 +469,20 @@ class ShapefileFeatureWriter implements FeatureWriter<SimpleFeatureType, SimpleF
         for (int i = 0, ii = featureType.getAttributeCount(); i < ii; i++) {
             // skip geometries
             if (writeFlags[i] > 0) {
-                transferCache[idx++] = currentFeature.getAttribute(i);
+                values[idx++] = currentFeature.getAttribute(i);
             }
         }
 
-        dbfWriter.write(transferCache);
+        // write it
+        if (parallelWriter != null) {
+            parallelWriter.add(shapeType, g, recordLength, values);
+        } else {
+            shpWriter.writeGeometry(g);
+            dbfWriter.write(values);
+        }
+        if (recordBounds != null) {
+            recordBounds.add(b);
+        }
 
         // one more down...
         records++;
@@ -28,7 +28,13 @@ import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.channels.ReadableByteChannel;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Locale;
 import java.util.TimeZone;
@@ -63,6 +69,8 @@ import org.geotools.resources.NIOUtilities;
  * row.read(i) ); } } r.close();
  * 
  * </PRE></CODE>
+ * When only some of the fields are needed, {@link #setReadFields(int[])} restricts each read to
+ * the bytes of those fields, and the values are decoded only when asked for.
  * 
  * @author Ian Schneider, Andrea Aaime
  *
@@ -113,6 +121,17 @@ public class DbaseFileReader implements FileReader {
     
     int[] fieldOffsets;
 
+    /**
+     * The fields read by {@link #read()}, or null if all of them are
+     */
+    boolean[] readFields;
+
+    /**
+     * The byte ranges of the record copied by {@link #read()}, as pairs of start and length, or
+     * null if the whole record is copied
+     */
+    int[] readRanges;
+
     int cnt = 1;
 
     Row row;
@@ -128,6 +147,14 @@ public class DbaseFileReader implements FileReader {
     
     private boolean oneBytePerChar;
 
+    private CharsetDecoder decoder;
+
+    private ByteBuffer bytesBuffer;
+
+    private CharBuffer charBuffer;
+
+    private char[] chars;
+
     private Calendar calendar;
 
     private final long MILLISECS_PER_DAY = 24*60*60*1000;
@@ -221,6 +248,22 @@ public class DbaseFileReader implements FileReader {
         // check if we working with a latin-1 char Charset
         final String cname = stringCharset.name();
         oneBytePerChar = "ISO-8859-1".equals(cname) || "US-ASCII".equals(cname);
+
+        // reusable buffers for the string decoding, sized after the largest field
+        int maxFieldLength = 0;
+        for (int length : fieldLengths) {
+            maxFieldLength = Math.max(maxFieldLength, length);
+        }
+        if (oneBytePerChar) {
+            chars = new char[maxFieldLength];
+        } else {
+            // same error handling as new String(bytes, charset)
+            decoder = stringCharset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            bytesBuffer = ByteBuffer.wrap(bytes);
+            charBuffer = CharBuffer.allocate(
+                    (int) Math.ceil(maxFieldLength * (double) decoder.maxCharsPerByte()));
+        }
         
         row = new Row();
     }
@@ -293,6 +336,9 @@ public class DbaseFileReader implements FileReader {
         buffer = null;
         channel = null;
         bytes= null;
+        bytesBuffer = null;
+        charBuffer = null;
+        chars = null;
         header = null;
         row = null;
     }
@@ -400,6 +446,40 @@ public class DbaseFileReader implements FileReader {
         return readObject(fieldOffsets[fieldNum], fieldNum);
     }
 
+    /**
+     * Restricts the fields copied out of each record by {@link #read()}, {@link #readRow()} and
+     * {@link #readEntry(Object[])} to the specified ones, the other fields will be returned as
+     * null. Useful when only a few fields of a wide table are needed.
+     * 
+     * @param fields The zero based indexes of the fields to be read, or null to read all of them
+     */
+    public void setReadFields(final int[] fields) {
+        if (fields == null) {
+            readFields = null;
+            readRanges = null;
+            return;
+        }
+        readFields = new boolean[fieldTypes.length];
+        for (int field : fields) {
+            readFields[field] = true;
+        }
+        // merge the byte ranges of adjacent fields
+        int[] ranges = new int[fieldTypes.length * 2];
+        int count = 0;
+        for (int i = 0; i < fieldTypes.length; i++) {
+            if (!readFields[i] || fieldLengths[i] == 0) {
+                continue;
+            }
+            if (count > 0 && ranges[count - 2] + ranges[count - 1] == fieldOffsets[i]) {
+                ranges[count - 1] += fieldLengths[i];
+            } else {
+                ranges[count++] = fieldOffsets[i];
+                ranges[count++] = fieldLengths[i];
+            }
+        }
+        readRanges = Arrays.copyOf(ranges, count);
+    }
+
     /**
      * Transfer, by bytes, the next record to the writer.
      */
@@ -427,9 +507,19 @@ public class DbaseFileReader implements FileReader {
             final char deleted = (char) buffer.get();
             row.deleted = deleted == '*';
 
-            buffer.limit(buffer.position() + header.getRecordLength() - 1);
-            buffer.get(bytes); // SK: There is a side-effect here!!!
-            buffer.limit(buffer.capacity());
+            if (readRanges == null) {
+                buffer.limit(buffer.position() + header.getRecordLength() - 1);
+                buffer.get(bytes); // SK: There is a side-effect here!!!
+                buffer.limit(buffer.capacity());
+            } else {
+                // copy only the fields that will be read
+                final int start = buffer.position();
+                for (int i = 0; i < readRanges.length; i += 2) {
+                    buffer.position(start + readRanges[i]);
+                    buffer.get(bytes, readRanges[i], readRanges[i + 1]);
+                }
+                buffer.position(start + header.getRecordLength() - 1);
+            }
 
             foundRecord = true;
         }
@@ -454,7 +544,7 @@ public class DbaseFileReader implements FileReader {
         final char type = fieldTypes[fieldNum];
         final int fieldLen = fieldLengths[fieldNum];
         Object object = null;
-        if (fieldLen > 0) {
+        if (fieldLen > 0 && (readFields == null || readFields[fieldNum])) {
             switch (type) {
             // (L)logical (T,t,F,f,Y,y,N,n)
             case 'l':
@@ -485,9 +575,9 @@ public class DbaseFileReader implements FileReader {
                 if (bytes[fieldOffset] != '\0') {
                     // remember we need to skip trailing and leading spaces
                     if(oneBytePerChar) {
-                        object = fastParse(bytes, fieldOffset, fieldLen).trim();
+                        object = fastParseTrimmed(bytes, fieldOffset, fieldLen);
                     } else {
-                        object = new String(bytes, fieldOffset, fieldLen, stringCharset.name()).trim();
+                        object = decodeTrimmed(fieldOffset, fieldLen);
                     }
                 }
                 break;
@@ -498,12 +588,12 @@ public class DbaseFileReader implements FileReader {
                 for (int i = 0; i < 8; i++) {
                     if (bytes[fieldOffset+i] != '0') {
                         try {
-                            String tempString = fastParse(bytes,fieldOffset,4); 
-                            final int tempYear = Integer.parseInt(tempString);
-                            tempString =  fastParse(bytes,fieldOffset + 4,2);
-                            final int tempMonth = Integer.parseInt(tempString) - 1;
-                            tempString = fastParse(bytes,fieldOffset + 6,2); 
-                            final int tempDay = Integer.parseInt(tempString);
+                            final int tempYear = (int) DbaseNumberParser.parseLong(bytes,
+                                    fieldOffset, 4);
+                            final int tempMonth = (int) DbaseNumberParser.parseLong(bytes,
+                                    fieldOffset + 4, 2) - 1;
+                            final int tempDay = (int) DbaseNumberParser.parseLong(bytes,
+                                    fieldOffset + 6, 2);
                             calendar.clear();
                             calendar.set(Calendar.YEAR, tempYear);
                             calendar.set(Calendar.MONTH, tempMonth);
@@ -549,22 +639,20 @@ public class DbaseFileReader implements FileReader {
                 if (bytes[fieldOffset] == '*') {
                     break;
                 } else {
-                    final String string = fastParse(bytes,fieldOffset,fieldLen).trim();
                     Class clazz = header.getFieldClass(fieldNum);
-                    if (clazz == Integer.class) {
-                        try {
-                            object = Integer.parseInt(string);
-                            break;
-                        } catch (NumberFormatException e) {
-                            // try to parse as long... 
-                            clazz = Long.class; 
-                        }
-                    } 
-                    if (clazz == Long.class) {
+                    if (clazz == Integer.class || clazz == Long.class) {
                         try {
-                            object = Long.parseLong(string);
+                            final long value = DbaseNumberParser.parseLong(bytes, fieldOffset,
+                                    fieldLen);
+                            if (clazz == Integer.class && value >= Integer.MIN_VALUE
+                                    && value <= Integer.MAX_VALUE) {
+                                object = Integer.valueOf((int) value);
+                            } else {
+                                // too big for an integer, return a long
+                                object = Long.valueOf(value);
+                            }
                             break;
-                        } catch (final NumberFormatException e2) {
+                        } catch (final NumberFormatException e) {
                             // fall through to the floating point number
                         }
                     }
@@ -576,7 +664,7 @@ public class DbaseFileReader implements FileReader {
             case 'F': 
                 if (bytes[fieldOffset] != '*') {
                     try {
-                        object = Double.parseDouble(fastParse(bytes,fieldOffset,fieldLen));
+                        object = DbaseNumberParser.parseDouble(bytes, fieldOffset, fieldLen);
                     } catch (final NumberFormatException e) {
                         // okay, now whatever we got was truly indigestible.
                         object = null;
@@ -609,6 +697,58 @@ public class DbaseFileReader implements FileReader {
         return new String(chars);
     }
 
+    /**
+     * Same as fastParse(...).trim(), but builds a single string, using a reusable char buffer
+     */
+    String fastParseTrimmed(final byte[] bytes, final int fieldOffset, final int fieldLen) {
+        int start = fieldOffset;
+        int end = fieldOffset + fieldLen;
+        while (start < end && DbaseNumberParser.isBlank(bytes[start])) {
+            start++;
+        }
+        while (end > start && DbaseNumberParser.isBlank(bytes[end - 1])) {
+            end--;
+        }
+        final int length = end - start;
+        for (int i = 0; i < length; i++) {
+            // force the byte to a positive integer interpretation before casting to char
+            chars[i] = ((char) (0x00FF & bytes[start + i]));
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Decodes a string field with the reusable decoder and trims it, building a single string
+     */
+    String decodeTrimmed(final int fieldOffset, final int fieldLen) throws IOException {
+        bytesBuffer.clear();
+        bytesBuffer.position(fieldOffset);
+        bytesBuffer.limit(fieldOffset + fieldLen);
+        charBuffer.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(bytesBuffer, charBuffer, true);
+        if (!result.isError()) {
+            result = decoder.flush(charBuffer);
+        }
+        if (result.isError()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                throw new IOException("Failed to decode string field", e);
+            }
+        }
+        final char[] decoded = charBuffer.array();
+        int start = 0;
+        int end = charBuffer.position();
+        while (start < end && decoded[start] <= ' ') {
+            start++;
+        }
+        while (end > start && decoded[end - 1] <= ' ') {
+            end--;
+        }
+        return new String(decoded, start, end - start);
+    }
+
     public static void main(final String[] args) throws Exception {
         final DbaseFileReader reader = new DbaseFileReader(new ShpFiles(args[0]),
                 false, Charset.forName("ISO-8859-1"), null);
@@ -29,7 +29,6 @@ import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
 import java.text.FieldPosition;
 import java.text.NumberFormat;
-import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
@@ -60,18 +59,10 @@ import org.geotools.resources.NIOUtilities;
  */
 public class DbaseFileWriter {
     private DbaseFileHeader header;
-    private DbaseFileWriter.FieldFormatter formatter;
+    private DbaseRecordEncoder encoder;
     WritableByteChannel channel;
     private ByteBuffer buffer;
-    /**
-     * The null values to use for each column. This will be accessed only when
-     * null values are actually encountered, but it is allocated in the ctor
-     * to save time and memory.
-     */
-    private final byte[][] nullValues;
     private StreamLogging streamLogger = new StreamLogging("Dbase File Writer");
-    private Charset charset;
-    private TimeZone timeZone;
     
     private boolean reportFieldSizeErrors = Boolean.getBoolean("org.geotools.shapefile.reportFieldSizeErrors");
 
@@ -125,50 +116,8 @@ public class DbaseFileWriter {
         header.writeHeader(out);
         this.header = header;
         this.channel = out;
-        this.charset = charset == null ? Charset.defaultCharset() : charset;
-        this.timeZone = timeZone == null ? TimeZone.getDefault() : timeZone;
-        this.formatter = new DbaseFileWriter.FieldFormatter(this.charset, this.timeZone, ! reportFieldSizeErrors);
+        this.encoder = new DbaseRecordEncoder(header, charset, timeZone);
         streamLogger.open();
-
-        // As the 'shapelib' osgeo project does, we use specific values for
-        // null cells. We can set up these values for each column once, in
-        // the constructor, to save time and memory.
-        nullValues = new byte[header.getNumFields()][];
-        for (int i = 0; i < nullValues.length; i++) {
-            char nullChar;
-            switch (header.getFieldType(i)) {
-            case 'C':
-            case 'c':
-            case 'M':
-            case 'G':
-                nullChar = '\0';
-                break;
-            case 'L':
-            case 'l':
-                nullChar = '?';
-                break;
-            case 'N':
-            case 'n':
-            case 'F':
-            case 'f':
-                nullChar = '*';
-                break;
-            case 'D':
-            case 'd':
-                nullChar = '0';
-                break;
-            case '@':
-                // becomes day 0 time 0.
-                nullChar = '\0';
-                break;
-            default:
-                // catches at least 'D', and 'd'
-                nullChar = '0';
-                break;
-            }
-            nullValues[i] = new byte[header.getFieldLength(i)];
-            Arrays.fill(nullValues[i], (byte)nullChar);
-        }
         buffer = NIOUtilities.allocate(header.getRecordLength());
     }
 
@@ -191,114 +140,22 @@ public class DbaseFileWriter {
      *                 If the entry doesn't comply to the header.
      */
     public void write(Object[] record) throws IOException, DbaseFileException {
-        if (record.length != header.getNumFields()) {
-            throw new DbaseFileException("Wrong number of fields "
-                    + record.length + " expected " + header.getNumFields());
-        }
-
         buffer.position(0);
-
-        // put the 'not-deleted' marker
-        buffer.put((byte) ' ');
-
-        byte[] bytes;
-        for (int i = 0; i < header.getNumFields(); i++) {
-            // convert this column to bytes
-            if (record[i] == null) {
-                bytes = nullValues[i];
-            } else {
-                bytes = fieldBytes(record[i], i);
-                // if the returned array is not the proper length
-                // write a null instead; this will only happen
-                // when the formatter handles a value improperly.
-                if (bytes.length != nullValues[i].length) {
-                    bytes = nullValues[i];
-                }
-            }
-            buffer.put(bytes);
-        }
-
+        encoder.encode(record, buffer);
         write();
     }
 
-    
     /**
-     * Called to convert the given object to bytes.
+     * Writes a block of records already encoded with a {@link DbaseRecordEncoder} using the same
+     * header, from the buffer position to its limit, in a single pass.
      * 
-     * @param obj
-     *            The value to convert; never null.
-     * @param col
-     *            The column this object will be encoded into.
-     * @return The bytes of a string representation of the given object in the
-     *         current character encoding.
-     * @throws UnsupportedEncodingException Thrown if the current charset is unsupported. 
+     * @param records The encoded records
+     * @throws IOException If IO error occurs.
      */
-    private byte[] fieldBytes(Object obj, final int col)
-            throws UnsupportedEncodingException {
-        String o;
-        final int fieldLen = header.getFieldLength(col);
-        switch (header.getFieldType(col)) {
-        case 'C':
-        case 'c':
-            o = formatter.getFieldString(fieldLen, obj.toString());
-            break;
-        case 'L':
-        case 'l':
-            if (obj instanceof Boolean) {
-                o = ((Boolean)obj).booleanValue() ? "T" : "F";
-            } else {
-                o = "?";
-            }
-            break;
-        case 'M':
-        case 'G':
-            o = formatter.getFieldString(fieldLen, obj.toString());
-            break;
-        case 'N':
-        case 'n':
-            // int?
-            if (header.getFieldDecimalCount(col) == 0) {
-                o = formatter.getFieldString(fieldLen, 0, (Number)obj);
-                break;
-            }
-        case 'F':
-        case 'f':
-            o = formatter.getFieldString(fieldLen,
-                    header.getFieldDecimalCount(col),
-                    (Number)obj);
-            break;
-        case 'D':
-        case 'd':
-            if (obj instanceof java.util.Calendar) {
-                o = formatter.getFieldString(((Calendar) obj).getTime());
-
-            } else {
-                o = formatter.getFieldString((Date) obj);
-            }
-            break;
-        case '@':
-            o = formatter.getFieldStringDateTime((Date)obj);
-            if (Boolean.getBoolean("org.geotools.shapefile.datetime")) {
-                // Adding the charset to getBytes causes the output to
-                // get altered for the '@: Timestamp' field.
-                // And using String.getBytes returns a different array
-                // in 64-bit platforms so we get chars and cast to byte
-                // one element at a time.
-                char[] carr = o.toCharArray();
-                byte[] barr = new byte[carr.length];
-                for (int i = 0; i < carr.length; i++) {
-                    barr[i] = (byte)carr[i];
-                }                            
-                return barr;
-            }
-            break;   
-        default:
-            throw new RuntimeException("Unknown type "
-                    + header.getFieldType(col));
+    public void writeRecords(ByteBuffer records) throws IOException {
+        while (records.hasRemaining()) {
+            channel.write(records);
         }
-
-        // convert the string to bytes with the given charset.
-        return o.getBytes(charset.name());
     }
 
     /**
@@ -325,7 +182,7 @@ public class DbaseFileWriter {
         }
         buffer = null;
         channel = null;
-        formatter = null;
+        encoder = null;
     }
 
     /** Utility for formatting Dbase fields. */
@@ -0,0 +1,171 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.dbf;
+
+/**
+ * Parses the numbers stored in DBF records straight from the record bytes, without building
+ * intermediate strings. Leading and trailing blanks are ignored, like {@link String#trim()}
+ * would do.
+ * <p>
+ * The floating point parser handles the plain decimal notation found in DBF files in a fast path
+ * that is exact (the mantissa and the power of ten are both exactly representable as doubles, so
+ * a single division gives the correctly rounded result), and falls back on
+ * {@link Double#parseDouble(String)} for everything else.
+ *
+ * @since 20.0
+ *
+ * @source $URL$
+ */
+final class DbaseNumberParser {
+
+    /**
+     * The powers of ten that are exactly representable as doubles
+     */
+    static final double[] POWERS_OF_TEN = new double[23];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Max number of significant digits that is guaranteed to fit in the 53 bits double mantissa
+     */
+    static final int MAX_EXACT_DIGITS = 15;
+
+    private DbaseNumberParser() {
+    }
+
+    static boolean isBlank(byte b) {
+        return (b & 0xFF) <= ' ';
+    }
+
+    /**
+     * Parses an integral number
+     *
+     * @throws NumberFormatException if the field does not contain an integral number, or the
+     *         number does not fit in a long
+     */
+    static long parseLong(final byte[] bytes, final int offset, final int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && isBlank(bytes[start])) {
+            start++;
+        }
+        while (end > start && isBlank(bytes[end - 1])) {
+            end--;
+        }
+        if (start == end) {
+            throw new NumberFormatException("Empty numeric field");
+        }
+        boolean negative = false;
+        byte first = bytes[start];
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            start++;
+            if (start == end) {
+                throw new NumberFormatException("Invalid integral number");
+            }
+        }
+        // accumulate as a negative number, so that Long.MIN_VALUE can be parsed too
+        final long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        final long multiplyLimit = limit / 10;
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw new NumberFormatException("Invalid integral number");
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException("Integral number out of range");
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses a floating point number
+     *
+     * @throws NumberFormatException if the field does not contain a number
+     */
+    static double parseDouble(final byte[] bytes, final int offset, final int length) {
+        int start = offset;
+        int end = offset + length;
+        while (start < end && isBlank(bytes[start])) {
+            start++;
+        }
+        while (end > start && isBlank(bytes[end - 1])) {
+            end--;
+        }
+        if (start == end) {
+            throw new NumberFormatException("Empty numeric field");
+        }
+        boolean negative = false;
+        int i = start;
+        if (bytes[i] == '-' || bytes[i] == '+') {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            final byte b = bytes[i];
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (mantissa > 0 || b != '0') {
+                    significantDigits++;
+                }
+                if (significantDigits > MAX_EXACT_DIGITS) {
+                    return parseSlow(bytes, start, end);
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                // exponents, NaN, hexadecimal notation and so on, or just garbage
+                return parseSlow(bytes, start, end);
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Invalid number");
+        }
+        double value = mantissa;
+        if (fractionDigits > 0) {
+            if (fractionDigits >= POWERS_OF_TEN.length) {
+                return parseSlow(bytes, start, end);
+            }
+            value = value / POWERS_OF_TEN[fractionDigits];
+        }
+        return negative ? -value : value;
+    }
+
+    static double parseSlow(final byte[] bytes, final int start, final int end) {
+        final char[] chars = new char[end - start];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (0x00FF & bytes[start + i]);
+        }
+        return Double.parseDouble(new String(chars));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.dbf;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Encodes dbase records into their binary form, as described by a {@link DbaseFileHeader}. Used by
+ * {@link DbaseFileWriter}, and on its own to format records in other threads, the result being
+ * written with {@link DbaseFileWriter#writeRecords(ByteBuffer)}.
+ * <p>
+ * Not thread safe, each thread needs its own encoder.
+ *
+ * @since 20.0
+ */
+public class DbaseRecordEncoder {
+
+    private final DbaseFileHeader header;
+
+    private final DbaseFileWriter.FieldFormatter formatter;
+
+    private final Charset charset;
+
+    /**
+     * The null values to use for each column. This will be accessed only when null values are
+     * actually encountered, but it is allocated in the ctor to save time and memory.
+     */
+    private final byte[][] nullValues;
+
+    /**
+     * Creates an encoder for the records described by the header
+     *
+     * @param header The dbase header
+     * @param charset The charset the dbf is encoded in, the platform default if null
+     * @param timeZone The time zone used for dates, the platform default if null
+     */
+    public DbaseRecordEncoder(DbaseFileHeader header, Charset charset, TimeZone timeZone) {
+        this.header = header;
+        this.charset = charset == null ? Charset.defaultCharset() : charset;
+        boolean reportFieldSizeErrors = Boolean
+                .getBoolean("org.geotools.shapefile.reportFieldSizeErrors");
+        this.formatter = new DbaseFileWriter.FieldFormatter(this.charset,
+                timeZone == null ? TimeZone.getDefault() : timeZone, !reportFieldSizeErrors);
+
+        // As the 'shapelib' osgeo project does, we use specific values for
+        // null cells. We can set up these values for each column once, in
+        // the constructor, to save time and memory.
+        nullValues = new byte[header.getNumFields()][];
+        for (int i = 0; i < nullValues.length; i++) {
+            char nullChar;
+            switch (header.getFieldType(i)) {
+            case 'C':
+            case 'c':
+            case 'M':
+            case 'G':
+                nullChar = '\0';
+                break;
+            case 'L':
+            case 'l':
+                nullChar = '?';
+                break;
+            case 'N':
+            case 'n':
+            case 'F':
+            case 'f':
+                nullChar = '*';
+                break;
+            case 'D':
+            case 'd':
+                nullChar = '0';
+                break;
+            case '@':
+                // becomes day 0 time 0.
+                nullChar = '\0';
+                break;
+            default:
+                // catches at least 'D', and 'd'
+                nullChar = '0';
+                break;
+            }
+            nullValues[i] = new byte[header.getFieldLength(i)];
+            Arrays.fill(nullValues[i], (byte) nullChar);
+        }
+    }
+
+    /**
+     * The header describing the records
+     */
+    public DbaseFileHeader getHeader() {
+        return header;
+    }
+
+    /**
+     * Encodes a single record in the buffer, at its current position. The buffer must have at
+     * least {@link DbaseFileHeader#getRecordLength()} bytes remaining.
+     *
+     * @param record The entries to encode
+     * @param buffer The target buffer
+     * @throws UnsupportedEncodingException If the charset is not supported
+     * @throws DbaseFileException If the entry doesn't comply to the header
+     */
+    public void encode(Object[] record, ByteBuffer buffer) throws UnsupportedEncodingException,
+            DbaseFileException {
+        if (record.length != header.getNumFields()) {
+            throw new DbaseFileException("Wrong number of fields " + record.length
+                    + " expected " + header.getNumFields());
+        }
+
+        // put the 'not-deleted' marker
+        buffer.put((byte) ' ');
+
+        byte[] bytes;
+        for (int i = 0; i < header.getNumFields(); i++) {
+            // convert this column to bytes
+            if (record[i] == null) {
+                bytes = nullValues[i];
+            } else {
+                bytes = fieldBytes(record[i], i);
+                // if the returned array is not the proper length
+                // write a null instead; this will only happen
+                // when the formatter handles a value improperly.
+                if (bytes.length != nullValues[i].length) {
+                    bytes = nullValues[i];
+                }
+            }
+            buffer.put(bytes);
+        }
+    }
+
+    /**
+     * Called to convert the given object to bytes.
+     *
+     * @param obj
+     *            The value to convert; never null.
+     * @param col
+     *            The column this object will be encoded into.
+     * @return The bytes of a string representation of the given object in the
+     *         current character encoding.
+     * @throws UnsupportedEncodingException Thrown if the current charset is unsupported.
+     */
+    private byte[] fieldBytes(Object obj, final int col)
+            throws UnsupportedEncodingException {
+        String o;
+        final int fieldLen = header.getFieldLength(col);
+        switch (header.getFieldType(col)) {
+        case 'C':
+        case 'c':
+            o = formatter.getFieldString(fieldLen, obj.toString());
+            break;
+        case 'L':
+        case 'l':
+            if (obj instanceof Boolean) {
+                o = ((Boolean)obj).booleanValue() ? "T" : "F";
+            } else {
+                o = "?";
+            }
+            break;
+        case 'M':
+        case 'G':
+            o = formatter.getFieldString(fieldLen, obj.toString());
+            break;
+        case 'N':
+        case 'n':
+            // int?
+            if (header.getFieldDecimalCount(col) == 0) {
+                o = formatter.getFieldString(fieldLen, 0, (Number)obj);
+                break;
+            }
+        case 'F':
+        case 'f':
+            o = formatter.getFieldString(fieldLen,
+                    header.getFieldDecimalCount(col),
+                    (Number)obj);
+            break;
+        case 'D':
+        case 'd':
+            if (obj instanceof java.util.Calendar) {
+                o = formatter.getFieldString(((Calendar) obj).getTime());
+
+            } else {
+                o = formatter.getFieldString((Date) obj);
+            }
+            break;
+        case '@':
+            o = formatter.getFieldStringDateTime((Date)obj);
+            if (Boolean.getBoolean("org.geotools.shapefile.datetime")) {
+                // Adding the charset to getBytes causes the output to
+                // get altered for the '@: Timestamp' field.
+                // And using String.getBytes returns a different array
+                // in 64-bit platforms so we get chars and cast to byte
+                // one element at a time.
+                char[] carr = o.toCharArray();
+                byte[] barr = new byte[carr.length];
+                for (int i = 0; i < carr.length; i++) {
+                    barr[i] = (byte)carr[i];
+                }
+                return barr;
+            }
+            break;
+        default:
+            throw new RuntimeException("Unknown type "
+                    + header.getFieldType(col));
+        }
+
+        // convert the string to bytes with the given charset.
+        return o.getBytes(charset.name());
+    }
+}
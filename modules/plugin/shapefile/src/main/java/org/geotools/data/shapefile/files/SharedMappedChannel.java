@@ -0,0 +1,211 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.files;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A read only FileChannel backed by a memory mapping shared among all the readers of a file, see
+ * {@link SharedMappings}. Reads copy from the mapping, and {@link #map(MapMode, long, long)}
+ * returns views of it, so no file handle is used. Closing the channel releases the read lock on
+ * the file.
+ *
+ * @since 20.0
+ */
+class SharedMappedChannel extends FileChannel {
+
+    private final MappedByteBuffer mapping;
+
+    private final ShpFiles shapefileFiles;
+
+    private final URL url;
+
+    private final FileReader reader;
+
+    private long position;
+
+    private boolean closed;
+
+    SharedMappedChannel(MappedByteBuffer mapping, ShpFiles shapefileFiles, URL url,
+            FileReader requestor) {
+        this.mapping = mapping;
+        this.shapefileFiles = shapefileFiles;
+        this.url = url;
+        this.reader = requestor;
+    }
+
+    /**
+     * Returns a view of the mapping between start and end, independent of other readers
+     */
+    private ByteBuffer view(long start, long end) {
+        ByteBuffer view = mapping.duplicate();
+        view.limit((int) end);
+        view.position((int) start);
+        return view;
+    }
+
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        ensureOpen();
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        long size = mapping.capacity();
+        if (position >= size) {
+            return -1;
+        }
+        int count = (int) Math.min(dst.remaining(), size - position);
+        dst.put(view(position, position + count));
+        return count;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        int count = read(dst, position);
+        if (count > 0) {
+            position += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+        long total = 0;
+        for (int i = offset; i < offset + length; i++) {
+            if (!dsts[i].hasRemaining()) {
+                continue;
+            }
+            int count = read(dsts[i]);
+            if (count < 0) {
+                return total == 0 ? -1 : total;
+            }
+            total += count;
+        }
+        return total;
+    }
+
+    @Override
+    public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+        ensureOpen();
+        if (mode != MapMode.READ_ONLY) {
+            throw new NonWritableChannelException();
+        }
+        if (position < 0 || size < 0 || position + size > mapping.capacity()) {
+            throw new IOException("Cannot map beyond the end of " + url);
+        }
+        return (MappedByteBuffer) view(position, position + size).slice();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public FileChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("Negative position");
+        }
+        this.position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return mapping.capacity();
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target)
+            throws IOException {
+        ensureOpen();
+        long size = mapping.capacity();
+        if (position >= size) {
+            return 0;
+        }
+        return target.write(view(position, Math.min(size, position + count)));
+    }
+
+    @Override
+    public long transferFrom(ReadableByteChannel src, long position, long count)
+            throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(ByteBuffer src, long position) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public int write(ByteBuffer src) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public FileChannel truncate(long size) throws IOException {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public void force(boolean metaData) throws IOException {
+        // nothing to do, read only
+    }
+
+    @Override
+    public FileLock lock(long position, long size, boolean shared) throws IOException {
+        throw new UnsupportedOperationException(
+                "Shared mappings are protected by the ShpFiles locks");
+    }
+
+    @Override
+    public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+        throw new UnsupportedOperationException(
+                "Shared mappings are protected by the ShpFiles locks");
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+
+    @Override
+    protected void implCloseChannel() throws IOException {
+        if (!closed) {
+            closed = true;
+            shapefileFiles.unlockRead(url, reader);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.files;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.resources.NIOUtilities;
+import org.geotools.util.URLs;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Keeps a single read only memory mapping of each file of a shapefile, shared by all the readers.
+ * Unlike the {@link MemoryMapCache} the mappings are strongly referenced, so they are not dropped
+ * and re-created under memory pressure, and the whole file is mapped at once, so that readers can
+ * be served without opening the file at all. The total size of the mappings is bounded by a
+ * budget, files that do not fit are read the usual way.
+ * <p>
+ * Lookups of files already mapped do not lock. A mapping is released when the file gets locked
+ * for writing, at that point no reader can be using it anymore.
+ *
+ * @since 20.0
+ */
+class SharedMappings {
+
+    static final Logger LOGGER = Logging.getLogger(SharedMappings.class);
+
+    final Map<URL, Mapping> mappings = new ConcurrentHashMap<URL, Mapping>();
+
+    volatile long budget = ShpFiles.DEFAULT_SHARED_MAPPING_BUDGET;
+
+    long used;
+
+    /**
+     * Returns the mapping of the whole file, creating it if needed, or null if the file is
+     * missing, too big to be mapped in a single buffer, or does not fit in the budget
+     */
+    MappedByteBuffer get(URL url) throws IOException {
+        File file = URLs.urlToFile(url);
+        if (file == null) {
+            return null;
+        }
+        Mapping mapping = mappings.get(url);
+        if (mapping != null && mapping.isCurrent(file)) {
+            return mapping.buffer;
+        }
+
+        synchronized (this) {
+            mapping = mappings.get(url);
+            if (mapping != null) {
+                if (mapping.isCurrent(file)) {
+                    return mapping.buffer;
+                }
+                // changed behind our back, the old buffer might still be in use, let the
+                // garbage collector unmap it
+                mappings.remove(url);
+                used -= mapping.buffer.capacity();
+            }
+
+            long length = file.length();
+            if (!file.exists() || length > Integer.MAX_VALUE || used + length > budget) {
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Not sharing a mapping of " + file.getAbsolutePath()
+                            + ", size " + length + ", budget " + budget + ", used " + used);
+                }
+                return null;
+            }
+
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                long lastModified = file.lastModified();
+                // the mapping stays valid after the channel is closed
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                        channel.size());
+                mappings.put(url, new Mapping(buffer, lastModified));
+                used += buffer.capacity();
+                if (LOGGER.isLoggable(Level.FINE)) {
+                    LOGGER.log(Level.FINE, "Mapping and sharing " + file.getAbsolutePath());
+                }
+                return buffer;
+            } finally {
+                raf.close();
+            }
+        }
+    }
+
+    /**
+     * Releases the mapping of the specified file, the caller must make sure no reader is using it
+     */
+    synchronized void clean(URL url) {
+        Mapping mapping = mappings.remove(url);
+        if (mapping != null) {
+            used -= mapping.buffer.capacity();
+            NIOUtilities.clean(mapping.buffer, true);
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Removed shared mapping for " + url);
+            }
+        }
+    }
+
+    /**
+     * Releases all the mappings, the caller must make sure no reader is using them
+     */
+    synchronized void clean() {
+        List<URL> urls = new ArrayList<URL>(mappings.keySet());
+        for (URL url : urls) {
+            clean(url);
+        }
+    }
+
+    /**
+     * The total size of the current mappings, in bytes
+     */
+    synchronized long getUsed() {
+        return used;
+    }
+
+    /**
+     * A mapped file, along with the last modification time of the file when it was mapped
+     */
+    static class Mapping {
+
+        final MappedByteBuffer buffer;
+
+        final long lastModified;
+
+        Mapping(MappedByteBuffer buffer, long lastModified) {
+            this.buffer = buffer;
+            this.lastModified = lastModified;
+        }
+
+        boolean isCurrent(File file) {
+            return file.lastModified() == lastModified && file.length() == buffer.capacity();
+        }
+    }
+}
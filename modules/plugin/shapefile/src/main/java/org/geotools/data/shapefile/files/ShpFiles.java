@@ -77,6 +77,11 @@ public class ShpFiles {
 
     static final Logger LOGGER = Logging.getLogger("org.geotools.data.shapefile");
 
+    /**
+     * The default maximum total size of the shared memory mappings, 256MB
+     */
+    public static final long DEFAULT_SHARED_MAPPING_BUDGET = 256 * 1024 * 1024;
+
     /**
      * The urls for each type of file that is associated with the shapefile. The key is the type of
      * file
@@ -101,6 +106,13 @@ public class ShpFiles {
 
     private boolean memoryMapCacheEnabled;
 
+    /**
+     * The memory mappings shared by all readers, when enabled
+     */
+    private final SharedMappings sharedMappings = new SharedMappings();
+
+    private volatile boolean sharedMappingEnabled;
+
     /**
      * Searches for all the files and adds then to the map of files.
      * 
@@ -232,6 +244,7 @@ public class ShpFiles {
             lockers.clear(); // so as not to get this log again.
         }
         mapCache.clean();
+        sharedMappings.clean();
     }
 
     /**
@@ -488,6 +501,7 @@ public class ShpFiles {
         readWriteLock.writeLock().lock();
         threadLockers.add(new ShpFilesLocker(url, requestor));
         mapCache.cleanFileCache(url);
+        sharedMappings.clean(url);
         return url;
     }
 
@@ -779,6 +793,10 @@ public class ShpFiles {
      * <p>
      * A read lock is obtained when this method is called and released when the channel is closed.
      * </p>
+     * <p>
+     * When shared mapping is enabled the returned channel is served from a memory mapping of the
+     * whole file shared by all readers, without opening the file.
+     * </p>
      * 
      * @param type the type of file to open the channel to.
      * @param requestor the object requesting the channel
@@ -789,7 +807,13 @@ public class ShpFiles {
         URL url = acquireRead(type, requestor);
         ReadableByteChannel channel = null;
         try {
-            if (isLocal()) {
+            MappedByteBuffer mapping = null;
+            if (sharedMappingEnabled && isLocal()) {
+                mapping = sharedMappings.get(url);
+            }
+            if (mapping != null) {
+                channel = new SharedMappedChannel(mapping, this, url, requestor);
+            } else if (isLocal()) {
 
                 File file = URLs.urlToFile(url);
 
@@ -953,6 +977,42 @@ public class ShpFiles {
         }
     }
 
+    /**
+     * Returns true if the files are read from memory mappings shared by all the readers
+     */
+    public boolean isSharedMappingEnabled() {
+        return sharedMappingEnabled;
+    }
+
+    /**
+     * Enables the shared memory mappings. When enabled each file is memory mapped as a whole on
+     * first read, and the mapping is kept until the file gets written or this object disposed,
+     * all the read channels are served from it without opening the file. Files not fitting in the
+     * {@link #getSharedMappingBudget() budget} are read as usual.
+     * 
+     * @param sharedMappingEnabled
+     */
+    public void setSharedMappingEnabled(boolean sharedMappingEnabled) {
+        this.sharedMappingEnabled = sharedMappingEnabled;
+    }
+
+    /**
+     * Returns the maximum total size, in bytes, of the shared memory mappings
+     */
+    public long getSharedMappingBudget() {
+        return sharedMappings.budget;
+    }
+
+    /**
+     * Sets the maximum total size, in bytes, of the shared memory mappings. Lowering it does not
+     * release the mappings already in place.
+     * 
+     * @param sharedMappingBudget
+     */
+    public void setSharedMappingBudget(long sharedMappingBudget) {
+        sharedMappings.budget = sharedMappingBudget;
+    }
+
     /**
      * Returns true if the file exists. Throws an exception if the file is not local.
      * 
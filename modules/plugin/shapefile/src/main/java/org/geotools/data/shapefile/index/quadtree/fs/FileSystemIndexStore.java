@@ -199,8 +199,6 @@ public class FileSystemIndexStore implements IndexStore {
      * @see org.geotools.index.quadtree.IndexStore#load()
      */
     public QuadTree load(IndexFile indexfile, boolean useMemoryMapping) throws StoreException {
-        QuadTree tree = null;
-
         try {
             if (LOGGER.isLoggable(Level.FINEST)) {
                 LOGGER.finest("Opening QuadTree "
@@ -208,8 +206,28 @@ public class FileSystemIndexStore implements IndexStore {
             }
 
             final FileInputStream fis = new FileInputStream(file);
-            final FileChannel channel = fis.getChannel();
+            // closing the channel closes the stream as well
+            return load(fis.getChannel(), indexfile, useMemoryMapping);
+        } catch (IOException e) {
+            throw new StoreException(e);
+        }
+    }
+
+    /**
+     * Loads a quadtree from a channel opened against a '.qix' file, the channel will be closed
+     * along with the quadtree. <b>WARNING:</b> The resulting quadtree will be immutable; if you
+     * perform an insert, an <code>UnsupportedOperationException</code> will be thrown.
+     * 
+     * @param channel The channel, positioned at the beginning of the file
+     * @param indexfile The shx file reader
+     * @param useMemoryMapping Whether to memory map the channel or not
+     * @throws StoreException
+     */
+    public QuadTree load(final FileChannel channel, IndexFile indexfile, boolean useMemoryMapping)
+            throws StoreException {
+        QuadTree tree = null;
 
+        try {
             IndexHeader header = new IndexHeader(channel);
 
             ByteOrder order = byteToOrder(header.getByteOrder());
@@ -232,7 +250,6 @@ public class FileSystemIndexStore implements IndexStore {
                     super.close();
                     try {
                         channel.close();
-                        fis.close();
                     } catch (IOException e) {
                         throw new StoreException(e);
                     }
@@ -243,6 +260,11 @@ public class FileSystemIndexStore implements IndexStore {
 
             LOGGER.finest("QuadTree opened");
         } catch (IOException e) {
+            try {
+                channel.close();
+            } catch (IOException ce) {
+                LOGGER.log(Level.FINE, "Failed to close the quadtree channel", ce);
+            }
             throw new StoreException(e);
         }
 
@@ -0,0 +1,240 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.geotools.data.shapefile.index.DataDefinition;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * A read only, memory mapped, packed R-tree, as written by {@link PackedRTreeBuilder}.
+ * <p>
+ * The file starts with a {@value #HEADER_SIZE} bytes header, followed by the bounding boxes of
+ * all the tree entries (four floats each) and then by two integers per entry. The first
+ * {@link #getNumItems()} entries are the shapefile records, sorted along a Hilbert curve, for
+ * which the two integers are the record number and its offset in the .shp file. The following
+ * entries are the tree nodes, level by level up to the root, which is the last entry, for which
+ * the two integers are the range of their children entries.
+ * <p>
+ * Searches only read the nodes intersecting the search area, and return the matching records in
+ * file order. Searches do not change the state of the tree, so a single instance can be shared
+ * among threads.
+ *
+ * @since 20.0
+ *
+ * @source $URL$
+ */
+public class PackedRTree {
+
+    static final byte[] MAGIC = { 'G', 'T', 'P', 'R', 'T', 'R', 'E', 'E' };
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 64;
+
+    static final int BOX_SIZE = 16;
+
+    static final int REF_SIZE = 8;
+
+    static final DataDefinition DATA_DEFINITION = new DataDefinition("US-ASCII");
+    static {
+        DATA_DEFINITION.addField(Integer.class);
+        DATA_DEFINITION.addField(Long.class);
+    }
+
+    final ByteBuffer buffer;
+
+    final int nodeSize;
+
+    final int numItems;
+
+    final int numEntries;
+
+    final int refsStart;
+
+    final Envelope bounds;
+
+    /**
+     * Memory maps the specified index file
+     */
+    public static PackedRTree open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Packed R-tree file too big to be memory mapped: " + file);
+            }
+            return new PackedRTree(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            // the mapping stays valid after the channel is closed
+            raf.close();
+        }
+    }
+
+    /**
+     * Wraps a buffer containing a packed R-tree
+     */
+    public PackedRTree(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Not a packed R-tree, the file is too short");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Not a packed R-tree, invalid magic number");
+            }
+        }
+        int version = buffer.getInt(8);
+        if (version != VERSION) {
+            throw new IOException("Unsupported packed R-tree version " + version);
+        }
+        this.nodeSize = buffer.getInt(12);
+        this.numItems = buffer.getInt(16);
+        this.numEntries = buffer.getInt(20);
+        this.bounds = new Envelope(buffer.getDouble(24), buffer.getDouble(40),
+                buffer.getDouble(32), buffer.getDouble(48));
+        this.refsStart = HEADER_SIZE + numEntries * BOX_SIZE;
+        if (buffer.capacity() < refsStart + numEntries * REF_SIZE) {
+            throw new IOException("Packed R-tree file is truncated");
+        }
+    }
+
+    /**
+     * The bounds of all the indexed records
+     */
+    public Envelope getBounds() {
+        return new Envelope(bounds);
+    }
+
+    /**
+     * The number of indexed records
+     */
+    public int getNumItems() {
+        return numItems;
+    }
+
+    /**
+     * The maximum number of children of a node
+     */
+    public int getNodeSize() {
+        return nodeSize;
+    }
+
+    /**
+     * Returns the records whose bounding box intersects the specified one, sorted by record
+     * number, that is, in the order they are found in the shapefile. Each {@link Data} contains
+     * the record number (starting from 1) and the offset of the record in the .shp file.
+     */
+    public CloseableIterator<Data> search(Envelope bbox) {
+        final long[] hits = collect(bbox);
+        return new CloseableIterator<Data>() {
+
+            int i = 0;
+
+            @Override
+            public boolean hasNext() {
+                return i < hits.length;
+            }
+
+            @Override
+            public Data next() {
+                if (i >= hits.length) {
+                    throw new NoSuchElementException();
+                }
+                long hit = hits[i++];
+                try {
+                    Data data = new Data(DATA_DEFINITION);
+                    data.addValue((int) (hit >>> 32) + 1);
+                    data.addValue(hit & 0xFFFFFFFFL);
+                    return data;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                i = hits.length;
+            }
+        };
+    }
+
+    /**
+     * Walks the tree collecting the matching records, encoded as record number and offset in
+     * the high and low 32 bits of a long, and sorts them
+     */
+    long[] collect(Envelope bbox) {
+        if (numEntries == 0 || bbox.isNull()) {
+            return new long[0];
+        }
+        final double minX = bbox.getMinX();
+        final double minY = bbox.getMinY();
+        final double maxX = bbox.getMaxX();
+        final double maxY = bbox.getMaxY();
+
+        long[] hits = new long[16];
+        int count = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = numEntries - 1;
+        while (top > 0) {
+            final int entry = stack[--top];
+            final int box = HEADER_SIZE + entry * BOX_SIZE;
+            if (buffer.getFloat(box) > maxX || buffer.getFloat(box + 4) > maxY
+                    || buffer.getFloat(box + 8) < minX || buffer.getFloat(box + 12) < minY) {
+                continue;
+            }
+            final int ref = refsStart + entry * REF_SIZE;
+            final int first = buffer.getInt(ref);
+            final int second = buffer.getInt(ref + 4);
+            if (entry < numItems) {
+                if (count == hits.length) {
+                    hits = Arrays.copyOf(hits, count * 2);
+                }
+                hits[count++] = ((long) first << 32) | (second & 0xFFFFFFFFL);
+            } else {
+                final int children = second - first;
+                if (top + children > stack.length) {
+                    stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + children));
+                }
+                // push in reverse, so that the children are visited in order
+                for (int c = second - 1; c >= first; c--) {
+                    stack[top++] = c;
+                }
+            }
+        }
+        hits = Arrays.copyOf(hits, count);
+        Arrays.sort(hits);
+        return hits;
+    }
+}
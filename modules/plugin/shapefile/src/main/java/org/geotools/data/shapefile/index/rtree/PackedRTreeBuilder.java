@@ -0,0 +1,297 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import static org.geotools.data.shapefile.index.rtree.PackedRTree.BOX_SIZE;
+import static org.geotools.data.shapefile.index.rtree.PackedRTree.HEADER_SIZE;
+import static org.geotools.data.shapefile.index.rtree.PackedRTree.REF_SIZE;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Builds a {@link PackedRTree} file: the records are sorted by the Hilbert code of the center of
+ * their bounding box, then grouped {@code nodeSize} at a time in nodes, and so on up to the root,
+ * giving a balanced tree whose nodes are close to full and cover compact areas.
+ *
+ * @since 20.0
+ *
+ * @source $URL$
+ */
+public class PackedRTreeBuilder {
+
+    /**
+     * The default maximum number of children of a node
+     */
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    static final int HILBERT_MAX = (1 << 16) - 1;
+
+    final int nodeSize;
+
+    float[] boxes;
+
+    int[] records;
+
+    int[] offsets;
+
+    int count;
+
+    final Envelope bounds = new Envelope();
+
+    public PackedRTreeBuilder(int expectedItems, int nodeSize) {
+        if (nodeSize < 2) {
+            throw new IllegalArgumentException("Node size must be at least 2, was " + nodeSize);
+        }
+        this.nodeSize = nodeSize;
+        int capacity = Math.max(expectedItems, 16);
+        this.boxes = new float[capacity * 4];
+        this.records = new int[capacity];
+        this.offsets = new int[capacity];
+    }
+
+    /**
+     * Adds a shapefile record to the index
+     *
+     * @param record The record number, starting from 0
+     * @param offset The record offset in the .shp file, in bytes
+     */
+    public void add(int record, int offset, double minX, double minY, double maxX, double maxY) {
+        if (count == records.length) {
+            int capacity = count * 2;
+            boxes = Arrays.copyOf(boxes, capacity * 4);
+            records = Arrays.copyOf(records, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+        }
+        boxes[count * 4] = down(minX);
+        boxes[count * 4 + 1] = down(minY);
+        boxes[count * 4 + 2] = up(maxX);
+        boxes[count * 4 + 3] = up(maxY);
+        records[count] = record;
+        offsets[count] = offset;
+        count++;
+        bounds.expandToInclude(minX, minY);
+        bounds.expandToInclude(maxX, maxY);
+    }
+
+    /**
+     * The number of records added so far
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Sorts the records, builds the tree and writes it to the specified file
+     */
+    public void write(File file) throws IOException {
+        final long[] order = sortByHilbertCode();
+
+        // compute the levels extent, from the leaves up to the root
+        int numEntries = count;
+        int levelSize = count;
+        while (levelSize > 1) {
+            levelSize = (levelSize + nodeSize - 1) / nodeSize;
+            numEntries += levelSize;
+        }
+        final float[] entryBoxes = new float[numEntries * 4];
+        final int[] refs = new int[numEntries * 2];
+        for (int i = 0; i < count; i++) {
+            int item = (int) order[i];
+            System.arraycopy(boxes, item * 4, entryBoxes, i * 4, 4);
+            refs[i * 2] = records[item];
+            refs[i * 2 + 1] = offsets[item];
+        }
+        int levelStart = 0;
+        int levelEnd = count;
+        int pos = count;
+        while (levelEnd - levelStart > 1) {
+            for (int first = levelStart; first < levelEnd; first += nodeSize) {
+                int end = Math.min(first + nodeSize, levelEnd);
+                float minX = Float.POSITIVE_INFINITY;
+                float minY = Float.POSITIVE_INFINITY;
+                float maxX = Float.NEGATIVE_INFINITY;
+                float maxY = Float.NEGATIVE_INFINITY;
+                for (int c = first; c < end; c++) {
+                    minX = Math.min(minX, entryBoxes[c * 4]);
+                    minY = Math.min(minY, entryBoxes[c * 4 + 1]);
+                    maxX = Math.max(maxX, entryBoxes[c * 4 + 2]);
+                    maxY = Math.max(maxY, entryBoxes[c * 4 + 3]);
+                }
+                entryBoxes[pos * 4] = minX;
+                entryBoxes[pos * 4 + 1] = minY;
+                entryBoxes[pos * 4 + 2] = maxX;
+                entryBoxes[pos * 4 + 3] = maxY;
+                refs[pos * 2] = first;
+                refs[pos * 2 + 1] = end;
+                pos++;
+            }
+            levelStart = levelEnd;
+            levelEnd = pos;
+        }
+
+        writeFile(file, numEntries, entryBoxes, refs);
+    }
+
+    void writeFile(File file, int numEntries, float[] entryBoxes, int[] refs) throws IOException {
+        FileOutputStream fos = new FileOutputStream(file);
+        try {
+            FileChannel channel = fos.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.put(PackedRTree.MAGIC);
+            buffer.putInt(PackedRTree.VERSION);
+            buffer.putInt(nodeSize);
+            buffer.putInt(count);
+            buffer.putInt(numEntries);
+            buffer.putDouble(bounds.getMinX());
+            buffer.putDouble(bounds.getMinY());
+            buffer.putDouble(bounds.getMaxX());
+            buffer.putDouble(bounds.getMaxY());
+            while (buffer.position() < HEADER_SIZE) {
+                buffer.put((byte) 0);
+            }
+            for (int i = 0; i < entryBoxes.length; i++) {
+                if (buffer.remaining() < BOX_SIZE) {
+                    flush(buffer, channel);
+                }
+                buffer.putFloat(entryBoxes[i]);
+            }
+            for (int i = 0; i < refs.length; i++) {
+                if (buffer.remaining() < REF_SIZE) {
+                    flush(buffer, channel);
+                }
+                buffer.putInt(refs[i]);
+            }
+            flush(buffer, channel);
+        } finally {
+            fos.close();
+        }
+    }
+
+    static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Returns the item indexes sorted by Hilbert code, in the low 32 bits of each element
+     */
+    long[] sortByHilbertCode() {
+        final long[] order = new long[count];
+        final double width = bounds.getWidth();
+        final double height = bounds.getHeight();
+        for (int i = 0; i < count; i++) {
+            double cx = (boxes[i * 4] + (double) boxes[i * 4 + 2]) / 2;
+            double cy = (boxes[i * 4 + 1] + (double) boxes[i * 4 + 3]) / 2;
+            int x = width > 0 ? scale(cx - bounds.getMinX(), width) : 0;
+            int y = height > 0 ? scale(cy - bounds.getMinY(), height) : 0;
+            // drop the lowest bit of the code, so that the sorting key stays positive
+            order[i] = ((long) (hilbert(x, y) >>> 1) << 32) | i;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    static int scale(double value, double span) {
+        int scaled = (int) Math.floor(HILBERT_MAX * value / span);
+        return Math.max(0, Math.min(HILBERT_MAX, scaled));
+    }
+
+    /**
+     * Computes the position of a point along a Hilbert curve covering a 2^16 x 2^16 grid, using
+     * a branch free, bit twiddling algorithm (the one used by the flatbush JavaScript library).
+     * The result is an unsigned 32 bits integer.
+     */
+    static int hilbert(int x, int y) {
+        int a = x ^ y;
+        int b = 0xFFFF ^ a;
+        int c = 0xFFFF ^ (x | y);
+        int d = x & (y ^ 0xFFFF);
+
+        int A = a | (b >> 1);
+        int B = (a >> 1) ^ a;
+        int C = ((c >> 1) ^ (b & (d >> 1))) ^ c;
+        int D = ((a & (c >> 1)) ^ (d >> 1)) ^ d;
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >> 2)) ^ (b & (b >> 2)));
+        B = ((a & (b >> 2)) ^ (b & ((a ^ b) >> 2)));
+        C ^= ((a & (c >> 2)) ^ (b & (d >> 2)));
+        D ^= ((b & (c >> 2)) ^ ((a ^ b) & (d >> 2)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        A = ((a & (a >> 4)) ^ (b & (b >> 4)));
+        B = ((a & (b >> 4)) ^ (b & ((a ^ b) >> 4)));
+        C ^= ((a & (c >> 4)) ^ (b & (d >> 4)));
+        D ^= ((b & (c >> 4)) ^ ((a ^ b) & (d >> 4)));
+
+        a = A;
+        b = B;
+        c = C;
+        d = D;
+        C ^= ((a & (c >> 8)) ^ (b & (d >> 8)));
+        D ^= ((b & (c >> 8)) ^ ((a ^ b) & (d >> 8)));
+
+        a = C ^ (C >> 1);
+        b = D ^ (D >> 1);
+
+        int i0 = x ^ y;
+        int i1 = b | (0xFFFF ^ (i0 | a));
+
+        return (interleave(i1) << 1) | interleave(i0);
+    }
+
+    static int interleave(int v) {
+        v = (v | (v << 8)) & 0x00FF00FF;
+        v = (v | (v << 4)) & 0x0F0F0F0F;
+        v = (v | (v << 2)) & 0x33333333;
+        v = (v | (v << 1)) & 0x55555555;
+        return v;
+    }
+
+    /**
+     * Rounds down to the closest float, so that the float box contains the double one
+     */
+    static float down(double value) {
+        float f = (float) value;
+        return f > value ? Math.nextDown(f) : f;
+    }
+
+    /**
+     * Rounds up to the closest float, so that the float box contains the double one
+     */
+    static float up(double value) {
+        float f = (float) value;
+        return f < value ? Math.nextUp(f) : f;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.shp;
+
+import java.nio.DoubleBuffer;
+
+import org.geotools.geometry.jts.JTS;
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+
+/**
+ * Reads the 2D parts of a shape record into reusable primitive arrays, dropping the points that
+ * are closer than the given spans to the last point kept, the same way the renderer decimator
+ * does. Used by the line and polygon handlers when the reader is given a simplification
+ * distance, so that the points that would end up in the same pixel are never turned into
+ * geometry.
+ * <p>
+ * Not thread safe, each handler has its own instance.
+ *
+ * @since 20.0
+ */
+class CoordinateDecimator {
+
+    final double spanX;
+
+    final double spanY;
+
+    /**
+     * The ordinates of the last part read, as read from the file
+     */
+    double[] raw = new double[64];
+
+    /**
+     * The ordinates of the last part decimated
+     */
+    double[] decimated = new double[64];
+
+    /**
+     * The number of points in the last part read
+     */
+    int rawSize;
+
+    /**
+     * The number of points in the last part decimated
+     */
+    int decimatedSize;
+
+    double minX, minY, maxX, maxY;
+
+    CoordinateDecimator(double spanX, double spanY) {
+        if (!(spanX > 0) || !(spanY > 0)) {
+            throw new IllegalArgumentException("The spans should be positive, but got " + spanX
+                    + " and " + spanY);
+        }
+        this.spanX = spanX;
+        this.spanY = spanY;
+    }
+
+    /**
+     * Reads the next part from the buffer, computing its bounds along the way
+     */
+    void read(DoubleBuffer buffer, int numPoints) {
+        int length = numPoints * 2;
+        if (raw.length < length) {
+            raw = new double[Math.max(length, raw.length * 2)];
+        }
+        buffer.get(raw, 0, length);
+        rawSize = numPoints;
+
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < length; i += 2) {
+            double x = raw[i];
+            double y = raw[i + 1];
+            if (x < minX) {
+                minX = x;
+            }
+            if (x > maxX) {
+                maxX = x;
+            }
+            if (y < minY) {
+                minY = y;
+            }
+            if (y > maxY) {
+                maxY = y;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the bounds of the last part read fit in a single pixel
+     */
+    boolean isBelowSpan() {
+        return (maxX - minX) < spanX && (maxY - minY) < spanY;
+    }
+
+    /**
+     * Returns true if the last part read is a counter clockwise ring, computing its signed area
+     * on the original points, unaffected by decimation
+     */
+    boolean isCCW() {
+        double area = 0;
+        int length = rawSize * 2;
+        for (int i = 0; i < length; i += 2) {
+            int next = (i + 2) % length;
+            area += raw[i] * raw[next + 1] - raw[next] * raw[i + 1];
+        }
+        return area > 0;
+    }
+
+    /**
+     * Decimates the last part read. The first and last points are always kept.
+     *
+     * @param ring If true the result will be closed, adding back the first point if needed
+     */
+    void decimate(boolean ring) {
+        if (rawSize == 0) {
+            decimatedSize = 0;
+            return;
+        }
+        int capacity = (rawSize + 1) * 2;
+        if (decimated.length < capacity) {
+            decimated = new double[Math.max(capacity, decimated.length * 2)];
+        }
+
+        int last = (rawSize - 1) * 2;
+        decimated[0] = raw[0];
+        decimated[1] = raw[1];
+        int size = 1;
+        double lastX = raw[0];
+        double lastY = raw[1];
+        for (int i = 2; i < last; i += 2) {
+            double x = raw[i];
+            double y = raw[i + 1];
+            if (Math.abs(x - lastX) > spanX || Math.abs(y - lastY) > spanY) {
+                decimated[size * 2] = x;
+                decimated[size * 2 + 1] = y;
+                size++;
+                lastX = x;
+                lastY = y;
+            }
+        }
+        if (last > 0) {
+            decimated[size * 2] = raw[last];
+            decimated[size * 2 + 1] = raw[last + 1];
+            size++;
+        }
+        if (ring && (decimated[0] != decimated[size * 2 - 2]
+                || decimated[1] != decimated[size * 2 - 1])) {
+            decimated[size * 2] = decimated[0];
+            decimated[size * 2 + 1] = decimated[1];
+            size++;
+        }
+        decimatedSize = size;
+    }
+
+    /**
+     * Builds a coordinate sequence out of the last part decimated, or out of the last part read
+     * if the decimation left it with less than <code>minPoints</code> points. Rings are closed
+     * and padded with their first point, lines with their last one, to reach the minimum size.
+     */
+    CoordinateSequence toSequence(CoordinateSequenceFactory csf, int minPoints, boolean ring) {
+        double[] source;
+        int size;
+        boolean close = false;
+        if (decimatedSize >= minPoints) {
+            source = decimated;
+            size = decimatedSize;
+        } else {
+            source = raw;
+            size = rawSize;
+            close = ring && (raw[0] != raw[size * 2 - 2] || raw[1] != raw[size * 2 - 1]);
+        }
+        int total = Math.max(size + (close ? 1 : 0), minPoints);
+
+        if (csf instanceof LiteCoordinateSequenceFactory) {
+            double[] ordinates = new double[total * 2];
+            System.arraycopy(source, 0, ordinates, 0, size * 2);
+            for (int i = size; i < total; i++) {
+                int from = ring ? 0 : (size - 1);
+                ordinates[i * 2] = source[from * 2];
+                ordinates[i * 2 + 1] = source[from * 2 + 1];
+            }
+            return new LiteCoordinateSequence(ordinates, 2);
+        } else {
+            CoordinateSequence cs = JTS.createCS(csf, total, 2);
+            for (int i = 0; i < total; i++) {
+                int from = i < size ? i : (ring ? 0 : (size - 1));
+                cs.setOrdinate(i, 0, source[from * 2]);
+                cs.setOrdinate(i, 1, source[from * 2 + 1]);
+            }
+            return cs;
+        }
+    }
+}
@@ -18,6 +18,8 @@ package org.geotools.data.shapefile.shp;
 
 import java.nio.ByteBuffer;
 import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.geotools.geometry.jts.JTS;
 
@@ -49,6 +51,8 @@ public class MultiLineHandler implements ShapeHandler {
 
     double[] z;
 
+    CoordinateDecimator decimator;
+
     /** Create a MultiLineHandler for ShapeType.ARC */
     public MultiLineHandler(GeometryFactory gf) {
         shapeType = ShapeType.ARC;
@@ -75,6 +79,17 @@ public class MultiLineHandler implements ShapeHandler {
         this.geometryFactory = gf;
     }
     
+    /**
+     * Sets the simplification distance. When positive, 2D geometries are decimated while being
+     * read, dropping the points closer than the distance to the previous one, as well as whole
+     * parts smaller than the distance
+     * 
+     * @param distance The simplification distance, zero or negative to disable decimation
+     */
+    public void setSimplificationDistance(double distance) {
+        this.decimator = distance > 0 ? new CoordinateDecimator(distance, distance) : null;
+    }
+
     /**
      * Get the type of shape stored
      * (ShapeType.ARC,ShapeType.ARCM,ShapeType.ARCZ)
@@ -131,6 +146,9 @@ public class MultiLineHandler implements ShapeHandler {
         for (int i = 0; i < numParts; i++) {
             partOffsets[i] = buffer.getInt();
         }
+        if (decimator != null && dimensions == 2) {
+            return readDecimated(buffer, numParts, numPoints, partOffsets);
+        }
         // read the first two coordinates and start building the coordinate
         // sequences
         CoordinateSequence[] lines = new CoordinateSequence[numParts];
@@ -214,6 +232,42 @@ public class MultiLineHandler implements ShapeHandler {
         return geometryFactory.createMultiLineString(lineStrings);
     }
 
+    /**
+     * Reads a 2D record decimating its coordinates, and skipping the parts smaller than the
+     * simplification distance, unless all of them are
+     */
+    private Object readDecimated(ByteBuffer buffer, int numParts, int numPoints,
+            int[] partOffsets) {
+        final DoubleBuffer doubleBuffer = buffer.asDoubleBuffer();
+        final CoordinateSequenceFactory csf = geometryFactory.getCoordinateSequenceFactory();
+        List<LineString> lines = new ArrayList<LineString>(numParts);
+        CoordinateSequence smallest = null;
+        for (int part = 0; part < numParts; part++) {
+            int start = partOffsets[part];
+            int finish = part == (numParts - 1) ? numPoints : partOffsets[part + 1];
+            int length = finish - start;
+            if (length <= 0) {
+                continue;
+            }
+            decimator.read(doubleBuffer, length);
+            if (decimator.isBelowSpan()) {
+                // the whole part fits in a pixel, keep it only if nothing else is left
+                if (smallest == null) {
+                    decimator.decimate(false);
+                    smallest = decimator.toSequence(csf, 2, false);
+                }
+            } else {
+                decimator.decimate(false);
+                lines.add(geometryFactory.createLineString(decimator.toSequence(csf, 2, false)));
+            }
+        }
+        if (lines.isEmpty() && smallest != null) {
+            lines.add(geometryFactory.createLineString(smallest));
+        }
+
+        return geometryFactory.createMultiLineString(lines.toArray(new LineString[lines.size()]));
+    }
+
     public void write(ByteBuffer buffer, Object geometry) {
         MultiLineString multi = (MultiLineString) geometry;
 
@@ -30,6 +30,7 @@ import com.vividsolutions.jts.algorithm.CGAlgorithms;
 import com.vividsolutions.jts.algorithm.RobustDeterminant;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -54,6 +55,8 @@ public class PolygonHandler implements ShapeHandler {
 
     final ShapeType shapeType;
 
+    CoordinateDecimator decimator;
+
     public PolygonHandler(GeometryFactory gf) {
         shapeType = ShapeType.POLYGON;
         this.geometryFactory = gf;
@@ -89,6 +92,17 @@ public class PolygonHandler implements ShapeHandler {
         return false;
     }
 
+    /**
+     * Sets the simplification distance. When positive, 2D geometries are decimated while being
+     * read, dropping the points closer than the distance to the previous one, as well as whole
+     * rings smaller than the distance
+     * 
+     * @param distance The simplification distance, zero or negative to disable decimation
+     */
+    public void setSimplificationDistance(double distance) {
+        this.decimator = distance > 0 ? new CoordinateDecimator(distance, distance) : null;
+    }
+
     public ShapeType getShapeType() {
         return shapeType;
     }
@@ -149,6 +163,10 @@ public class PolygonHandler implements ShapeHandler {
 
         ArrayList shells = new ArrayList();
         ArrayList holes = new ArrayList();
+        if (decimator != null && dimensions == 2) {
+            readDecimatedRings(buffer, numParts, numPoints, partOffsets, shells, holes);
+            return buildPolygons(shells, holes);
+        }
         CoordinateSequence coords = readCoordinates(buffer, numPoints, dimensions);
 
         int offset = 0;
@@ -212,6 +230,13 @@ public class PolygonHandler implements ShapeHandler {
             }
         }
 
+        return buildPolygons(shells, holes);
+    }
+
+    /**
+     * Assembles the shells and holes read from a record into a multipolygon
+     */
+    private Geometry buildPolygons(ArrayList shells, ArrayList holes) {
         // quick optimization: if there's only one shell no need to check
         // for holes inclusion
         if (shells.size() == 1) {
@@ -232,6 +257,51 @@ public class PolygonHandler implements ShapeHandler {
         }
     }
 
+    /**
+     * Reads the rings of a 2D record decimating their coordinates, and skipping the ones smaller
+     * than the simplification distance, unless all of them are
+     */
+    private void readDecimatedRings(final ByteBuffer buffer, final int numParts,
+            final int numPoints, final int[] partOffsets, final List shells, final List holes) {
+        final DoubleBuffer dbuffer = buffer.asDoubleBuffer();
+        final CoordinateSequenceFactory csf = geometryFactory.getCoordinateSequenceFactory();
+        LinearRing smallest = null;
+        boolean smallestCCW = false;
+        for (int part = 0; part < numParts; part++) {
+            int start = partOffsets[part];
+            int finish = part == (numParts - 1) ? numPoints : partOffsets[part + 1];
+            int length = finish - start;
+            if (length <= 0) {
+                continue;
+            }
+            decimator.read(dbuffer, length);
+            if (decimator.isBelowSpan()) {
+                // the whole ring fits in a pixel, keep it only if nothing else is left
+                if (smallest == null) {
+                    decimator.decimate(true);
+                    smallest = geometryFactory.createLinearRing(decimator.toSequence(csf, 4,
+                            true));
+                    smallestCCW = decimator.isCCW();
+                }
+                continue;
+            }
+            decimator.decimate(true);
+            LinearRing ring = geometryFactory.createLinearRing(decimator.toSequence(csf, 4, true));
+            if (decimator.isCCW()) {
+                holes.add(ring);
+            } else {
+                shells.add(ring);
+            }
+        }
+        if (shells.isEmpty() && holes.isEmpty() && smallest != null) {
+            if (smallestCCW) {
+                holes.add(smallest);
+            } else {
+                shells.add(smallest);
+            }
+        }
+    }
+
     /**
      * @param buffer
      * @param numPoints
@@ -213,6 +213,8 @@ public class ShapefileReader implements FileReader {
     private GeometryFactory geometryFactory;
 
     private boolean flatGeometry;
+
+    private double simplificationDistance;
     
     /**
      * Creates a new instance of ShapeFile.
@@ -764,10 +766,14 @@ public class ShapefileReader implements FileReader {
 
     /**
      * @param handler
-     *                The handler to set.
+     *                The handler to set, decimating with the simplification distance of this
+     *                reader, if any.
      */
     public void setHandler(ShapeHandler handler) {
         this.handler = handler;
+        if (simplificationDistance > 0) {
+            setSimplificationDistance(simplificationDistance);
+        }
     }
 
     public String id() {
@@ -777,4 +783,20 @@ public class ShapefileReader implements FileReader {
     public void setFlatGeometry(boolean flatGeometry) {
         this.flatGeometry = flatGeometry;        
     }
+
+    /**
+     * Sets the simplification distance. When positive, and the geometries are read as 2D, lines
+     * and polygons get decimated while being read, skipping the points and the parts that would
+     * end up in the same pixel, without ever building the full resolution geometry
+     * 
+     * @param distance The simplification distance, zero or negative to disable decimation
+     */
+    public void setSimplificationDistance(double distance) {
+        this.simplificationDistance = distance;
+        if (handler instanceof MultiLineHandler) {
+            ((MultiLineHandler) handler).setSimplificationDistance(distance);
+        } else if (handler instanceof PolygonHandler) {
+            ((PolygonHandler) handler).setSimplificationDistance(distance);
+        }
+    }
 }
@@ -225,6 +225,33 @@ public class ShapefileWriter {
         assert (shapeBuffer.position() == 0);
     }
 
+    /**
+     * Writes a block of records already encoded, record headers included, from the buffer
+     * position to its limit, and their entries in the index. The record numbers in the headers
+     * must follow the ones already written.
+     *
+     * @param records The encoded records
+     * @param lengths The content length of each record, in 16 bit words, as stored in the
+     *        record header
+     * @param count The number of records in the block
+     */
+    public void writeRecords(ByteBuffer records, int[] lengths, int count) throws IOException {
+        if (shapeBuffer == null)
+            throw new IOException("Must write headers first");
+        ByteBuffer index = ByteBuffer.allocate(count * 8);
+        for (int i = 0; i < count; i++) {
+            index.putInt(offset);
+            index.putInt(lengths[i]);
+            offset += lengths[i] + 4;
+        }
+        index.flip();
+        while (records.remaining() > 0)
+            shpChannel.write(records);
+        while (index.remaining() > 0)
+            shxChannel.write(index);
+        cnt += count;
+    }
+
 	private int writeNonNullGeometry(Geometry g) {
 		int length = handler.getLength(g);
 
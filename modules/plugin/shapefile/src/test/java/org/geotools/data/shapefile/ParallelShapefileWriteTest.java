@@ -0,0 +1,141 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.DefaultFeatureCollection;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+public class ParallelShapefileWriteTest extends TestCaseSupport {
+
+    static final int COUNT = 3000;
+
+    DefaultFeatureCollection createFeatures(SimpleFeatureType type) {
+        GeometryFactory gf = new GeometryFactory();
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(type);
+        DefaultFeatureCollection features = new DefaultFeatureCollection();
+        for (int i = 0; i < COUNT; i++) {
+            // every now and then a null geometry
+            if (i % 100 != 7) {
+                fb.add(gf.createPoint(new Coordinate(i % 50, i / 50)));
+            } else {
+                fb.add(null);
+            }
+            fb.add(i);
+            fb.add("name " + i);
+            fb.add(i / 10d);
+            features.add(fb.buildFeature(null));
+        }
+        return features;
+    }
+
+    ShapefileDataStore write(File file, int threads, boolean packedIndex) throws Exception {
+        SimpleFeatureType type = DataUtilities.createType("test",
+                "the_geom:Point,id:Integer,name:String,value:Double");
+        ShapefileDataStore store = new ShapefileDataStore(file.toURI().toURL());
+        store.setWriterThreads(threads);
+        store.setPackedSpatialIndexEnabled(packedIndex);
+        store.createSchema(type);
+        SimpleFeatureStore fs = (SimpleFeatureStore) store.getFeatureSource();
+        fs.addFeatures(createFeatures(fs.getSchema()));
+        return store;
+    }
+
+    @Test
+    public void testSameOutput() throws Exception {
+        File sequentialShp = getTempFile();
+        File parallelShp = getTempFile();
+        ShapefileDataStore sequential = write(sequentialShp, 1, false);
+        ShapefileDataStore parallel = write(parallelShp, 4, false);
+        try {
+            for (String extension : new String[] { ".shp", ".shx", ".dbf" }) {
+                assertArrayEquals(extension,
+                        Files.readAllBytes(sibling(sequentialShp, extension).toPath()),
+                        Files.readAllBytes(sibling(parallelShp, extension).toPath()));
+            }
+            assertEquals(COUNT, parallel.getFeatureSource().getCount(Query.ALL));
+        } finally {
+            sequential.dispose();
+            parallel.dispose();
+        }
+    }
+
+    @Test
+    public void testSpatialIndexBuiltOnClose() throws Exception {
+        File shp = getTempFile();
+        ShapefileDataStore store = write(shp, 4, false);
+        try {
+            assertTrue(sibling(shp, ".qix").exists());
+            assertFalse(sibling(shp, ".prx").exists());
+            assertBoxQueries(store, shp);
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    public void testPackedSpatialIndexBuiltOnClose() throws Exception {
+        File shp = getTempFile();
+        ShapefileDataStore store = write(shp, 4, true);
+        try {
+            assertTrue(sibling(shp, ".prx").exists());
+            assertFalse(sibling(shp, ".qix").exists());
+            assertBoxQueries(store, shp);
+        } finally {
+            store.dispose();
+        }
+    }
+
+    void assertBoxQueries(ShapefileDataStore store, File shp) throws Exception {
+        ShapefileDataStore unindexed = new ShapefileDataStore(shp.toURI().toURL());
+        unindexed.setIndexed(false);
+        try {
+            FilterFactory2 ff = CommonFactoryFinder.getFilterFactory2();
+            Filter[] filters = new Filter[] { ff.bbox("", 0, 0, 10, 10, null),
+                    ff.bbox("", 20.5, 30.5, 40.5, 50.5, null), ff.bbox("", 3, 7, 3, 7, null) };
+            for (Filter filter : filters) {
+                int expected = count(unindexed, filter);
+                assertTrue(expected > 0);
+                assertEquals(expected, count(store, filter));
+            }
+        } finally {
+            unindexed.dispose();
+        }
+    }
+
+    int count(ShapefileDataStore store, Filter filter) throws Exception {
+        return DataUtilities.collection(store.getFeatureSource().getFeatures(filter)).size();
+    }
+}
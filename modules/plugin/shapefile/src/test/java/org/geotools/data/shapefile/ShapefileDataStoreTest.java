@@ -452,6 +452,56 @@ public class ShapefileDataStoreTest extends TestCaseSupport {
         ds2.dispose();
     }
     
+    @Test
+    public void testCreateAndReadPRX() throws Exception {
+        File shpFile = copyShapefiles(STATE_POP);
+        URL url = shpFile.toURI().toURL();
+        File file = sibling(shpFile, ".prx");
+        if (file.exists()) {
+            file.delete();
+        }
+        file.deleteOnExit();
+
+        ShapefileDataStore ds = new ShapefileDataStore(url);
+        ds.setPackedSpatialIndexEnabled(true);
+        SimpleFeatureCollection features = ds.getFeatureSource().getFeatures();
+        SimpleFeature smallestFeature = null;
+        double area = Double.MAX_VALUE;
+        SimpleFeatureIterator it = features.features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature f = it.next();
+                double newArea = f.getBounds().getWidth() * f.getBounds().getHeight();
+                if (smallestFeature == null || newArea < area) {
+                    smallestFeature = f;
+                    area = newArea;
+                }
+            }
+        } finally {
+            it.close();
+        }
+
+        ShapefileDataStore ds2 = new ShapefileDataStore(url);
+        ds2.setIndexed(false);
+
+        // reduce the bounds, thus making the store use the spatial index
+        Envelope newBounds = ds.getFeatureSource().getBounds(Query.ALL);
+        double dx = newBounds.getWidth() / 4;
+        double dy = newBounds.getHeight() / 4;
+        newBounds = new Envelope(newBounds.getMinX() + dx, newBounds.getMaxX() - dx,
+                newBounds.getMinY() + dy, newBounds.getMaxY() - dy);
+
+        CoordinateReferenceSystem crs = features.getSchema().getCoordinateReferenceSystem();
+
+        performQueryComparison(ds, ds2, new ReferencedEnvelope(newBounds, crs));
+        performQueryComparison(ds, ds2, new ReferencedEnvelope(smallestFeature.getBounds()));
+
+        assertTrue(file.exists());
+        assertFalse(sibling(shpFile, ".qix").exists());
+        ds.dispose();
+        ds2.dispose();
+    }
+
     @Test
     public void testRemove() throws Exception {
         File shpFile = copyShapefiles(STATE_POP);
@@ -23,6 +23,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.File;
@@ -98,6 +99,17 @@ public class ShapefileDumperTest {
         testBasicPolygonCollection(3, BASIC_POLYGONS);
     }
 
+    @Test
+    public void testBasicPolygonsParallel() throws Exception {
+        SimpleFeatureCollection fc = getFeaturesFromProperties(BASIC_POLYGONS);
+        ShapefileDumper dumper = new ShapefileDumper(dumperFolder);
+        dumper.setWriterThreads(4);
+        dumper.dump(fc);
+
+        testBasicPolygonCollection(3, BASIC_POLYGONS);
+        assertTrue(new File(dumperFolder, BASIC_POLYGONS + ".qix").exists());
+    }
+
     @Test
     public void testLongNames() throws Exception {
         SimpleFeatureCollection fc = getFeaturesFromProperties(LONGNAMES);
@@ -298,6 +310,20 @@ public class ShapefileDumperTest {
     }
 
 
+    @Test
+    public void testSplitOverThreeParallel() throws Exception {
+        SimpleFeatureCollection fc = getFeaturesFromProperties(BASIC_POLYGONS);
+        ShapefileDumper dumper = new ShapefileDumper(dumperFolder);
+        dumper.setWriterThreads(2);
+        // set a size small enough that only a single feature will fit
+        dumper.setMaxDbfSize(500);
+        dumper.dump(fc);
+
+        testBasicPolygonCollection(1, BASIC_POLYGONS);
+        testBasicPolygonCollection(1, BASIC_POLYGONS + "1");
+        testBasicPolygonCollection(1, BASIC_POLYGONS + "2");
+    }
+
     /**
      * Verifies the contents of the CST file are the expected ones
      * 
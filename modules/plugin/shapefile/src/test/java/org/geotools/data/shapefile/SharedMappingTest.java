@@ -0,0 +1,159 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.shapefile.files.FileChannelDecorator;
+import org.geotools.data.shapefile.files.FileReader;
+import org.geotools.data.shapefile.files.ShpFileType;
+import org.geotools.data.simple.SimpleFeatureStore;
+import org.geotools.factory.CommonFactoryFinder;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+
+public class SharedMappingTest extends TestCaseSupport implements FileReader {
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    static final Filter[] FILTERS = new Filter[] { Filter.INCLUDE,
+            FF.bbox("", -100, 30, -90, 40, null), FF.bbox("", -80, 35, -75, 45, null) };
+
+    ShapefileDataStore createStore(File shp, boolean shared) throws Exception {
+        ShapefileDataStore store = new ShapefileDataStore(shp.toURI().toURL());
+        store.setMemoryMapped(true);
+        store.setSharedMappingEnabled(shared);
+        return store;
+    }
+
+    Map<String, List<Object>> read(ShapefileDataStore store, Filter filter) throws Exception {
+        Map<String, List<Object>> result = new HashMap<String, List<Object>>();
+        for (SimpleFeature f : DataUtilities.list(store.getFeatureSource().getFeatures(filter))) {
+            result.put(f.getID(), f.getAttributes());
+        }
+        return result;
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        File shp = copyShapefiles(STATE_POP);
+        final ShapefileDataStore reference = createStore(shp, false);
+        final ShapefileDataStore shared = createStore(shp, true);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Map<String, List<Object>>> expected =
+                    new ArrayList<Map<String, List<Object>>>();
+            for (Filter filter : FILTERS) {
+                Map<String, List<Object>> features = read(reference, filter);
+                assertFalse(features.isEmpty());
+                expected.add(features);
+            }
+
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < 64; i++) {
+                final int idx = i % FILTERS.length;
+                futures.add(executor.submit(new Callable<Void>() {
+
+                    @Override
+                    public Void call() throws Exception {
+                        assertEquals(expected.get(idx), read(shared, FILTERS[idx]));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+            // all readers gave back their locks
+            assertEquals(0, shared.shpFiles.numberOfLocks());
+        } finally {
+            executor.shutdown();
+            reference.dispose();
+            shared.dispose();
+        }
+    }
+
+    @Test
+    public void testReadsServedFromMapping() throws Exception {
+        File shp = copyShapefiles(STATE_POP);
+        ShapefileDataStore store = createStore(shp, true);
+        try {
+            ReadableByteChannel channel = store.shpFiles.getReadChannel(ShpFileType.SHP, this);
+            try {
+                assertTrue(channel instanceof FileChannel);
+                assertFalse(channel instanceof FileChannelDecorator);
+                assertEquals(shp.length(), ((FileChannel) channel).size());
+            } finally {
+                channel.close();
+            }
+
+            // a file not fitting in the budget is read as usual
+            store.setSharedMappingBudget(0);
+            channel = store.shpFiles.getReadChannel(ShpFileType.DBF, this);
+            try {
+                assertTrue(channel instanceof FileChannelDecorator);
+            } finally {
+                channel.close();
+            }
+            assertEquals(0, store.shpFiles.numberOfLocks());
+        } finally {
+            store.dispose();
+        }
+    }
+
+    @Test
+    public void testWriteReleasesMapping() throws Exception {
+        File shp = copyShapefiles(STATE_POP);
+        ShapefileDataStore store = createStore(shp, true);
+        try {
+            int count = store.getFeatureSource().getCount(Query.ALL);
+            Filter filter = FILTERS[1];
+            int removed = read(store, filter).size();
+            assertTrue(removed > 0);
+
+            SimpleFeatureStore fs = (SimpleFeatureStore) store.getFeatureSource();
+            fs.removeFeatures(filter);
+
+            assertEquals(count - removed, read(store, Filter.INCLUDE).size());
+            assertTrue(read(store, filter).isEmpty());
+        } finally {
+            store.dispose();
+        }
+    }
+
+    public String id() {
+        return getClass().getName();
+    }
+}
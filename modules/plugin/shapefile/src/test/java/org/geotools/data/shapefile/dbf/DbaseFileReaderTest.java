@@ -21,7 +21,10 @@ import org.junit.Test;
 import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
@@ -58,4 +61,24 @@ public class DbaseFileReaderTest {
         assertThat(records.get(98289L), nullValue());
         assertThat(records.get(98245L), nullValue()); //this fails with 0.0
     }
+
+    @Test public void testReadFields() throws Exception {
+        InputStream dbf = this.getClass().getResourceAsStream(
+          "/org/geotools/data/shapefile/test-data/dbase-file-reader/nulls.dbf");
+        DbaseFileReader dbfReader = new DbaseFileReader(Channels.newChannel(dbf), false,
+          StandardCharsets.UTF_8);
+        dbfReader.setReadFields(new int[] {1});
+
+        List<Double> values = new ArrayList<>();
+        while (dbfReader.hasNext()) {
+            final Object[] fields = dbfReader.readEntry();
+            // the first field has not been read
+            assertThat(fields[0], nullValue());
+            values.add((Double) fields[1]);
+        }
+        dbfReader.close();
+        dbf.close();
+
+        assertThat(values, is(Arrays.asList(null, null, 0.0, 5.21)));
+    }
 }
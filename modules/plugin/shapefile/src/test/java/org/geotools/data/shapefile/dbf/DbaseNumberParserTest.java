@@ -0,0 +1,98 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.dbf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class DbaseNumberParserTest {
+
+    @Test
+    public void testParseLong() {
+        assertEquals(98245L, parseLong("     98245"));
+        assertEquals(-12L, parseLong(" -12 "));
+        assertEquals(12L, parseLong("+12"));
+        assertEquals(Long.MAX_VALUE, parseLong(String.valueOf(Long.MAX_VALUE)));
+        assertEquals(Long.MIN_VALUE, parseLong(String.valueOf(Long.MIN_VALUE)));
+        assertInvalidLong("");
+        assertInvalidLong("    ");
+        assertInvalidLong("-");
+        assertInvalidLong("1.5");
+        assertInvalidLong("12 3");
+        assertInvalidLong("9223372036854775808");
+    }
+
+    @Test
+    public void testParseDouble() {
+        assertEquals(5.21, parseDouble("5.210000000"), 0);
+        assertEquals(0.0, parseDouble("  0.000000000"), 0);
+        assertEquals(-3.5, parseDouble("-3.5 "), 0);
+        assertEquals(12, parseDouble("12."), 0);
+        assertEquals(0.25, parseDouble(".25"), 0);
+        assertEquals(1.5e10, parseDouble("1.5E10"), 0);
+        assertEquals(Double.doubleToLongBits(-0.0),
+                Double.doubleToLongBits(parseDouble("-0.0")));
+        assertInvalidDouble("");
+        assertInvalidDouble("   ");
+        assertInvalidDouble(".");
+        assertInvalidDouble("1.2.3");
+    }
+
+    @Test
+    public void testParseDoubleMatchesJDK() {
+        Random random = new Random(0);
+        for (int i = 0; i < 10000; i++) {
+            double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(12));
+            String text = String.format(Locale.ROOT, "%24." + random.nextInt(19) + "f", value);
+            assertEquals(text, Double.parseDouble(text.trim()), parseDouble(text), 0);
+        }
+    }
+
+    long parseLong(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        return DbaseNumberParser.parseLong(bytes, 0, bytes.length);
+    }
+
+    double parseDouble(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        return DbaseNumberParser.parseDouble(bytes, 0, bytes.length);
+    }
+
+    void assertInvalidLong(String text) {
+        try {
+            parseLong(text);
+            fail("Should have failed to parse '" + text + "'");
+        } catch (NumberFormatException e) {
+            // fine
+        }
+    }
+
+    void assertInvalidDouble(String text) {
+        try {
+            parseDouble(text);
+            fail("Should have failed to parse '" + text + "'");
+        } catch (NumberFormatException e) {
+            // fine
+        }
+    }
+}
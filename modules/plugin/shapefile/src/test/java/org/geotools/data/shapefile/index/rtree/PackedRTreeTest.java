@@ -0,0 +1,131 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.shapefile.index.rtree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.geotools.data.CloseableIterator;
+import org.geotools.data.shapefile.index.Data;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+public class PackedRTreeTest {
+
+    File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("packed", ".prx");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testSearchMatchesBruteForce() throws Exception {
+        Random random = new Random(42);
+        int count = 1000;
+        Envelope[] envelopes = new Envelope[count];
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(10, 8);
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            envelopes[i] = new Envelope(x, x + random.nextDouble() * 5, y,
+                    y + random.nextDouble() * 5);
+            builder.add(i, 100 + i * 10, envelopes[i].getMinX(), envelopes[i].getMinY(),
+                    envelopes[i].getMaxX(), envelopes[i].getMaxY());
+        }
+        builder.write(file);
+
+        PackedRTree tree = PackedRTree.open(file);
+        assertEquals(count, tree.getNumItems());
+        assertEquals(8, tree.getNodeSize());
+        for (int q = 0; q < 50; q++) {
+            double x = random.nextDouble() * 360 - 180;
+            double y = random.nextDouble() * 180 - 90;
+            Envelope search = new Envelope(x, x + random.nextDouble() * 40, y,
+                    y + random.nextDouble() * 40);
+            List<Integer> expected = new ArrayList<Integer>();
+            for (int i = 0; i < count; i++) {
+                if (envelopes[i].intersects(search)) {
+                    expected.add(i + 1);
+                }
+            }
+            List<Integer> actual = new ArrayList<Integer>();
+            CloseableIterator<Data> it = tree.search(search);
+            try {
+                while (it.hasNext()) {
+                    Data data = it.next();
+                    int recno = (Integer) data.getValue(0);
+                    assertEquals(100L + (recno - 1) * 10, data.getValue(1));
+                    actual.add(recno);
+                }
+            } finally {
+                it.close();
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testSingleAndEmpty() throws Exception {
+        PackedRTreeBuilder builder = new PackedRTreeBuilder(1,
+                PackedRTreeBuilder.DEFAULT_NODE_SIZE);
+        builder.add(0, 100, 10, 10, 10, 10);
+        builder.write(file);
+        PackedRTree tree = PackedRTree.open(file);
+        assertEquals(new Envelope(10, 10, 10, 10), tree.getBounds());
+        assertEquals(1, tree.collect(new Envelope(0, 20, 0, 20)).length);
+        assertEquals(0, tree.collect(new Envelope(11, 20, 11, 20)).length);
+
+        new PackedRTreeBuilder(0, PackedRTreeBuilder.DEFAULT_NODE_SIZE).write(file);
+        tree = PackedRTree.open(file);
+        assertEquals(0, tree.getNumItems());
+        assertFalse(tree.search(new Envelope(0, 20, 0, 20)).hasNext());
+    }
+
+    @Test
+    public void testHilbertCurveIsContinuous() {
+        // consecutive codes on the curve must be neighbouring cells
+        int size = 1 << 16;
+        int[] xs = new int[1 << 8];
+        int[] ys = new int[1 << 8];
+        // check a 16x16 corner, which the curve covers fully before leaving it
+        for (int x = 0; x < 16; x++) {
+            for (int y = 0; y < 16; y++) {
+                int h = PackedRTreeBuilder.hilbert(x, y);
+                xs[h] = x;
+                ys[h] = y;
+            }
+        }
+        for (int h = 1; h < 256; h++) {
+            assertEquals(1, Math.abs(xs[h] - xs[h - 1]) + Math.abs(ys[h] - ys[h - 1]));
+        }
+        assertEquals(size - 1, PackedRTreeBuilder.HILBERT_MAX);
+    }
+}
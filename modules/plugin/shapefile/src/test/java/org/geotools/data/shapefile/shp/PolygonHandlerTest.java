@@ -18,15 +18,24 @@ package org.geotools.data.shapefile.shp;
 
 import static org.junit.Assert.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
 
+import org.geotools.TestData;
 import org.geotools.data.shapefile.TestCaseSupport;
+import org.geotools.data.shapefile.files.ShpFiles;
+import org.geotools.geometry.jts.LiteCoordinateSequence;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
 import org.junit.Test;
 
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Polygon;
 import com.vividsolutions.jts.geom.PrecisionModel;
 
 /**
@@ -86,6 +95,96 @@ public class PolygonHandlerTest extends TestCaseSupport {
 
     }
 
+    @Test
+    public void testDecimatedRead() throws Exception {
+        GeometryFactory gf = new GeometryFactory(new LiteCoordinateSequenceFactory());
+        // a dense clockwise shell, a large hole and one smaller than a pixel
+        Coordinate[] shell = new Coordinate[1001];
+        for (int i = 0; i < 1000; i++) {
+            double angle = -2 * Math.PI * i / 1000;
+            shell[i] = new Coordinate(100 * Math.cos(angle), 100 * Math.sin(angle));
+        }
+        shell[1000] = shell[0];
+        LinearRing[] holes = new LinearRing[] { square(gf, -10, -10, 20),
+                square(gf, 50, 50, 0.5) };
+        Polygon polygon = gf.createPolygon(gf.createLinearRing(shell), holes);
+        MultiPolygon original = gf.createMultiPolygon(new Polygon[] { polygon });
+
+        PolygonHandler handler = new PolygonHandler(gf);
+        ByteBuffer buffer = ByteBuffer.allocate(handler.getLength(original));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        handler.write(buffer, original);
+
+        buffer.flip();
+        handler.setSimplificationDistance(1);
+        MultiPolygon decimated = (MultiPolygon) handler.read(buffer, ShapeType.POLYGON, true);
+        assertEquals(1, decimated.getNumGeometries());
+        Polygon p = (Polygon) decimated.getGeometryN(0);
+        assertTrue(p.getExteriorRing().getCoordinateSequence() instanceof LiteCoordinateSequence);
+        // the tiny hole is gone, the other one is untouched
+        assertEquals(1, p.getNumInteriorRing());
+        assertEquals(5, p.getInteriorRingN(0).getNumPoints());
+        // fewer points, same extent give or take a pixel
+        assertTrue(p.getExteriorRing().getNumPoints() < 600);
+        assertTrue(p.getExteriorRing().isClosed());
+        Envelope expected = original.getEnvelopeInternal();
+        Envelope actual = decimated.getEnvelopeInternal();
+        assertEquals(expected.getMinX(), actual.getMinX(), 1);
+        assertEquals(expected.getMinY(), actual.getMinY(), 1);
+        assertEquals(expected.getMaxX(), actual.getMaxX(), 1);
+        assertEquals(expected.getMaxY(), actual.getMaxY(), 1);
+
+        // without the distance the geometry is read back as is
+        buffer.rewind();
+        handler.setSimplificationDistance(0);
+        assertTrue(original.equalsExact((Geometry) handler.read(buffer, ShapeType.POLYGON,
+                true)));
+    }
+
+    @Test
+    public void testDecimatedReadAllSmall() throws Exception {
+        GeometryFactory gf = new GeometryFactory();
+        // two islands, each smaller than a pixel, but far apart
+        Polygon p1 = gf.createPolygon(square(gf, 0, 0, 0.5).reverse().getCoordinates());
+        Polygon p2 = gf.createPolygon(square(gf, 10, 10, 0.5).reverse().getCoordinates());
+        MultiPolygon original = gf.createMultiPolygon(new Polygon[] { p1, p2 });
+
+        PolygonHandler handler = new PolygonHandler(gf);
+        ByteBuffer buffer = ByteBuffer.allocate(handler.getLength(original));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        handler.write(buffer, original);
+        buffer.flip();
+        handler.setSimplificationDistance(1);
+        MultiPolygon decimated = (MultiPolygon) handler.read(buffer, ShapeType.POLYGON, true);
+        // one is kept, so that the feature does not disappear
+        assertEquals(1, decimated.getNumGeometries());
+        assertTrue(p1.equalsExact(decimated.getGeometryN(0)));
+    }
+
+    @Test
+    public void testDecimationKeptOnNewHandler() throws Exception {
+        GeometryFactory gf = new GeometryFactory();
+        ShapefileReader reader = new ShapefileReader(new ShpFiles(TestData.url(
+                "shapes/statepop.shp")), false, false, gf);
+        try {
+            reader.setSimplificationDistance(1);
+            PolygonHandler handler = new PolygonHandler(gf);
+            reader.setHandler(handler);
+            assertNotNull(handler.decimator);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Builds a counter clockwise square
+     */
+    LinearRing square(GeometryFactory gf, double x, double y, double size) {
+        return gf.createLinearRing(new Coordinate[] { new Coordinate(x, y),
+                new Coordinate(x + size, y), new Coordinate(x + size, y + size),
+                new Coordinate(x, y + size), new Coordinate(x, y) });
+    }
+
     public static Geometry rectangle(PrecisionModel pm, int SRID) {
         Coordinate[] coords = new Coordinate[5];
         for (int i = 0; i < coords.length; i++) {
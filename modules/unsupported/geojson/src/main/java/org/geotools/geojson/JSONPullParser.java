@@ -0,0 +1,575 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geojson;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A streaming JSON tokenizer, the caller pulls one token at a time and reads its value straight
+ * from the parser.
+ * <p>
+ * Unlike the json-simple parser no value is boxed unless asked for, numbers can be read as
+ * primitive doubles or longs, and the memory used only depends on the size of the largest string
+ * or number token, so arbitrarily large documents can be read in constant memory. Field names are
+ * kept in a small cache, as GeoJSON documents repeat the same few keys over and over.
+ * </p>
+ * <p>
+ * The parser is lenient in the same way as the json-simple one, a trailing comma before the end
+ * of an object or array is accepted.
+ * </p>
+ * <pre>
+ * JSONPullParser parser = new JSONPullParser(reader);
+ * JSONPullParser.Token token;
+ * while ((token = parser.next()) != null) {
+ *   ...
+ * }
+ * </pre>
+ *
+ * @since 20.0
+ */
+public class JSONPullParser {
+
+    /**
+     * The JSON tokens
+     */
+    public enum Token {
+        START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY, FIELD_NAME, STRING, NUMBER, TRUE,
+        FALSE, NULL
+    }
+
+    static final int BUFFER_SIZE = 8192;
+
+    static final int NAME_CACHE_SIZE = 256;
+
+    static final int MAX_CACHED_NAME = 32;
+
+    /** Powers of ten that can be represented exactly as doubles */
+    static final double[] POW10 = new double[23];
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    Reader reader;
+
+    char[] buffer = new char[BUFFER_SIZE];
+
+    int position;
+
+    int limit;
+
+    /** Number of characters consumed before the current buffer */
+    long offset;
+
+    /** Text of the current string, field name or number token */
+    char[] text = new char[64];
+
+    int textLength;
+
+    /** Container stack, true for objects, false for arrays */
+    boolean[] containers = new boolean[32];
+
+    int depth;
+
+    /** Whether the last token completed a value, and a separator is expected */
+    boolean afterValue;
+
+    Token token;
+
+    String name;
+
+    String[] names = new String[NAME_CACHE_SIZE];
+
+    boolean integral;
+
+    long longValue;
+
+    double doubleValue;
+
+    public JSONPullParser(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Returns the next token, or null at the end of the input.
+     *
+     * @throws IOException In the event of a read error or if the input is not valid json.
+     */
+    public Token next() throws IOException {
+        int c = skipWhitespace();
+        if (afterValue && depth > 0) {
+            // separator between values, or end of the container
+            if (c == ',') {
+                c = skipWhitespace();
+            } else if (c != '}' && c != ']') {
+                throw error("Expected ',' or end of " + (containers[depth - 1] ? "object" : "array"));
+            }
+        }
+        afterValue = false;
+
+        if (c < 0) {
+            if (depth > 0) {
+                throw error("Unexpected end of input");
+            }
+            return token = null;
+        }
+
+        boolean inObject = depth > 0 && containers[depth - 1];
+        if (inObject && token != Token.FIELD_NAME && c != '}') {
+            // a field name
+            if (c != '"') {
+                throw error("Expected field name");
+            }
+            readString();
+            name = cachedName();
+            if (skipWhitespace() != ':') {
+                throw error("Expected ':' after field name");
+            }
+            return token = Token.FIELD_NAME;
+        }
+
+        switch (c) {
+        case '{':
+            push(true);
+            return token = Token.START_OBJECT;
+        case '[':
+            push(false);
+            return token = Token.START_ARRAY;
+        case '}':
+        case ']':
+            if (depth == 0 || containers[depth - 1] != (c == '}')) {
+                throw error("Unexpected '" + (char) c + "'");
+            }
+            if (token == Token.FIELD_NAME) {
+                throw error("Missing value for field " + name);
+            }
+            depth--;
+            afterValue = true;
+            return token = c == '}' ? Token.END_OBJECT : Token.END_ARRAY;
+        case '"':
+            readString();
+            afterValue = true;
+            return token = Token.STRING;
+        case 't':
+            expect("rue");
+            afterValue = true;
+            return token = Token.TRUE;
+        case 'f':
+            expect("alse");
+            afterValue = true;
+            return token = Token.FALSE;
+        case 'n':
+            expect("ull");
+            afterValue = true;
+            return token = Token.NULL;
+        default:
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                readNumber(c);
+                afterValue = true;
+                return token = Token.NUMBER;
+            }
+            throw error("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    /**
+     * The current token
+     */
+    public Token getToken() {
+        return token;
+    }
+
+    /**
+     * The name of the current field, valid after a {@link Token#FIELD_NAME} token and until
+     * the next one.
+     */
+    public String getFieldName() {
+        return name;
+    }
+
+    /**
+     * The text of the current {@link Token#STRING} or {@link Token#NUMBER} token.
+     */
+    public String getText() {
+        return new String(text, 0, textLength);
+    }
+
+    /**
+     * Returns true if the text of the current token equals the specified string, without
+     * allocating a new string.
+     */
+    public boolean textEquals(String value) {
+        if (value.length() != textLength) {
+            return false;
+        }
+        for (int i = 0; i < textLength; i++) {
+            if (text[i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the current {@link Token#NUMBER} has no fraction nor exponent, and fits in
+     * a long.
+     */
+    public boolean isIntegral() {
+        return integral;
+    }
+
+    /**
+     * The value of the current {@link Token#NUMBER} token as a double.
+     */
+    public double getDouble() {
+        return doubleValue;
+    }
+
+    /**
+     * The value of the current {@link Token#NUMBER} token as a long, only meaningful if
+     * {@link #isIntegral()} returns true.
+     */
+    public long getLong() {
+        return longValue;
+    }
+
+    /**
+     * Returns the value of the current primitive token, using the same types as json-simple:
+     * String, Long, Double, Boolean or null.
+     */
+    public Object getValue() {
+        switch (token) {
+        case STRING:
+            return getText();
+        case NUMBER:
+            return integral ? (Object) Long.valueOf(longValue) : (Object) Double.valueOf(doubleValue);
+        case TRUE:
+            return Boolean.TRUE;
+        case FALSE:
+            return Boolean.FALSE;
+        case NULL:
+            return null;
+        default:
+            throw new IllegalStateException(token + " is not a primitive value");
+        }
+    }
+
+    /**
+     * Returns true if the current token is a string, number, boolean or null
+     */
+    public boolean isPrimitive() {
+        return token != null && token != Token.START_OBJECT && token != Token.START_ARRAY
+                && token != Token.END_OBJECT && token != Token.END_ARRAY
+                && token != Token.FIELD_NAME;
+    }
+
+    /**
+     * Skips the value starting at the current token, including all of its children if it is an
+     * object or array. After the call the current token is the last token of the value.
+     */
+    public void skipValue() throws IOException {
+        if (token == Token.START_OBJECT || token == Token.START_ARRAY) {
+            int target = depth - 1;
+            while (depth > target) {
+                if (next() == null) {
+                    throw error("Unexpected end of input");
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the underlying reader
+     */
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    IOException error(String message) {
+        return new IOException(message + " at character " + (offset + position));
+    }
+
+    void push(boolean object) {
+        if (depth == containers.length) {
+            boolean[] grown = new boolean[depth * 2];
+            System.arraycopy(containers, 0, grown, 0, depth);
+            containers = grown;
+        }
+        containers[depth++] = object;
+    }
+
+    int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    boolean fill() throws IOException {
+        if (reader == null) {
+            return false;
+        }
+        offset += limit;
+        position = 0;
+        limit = 0;
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    int skipWhitespace() throws IOException {
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            char c = buffer[position++];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return c;
+            }
+        }
+    }
+
+    void expect(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw error("Invalid literal");
+            }
+        }
+    }
+
+    void append(char c) {
+        if (textLength == text.length) {
+            char[] grown = new char[text.length * 2];
+            System.arraycopy(text, 0, grown, 0, textLength);
+            text = grown;
+        }
+        text[textLength++] = c;
+    }
+
+    void readString() throws IOException {
+        textLength = 0;
+        while (true) {
+            // copy runs of plain characters straight from the buffer
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"' || c == '\\') {
+                    break;
+                }
+                position++;
+            }
+            int run = position - start;
+            if (run > 0) {
+                if (textLength + run > text.length) {
+                    char[] grown = new char[Math.max(text.length * 2, textLength + run)];
+                    System.arraycopy(text, 0, grown, 0, textLength);
+                    text = grown;
+                }
+                System.arraycopy(buffer, start, text, textLength, run);
+                textLength += run;
+            }
+
+            int c = read();
+            if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                c = read();
+                switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    append((char) c);
+                    break;
+                case 'b':
+                    append('\b');
+                    break;
+                case 'f':
+                    append('\f');
+                    break;
+                case 'n':
+                    append('\n');
+                    break;
+                case 'r':
+                    append('\r');
+                    break;
+                case 't':
+                    append('\t');
+                    break;
+                case 'u':
+                    int value = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(read(), 16);
+                        if (digit < 0) {
+                            throw error("Invalid unicode escape");
+                        }
+                        value = value * 16 + digit;
+                    }
+                    append((char) value);
+                    break;
+                default:
+                    throw error("Invalid escape sequence");
+                }
+            } else if (c < 0) {
+                throw error("Unterminated string");
+            }
+        }
+    }
+
+    /**
+     * Returns the current text as a string, reusing a previous instance for common names
+     */
+    String cachedName() {
+        if (textLength > MAX_CACHED_NAME) {
+            return getText();
+        }
+        int hash = 0;
+        for (int i = 0; i < textLength; i++) {
+            hash = 31 * hash + text[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (NAME_CACHE_SIZE - 1);
+        String cached = names[slot];
+        if (cached != null && textEquals(cached)) {
+            return cached;
+        }
+        String result = getText();
+        names[slot] = result;
+        return result;
+    }
+
+    void readNumber(int first) throws IOException {
+        textLength = 0;
+        append((char) first);
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '-'
+                    || c == '+') {
+                append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        parseNumber();
+    }
+
+    /**
+     * Parses the number in the text buffer. Numbers with up to 15 significant digits and small
+     * exponents are computed directly, as both the mantissa and the power of ten are exact
+     * doubles, the result of a single multiplication or division is correctly rounded. Other
+     * numbers fall back on {@link Double#parseDouble(String)}.
+     */
+    void parseNumber() throws IOException {
+        int i = 0;
+        boolean negative = text[0] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean exponent = false;
+        boolean overflow = false;
+        int start = i;
+        for (; i < textLength; i++) {
+            char c = text[i];
+            if (c >= '0' && c <= '9') {
+                if (digits < 18) {
+                    if (mantissa != 0 || c != '0') {
+                        digits++;
+                    }
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (fraction) {
+                        scale--;
+                    }
+                } else {
+                    overflow = true;
+                    if (!fraction) {
+                        scale++;
+                    }
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c == 'e' || c == 'E') {
+                exponent = true;
+                break;
+            } else {
+                throw error("Invalid number " + getText());
+            }
+        }
+        if (i == start || text[i - 1] == '.') {
+            throw error("Invalid number " + getText());
+        }
+
+        int exp = 0;
+        if (exponent) {
+            i++;
+            boolean negativeExp = false;
+            if (i < textLength && (text[i] == '-' || text[i] == '+')) {
+                negativeExp = text[i] == '-';
+                i++;
+            }
+            if (i == textLength) {
+                throw error("Invalid number " + getText());
+            }
+            for (; i < textLength; i++) {
+                char c = text[i];
+                if (c < '0' || c > '9') {
+                    throw error("Invalid number " + getText());
+                }
+                if (exp < 10000) {
+                    exp = exp * 10 + (c - '0');
+                }
+            }
+            if (negativeExp) {
+                exp = -exp;
+            }
+        }
+
+        integral = !fraction && !exponent && !overflow;
+        if (integral) {
+            longValue = negative ? -mantissa : mantissa;
+            doubleValue = longValue;
+            return;
+        }
+
+        int power = scale + exp;
+        if (!overflow && digits <= 15 && power >= -22 && power <= 22) {
+            double value = mantissa;
+            value = power < 0 ? value / POW10[-power] : value * POW10[power];
+            doubleValue = negative ? -value : value;
+        } else {
+            try {
+                doubleValue = Double.parseDouble(getText());
+            } catch (NumberFormatException e) {
+                throw error("Invalid number " + getText());
+            }
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geojson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.json.simple.JSONAware;
+import org.json.simple.JSONStreamAware;
+
+/**
+ * Writes JSON text to a {@link Writer} through an internal buffer, formatting numbers and
+ * escaping strings in place so that no intermediate strings are created.
+ * <p>
+ * The output is the same as the json-simple encoder one, strings are escaped like
+ * {@link org.json.simple.JSONObject#escape(String)} and values are written like
+ * {@link org.json.simple.JSONValue#writeJSONString(Object, Writer)}.
+ * </p>
+ * <p>
+ * The writer does not validate the structure of the document, callers are responsible for
+ * writing separators. {@link #flush()} must be called once done.
+ * </p>
+ *
+ * @since 20.0
+ */
+public class JSONStreamWriter {
+
+    static final int BUFFER_SIZE = 8192;
+
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * The min value at which the decimal notation is used
+     * (below it, the computerized scientific one is used instead)
+     */
+    static final double DECIMAL_MIN = Math.pow(10, -3);
+
+    /**
+     * The max value at which the decimal notation is used
+     * (above it, the computerized scientific one is used instead)
+     */
+    static final double DECIMAL_MAX = Math.pow(10, 7);
+
+    Writer out;
+
+    char[] buffer = new char[BUFFER_SIZE];
+
+    int position;
+
+    /** Scratch space for number formatting, StringBuilder appends numbers without allocating */
+    StringBuilder scratch = new StringBuilder(32);
+
+    public JSONStreamWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a single character
+     */
+    public JSONStreamWriter write(char c) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = c;
+        return this;
+    }
+
+    /**
+     * Writes the text as is, without escaping it
+     */
+    public JSONStreamWriter write(String text) throws IOException {
+        int length = text.length();
+        int start = 0;
+        while (start < length) {
+            if (position == buffer.length) {
+                flushBuffer();
+            }
+            int count = Math.min(length - start, buffer.length - position);
+            text.getChars(start, start + count, buffer, position);
+            position += count;
+            start += count;
+        }
+        return this;
+    }
+
+    /**
+     * Writes a quoted and escaped string
+     */
+    public JSONStreamWriter string(String value) throws IOException {
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+            case '"':
+                write('\\').write('"');
+                break;
+            case '\\':
+                write('\\').write('\\');
+                break;
+            case '\b':
+                write('\\').write('b');
+                break;
+            case '\f':
+                write('\\').write('f');
+                break;
+            case '\n':
+                write('\\').write('n');
+                break;
+            case '\r':
+                write('\\').write('r');
+                break;
+            case '\t':
+                write('\\').write('t');
+                break;
+            case '/':
+                write('\\').write('/');
+                break;
+            default:
+                if ((ch >= '\u0000' && ch <= '\u001F') || (ch >= '\u007F' && ch <= '\u009F')
+                        || (ch >= '\u2000' && ch <= '\u20FF')) {
+                    write('\\').write('u').write(HEX[(ch >> 12) & 0xF])
+                            .write(HEX[(ch >> 8) & 0xF]).write(HEX[(ch >> 4) & 0xF])
+                            .write(HEX[ch & 0xF]);
+                } else {
+                    write(ch);
+                }
+            }
+        }
+        return write('"');
+    }
+
+    /**
+     * Writes a field name, quoted and escaped, followed by a colon
+     */
+    public JSONStreamWriter name(String name) throws IOException {
+        return string(name).write(':');
+    }
+
+    /**
+     * Writes a long value
+     */
+    public JSONStreamWriter number(long value) throws IOException {
+        scratch.setLength(0);
+        scratch.append(value);
+        return writeScratch();
+    }
+
+    /**
+     * Writes a double value the same way as {@link Double#toString(double)}, including NaN and
+     * infinite values
+     */
+    public JSONStreamWriter number(double value) throws IOException {
+        scratch.setLength(0);
+        scratch.append(value);
+        return writeScratch();
+    }
+
+    /**
+     * Writes a float value the same way as {@link Float#toString(float)}
+     */
+    public JSONStreamWriter number(float value) throws IOException {
+        scratch.setLength(0);
+        scratch.append(value);
+        return writeScratch();
+    }
+
+    /**
+     * Writes an ordinate rounded to the specified scale (10 to the number of decimals). Values
+     * between 10<sup>-3</sup> and 10<sup>7</sup> are written in decimal notation, integral values
+     * without the fractional part.
+     */
+    public JSONStreamWriter ordinate(double value, double scale) throws IOException {
+        if (Math.abs(value) >= DECIMAL_MIN && value < DECIMAL_MAX) {
+            value = Math.floor(value * scale + 0.5) / scale;
+            long lx = (long) value;
+            if (lx == value) {
+                return number(lx);
+            }
+        }
+        return number(value);
+    }
+
+    /**
+     * Writes a bounding box as an array of four doubles, x1,y1,x2,y2
+     */
+    public JSONStreamWriter bounds(double minX, double minY, double maxX, double maxY)
+            throws IOException {
+        write('[').number(minX).write(',').number(minY).write(',').number(maxX).write(',');
+        return number(maxY).write(']');
+    }
+
+    /**
+     * Writes a value the same way as {@link org.json.simple.JSONValue#writeJSONString(Object,
+     * Writer)}: strings are quoted, NaN and infinite numbers are written as null, maps and lists
+     * are written as objects and arrays.
+     */
+    public JSONStreamWriter value(Object value) throws IOException {
+        if (value == null) {
+            return write("null");
+        }
+        if (value instanceof String) {
+            return string((String) value);
+        }
+        if (value instanceof Double) {
+            double d = (Double) value;
+            return Double.isInfinite(d) || Double.isNaN(d) ? write("null") : number(d);
+        }
+        if (value instanceof Float) {
+            float f = (Float) value;
+            return Float.isInfinite(f) || Float.isNaN(f) ? write("null") : number(f);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            return number(((Number) value).longValue());
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            return write(value.toString());
+        }
+        if (value instanceof JSONStreamAware) {
+            flushBuffer();
+            ((JSONStreamAware) value).writeJSONString(out);
+            return this;
+        }
+        if (value instanceof JSONAware) {
+            return write(((JSONAware) value).toJSONString());
+        }
+        if (value instanceof Map) {
+            write('{');
+            Iterator<Map.Entry> it = ((Map) value).entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry entry = it.next();
+                name(String.valueOf(entry.getKey())).value(entry.getValue());
+                if (it.hasNext()) {
+                    write(',');
+                }
+            }
+            return write('}');
+        }
+        if (value instanceof List) {
+            write('[');
+            Iterator it = ((List) value).iterator();
+            while (it.hasNext()) {
+                value(it.next());
+                if (it.hasNext()) {
+                    write(',');
+                }
+            }
+            return write(']');
+        }
+        return write(value.toString());
+    }
+
+    /**
+     * Writes the buffered text and flushes the underlying writer
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    JSONStreamWriter writeScratch() throws IOException {
+        int length = scratch.length();
+        if (buffer.length - position < length) {
+            flushBuffer();
+        }
+        scratch.getChars(0, length, buffer, position);
+        position += length;
+        return this;
+    }
+
+    void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
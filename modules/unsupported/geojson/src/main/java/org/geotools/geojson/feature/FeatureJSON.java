@@ -16,17 +16,11 @@
  */
 package org.geotools.geojson.feature;
 
-import static org.geotools.geojson.GeoJSONUtil.array;
-import static org.geotools.geojson.GeoJSONUtil.entry;
-import static org.geotools.geojson.GeoJSONUtil.string;
-
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.Reader;
 import java.io.StringWriter;
-import java.io.Writer;
-import java.util.Arrays;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -37,13 +31,13 @@ import org.geotools.feature.FeatureIterator;
 import org.geotools.feature.SchemaException;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
 import org.geotools.geojson.GeoJSONUtil;
+import org.geotools.geojson.JSONPullParser;
+import org.geotools.geojson.JSONPullParser.Token;
+import org.geotools.geojson.JSONStreamWriter;
 import org.geotools.geojson.geom.GeometryJSON;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONAware;
-import org.json.simple.JSONStreamAware;
-import org.json.simple.parser.JSONParser;
+import org.geotools.util.Converters;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.feature.type.AttributeDescriptor;
@@ -221,7 +215,9 @@ public class FeatureJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void writeFeature(SimpleFeature feature, Object output) throws IOException {
-        GeoJSONUtil.encode(new FeatureEncoder(feature).toJSONString(), output);
+        JSONStreamWriter writer = new JSONStreamWriter(GeoJSONUtil.toWriter(output));
+        new FeatureEncoder(feature.getType()).write(feature, writer);
+        writer.flush();
     }
 
     /**
@@ -258,9 +254,16 @@ public class FeatureJSON {
      * @throws IOException In the event of a parsing error or if the input json is invalid.
      */
     public SimpleFeature readFeature(Object input) throws IOException {
-        return GeoJSONUtil.parse(new FeatureHandler(
-            featureType != null ? new SimpleFeatureBuilder(featureType): null, attio
-        ), input, false);
+        JSONPullParser parser = new JSONPullParser(GeoJSONUtil.toReader(input));
+        if (parser.next() != Token.START_OBJECT) {
+            return null;
+        }
+        return createFeatureParser().read(parser);
+    }
+
+    FeatureParser createFeatureParser() {
+        return new FeatureParser(gjson.getGeometryFactory(),
+            featureType != null ? new SimpleFeatureBuilder(featureType) : null, attio);
     }
 
     /**
@@ -284,8 +287,8 @@ public class FeatureJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void writeFeatureCollection(FeatureCollection features, Object output) throws IOException {
-        LinkedHashMap obj = new LinkedHashMap();
-        obj.put("type", "FeatureCollection");
+        JSONStreamWriter writer = new JSONStreamWriter(GeoJSONUtil.toWriter(output));
+        writer.write("{\"type\":\"FeatureCollection\"");
         
         if (features.getSchema().getGeometryDescriptor() != null) {
             final ReferencedEnvelope bounds = features.getBounds();
@@ -293,24 +296,23 @@ public class FeatureJSON {
 
             if (bounds != null) {
                 if (encodeFeatureCollectionBounds) {
-                    obj.put("bbox", new JSONStreamAware() {
-                        public void writeJSONString(Writer out) throws IOException {
-                            JSONArray.writeJSONString(Arrays.asList(bounds.getMinX(),
-                                    bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY()), out);
-                        }
-                    });
+                    writer.write(",\"bbox\":[").value(bounds.getMinX()).write(',')
+                        .value(bounds.getMinY()).write(',').value(bounds.getMaxX()).write(',')
+                        .value(bounds.getMaxY()).write(']');
                 }
             }
             
             if( crs != null ){
                 if (encodeFeatureCollectionCRS || !isStandardCRS( crs)) {
-                    obj.put("crs", createCRS(crs));
+                    writer.write(",\"crs\":").value(createCRS(crs));
                 }
             }
         }
         
-        obj.put("features", new FeatureCollectionEncoder(features, gjson));
-        GeoJSONUtil.encode(obj, output);
+        writer.write(",\"features\":");
+        new FeatureCollectionEncoder(features, gjson).write(writer);
+        writer.write('}');
+        writer.flush();
     }
 
     /**
@@ -366,9 +368,9 @@ public class FeatureJSON {
         //check for the case of a crs specified post features in the json
         if (features.getSchema() != null
                 && features.getSchema().getCoordinateReferenceSystem() == null 
-                && it.getHandler().getCRS() != null ) {
+                && it.getCRS() != null ) {
             try {
-                return new ForceCoordinateSystemFeatureResults(features, it.getHandler().getCRS());
+                return new ForceCoordinateSystemFeatureResults(features, it.getCRS());
             } catch (SchemaException e) {
                 throw (IOException) new IOException().initCause(e);
             }
@@ -559,111 +561,118 @@ public class FeatureJSON {
         return writer.toString();
    }
 
-    class FeatureEncoder implements JSONAware {
+    class FeatureEncoder {
 
         SimpleFeatureType featureType;
-        SimpleFeature feature;
-        
-        public FeatureEncoder(SimpleFeature feature) {
-            this(feature.getType());
-            this.feature = feature;
-        }
-        
+        int gindex;
+        CoordinateReferenceSystem crs;
+        String crsJSON;
+
         public FeatureEncoder(SimpleFeatureType featureType) {
             this.featureType = featureType;
+            this.gindex = featureType.getGeometryDescriptor() != null ? 
+                    featureType.indexOf(featureType.getGeometryDescriptor().getLocalName()) : 
+                    -1;
         }
-        
-        public String toJSONString(SimpleFeature feature) {
-            StringBuilder sb = new StringBuilder();
-            sb.append("{");
-            
+
+        public void write(SimpleFeature feature, JSONStreamWriter writer) throws IOException {
             //type
-            entry("type", "Feature", sb);
-            sb.append(",");
-            
+            writer.write("{\"type\":\"Feature\",");
+
             //crs
             if (encodeFeatureCRS) {
                 CoordinateReferenceSystem crs = 
                     feature.getFeatureType().getCoordinateReferenceSystem();
                 if (crs != null) {
-                    try {
-                        string("crs", sb).append(":");
-                        sb.append(FeatureJSON.this.toString(crs)).append(",");
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
+                    if (crs != this.crs) {
+                        this.crsJSON = FeatureJSON.this.toString(crs);
+                        this.crs = crs;
                     }
+                    writer.write("\"crs\":").write(crsJSON).write(',');
                 }
             }
             //bounding box
             if (encodeFeatureBounds) {
                 BoundingBox bbox = feature.getBounds();
-                string("bbox", sb).append(":");
-                sb.append(gjson.toString(bbox)).append(",");
+                writer.write("\"bbox\":").bounds(bbox.getMinX(), bbox.getMinY(),
+                        bbox.getMaxX(), bbox.getMaxY()).write(',');
             }
-            
+
             //geometry
             if (feature.getDefaultGeometry() != null) {
-                string("geometry", sb).append(":")
-                .append(gjson.toString((Geometry) feature.getDefaultGeometry()));    
-                sb.append(",");
+                writer.write("\"geometry\":");
+                gjson.write((Geometry) feature.getDefaultGeometry(), writer);
+                writer.write(',');
             }
-            
+
             //properties
-            int gindex = featureType.getGeometryDescriptor() != null ? 
-                    featureType.indexOf(featureType.getGeometryDescriptor().getLocalName()) : 
-                    -1;
-            
-            string("properties", sb).append(":").append("{");
+            writer.write("\"properties\":{");
             boolean attributesWritten = false;
             for (int i = 0; i < featureType.getAttributeCount(); i++) {
-                AttributeDescriptor ad = featureType.getDescriptor(i);
-                
                 // skip the default geometry, it's already encoded
                 if (i == gindex) {
                     continue;
                 }
-                
+
                 Object value = feature.getAttribute(i);
 
                 if (!encodeNullValues && value == null) {
                     //skip
                     continue;
                 }
-                
+
+                if (attributesWritten) {
+                    writer.write(',');
+                }
                 attributesWritten = true;
-                
+                writer.name(featureType.getDescriptor(i).getLocalName());
+
                 // handle special types separately, everything else as a string or literal
                 if (value instanceof Envelope) {
-                    array(ad.getLocalName(), gjson.toString((Envelope)value), sb);
+                    Envelope e = (Envelope) value;
+                    writer.bounds(e.getMinX(), e.getMinY(), e.getMaxX(), e.getMaxY());
                 } else if (value instanceof BoundingBox) {
-                    array(ad.getLocalName(), gjson.toString((BoundingBox)value), sb);
+                    BoundingBox b = (BoundingBox) value;
+                    writer.bounds(b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY());
                 } else if (value instanceof Geometry) {
-                    string(ad.getLocalName(), sb).append(":")
-                    .append(gjson.toString((Geometry) value));
+                    gjson.write((Geometry) value, writer);
                 } else {
-                    entry(ad.getLocalName(), value, sb);
+                    writeLiteral(value, writer);
                 }
-                sb.append(",");
             }
-            
-            if(attributesWritten) {
-                sb.setLength(sb.length()-1);
-            }
-            sb.append("},");
-            
+            writer.write("},");
+
             //id
-            entry("id", feature.getID(), sb);
-            
-            sb.append("}");
-            return sb.toString();
+            writer.write("\"id\":");
+            writeLiteral(feature.getID(), writer);
+            writer.write('}');
         }
-        
-        public String toJSONString() {
-            return toJSONString(feature);
+
+        /**
+         * Writes a value the same way as {@link GeoJSONUtil#entry(String, Object, StringBuilder)}
+         */
+        void writeLiteral(Object value, JSONStreamWriter writer) throws IOException {
+            if (value == null) {
+                writer.write("null");
+            } else if (value instanceof Date) {
+                writer.string(GeoJSONUtil.dateFormatter.format((Date) value));
+            } else if (value instanceof Double) {
+                writer.number(((Double) value).doubleValue());
+            } else if (value instanceof Integer || value instanceof Long) {
+                writer.number(((Number) value).longValue());
+            } else if (value instanceof Number || value instanceof Boolean) {
+                writer.write(value.toString());
+            } else {
+                String str = Converters.convert(value, String.class);
+                if(str == null) {
+                    str = value.toString();
+                }
+                writer.string(str);
+            }
         }
     }
     
-    class FeatureCollectionEncoder implements JSONStreamAware {
+    class FeatureCollectionEncoder {
 
         FeatureCollection features;
         GeometryJSON gjson;
@@ -673,22 +682,20 @@ public class FeatureJSON {
             this.gjson = gjson;
         }
         
-        public void writeJSONString(Writer out) throws IOException {
+        public void write(JSONStreamWriter writer) throws IOException {
             FeatureEncoder featureEncoder = 
                 new FeatureEncoder((SimpleFeatureType) features.getSchema());
             
-            out.write("[");
+            writer.write('[');
             FeatureIterator i = features.features();
             try {
-                if (i.hasNext()) {
-                    SimpleFeature f = (SimpleFeature) i.next();
-                    out.write(featureEncoder.toJSONString(f));
-                    
-                    while(i.hasNext()) {
-                        out.write(",");
-                        f = (SimpleFeature) i.next();
-                        out.write(featureEncoder.toJSONString(f));
+                boolean first = true;
+                while(i.hasNext()) {
+                    if (!first) {
+                        writer.write(',');
                     }
+                    first = false;
+                    featureEncoder.write((SimpleFeature) i.next(), writer);
                 }
             }
             finally {
@@ -696,41 +703,42 @@ public class FeatureJSON {
                     i.close();
                 }
             }
-            out.write("]");
-            out.flush();
+            writer.write(']');
         }
     }
 
     class FeatureCollectionIterator implements FeatureIterator<SimpleFeature> {
 
-        Reader reader;
-        FeatureCollectionHandler handler;
-        JSONParser parser;
+        JSONPullParser parser;
+        FeatureParser featureParser;
+        CoordinateReferenceSystem crs;
         SimpleFeature next;
+        boolean inFeatures;
         
         FeatureCollectionIterator(Object input) {
             try {
-                this.reader = GeoJSONUtil.toReader(input);
+                this.parser = new JSONPullParser(GeoJSONUtil.toReader(input));
             } 
             catch (IOException e) {
                 throw new RuntimeException(e);
             }
-            this.parser = new JSONParser();
         }
         
-        FeatureCollectionHandler getHandler() {
-            return handler;
+        /**
+         * The collection crs, only known for sure once all the features have been read
+         */
+        CoordinateReferenceSystem getCRS() {
+            return crs;
         }
         
         public boolean hasNext() {
             if (next != null) {
                 return true;
             }
-            
-            if (handler == null) {
-                handler = new FeatureCollectionHandler(featureType,  attio);
-                //handler = GeoJSONUtil.trace(handler, IFeatureCollectionHandler.class);
+            if (parser == null) {
+                return false;
             }
+            
             next = readNext();
             return next != null;
         }
@@ -743,8 +751,43 @@ public class FeatureJSON {
         
         SimpleFeature readNext() { 
             try {
-                parser.parse(reader, handler, true);
-                return handler.getValue(); 
+                if (featureParser == null) {
+                    if (parser.next() != Token.START_OBJECT) {
+                        return null;
+                    }
+                    featureParser = createFeatureParser();
+                }
+                
+                while (true) {
+                    Token token = parser.next();
+                    if (inFeatures) {
+                        if (token == Token.START_OBJECT) {
+                            return featureParser.read(parser);
+                        } else if (token == Token.END_ARRAY) {
+                            // keep on reading, a crs might follow the features
+                            inFeatures = false;
+                        } else {
+                            parser.skipValue();
+                        }
+                    } else if (token == Token.FIELD_NAME) {
+                        String key = parser.getFieldName();
+                        token = parser.next();
+                        if ("features".equals(key) && token == Token.START_ARRAY) {
+                            inFeatures = true;
+                        } else if ("crs".equals(key) && token == Token.START_OBJECT) {
+                            crs = FeatureParser.readCRS(parser);
+                            if (crs != null) {
+                                // the feature type might not be built yet, use it if so
+                                featureParser.setCRS(crs);
+                            }
+                        } else {
+                            parser.skipValue();
+                        }
+                    } else {
+                        // end of the collection
+                        return null;
+                    }
+                }
             } 
             catch(Exception e) {
                 throw new RuntimeException(e);
@@ -757,16 +800,15 @@ public class FeatureJSON {
         }
 
         public void close() {
-            if(reader != null) {
+            if(parser != null) {
                 try {
-                    reader.close();
+                    parser.close();
                 } catch(IOException e) {
                     // nothing to do
                 }
-                reader = null;
+                parser = null;
             }
-            parser = null;
-            handler = null;
+            featureParser = null;
         }
     }
 }
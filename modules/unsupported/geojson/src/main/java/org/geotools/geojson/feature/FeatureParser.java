@@ -0,0 +1,275 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geojson.feature;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geojson.JSONPullParser;
+import org.geotools.geojson.JSONPullParser.Token;
+import org.geotools.geojson.geom.GeometryReader;
+import org.geotools.referencing.CRS;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.referencing.NoSuchAuthorityCodeException;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Reads GeoJSON features from a {@link JSONPullParser}, one at a time.
+ * <p>
+ * The parser follows the same rules as {@link FeatureHandler}: when no feature type is provided
+ * it is derived from the properties of the first feature, feature identifiers are generated
+ * following the last identifier seen, and properties are parsed with the {@link AttributeIO}.
+ * The same instance is meant to be used for all the features of a collection, so that the
+ * feature builder and the property buffers are shared among them.
+ * </p>
+ *
+ * @since 20.0
+ */
+class FeatureParser {
+
+    GeometryReader geometryReader;
+
+    SimpleFeatureBuilder builder;
+
+    AttributeIO attio;
+
+    CoordinateReferenceSystem crs;
+
+    int fid = 0;
+
+    String separator = "-";
+
+    String baseId = "feature";
+
+    String id;
+
+    Geometry geometry;
+
+    List<String> properties = new ArrayList<String>();
+
+    List<Object> values = new ArrayList<Object>();
+
+    FeatureParser(GeometryFactory factory, SimpleFeatureBuilder builder, AttributeIO attio) {
+        this.geometryReader = new GeometryReader(factory);
+        this.builder = builder;
+        this.attio = attio;
+    }
+
+    CoordinateReferenceSystem getCRS() {
+        return crs;
+    }
+
+    void setCRS(CoordinateReferenceSystem crs) {
+        this.crs = crs;
+    }
+
+    /**
+     * Reads a feature, the parser being positioned on its {@link Token#START_OBJECT} token.
+     * After the call the parser is positioned on the matching {@link Token#END_OBJECT}.
+     */
+    SimpleFeature read(JSONPullParser parser) throws IOException {
+        id = null;
+        geometry = null;
+
+        Token token;
+        while ((token = parser.next()) != Token.END_OBJECT) {
+            String key = parser.getFieldName();
+            token = parser.next();
+            if ("id".equals(key) && parser.isPrimitive()) {
+                if (token != Token.NULL) {
+                    id = parser.getValue().toString();
+                    setFID(id);
+                }
+            } else if ("crs".equals(key) && token == Token.START_OBJECT) {
+                crs = readCRS(parser);
+            } else if ("geometry".equals(key)
+                    && (token == Token.START_OBJECT || token == Token.NULL)) {
+                geometry = geometryReader.read(parser);
+            } else if ("properties".equals(key) && token == Token.START_OBJECT) {
+                readProperties(parser);
+            } else {
+                parser.skipValue();
+            }
+        }
+
+        return buildFeature();
+    }
+
+    void readProperties(JSONPullParser parser) throws IOException {
+        properties.clear();
+        values.clear();
+        while (parser.next() != Token.END_OBJECT) {
+            properties.add(parser.getFieldName());
+            parser.next();
+            values.add(readValue(parser));
+        }
+
+        if (builder == null) {
+            // no builder specified, build on the fly
+            builder = createBuilder(true);
+        }
+        for (int i = 0; i < properties.size(); i++) {
+            String att = properties.get(i);
+            Object val = values.get(i);
+            if (val instanceof String) {
+                val = attio.parse(att, (String) val);
+            }
+            builder.set(att, val);
+        }
+    }
+
+    /**
+     * Reads a property value, objects are parsed as geometries and arrays as lists
+     */
+    Object readValue(JSONPullParser parser) throws IOException {
+        switch (parser.getToken()) {
+        case START_OBJECT:
+            return geometryReader.read(parser);
+        case START_ARRAY:
+            List<Object> list = new ArrayList<Object>();
+            while (parser.next() != Token.END_ARRAY) {
+                list.add(readValue(parser));
+            }
+            return list;
+        default:
+            return parser.getValue();
+        }
+    }
+
+    /**
+     * Reads a named crs object, the parser being positioned on its {@link Token#START_OBJECT}
+     * token.
+     */
+    static CoordinateReferenceSystem readCRS(JSONPullParser parser) throws IOException {
+        CoordinateReferenceSystem crs = null;
+        while (parser.next() != Token.END_OBJECT) {
+            String key = parser.getFieldName();
+            Token token = parser.next();
+            if (!"properties".equals(key) || token != Token.START_OBJECT) {
+                parser.skipValue();
+                continue;
+            }
+            while (parser.next() != Token.END_OBJECT) {
+                key = parser.getFieldName();
+                token = parser.next();
+                if (crs == null && ("name".equals(key) || "code".equals(key))
+                        && parser.isPrimitive() && token != Token.NULL) {
+                    crs = decodeCRS(parser.getValue().toString());
+                } else {
+                    parser.skipValue();
+                }
+            }
+        }
+        return crs;
+    }
+
+    static CoordinateReferenceSystem decodeCRS(String value) throws IOException {
+        try {
+            try {
+                return CRS.decode(value);
+            } catch (NoSuchAuthorityCodeException e) {
+                // try pending on EPSG
+                try {
+                    return CRS.decode("EPSG:" + value);
+                } catch (Exception e1) {
+                    // throw the original
+                    throw e;
+                }
+            }
+        } catch (Exception e) {
+            throw (IOException) new IOException("Error parsing " + value + " as crs id")
+                    .initCause(e);
+        }
+    }
+
+    SimpleFeatureBuilder createBuilder(boolean withProperties) {
+        SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+        typeBuilder.setName("feature");
+        typeBuilder.setNamespaceURI("http://geotools.org");
+        typeBuilder.setCRS(crs);
+
+        if (withProperties) {
+            for (int i = 0; i < properties.size(); i++) {
+                String prop = properties.get(i);
+                Object valu = values.get(i);
+                typeBuilder.add(prop, valu != null ? valu.getClass() : Object.class);
+            }
+        }
+        if (geometry != null) {
+            addGeometryType(typeBuilder, geometry);
+        }
+
+        return new SimpleFeatureBuilder(typeBuilder.buildFeatureType());
+    }
+
+    void addGeometryType(SimpleFeatureTypeBuilder typeBuilder, Geometry geometry) {
+        typeBuilder.add("geometry", geometry != null ? geometry.getClass() : Geometry.class);
+        typeBuilder.setDefaultGeometry("geometry");
+    }
+
+    SimpleFeature buildFeature() {
+        SimpleFeatureBuilder builder = this.builder != null ? this.builder : createBuilder(false);
+        SimpleFeatureType featureType = builder.getFeatureType();
+        SimpleFeature f = builder.buildFeature(getFID());
+        if (geometry != null) {
+            if (featureType.getGeometryDescriptor() == null) {
+                // case of geometry coming after properties, we have to retype the feature
+                SimpleFeatureTypeBuilder typeBuilder = new SimpleFeatureTypeBuilder();
+                typeBuilder.init(featureType);
+                addGeometryType(typeBuilder, geometry);
+                featureType = typeBuilder.buildFeatureType();
+                SimpleFeatureBuilder newBuilder = new SimpleFeatureBuilder(featureType);
+                newBuilder.init(f);
+                f = newBuilder.buildFeature(getFID());
+            }
+            f.setAttribute(featureType.getGeometryDescriptor().getLocalName(), geometry);
+        }
+        fid++;
+        return f;
+    }
+
+    void setFID(String f) {
+        int index = f.lastIndexOf('.');
+        if (index < 0) {
+            index = f.indexOf('-');
+            if (index >= 0) {
+                separator = "-";
+            } else {
+                return;
+            }
+        } else {
+            separator = ".";
+        }
+        baseId = f.substring(0, index);
+        try {
+            fid = Integer.parseInt(f.substring(index + 1));
+        } catch (NumberFormatException e) {
+            // keep the id as is
+        }
+    }
+
+    String getFID() {
+        return id != null ? id : baseId + separator + fid;
+    }
+}
@@ -29,6 +29,8 @@ import java.util.Map;
 
 import org.geotools.geojson.GeoJSONUtil;
 import org.geotools.geojson.IContentHandler;
+import org.geotools.geojson.JSONPullParser;
+import org.geotools.geojson.JSONStreamWriter;
 import org.json.simple.JSONAware;
 import org.opengis.geometry.BoundingBox;
 
@@ -69,7 +71,7 @@ import com.vividsolutions.jts.geom.Polygon;
  */
 public class GeometryJSON {
 
-    GeometryFactory factory = new GeometryFactory();
+    GeometryFactory factory;
     boolean trace = false;
     int decimals;
     double scale;
@@ -86,8 +88,30 @@ public class GeometryJSON {
      * to use when encoding floating point numbers.
      */
     public GeometryJSON(int decimals) {
+        this(decimals, new GeometryFactory());
+    }
+
+    /**
+     * Constructs a geometry json instance specifying the number of decimals
+     * to use when encoding floating point numbers, and the factory used to
+     * build the parsed geometries.
+     * <p>
+     * The coordinates parsed by {@link #read(Object)} are stored in the sequences
+     * created by the factory {@link com.vividsolutions.jts.geom.CoordinateSequenceFactory},
+     * a packed sequence factory keeps them as primitive arrays.
+     * </p>
+     */
+    public GeometryJSON(int decimals, GeometryFactory factory) {
         this.decimals = decimals;
         this.scale = Math.pow(10, decimals);
+        this.factory = factory;
+    }
+
+    /**
+     * The factory used to build parsed geometries.
+     */
+    public GeometryFactory getGeometryFactory() {
+        return factory;
     }
     
     /**
@@ -115,11 +139,7 @@ public class GeometryJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void write(Geometry geometry, Object output) throws IOException {
-        if (geometry == null || geometry.isEmpty()) {
-            GeoJSONUtil.encode("null", output); 
-        } else {
-            GeoJSONUtil.encode(create(geometry), output);
-        }
+        encode(geometry, output);
     }
 
     /**
@@ -131,7 +151,121 @@ public class GeometryJSON {
      * @param output The output stream.
      */
     public void write(Geometry geometry, OutputStream output) throws IOException {
-        GeoJSONUtil.encode(create(geometry), output);
+        encode(geometry, output);
+    }
+
+    /**
+     * Writes a Geometry instance as GeoJSON to a stream writer, a null or empty geometry is
+     * written as null.
+     * <p>
+     * The writer is not flushed.
+     * </p>
+     * @param geometry The geometry.
+     * @param writer The json stream writer.
+     */
+    public void write(Geometry geometry, JSONStreamWriter writer) throws IOException {
+        if (geometry == null || geometry.isEmpty()) {
+            writer.write("null");
+            return;
+        }
+        if (geometry instanceof GeometryCollection && !(geometry instanceof MultiPoint)
+                && !(geometry instanceof MultiLineString) && !(geometry instanceof MultiPolygon)) {
+            writer.write("{\"type\":\"GeometryCollection\",\"geometries\":[");
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                write(geometry.getGeometryN(i), writer);
+            }
+            writer.write("]}");
+            return;
+        }
+
+        writer.write("{\"type\":\"").write(typeName(geometry)).write("\",\"coordinates\":");
+        writeCoordinates(geometry, writer);
+        writer.write('}');
+    }
+
+    String typeName(Geometry geometry) {
+        if (geometry instanceof Point) {
+            return "Point";
+        }
+        if (geometry instanceof LineString) {
+            return "LineString";
+        }
+        if (geometry instanceof Polygon) {
+            return "Polygon";
+        }
+        if (geometry instanceof MultiPoint) {
+            return "MultiPoint";
+        }
+        if (geometry instanceof MultiLineString) {
+            return "MultiLineString";
+        }
+        if (geometry instanceof MultiPolygon) {
+            return "MultiPolygon";
+        }
+        throw new IllegalArgumentException("Unable to encode object " + geometry);
+    }
+
+    void writeCoordinates(Geometry geometry, JSONStreamWriter writer) throws IOException {
+        if (geometry instanceof Point) {
+            writeSequence(((Point) geometry).getCoordinateSequence(), writer);
+        } else if (geometry instanceof LineString) {
+            writeSequence(((LineString) geometry).getCoordinateSequence(), writer);
+        } else if (geometry instanceof Polygon) {
+            Polygon poly = (Polygon) geometry;
+            writer.write('[');
+            writeSequence(poly.getExteriorRing().getCoordinateSequence(), writer);
+            for (int i = 0; i < poly.getNumInteriorRing(); i++) {
+                writer.write(',');
+                writeSequence(poly.getInteriorRingN(i).getCoordinateSequence(), writer);
+            }
+            writer.write(']');
+        } else if (geometry instanceof GeometryCollection) {
+            writer.write('[');
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writeCoordinates(geometry.getGeometryN(i), writer);
+            }
+            writer.write(']');
+        } else {
+            throw new IllegalArgumentException("Unable to encode object " + geometry);
+        }
+    }
+
+    /**
+     * Writes the sequence ordinates straight from the sequence, without creating
+     * {@link Coordinate} objects, the output is the same as {@link CoordinateSequenceEncoder}
+     */
+    void writeSequence(CoordinateSequence seq, JSONStreamWriter writer) throws IOException {
+        int size = seq.size();
+        boolean hasZ = seq.getDimension() > 2;
+        if (size > 1) {
+            writer.write('[');
+        }
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write('[');
+            writer.ordinate(seq.getOrdinate(i, 0), scale);
+            writer.write(',');
+            writer.ordinate(seq.getOrdinate(i, 1), scale);
+            if (hasZ) {
+                double z = seq.getOrdinate(i, 2);
+                if (!Double.isNaN(z)) {
+                    writer.write(',');
+                    writer.ordinate(z, scale);
+                }
+            }
+            writer.write(']');
+        }
+        if (size > 1) {
+            writer.write(']');
+        }
     }
 
     /**
@@ -193,7 +327,14 @@ public class GeometryJSON {
      * @return The geometry instance.
      */
     public Geometry read(Object input) throws IOException {
-        return parse(new GeometryHandler(factory), input); 
+        if (trace) {
+            return parse(new GeometryHandler(factory), input);
+        }
+        JSONPullParser parser = new JSONPullParser(GeoJSONUtil.toReader(input));
+        if (parser.next() == null) {
+            return null;
+        }
+        return new GeometryReader(factory).read(parser);
     }
 
     /**
@@ -218,7 +359,7 @@ public class GeometryJSON {
      * @throws IOException In the event of a parsing error or if the input json is invalid.
      */
     public void writePoint(Point point, Object output) throws IOException {
-        encode(createPoint(point), output);
+        encode(point, output);
     }
 
     /**
@@ -278,7 +419,7 @@ public class GeometryJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void writeLine(LineString line, Object output) throws IOException {
-        encode(createLine(line), output);
+        encode(line, output);
     }
 
     /**
@@ -336,7 +477,7 @@ public class GeometryJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void writePolygon(Polygon poly, Object output) throws IOException {
-        encode(createPolygon(poly), output);
+        encode(poly, output);
     }
 
     /**
@@ -394,7 +535,7 @@ public class GeometryJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void writeMultiPoint(MultiPoint mpoint, Object output) throws IOException {
-        encode(createMultiPoint(mpoint), output);
+        encode(mpoint, output);
     }
 
     /**
@@ -453,7 +594,7 @@ public class GeometryJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void writeMultiLine(MultiLineString mline, Object output) throws IOException {
-        encode(createMultiLine(mline), output);
+        encode(mline, output);
     }
 
     /**
@@ -511,7 +652,7 @@ public class GeometryJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void writeMultiPolygon(MultiPolygon mpoly, Object output) throws IOException {
-        encode(createMultiPolygon(mpoly), output);
+        encode(mpoly, output);
     }
 
     /**
@@ -569,7 +710,7 @@ public class GeometryJSON {
      * @param output The output. See {@link GeoJSONUtil#toWriter(Object)} for details.
      */
     public void writeGeometryCollection(GeometryCollection gcol, Object output) throws IOException {
-        encode(createGeometryCollection(gcol), output);
+        encode(gcol, output);
     }
 
     /**
@@ -658,6 +799,12 @@ public class GeometryJSON {
     void encode(Map<String,Object> obj, Object output) throws IOException {
         GeoJSONUtil.encode(obj, output);
     }
+
+    void encode(Geometry geometry, Object output) throws IOException {
+        JSONStreamWriter writer = new JSONStreamWriter(GeoJSONUtil.toWriter(output));
+        write(geometry, writer);
+        writer.flush();
+    }
     
     List toList(Polygon poly) {
         ArrayList list = new ArrayList();
@@ -0,0 +1,334 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geojson.geom;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.geojson.JSONPullParser;
+import org.geotools.geojson.JSONPullParser.Token;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequenceFactory;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Reads GeoJSON geometries from a {@link JSONPullParser}.
+ * <p>
+ * Coordinates are parsed as primitive doubles into reusable buffers and copied once into the
+ * coordinate sequences built by the geometry factory {@link CoordinateSequenceFactory}, no
+ * intermediate coordinate or list object is created for each position. The members of the
+ * geometry object can appear in any order.
+ * </p>
+ *
+ * @since 20.0
+ */
+public class GeometryReader {
+
+    GeometryFactory factory;
+
+    CoordinateSequenceFactory csFactory;
+
+    /** Ordinate buffers, reused across geometries */
+    List<Ordinates> pool = new ArrayList<Ordinates>();
+
+    int pooled;
+
+    int depth;
+
+    public GeometryReader(GeometryFactory factory) {
+        this.factory = factory;
+        this.csFactory = factory.getCoordinateSequenceFactory();
+    }
+
+    /**
+     * Reads a geometry object.
+     *
+     * @param parser The parser, positioned on the {@link Token#START_OBJECT} token of the
+     *        geometry, or on a {@link Token#NULL} one. After the call the parser is positioned on
+     *        the last token of the geometry.
+     * @return The geometry, or null if the value is null or the geometry has no type.
+     * @throws IOException In the event of a parsing error or if the input json is invalid.
+     */
+    public Geometry read(JSONPullParser parser) throws IOException {
+        Token token = parser.getToken();
+        if (token == Token.NULL) {
+            return null;
+        }
+        if (token != Token.START_OBJECT) {
+            throw new IOException("Expected a geometry object, found " + token);
+        }
+
+        if (depth == 0) {
+            pooled = 0;
+        }
+        depth++;
+        try {
+            String type = null;
+            Object coordinates = null;
+            List<Geometry> geometries = null;
+            while ((token = parser.next()) != Token.END_OBJECT) {
+                String key = parser.getFieldName();
+                token = parser.next();
+                if ("type".equals(key) && token == Token.STRING) {
+                    type = parser.getText();
+                } else if ("coordinates".equals(key) && token == Token.START_ARRAY) {
+                    coordinates = readCoordinates(parser, parser.next());
+                } else if ("geometries".equals(key) && token == Token.START_ARRAY) {
+                    geometries = new ArrayList<Geometry>();
+                    while ((token = parser.next()) != Token.END_ARRAY) {
+                        Geometry geometry = read(parser);
+                        if (geometry != null) {
+                            geometries.add(geometry);
+                        }
+                    }
+                } else {
+                    parser.skipValue();
+                }
+            }
+
+            if (type == null) {
+                return null;
+            }
+            return create(type, coordinates, geometries);
+        } finally {
+            depth--;
+        }
+    }
+
+    Geometry create(String type, Object coordinates, List<Geometry> geometries)
+            throws IOException {
+        if ("GeometryCollection".equals(type)) {
+            if (geometries == null) {
+                geometries = new ArrayList<Geometry>();
+            }
+            return factory.createGeometryCollection(geometries.toArray(new Geometry[geometries
+                    .size()]));
+        }
+        if ("Point".equals(type)) {
+            return factory.createPoint(sequence(coordinates));
+        }
+        if ("LineString".equals(type)) {
+            return factory.createLineString(sequence(coordinates));
+        }
+        if ("Polygon".equals(type)) {
+            return polygon(coordinates);
+        }
+        if ("MultiPoint".equals(type)) {
+            Point[] points;
+            if (coordinates instanceof Ordinates) {
+                Ordinates ordinates = (Ordinates) coordinates;
+                points = new Point[ordinates.size];
+                for (int i = 0; i < points.length; i++) {
+                    points[i] = factory.createPoint(ordinates.toSequence(csFactory, i, 1));
+                }
+            } else if (children(coordinates).isEmpty()) {
+                points = new Point[0];
+            } else {
+                throw new IOException("Expected a list of positions");
+            }
+            return factory.createMultiPoint(points);
+        }
+        if ("MultiLineString".equals(type)) {
+            List<Object> children = children(coordinates);
+            LineString[] lines = new LineString[children.size()];
+            for (int i = 0; i < lines.length; i++) {
+                lines[i] = factory.createLineString(sequence(children.get(i)));
+            }
+            return factory.createMultiLineString(lines);
+        }
+        if ("MultiPolygon".equals(type)) {
+            List<Object> children = children(coordinates);
+            Polygon[] polygons = new Polygon[children.size()];
+            for (int i = 0; i < polygons.length; i++) {
+                polygons[i] = polygon(children.get(i));
+            }
+            return factory.createMultiPolygon(polygons);
+        }
+        throw new IOException("Unknown geometry type " + type);
+    }
+
+    Polygon polygon(Object coordinates) throws IOException {
+        List<Object> rings = children(coordinates);
+        if (rings.isEmpty()) {
+            throw new IllegalArgumentException("Polygon specified with no rings.");
+        }
+        LinearRing outer = factory.createLinearRing(sequence(rings.get(0)));
+        LinearRing[] inner = null;
+        if (rings.size() > 1) {
+            inner = new LinearRing[rings.size() - 1];
+            for (int i = 1; i < rings.size(); i++) {
+                inner[i - 1] = factory.createLinearRing(sequence(rings.get(i)));
+            }
+        }
+        return factory.createPolygon(outer, inner);
+    }
+
+    CoordinateSequence sequence(Object coordinates) throws IOException {
+        if (coordinates instanceof Ordinates) {
+            Ordinates ordinates = (Ordinates) coordinates;
+            return ordinates.toSequence(csFactory, 0, ordinates.size);
+        }
+        if (coordinates == null || ((List) coordinates).isEmpty()) {
+            return csFactory.create(0, 2);
+        }
+        throw new IOException("Expected a list of positions");
+    }
+
+    List<Object> children(Object coordinates) throws IOException {
+        if (coordinates == null) {
+            return new ArrayList<Object>();
+        }
+        if (coordinates instanceof List) {
+            return (List<Object>) coordinates;
+        }
+        throw new IOException("Unexpected position in coordinates");
+    }
+
+    /**
+     * Reads the content of a coordinate array, returning an {@link Ordinates} if its members are
+     * positions, or the list of nested arrays otherwise.
+     *
+     * @param token The first token after the start of the array
+     */
+    Object readCoordinates(JSONPullParser parser, Token token) throws IOException {
+        if (token == Token.NUMBER) {
+            // a single position
+            Ordinates ordinates = obtain();
+            readPosition(parser, ordinates);
+            return ordinates;
+        }
+
+        Ordinates sequence = null;
+        List<Object> children = null;
+        while (token != Token.END_ARRAY) {
+            if (token != Token.START_ARRAY) {
+                throw new IOException("Unexpected " + token + " in coordinates");
+            }
+            token = parser.next();
+            if (token == Token.NUMBER) {
+                if (sequence == null) {
+                    sequence = obtain();
+                }
+                readPosition(parser, sequence);
+            } else {
+                if (children == null) {
+                    children = new ArrayList<Object>();
+                }
+                children.add(readCoordinates(parser, token));
+            }
+            token = parser.next();
+        }
+        if (sequence != null && children != null) {
+            throw new IOException("Positions and arrays of positions mixed in coordinates");
+        }
+        if (sequence != null) {
+            return sequence;
+        }
+        return children != null ? children : new ArrayList<Object>();
+    }
+
+    /**
+     * Reads the ordinates of a position, the parser being positioned on its first one
+     */
+    void readPosition(JSONPullParser parser, Ordinates ordinates) throws IOException {
+        double x = parser.getDouble();
+        double y = Double.NaN;
+        double z = Double.NaN;
+        int count = 1;
+        Token token;
+        while ((token = parser.next()) != Token.END_ARRAY) {
+            if (token != Token.NUMBER) {
+                throw new IOException("Unexpected " + token + " in position");
+            }
+            if (count == 1) {
+                y = parser.getDouble();
+            } else if (count == 2) {
+                z = parser.getDouble();
+            }
+            count++;
+        }
+        if (count < 2) {
+            throw new IOException("Too few ordinates to create coordinate");
+        }
+        ordinates.add(x, y, z);
+    }
+
+    Ordinates obtain() {
+        Ordinates ordinates;
+        if (pooled < pool.size()) {
+            ordinates = pool.get(pooled);
+            ordinates.reset();
+        } else {
+            ordinates = new Ordinates();
+            pool.add(ordinates);
+        }
+        pooled++;
+        return ordinates;
+    }
+
+    /**
+     * A growable array of x,y,z triplets
+     */
+    static class Ordinates {
+
+        double[] data = new double[48];
+
+        int size;
+
+        boolean hasZ;
+
+        void reset() {
+            size = 0;
+            hasZ = false;
+        }
+
+        void add(double x, double y, double z) {
+            int offset = size * 3;
+            if (offset + 3 > data.length) {
+                double[] grown = new double[data.length * 2];
+                System.arraycopy(data, 0, grown, 0, offset);
+                data = grown;
+            }
+            data[offset] = x;
+            data[offset + 1] = y;
+            data[offset + 2] = z;
+            hasZ |= !Double.isNaN(z);
+            size++;
+        }
+
+        CoordinateSequence toSequence(CoordinateSequenceFactory csFactory, int start, int count) {
+            CoordinateSequence cs = csFactory.create(count, hasZ ? 3 : 2);
+            int dimension = Math.min(cs.getDimension(), 3);
+            for (int i = 0; i < count; i++) {
+                int offset = (start + i) * 3;
+                cs.setOrdinate(i, 0, data[offset]);
+                cs.setOrdinate(i, 1, data[offset + 1]);
+                if (dimension > 2) {
+                    cs.setOrdinate(i, 2, data[offset + 2]);
+                }
+            }
+            return cs;
+        }
+    }
+}
@@ -519,6 +519,48 @@ public class FeatureJSONTest extends GeoJSONTestSupport {
         testFeatureCollectionStream(true, true);
     }
     
+    public void testFeatureCollectionStreamLarge() throws Exception {
+        DefaultFeatureCollection collection = new DefaultFeatureCollection(null, featureType);
+        for (int i = 0; i < 5000; i++) {
+            collection.add(feature(i));
+        }
+        StringWriter writer = new StringWriter();
+        fjson.writeFeatureCollection(collection, writer);
+
+        FeatureIterator<SimpleFeature> features =
+            fjson.streamFeatureCollection(reader(writer.toString()));
+        FeatureIterator e = collection.features();
+        int count = 0;
+        while(e.hasNext()) {
+            assertTrue(features.hasNext());
+            SimpleFeature expected = (SimpleFeature) e.next();
+            SimpleFeature actual = features.next();
+            assertEquals(expected.getID(), actual.getID());
+            assertEqualsLax(expected, actual);
+            count++;
+        }
+        assertFalse(features.hasNext());
+        assertEquals(5000, count);
+        features.close();
+        e.close();
+    }
+
+    public void testFeatureEscapedStringReadWrite() throws Exception {
+        String value = "a \"quoted\" \\ / value\n\twith \u00e9, \u0001 and \u2028";
+        fb.add(1);
+        fb.add(1.1);
+        fb.add(value);
+        fb.add(new GeometryFactory().createPoint(new Coordinate(1, 2)));
+        SimpleFeature feature = fb.buildFeature("feature.1");
+
+        String json = fjson.toString(feature);
+        assertTrue(json.contains("a \\\"quoted\\\" \\\\ \\/ value\\n\\twith \u00e9, \\u0001 and \\u2028"));
+
+        SimpleFeature read = fjson.readFeature(json);
+        assertEquals(value, read.getAttribute("string"));
+        assertEquals("feature.1", read.getID());
+    }
+
     void testFeatureCollectionStream(boolean withBounds, boolean withCRS) throws Exception {
         FeatureIterator<SimpleFeature> features = 
             fjson.streamFeatureCollection(reader(strip(collectionText(withBounds, withCRS))));
@@ -0,0 +1,117 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.geojson;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.geotools.geojson.JSONPullParser.Token;
+
+public class JSONPullParserTest extends GeoJSONTestSupport {
+
+    public void testTokens() throws Exception {
+        JSONPullParser parser = new JSONPullParser(reader(strip(
+            "{'a': [1, -2.5e3, true, null, 'x\\u0041\\n'], 'b': {}, 'c': false}")));
+        assertEquals(Token.START_OBJECT, parser.next());
+        assertEquals(Token.FIELD_NAME, parser.next());
+        assertEquals("a", parser.getFieldName());
+        assertEquals(Token.START_ARRAY, parser.next());
+        assertEquals(Token.NUMBER, parser.next());
+        assertTrue(parser.isIntegral());
+        assertEquals(Long.valueOf(1), parser.getValue());
+        assertEquals(Token.NUMBER, parser.next());
+        assertFalse(parser.isIntegral());
+        assertEquals(-2500d, parser.getDouble());
+        assertEquals(Token.TRUE, parser.next());
+        assertEquals(Boolean.TRUE, parser.getValue());
+        assertEquals(Token.NULL, parser.next());
+        assertNull(parser.getValue());
+        assertEquals(Token.STRING, parser.next());
+        assertEquals("xA\n", parser.getText());
+        assertEquals(Token.END_ARRAY, parser.next());
+        assertEquals(Token.FIELD_NAME, parser.next());
+        assertEquals("b", parser.getFieldName());
+        assertEquals(Token.START_OBJECT, parser.next());
+        assertEquals(Token.END_OBJECT, parser.next());
+        assertEquals(Token.FIELD_NAME, parser.next());
+        assertEquals(Token.FALSE, parser.next());
+        assertEquals(Token.END_OBJECT, parser.next());
+        assertNull(parser.next());
+    }
+
+    public void testNumbers() throws Exception {
+        String[] numbers = { "0", "-0.0", "0.1", "100.1", "1.7976931348623157E308", "4.9E-324",
+                "123456789012345678", "12345678901234567890", "0.30000000000000004", "1e22",
+                "1e23", "-2.5E-7" };
+        for (String number : numbers) {
+            JSONPullParser parser = new JSONPullParser(reader(number));
+            assertEquals(Token.NUMBER, parser.next());
+            assertEquals(number, Double.parseDouble(number), parser.getDouble());
+        }
+    }
+
+    public void testSkipValue() throws Exception {
+        JSONPullParser parser = new JSONPullParser(reader(strip(
+            "{'skip': {'a': [[1, 2], {'b': []}]}, 'keep': 'value'}")));
+        parser.next();
+        parser.next();
+        parser.next();
+        parser.skipValue();
+        assertEquals(Token.END_OBJECT, parser.getToken());
+        assertEquals(Token.FIELD_NAME, parser.next());
+        assertEquals("keep", parser.getFieldName());
+        assertEquals(Token.STRING, parser.next());
+        assertEquals("value", parser.getText());
+    }
+
+    public void testInvalid() throws Exception {
+        String[] invalid = { "[1 2]", "{'a' 1}", "[1,]]", "{'a': 1", "[tru]", "[1.]", "['a" };
+        for (String json : invalid) {
+            JSONPullParser parser = new JSONPullParser(reader(json.replace('\'', '"')));
+            try {
+                while (parser.next() != null) {
+                    // consume
+                }
+                fail("Parsed invalid json " + json);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    public void testWriteRead() throws Exception {
+        StringWriter out = new StringWriter();
+        JSONStreamWriter writer = new JSONStreamWriter(out);
+        String text = "a \"b\" \\ / \n \u0001 \u00e9 \u2028";
+        writer.write('[').string(text).write(',').number(0.1).write(',').number(42L)
+                .write(',').ordinate(1.23456789, 1e4).write(',').value(Double.NaN).write(']');
+        writer.flush();
+
+        JSONPullParser parser = new JSONPullParser(reader(out.toString()));
+        assertEquals(Token.START_ARRAY, parser.next());
+        assertEquals(Token.STRING, parser.next());
+        assertEquals(text, parser.getText());
+        assertEquals(Token.NUMBER, parser.next());
+        assertEquals(0.1, parser.getDouble());
+        assertEquals(Token.NUMBER, parser.next());
+        assertEquals(42, parser.getLong());
+        assertEquals(Token.NUMBER, parser.next());
+        assertEquals(1.2346, parser.getDouble());
+        assertEquals(Token.NULL, parser.next());
+        assertEquals(Token.END_ARRAY, parser.next());
+    }
+}
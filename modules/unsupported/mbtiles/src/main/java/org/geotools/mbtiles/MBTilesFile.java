@@ -16,6 +16,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -30,6 +31,31 @@ public class MBTilesFile implements AutoCloseable {
 
     public static final String PRAGMA_JOURNAL_MODE_OFF = "PRAGMA journal_mode=OFF";
 
+    /**
+     * Number of tiles written in a single JDBC batch by {@link #saveTiles(Iterator)}
+     */
+    public static final int BULK_BATCH_SIZE = 1000;
+
+    /**
+     * Number of tiles written in a single transaction by {@link #saveTiles(Iterator)}
+     */
+    public static final int BULK_TRANSACTION_SIZE = 100000;
+
+    /**
+     * Connection settings used by {@link #saveTiles(Iterator)}, the same as the GeoPackage bulk
+     * load (see {@code org.geotools.geopkg.FeatureBulkLoader.BULK_PRAGMAS} for what they do)
+     */
+    static final Map<String, String> PRAGMAS_BULK = new LinkedHashMap<String, String>();
+
+    static final Map<String, String> PRAGMAS_BULK_NO_JOURNAL = new LinkedHashMap<String, String>();
+    static {
+        PRAGMAS_BULK_NO_JOURNAL.put("synchronous", "OFF");
+        PRAGMAS_BULK_NO_JOURNAL.put("cache_size", "-65536");
+        PRAGMAS_BULK_NO_JOURNAL.put("temp_store", "MEMORY");
+        PRAGMAS_BULK.putAll(PRAGMAS_BULK_NO_JOURNAL);
+        PRAGMAS_BULK.put("journal_mode", "MEMORY");
+    }
+
     public class TileIterator implements Iterator<MBTilesTile>, Closeable {
 
         ResultSet rs;
@@ -295,6 +321,86 @@ public class MBTilesFile implements AutoCloseable {
         }
     }
 
+    /**
+     * Store tiles in bulk.
+     * <p>
+     * Unlike {@link #saveTile(MBTilesTile)}, which uses a connection and a statement per tile
+     * and updates the zoom level metadata each time, the tiles are written through prepared
+     * statements executed in batches of {@link #BULK_BATCH_SIZE} tiles, committed every
+     * {@link #BULK_TRANSACTION_SIZE} tiles, with the connection set up for bulk writes. The
+     * min and max zoom levels are saved once at the end. Tiles without data are deleted.
+     * </p>
+     * <p>
+     * In case of failure the tiles committed until then are kept.
+     * </p>
+     *
+     * @throws IOException
+     */
+    public void saveTiles(Iterator<MBTilesTile> tiles) throws IOException {
+        try {
+            Connection cx = connPool.getConnection();
+            try {
+                if (disableJournal) {
+                    disableJournal(cx);
+                }
+                Map<String, String> pragmas = pragmas(cx, disableJournal ? PRAGMAS_BULK_NO_JOURNAL
+                        : PRAGMAS_BULK);
+                boolean autoCommit = cx.getAutoCommit();
+                cx.setAutoCommit(false);
+                try (PreparedStatement insert = cx.prepareStatement(
+                        format("INSERT OR REPLACE INTO %s VALUES (?,?,?,?)", TABLE_TILES));
+                        PreparedStatement delete = cx.prepareStatement(format(
+                                "DELETE FROM %s WHERE zoom_level=? AND tile_column=? AND tile_row=?",
+                                TABLE_TILES))) {
+                    // the statement with pending batched tiles, executed before switching to the
+                    // other one so that inserts and deletes are applied in order
+                    PreparedStatement batched = null;
+                    int count = 0;
+                    while (tiles.hasNext()) {
+                        MBTilesTile entry = tiles.next();
+                        PreparedStatement ps = entry.getData() != null ? insert : delete;
+                        if (batched != null && batched != ps) {
+                            batched.executeBatch();
+                        }
+                        ps.setLong(1, entry.getZoomLevel());
+                        ps.setLong(2, entry.getTileColumn());
+                        ps.setLong(3, entry.getTileRow());
+                        if (entry.getData() != null) {
+                            ps.setBytes(4, entry.getData());
+                        }
+                        ps.addBatch();
+                        batched = ps;
+
+                        count++;
+                        if (count % BULK_BATCH_SIZE == 0) {
+                            batched.executeBatch();
+                            batched = null;
+                        }
+                        if (count % BULK_TRANSACTION_SIZE == 0) {
+                            cx.commit();
+                        }
+                    }
+                    if (batched != null) {
+                        batched.executeBatch();
+                    }
+                    cx.commit();
+                } catch (SQLException e) {
+                    cx.rollback();
+                    throw e;
+                } finally {
+                    cx.setAutoCommit(autoCommit);
+                    pragmas(cx, pragmas);
+                }
+            } finally {
+                cx.close();
+            }
+
+            saveMinMaxZoomMetadata((int) minZoom(), (int) maxZoom());
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
     /**
      * Store a grid
      * 
@@ -740,6 +846,33 @@ public class MBTilesFile implements AutoCloseable {
         SqlUtil.runScript(getClass().getResourceAsStream(filename), cx);
     }
     
+    /**
+     * Sets the pragmas on the connection
+     *
+     * @return The previous values of the pragmas
+     */
+    private Map<String, String> pragmas(Connection cx, Map<String, String> pragmas)
+            throws SQLException {
+        Map<String, String> previous = new LinkedHashMap<String, String>();
+        Statement st = cx.createStatement();
+        try {
+            for (Map.Entry<String, String> pragma : pragmas.entrySet()) {
+                ResultSet rs = st.executeQuery("PRAGMA " + pragma.getKey());
+                try {
+                    if (rs.next()) {
+                        previous.put(pragma.getKey(), rs.getString(1));
+                    }
+                } finally {
+                    rs.close();
+                }
+                st.execute("PRAGMA " + pragma.getKey() + " = " + pragma.getValue());
+            }
+        } finally {
+            st.close();
+        }
+        return previous;
+    }
+
     private void disableJournal(Connection cx) throws SQLException {
         PreparedStatement prepared = prepare(cx,PRAGMA_JOURNAL_MODE_OFF).statement();
         try{
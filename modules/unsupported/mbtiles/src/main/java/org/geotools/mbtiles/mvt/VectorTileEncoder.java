@@ -0,0 +1,503 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mbtiles.mvt;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Encodes features into a single Mapbox Vector Tile (version 2.1 of the specification).
+ * <p>
+ * Geometries are expected in tile pixel coordinates, with the origin in the upper left corner of
+ * the tile and the y axis pointing down, they are quantized to integers as they are added.
+ * Points, lines and rings collapsing once quantized are dropped, exterior rings are oriented
+ * clockwise and holes counter clockwise as the specification requires. Attribute values are
+ * shared among the features of a layer.
+ * </p>
+ * <p>
+ * The tile is written directly in the protocol buffers wire format, the encoder is not thread
+ * safe.
+ * </p>
+ *
+ * @since 20.0
+ */
+public class VectorTileEncoder {
+
+    /** The default tile extent, in pixels */
+    public static final int DEFAULT_EXTENT = 4096;
+
+    static final int VERSION = 2;
+
+    /** Geometry types */
+    static final int POINT = 1;
+
+    static final int LINESTRING = 2;
+
+    static final int POLYGON = 3;
+
+    /** Geometry commands */
+    static final int MOVE_TO = 1;
+
+    static final int LINE_TO = 2;
+
+    static final int CLOSE_PATH = 7;
+
+    /** Protocol buffers wire types */
+    static final int VARINT = 0;
+
+    static final int FIXED64 = 1;
+
+    static final int LENGTH_DELIMITED = 2;
+
+    static final int FIXED32 = 5;
+
+    int extent;
+
+    Map<String, EncodedLayer> layers = new LinkedHashMap<>();
+
+    public VectorTileEncoder() {
+        this(DEFAULT_EXTENT);
+    }
+
+    public VectorTileEncoder(int extent) {
+        this.extent = extent;
+    }
+
+    public int getExtent() {
+        return extent;
+    }
+
+    /**
+     * Adds a feature to the named layer, the layer is created on the first feature added to it.
+     *
+     * @param layerName The layer name
+     * @param id The feature id, or null if the feature has none
+     * @param attributes The feature attributes, null values are skipped
+     * @param geometry The geometry in tile pixel coordinates
+     * @return True if the feature has been added, false if its geometry is empty once quantized
+     */
+    public boolean addFeature(String layerName, Long id, Map<String, ?> attributes,
+            Geometry geometry) {
+        if (geometry == null || geometry.isEmpty()) {
+            return false;
+        }
+        if (geometry.getClass().equals(GeometryCollection.class)) {
+            // mixed collections are not supported by the format, add each part separately
+            boolean added = false;
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                added |= addFeature(layerName, id, attributes, geometry.getGeometryN(i));
+            }
+            return added;
+        }
+
+        GeometryEncoder commands = new GeometryEncoder();
+        int type = commands.encode(geometry);
+        if (commands.size == 0) {
+            return false;
+        }
+
+        EncodedLayer layer = layers.get(layerName);
+        if (layer == null) {
+            layer = new EncodedLayer(layerName);
+            layers.put(layerName, layer);
+        }
+
+        ProtoWriter feature = new ProtoWriter();
+        if (id != null) {
+            feature.varint(1, id);
+        }
+        if (attributes != null && !attributes.isEmpty()) {
+            int[] tags = new int[attributes.size() * 2];
+            int n = 0;
+            for (Map.Entry<String, ?> attribute : attributes.entrySet()) {
+                Object value = value(attribute.getValue());
+                if (value != null) {
+                    tags[n++] = layer.key(attribute.getKey());
+                    tags[n++] = layer.value(value);
+                }
+            }
+            feature.packed(2, tags, n);
+        }
+        feature.varint(3, type);
+        feature.packed(4, commands.commands, commands.size);
+        layer.features.add(feature.toByteArray());
+        return true;
+    }
+
+    /** Returns true if no feature has been added to the tile */
+    public boolean isEmpty() {
+        return layers.isEmpty();
+    }
+
+    /** Returns the encoded tile, uncompressed */
+    public byte[] encode() {
+        ProtoWriter tile = new ProtoWriter();
+        for (EncodedLayer layer : layers.values()) {
+            ProtoWriter out = new ProtoWriter();
+            out.varint(15, VERSION);
+            out.string(1, layer.name);
+            for (byte[] feature : layer.features) {
+                out.bytes(2, feature);
+            }
+            for (String key : layer.keys.keySet()) {
+                out.string(3, key);
+            }
+            for (Object value : layer.values.keySet()) {
+                out.bytes(4, encodeValue(value));
+            }
+            out.varint(5, extent);
+            tile.bytes(3, out.toByteArray());
+        }
+        return tile.toByteArray();
+    }
+
+    /**
+     * Normalizes an attribute value to one of the types the format supports
+     */
+    static Object value(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean
+                || value instanceof Double || value instanceof Float) {
+            return value;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return value.toString();
+    }
+
+    static byte[] encodeValue(Object value) {
+        ProtoWriter out = new ProtoWriter();
+        if (value instanceof String) {
+            out.string(1, (String) value);
+        } else if (value instanceof Float) {
+            out.tag(2, FIXED32);
+            out.fixed32(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Double) {
+            out.tag(3, FIXED64);
+            out.fixed64(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Long) {
+            long l = (Long) value;
+            if (l >= 0) {
+                out.varint(5, l);
+            } else {
+                out.varint(6, (l << 1) ^ (l >> 63));
+            }
+        } else if (value instanceof Boolean) {
+            out.varint(7, ((Boolean) value) ? 1 : 0);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * The features, keys and values of a layer, keys and values are kept with their index
+     */
+    static class EncodedLayer {
+
+        String name;
+
+        List<byte[]> features = new ArrayList<>();
+
+        Map<String, Integer> keys = new LinkedHashMap<>();
+
+        Map<Object, Integer> values = new LinkedHashMap<>();
+
+        EncodedLayer(String name) {
+            this.name = name;
+        }
+
+        int key(String key) {
+            Integer index = keys.get(key);
+            if (index == null) {
+                index = keys.size();
+                keys.put(key, index);
+            }
+            return index;
+        }
+
+        int value(Object value) {
+            Integer index = values.get(value);
+            if (index == null) {
+                index = values.size();
+                values.put(value, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Turns a geometry into a sequence of commands, the cursor position is kept across the
+     * parts of the geometry as the specification requires
+     */
+    static class GeometryEncoder {
+
+        int[] commands = new int[32];
+
+        int size;
+
+        int x;
+
+        int y;
+
+        int encode(Geometry geometry) {
+            if (geometry instanceof Point || geometry instanceof MultiPoint) {
+                encodePoints(geometry);
+                return POINT;
+            } else if (geometry instanceof LineString || geometry instanceof MultiLineString) {
+                for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                    encodeLine((LineString) geometry.getGeometryN(i));
+                }
+                return LINESTRING;
+            } else if (geometry instanceof Polygon || geometry instanceof MultiPolygon) {
+                for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                    encodePolygon((Polygon) geometry.getGeometryN(i));
+                }
+                return POLYGON;
+            }
+            throw new IllegalArgumentException("Unsupported geometry type "
+                    + geometry.getGeometryType());
+        }
+
+        void encodePoints(Geometry geometry) {
+            int[] xy = new int[geometry.getNumGeometries() * 2];
+            int n = 0;
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                Coordinate c = geometry.getGeometryN(i).getCoordinate();
+                if (c != null) {
+                    xy[n++] = (int) Math.round(c.x);
+                    xy[n++] = (int) Math.round(c.y);
+                }
+            }
+            if (n > 0) {
+                command(MOVE_TO, n / 2);
+                for (int i = 0; i < n; i += 2) {
+                    point(xy[i], xy[i + 1]);
+                }
+            }
+        }
+
+        void encodeLine(LineString line) {
+            int[] xy = quantize(line.getCoordinates(), false);
+            if (xy.length >= 4) {
+                path(xy, xy.length / 2);
+            }
+        }
+
+        void encodePolygon(Polygon polygon) {
+            int[] shell = quantize(polygon.getExteriorRing().getCoordinates(), true);
+            long area = area(shell);
+            if (shell.length < 6 || area == 0) {
+                // the holes of a collapsed shell would be taken as exterior rings
+                return;
+            }
+            ring(shell, area < 0);
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                int[] hole = quantize(polygon.getInteriorRingN(i).getCoordinates(), true);
+                area = area(hole);
+                if (hole.length >= 6 && area != 0) {
+                    ring(hole, area > 0);
+                }
+            }
+        }
+
+        void ring(int[] xy, boolean reverse) {
+            if (reverse) {
+                for (int i = 0, j = xy.length - 2; i < j; i += 2, j -= 2) {
+                    int tx = xy[i];
+                    int ty = xy[i + 1];
+                    xy[i] = xy[j];
+                    xy[i + 1] = xy[j + 1];
+                    xy[j] = tx;
+                    xy[j + 1] = ty;
+                }
+            }
+            path(xy, xy.length / 2);
+            command(CLOSE_PATH, 1);
+        }
+
+        void path(int[] xy, int points) {
+            command(MOVE_TO, 1);
+            point(xy[0], xy[1]);
+            command(LINE_TO, points - 1);
+            for (int i = 1; i < points; i++) {
+                point(xy[i * 2], xy[i * 2 + 1]);
+            }
+        }
+
+        void command(int id, int count) {
+            add((id & 0x7) | (count << 3));
+        }
+
+        void point(int px, int py) {
+            add(zigZag(px - x));
+            add(zigZag(py - y));
+            x = px;
+            y = py;
+        }
+
+        void add(int value) {
+            if (size == commands.length) {
+                commands = Arrays.copyOf(commands, size * 2);
+            }
+            commands[size++] = value;
+        }
+
+        static int zigZag(int n) {
+            return (n << 1) ^ (n >> 31);
+        }
+
+        /**
+         * Rounds the coordinates to integers, removing the repeated points. The closing point
+         * of rings is removed too, the ClosePath command takes its place
+         */
+        static int[] quantize(Coordinate[] coordinates, boolean ring) {
+            int[] xy = new int[coordinates.length * 2];
+            int n = 0;
+            for (Coordinate c : coordinates) {
+                int px = (int) Math.round(c.x);
+                int py = (int) Math.round(c.y);
+                if (n == 0 || px != xy[n - 2] || py != xy[n - 1]) {
+                    xy[n++] = px;
+                    xy[n++] = py;
+                }
+            }
+            if (ring && n >= 4 && xy[0] == xy[n - 2] && xy[1] == xy[n - 1]) {
+                n -= 2;
+            }
+            return n == xy.length ? xy : Arrays.copyOf(xy, n);
+        }
+
+        /**
+         * Twice the signed area of the ring, positive for clockwise rings in tile coordinates
+         */
+        static long area(int[] xy) {
+            long area = 0;
+            int n = xy.length;
+            for (int i = 0; i < n; i += 2) {
+                int j = (i + 2) % n;
+                area += (long) xy[i] * xy[j + 1] - (long) xy[j] * xy[i + 1];
+            }
+            return area;
+        }
+    }
+
+    /**
+     * Minimal writer for the protocol buffers wire format
+     */
+    static class ProtoWriter {
+
+        byte[] buffer = new byte[64];
+
+        int size;
+
+        void tag(int field, int wireType) {
+            rawVarint((field << 3) | wireType);
+        }
+
+        void varint(int field, long value) {
+            tag(field, VARINT);
+            rawVarint(value);
+        }
+
+        void string(int field, String value) {
+            bytes(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void bytes(int field, byte[] value) {
+            tag(field, LENGTH_DELIMITED);
+            rawVarint(value.length);
+            write(value, value.length);
+        }
+
+        void packed(int field, int[] values, int count) {
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                length += varintSize(values[i] & 0xFFFFFFFFL);
+            }
+            tag(field, LENGTH_DELIMITED);
+            rawVarint(length);
+            for (int i = 0; i < count; i++) {
+                rawVarint(values[i] & 0xFFFFFFFFL);
+            }
+        }
+
+        void fixed32(int value) {
+            for (int i = 0; i < 4; i++) {
+                writeByte(value >>> (i * 8));
+            }
+        }
+
+        void fixed64(long value) {
+            for (int i = 0; i < 8; i++) {
+                writeByte((int) (value >>> (i * 8)));
+            }
+        }
+
+        void rawVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        static int varintSize(long value) {
+            int size = 1;
+            while ((value & ~0x7FL) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+
+        void writeByte(int b) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) b;
+        }
+
+        void write(byte[] bytes, int length) {
+            ensureCapacity(length);
+            System.arraycopy(bytes, 0, buffer, size, length);
+            size += length;
+        }
+
+        void ensureCapacity(int length) {
+            if (size + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + length));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+}
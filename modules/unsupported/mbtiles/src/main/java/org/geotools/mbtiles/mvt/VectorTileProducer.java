@@ -0,0 +1,443 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mbtiles.mvt;
+
+import java.awt.Rectangle;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import org.geotools.data.FeatureSource;
+import org.geotools.data.Query;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.factory.Hints;
+import org.geotools.feature.FeatureCollection;
+import org.geotools.feature.FeatureIterator;
+import org.geotools.geometry.jts.Decimator;
+import org.geotools.geometry.jts.GeometryClipper;
+import org.geotools.geometry.jts.LiteCoordinateSequenceFactory;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.mbtiles.MBTilesFile;
+import org.geotools.mbtiles.MBTilesTile;
+import org.geotools.referencing.CRS;
+import org.geotools.referencing.operation.transform.AffineTransform2D;
+import org.geotools.referencing.operation.transform.ConcatenatedTransform;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.Feature;
+import org.opengis.feature.GeometryAttribute;
+import org.opengis.feature.Property;
+import org.opengis.feature.type.FeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.opengis.referencing.operation.MathTransform;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Produces Mapbox Vector Tiles out of the feature layers of a map, on the Web Mercator tile grid
+ * (EPSG:3857, XYZ tile numbering, row 0 at the top).
+ * <p>
+ * For each tile and layer the features intersecting the tile, extended by the buffer, are
+ * queried with the geometry generalization distance matching one tile pixel pushed down to the
+ * source when it supports it, then the geometries are transformed to tile pixels, decimated,
+ * clipped to the buffered tile and encoded with a {@link VectorTileEncoder}. The layer
+ * definition query is honored, the layer styles are not.
+ * </p>
+ * <p>
+ * {@link #write(MBTilesFile, int, int, ReferencedEnvelope)} produces whole zoom ranges in
+ * parallel, and stores them gzip compressed as MBTiles expects vector tiles to be.
+ * </p>
+ *
+ * @since 20.0
+ */
+public class VectorTileProducer {
+
+    static final Logger LOGGER = Logging.getLogger(VectorTileProducer.class);
+
+    /** Half the side of the Web Mercator tile grid, in meters */
+    public static final double WORLD_EXTENT = 20037508.342789244;
+
+    /** The default buffer around the tiles, in tile pixels */
+    public static final int DEFAULT_BUFFER = 64;
+
+    static final CoordinateReferenceSystem WEB_MERCATOR;
+
+    static {
+        try {
+            WEB_MERCATOR = CRS.decode("EPSG:3857", true);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2();
+
+    List<Layer> layers;
+
+    int extent = VectorTileEncoder.DEFAULT_EXTENT;
+
+    int buffer = DEFAULT_BUFFER;
+
+    int threads = Runtime.getRuntime().availableProcessors();
+
+    public VectorTileProducer(MapContent map) {
+        this(map.layers());
+    }
+
+    public VectorTileProducer(List<Layer> layers) {
+        this.layers = new ArrayList<>(layers);
+    }
+
+    public int getExtent() {
+        return extent;
+    }
+
+    /** Sets the tile extent, in tile pixels, defaults to {@link VectorTileEncoder#DEFAULT_EXTENT} */
+    public void setExtent(int extent) {
+        this.extent = extent;
+    }
+
+    public int getBuffer() {
+        return buffer;
+    }
+
+    /** Sets the buffer around the tiles, in tile pixels, defaults to {@link #DEFAULT_BUFFER} */
+    public void setBuffer(int buffer) {
+        this.buffer = buffer;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Sets the number of tiles produced in parallel by
+     * {@link #write(MBTilesFile, int, int, ReferencedEnvelope)}, defaults to the number of
+     * processors
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /** Returns the bounds of a tile, in Web Mercator */
+    public static ReferencedEnvelope getTileBounds(int zoom, long column, long row) {
+        double span = 2 * WORLD_EXTENT / (1L << zoom);
+        double minx = -WORLD_EXTENT + column * span;
+        double maxy = WORLD_EXTENT - row * span;
+        return new ReferencedEnvelope(minx, minx + span, maxy - span, maxy, WEB_MERCATOR);
+    }
+
+    /**
+     * Produces a tile
+     *
+     * @return The uncompressed tile, or null if no feature falls in it
+     */
+    public byte[] produce(int zoom, long column, long row) throws IOException {
+        ReferencedEnvelope bounds = getTileBounds(zoom, column, row);
+        VectorTileEncoder encoder = new VectorTileEncoder(extent);
+        for (Layer layer : layers) {
+            if (layer.isVisible() && layer.getFeatureSource() != null) {
+                encode(layer, bounds, encoder);
+            }
+        }
+        return encoder.isEmpty() ? null : encoder.encode();
+    }
+
+    void encode(Layer layer, ReferencedEnvelope bounds, VectorTileEncoder encoder)
+            throws IOException {
+        FeatureSource<?, ?> source = layer.getFeatureSource();
+        FeatureType schema = source.getSchema();
+        GeometryDescriptor gd = schema.getGeometryDescriptor();
+        if (gd == null) {
+            return;
+        }
+        CoordinateReferenceSystem crs = gd.getCoordinateReferenceSystem();
+        if (crs == null) {
+            crs = WEB_MERCATOR;
+        }
+
+        try {
+            // from the layer crs to tile pixels, y pointing down
+            double scale = extent / bounds.getWidth();
+            MathTransform toTile = ConcatenatedTransform.create(
+                    CRS.findMathTransform(crs, WEB_MERCATOR, true),
+                    new AffineTransform2D(scale, 0, 0, -scale, -bounds.getMinX() * scale,
+                            bounds.getMaxY() * scale));
+
+            ReferencedEnvelope buffered = new ReferencedEnvelope(bounds);
+            buffered.expandBy(buffer / scale);
+            ReferencedEnvelope queryBounds = buffered.transform(crs, true);
+
+            Query query = new Query(layer.getQuery());
+            query.setTypeName(schema.getName().getLocalPart());
+            Filter bbox = FF.bbox(FF.property(gd.getLocalName()), queryBounds);
+            if (query.getFilter() == null || query.getFilter() == Filter.INCLUDE) {
+                query.setFilter(bbox);
+            } else {
+                query.setFilter(FF.and(query.getFilter(), bbox));
+            }
+
+            // same hints as the streaming renderer, with the generalization pushed down
+            // to the source when possible
+            LiteCoordinateSequenceFactory csFactory = new LiteCoordinateSequenceFactory();
+            GeometryFactory gFactory = new GeometryFactory(csFactory);
+            Hints hints = new Hints(Hints.JTS_COORDINATE_SEQUENCE_FACTORY, csFactory);
+            hints.put(Hints.JTS_GEOMETRY_FACTORY, gFactory);
+            hints.put(Hints.FEATURE_2D, Boolean.TRUE);
+            double[] spans = Decimator.computeGeneralizationDistances(toTile.inverse(),
+                    new Rectangle(extent, extent), 1);
+            double distance = Math.min(spans[0], spans[1]);
+            Set<?> supported = source.getSupportedHints();
+            Decimator decimator = new Decimator(spans[0], spans[1]);
+            if (supported.contains(Hints.GEOMETRY_SIMPLIFICATION)) {
+                hints.put(Hints.GEOMETRY_SIMPLIFICATION, distance);
+                decimator = new Decimator(-1, -1);
+            } else if (supported.contains(Hints.GEOMETRY_DISTANCE)) {
+                hints.put(Hints.GEOMETRY_DISTANCE, distance);
+            }
+            if (query.getHints() != null) {
+                hints.putAll(query.getHints());
+            }
+            query.setHints(hints);
+
+            String name = layer.getTitle() != null ? layer.getTitle()
+                    : schema.getName().getLocalPart();
+            GeometryClipper clipper = new GeometryClipper(new Envelope(-buffer, extent + buffer,
+                    -buffer, extent + buffer));
+            FeatureCollection<?, ?> features = source.getFeatures(query);
+            try (FeatureIterator<?> it = features.features()) {
+                while (it.hasNext()) {
+                    Feature feature = it.next();
+                    GeometryAttribute ga = feature.getDefaultGeometryProperty();
+                    Geometry geometry = ga != null ? (Geometry) ga.getValue() : null;
+                    if (geometry == null || geometry.isEmpty()) {
+                        continue;
+                    }
+                    // the decimator works in place, do not alter the source geometries
+                    geometry = decimator.decimateTransformGeneralize(
+                            gFactory.createGeometry(geometry), toTile);
+                    geometry = clipper.clipSafe(geometry, true, 1);
+                    if (geometry == null || geometry.isEmpty()) {
+                        continue;
+                    }
+                    encoder.addFeature(name, id(feature), attributes(feature), geometry);
+                }
+            }
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to encode layer " + layer.getTitle(), e);
+        }
+    }
+
+    static Map<String, Object> attributes(Feature feature) {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        for (Property p : feature.getProperties()) {
+            Object value = p.getValue();
+            if (value != null && !(value instanceof Geometry)) {
+                attributes.put(p.getName().getLocalPart(), value);
+            }
+        }
+        return attributes;
+    }
+
+    /**
+     * The numeric part of the feature id, as most stores build them out of an integer primary
+     * key, or null if there is none
+     */
+    static Long id(Feature feature) {
+        if (feature.getIdentifier() == null) {
+            return null;
+        }
+        String fid = feature.getIdentifier().getID();
+        try {
+            return Long.parseLong(fid.substring(fid.lastIndexOf('.') + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Produces the tiles of the zoom levels in the range that intersect the area, and saves
+     * them into the file. Empty tiles are not saved.
+     *
+     * @param area The area to cover, or null to cover the whole world
+     */
+    public void write(MBTilesFile file, int minZoom, int maxZoom, ReferencedEnvelope area)
+            throws IOException {
+        Envelope bounds;
+        if (area == null) {
+            bounds = new Envelope(-WORLD_EXTENT, WORLD_EXTENT, -WORLD_EXTENT, WORLD_EXTENT);
+        } else {
+            try {
+                bounds = area.transform(WEB_MERCATOR, true);
+            } catch (Exception e) {
+                throw new IOException("Failed to transform the area to Web Mercator", e);
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            file.saveTiles(new TileIterator(executor, bounds, minZoom, maxZoom));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Produces the tiles in the executor, a few ahead of the ones being saved, and returns them
+     * in order
+     */
+    class TileIterator implements Iterator<MBTilesTile> {
+
+        ExecutorService executor;
+
+        Envelope bounds;
+
+        int maxZoom;
+
+        int zoom;
+
+        long minColumn, maxColumn, minRow, maxRow;
+
+        long column, row;
+
+        Deque<Future<MBTilesTile>> pending = new ArrayDeque<>();
+
+        MBTilesTile next;
+
+        TileIterator(ExecutorService executor, Envelope bounds, int minZoom, int maxZoom) {
+            this.executor = executor;
+            this.bounds = bounds;
+            this.maxZoom = maxZoom;
+            this.zoom = minZoom;
+            if (zoom <= maxZoom) {
+                setZoom(zoom);
+            }
+        }
+
+        void setZoom(int zoom) {
+            long n = 1L << zoom;
+            double span = 2 * WORLD_EXTENT / n;
+            minColumn = clamp(Math.floor((bounds.getMinX() + WORLD_EXTENT) / span), n);
+            maxColumn = clamp(Math.floor((bounds.getMaxX() + WORLD_EXTENT) / span), n);
+            minRow = clamp(Math.floor((WORLD_EXTENT - bounds.getMaxY()) / span), n);
+            maxRow = clamp(Math.floor((WORLD_EXTENT - bounds.getMinY()) / span), n);
+            column = minColumn;
+            row = minRow;
+        }
+
+        long clamp(double index, long n) {
+            return Math.max(0, Math.min(n - 1, (long) index));
+        }
+
+        boolean submit() {
+            if (zoom > maxZoom) {
+                return false;
+            }
+            final int z = zoom;
+            final long x = column;
+            final long y = row;
+            pending.add(executor.submit(() -> {
+                byte[] data = produce(z, x, y);
+                if (data == null) {
+                    return null;
+                }
+                // MBTiles numbers the rows from the bottom
+                MBTilesTile tile = new MBTilesTile(z, x, (1L << z) - 1 - y);
+                tile.setData(gzip(data));
+                return tile;
+            }));
+            if (++column > maxColumn) {
+                column = minColumn;
+                if (++row > maxRow && ++zoom <= maxZoom) {
+                    setZoom(zoom);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                while (pending.size() < threads * 4 && submit()) {
+                    // fill the window
+                }
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                try {
+                    next = pending.poll().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new IOException(e));
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw new UncheckedIOException(cause instanceof IOException
+                            ? (IOException) cause : new IOException(cause));
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public MBTilesTile next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            MBTilesTile result = next;
+            next = null;
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.fine("Produced tile " + result.getZoomLevel() + "/"
+                        + result.getTileColumn() + "/" + result.getTileRow());
+            }
+            return result;
+        }
+    }
+
+    static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 16);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        }
+        return bytes.toByteArray();
+    }
+}
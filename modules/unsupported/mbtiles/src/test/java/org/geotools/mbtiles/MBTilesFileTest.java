@@ -8,7 +8,9 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -162,6 +164,39 @@ public class MBTilesFileTest {
         
         file.close();   
     }
+
+    @Test
+    public void testMBTilesSaveTiles() throws IOException, SQLException {
+        MBTilesFile file = new MBTilesFile();
+        file.init();
+
+        List<MBTilesTile> tiles = new ArrayList<MBTilesTile>();
+        for (int col = 0; col < 64; col++) {
+            for (int row = 0; row < 64; row++) {
+                MBTilesTile tile = new MBTilesTile(6, col, row);
+                tile.setData(("tile " + col + " " + row).getBytes());
+                tiles.add(tile);
+            }
+        }
+        MBTilesTile low = new MBTilesTile(2, 1, 1);
+        low.setData("low".getBytes());
+        tiles.add(low);
+        // tiles without data are removed
+        tiles.add(new MBTilesTile(6, 0, 0));
+
+        file.saveTiles(tiles.iterator());
+
+        assertEquals(64 * 64, file.numberOfTiles());
+        assertEquals(null, file.loadTile(6, 0, 0).getData());
+        assertTrue(Arrays.equals("tile 10 20".getBytes(), file.loadTile(6, 10, 20).getData()));
+        assertTrue(Arrays.equals("low".getBytes(), file.loadTile(2, 1, 1).getData()));
+
+        MBTilesMetadata metadata = file.loadMetaData();
+        assertEquals(2, metadata.getMinZoom());
+        assertEquals(6, metadata.getMaxZoom());
+
+        file.close();
+    }
     
     @Test
     public void testMBTilesGrid() throws IOException, SQLException {
@@ -0,0 +1,137 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mbtiles.mvt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geotools.mbtiles.mvt.VectorTileEncoder.EncodedLayer;
+import org.geotools.mbtiles.mvt.VectorTileEncoder.GeometryEncoder;
+import org.geotools.mbtiles.mvt.VectorTileEncoder.ProtoWriter;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class VectorTileEncoderTest {
+
+    WKTReader reader = new WKTReader();
+
+    int[] commands(String wkt) throws Exception {
+        GeometryEncoder encoder = new GeometryEncoder();
+        encoder.encode(reader.read(wkt));
+        return Arrays.copyOf(encoder.commands, encoder.size);
+    }
+
+    @Test
+    public void testSpecificationExamples() throws Exception {
+        assertArrayEquals(new int[] { 9, 50, 34 }, commands("POINT (25 17)"));
+        assertArrayEquals(new int[] { 17, 10, 14, 3, 9 }, commands("MULTIPOINT ((5 7), (3 2))"));
+        assertArrayEquals(new int[] { 9, 4, 4, 18, 0, 16, 16, 0 },
+                commands("LINESTRING (2 2, 2 10, 10 10)"));
+        assertArrayEquals(new int[] { 9, 4, 4, 18, 0, 16, 16, 0, 9, 17, 17, 10, 4, 8 },
+                commands("MULTILINESTRING ((2 2, 2 10, 10 10), (1 1, 3 5))"));
+        assertArrayEquals(new int[] { 9, 6, 12, 18, 10, 12, 24, 44, 15 },
+                commands("POLYGON ((3 6, 8 12, 20 34, 3 6))"));
+    }
+
+    @Test
+    public void testRingOrientation() throws Exception {
+        // counter clockwise shell and clockwise hole, in tile coordinates, get reversed
+        int[] reversed = commands(
+                "POLYGON ((0 0, 0 10, 10 10, 10 0, 0 0), (2 2, 4 2, 4 4, 2 4, 2 2))");
+        int[] expected = commands(
+                "POLYGON ((10 0, 10 10, 0 10, 0 0, 10 0), (2 4, 4 4, 4 2, 2 2, 2 4))");
+        assertArrayEquals(expected, reversed);
+        assertTrue(GeometryEncoder.area(new int[] { 10, 0, 10, 10, 0, 10, 0, 0 }) > 0);
+    }
+
+    @Test
+    public void testQuantization() throws Exception {
+        // repeated points once rounded are removed
+        assertArrayEquals(commands("LINESTRING (0 0, 5 5)"),
+                commands("LINESTRING (0 0, 0.2 0.3, 4.8 5.1, 5 5)"));
+        // collapsed lines and polygons are dropped, with their holes
+        assertEquals(0, commands("LINESTRING (0 0, 0.3 0.3)").length);
+        assertEquals(0, commands("POLYGON ((0 0, 0.2 0, 0.2 0.2, 0 0))").length);
+        assertEquals(0, commands("POLYGON ((0 0, 10 0, 20 0, 0 0))").length);
+        VectorTileEncoder encoder = new VectorTileEncoder();
+        assertFalse(encoder.addFeature("layer", 1L, null,
+                reader.read("POLYGON ((0 0, 0.2 0, 0.2 0.2, 0 0))")));
+        assertTrue(encoder.isEmpty());
+    }
+
+    @Test
+    public void testSharedKeysValues() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder(256);
+        Geometry point = reader.read("POINT (1 1)");
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("name", "a");
+        attributes.put("count", 1);
+        attributes.put("missing", null);
+        assertTrue(encoder.addFeature("points", 1L, attributes, point));
+        attributes.put("count", 1L);
+        assertTrue(encoder.addFeature("points", 2L, attributes, point));
+        attributes.put("count", 1.5);
+        assertTrue(encoder.addFeature("points", 3L, attributes, point));
+        assertTrue(encoder.addFeature("others", null, attributes, point));
+
+        EncodedLayer layer = encoder.layers.get("points");
+        assertEquals(3, layer.features.size());
+        assertEquals(Arrays.asList("name", "count"), Arrays.asList(layer.keys.keySet().toArray()));
+        assertEquals(Arrays.asList("a", 1L, 1.5), Arrays.asList(layer.values.keySet().toArray()));
+        assertEquals(2, encoder.layers.size());
+    }
+
+    @Test
+    public void testEncodeTile() throws Exception {
+        VectorTileEncoder encoder = new VectorTileEncoder();
+        encoder.addFeature("l", 7L, null, reader.read("POINT (25 17)"));
+
+        // feature: id 7, type point, geometry [9, 50, 34]
+        byte[] feature = { 0x08, 7, 0x18, 1, 0x22, 3, 9, 50, 34 };
+        assertArrayEquals(feature, encoder.layers.get("l").features.get(0));
+
+        ProtoWriter layer = new ProtoWriter();
+        layer.varint(15, 2);
+        layer.string(1, "l");
+        layer.bytes(2, feature);
+        layer.varint(5, 4096);
+        ProtoWriter tile = new ProtoWriter();
+        tile.bytes(3, layer.toByteArray());
+        assertArrayEquals(tile.toByteArray(), encoder.encode());
+    }
+
+    @Test
+    public void testValues() throws Exception {
+        assertArrayEquals(new byte[] { 0x0A, 1, 'x' }, VectorTileEncoder.encodeValue("x"));
+        assertArrayEquals(new byte[] { 0x28, (byte) 0xAC, 0x02 },
+                VectorTileEncoder.encodeValue(300L));
+        assertArrayEquals(new byte[] { 0x30, 3 }, VectorTileEncoder.encodeValue(-2L));
+        assertArrayEquals(new byte[] { 0x38, 1 }, VectorTileEncoder.encodeValue(true));
+        assertArrayEquals(new byte[] { 0x15, 0, 0, (byte) 0x80, 0x3F },
+                VectorTileEncoder.encodeValue(1f));
+        assertEquals(9, VectorTileEncoder.encodeValue(1d).length);
+        assertEquals(Long.valueOf(3), VectorTileEncoder.value((short) 3));
+    }
+}
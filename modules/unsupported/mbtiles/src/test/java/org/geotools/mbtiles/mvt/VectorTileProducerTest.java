@@ -0,0 +1,164 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2018, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.mbtiles.mvt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.geotools.data.memory.MemoryDataStore;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.map.FeatureLayer;
+import org.geotools.map.Layer;
+import org.geotools.map.MapContent;
+import org.geotools.mbtiles.MBTilesFile;
+import org.geotools.mbtiles.MBTilesMetadata;
+import org.geotools.mbtiles.MBTilesTile;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.geotools.styling.SLD;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class VectorTileProducerTest {
+
+    MemoryDataStore store;
+
+    Layer layer;
+
+    WKTReader reader = new WKTReader();
+
+    @Before
+    public void setUp() throws Exception {
+        SimpleFeatureTypeBuilder tb = new SimpleFeatureTypeBuilder();
+        tb.setName("places");
+        tb.setCRS(DefaultGeographicCRS.WGS84);
+        tb.add("geom", Point.class);
+        tb.add("name", String.class);
+        SimpleFeatureType schema = tb.buildFeatureType();
+
+        store = new MemoryDataStore(schema);
+        SimpleFeatureBuilder fb = new SimpleFeatureBuilder(schema);
+        fb.add(reader.read("POINT (-100 -45)"));
+        fb.add("south west");
+        store.addFeature(fb.buildFeature("places.1"));
+        fb.add(reader.read("POINT (100 45)"));
+        fb.add("north east");
+        store.addFeature(fb.buildFeature("places.2"));
+
+        layer = new FeatureLayer(store.getFeatureSource("places"), SLD.createSimpleStyle(schema),
+                "places");
+    }
+
+    @Test
+    public void testTileBounds() {
+        ReferencedEnvelope world = VectorTileProducer.getTileBounds(0, 0, 0);
+        assertEquals(-VectorTileProducer.WORLD_EXTENT, world.getMinX(), 1e-6);
+        assertEquals(VectorTileProducer.WORLD_EXTENT, world.getMaxY(), 1e-6);
+        ReferencedEnvelope tile = VectorTileProducer.getTileBounds(1, 1, 0);
+        assertEquals(0, tile.getMinX(), 1e-6);
+        assertEquals(0, tile.getMinY(), 1e-6);
+        assertEquals(VectorTileProducer.WORLD_EXTENT, tile.getMaxX(), 1e-6);
+    }
+
+    @Test
+    public void testProduce() throws Exception {
+        MapContent map = new MapContent();
+        map.addLayer(layer);
+        VectorTileProducer producer = new VectorTileProducer(map);
+
+        VectorTileEncoder expected = new VectorTileEncoder();
+        expected.addFeature("places", 1L, Collections.singletonMap("name", "south west"),
+                reader.read("POINT (910 2623)"));
+        expected.addFeature("places", 2L, Collections.singletonMap("name", "north east"),
+                reader.read("POINT (3186 1473)"));
+        assertArrayEquals(expected.encode(), producer.produce(0, 0, 0));
+
+        expected = new VectorTileEncoder();
+        expected.addFeature("places", 2L, Collections.singletonMap("name", "north east"),
+                reader.read("POINT (2276 2947)"));
+        assertArrayEquals(expected.encode(), producer.produce(1, 1, 0));
+
+        assertNull(producer.produce(1, 0, 0));
+        assertNull(producer.produce(3, 0, 7));
+        map.dispose();
+    }
+
+    @Test
+    public void testProduceBuffer() throws Exception {
+        // the north east point is 57 pixels right of this tile
+        VectorTileProducer producer = new VectorTileProducer(Collections.singletonList(layer));
+        producer.setExtent(256);
+        assertNotNull(producer.produce(3, 5, 2));
+        producer.setBuffer(0);
+        assertNull(producer.produce(3, 5, 2));
+        assertNotNull(producer.produce(3, 6, 2));
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        VectorTileProducer producer = new VectorTileProducer(Collections.singletonList(layer));
+        producer.setBuffer(0);
+        producer.setThreads(2);
+        try (MBTilesFile file = new MBTilesFile()) {
+            file.init();
+            producer.write(file, 0, 4, null);
+
+            // one tile at zoom 0, then one per point and zoom level
+            assertEquals(1 + 2 * 4, file.numberOfTiles());
+            MBTilesMetadata metadata = file.loadMetaData();
+            assertEquals(0, metadata.getMinZoom());
+            assertEquals(4, metadata.getMaxZoom());
+
+            // the north east point at zoom 2, tile rows counted from the bottom
+            MBTilesTile tile = file.loadTile(2, 3, 2);
+            assertArrayEquals(producer.produce(2, 3, 1), gunzip(tile.getData()));
+            assertNull(file.loadTile(2, 0, 0).getData());
+        }
+    }
+
+    @Test
+    public void testWriteArea() throws Exception {
+        VectorTileProducer producer = new VectorTileProducer(Collections.singletonList(layer));
+        producer.setBuffer(0);
+        try (MBTilesFile file = new MBTilesFile()) {
+            file.init();
+            ReferencedEnvelope area = new ReferencedEnvelope(90, 110, 40, 50,
+                    DefaultGeographicCRS.WGS84);
+            producer.write(file, 1, 3, area);
+            assertEquals(3, file.numberOfTiles());
+        }
+    }
+
+    byte[] gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}